@@ -18,15 +18,14 @@
 package org.apache.poi.hssf.usermodel;
 
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import org.apache.poi.ss.formula.CollaboratingWorkbooksEnvironment;
+import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.IStabilityClassifier;
+import org.apache.poi.ss.formula.SharedWorkbookEvaluator;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
-import org.apache.poi.ss.formula.eval.BoolEval;
-import org.apache.poi.ss.formula.eval.ErrorEval;
-import org.apache.poi.ss.formula.eval.NumericValueEval;
-import org.apache.poi.ss.formula.eval.StringValueEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.Cell;
@@ -192,28 +191,53 @@ public class HSSFFormulaEvaluator extends BaseFormulaEvaluator {
         evaluateAllFormulaCells(_book, this);
     }
 
+    /**
+     * Recalculates all formula cells like {@link #evaluateAll()}, but evaluates the
+     *  cells which don't depend on each other concurrently on the given pool.
+     * The dependencies are taken from the references of the formulas. The results
+     *  are saved once all cells have been evaluated. The workbook must not be
+     *  modified until this method returns.
+     *
+     * @param pool the pool to evaluate the formula cells on
+     * @since 4.0.0
+     */
+    public void evaluateAll(ForkJoinPool pool) {
+        evaluateAllFormulaCells(_book, this, pool);
+    }
+
+    /**
+     * Creates an evaluator for the cells of this workbook, which may be used by
+     *  several threads at the same time. The threads share the cached results of
+     *  the formula cells. The workbook must not be modified while it is used.
+     *
+     * @return a new evaluator using the user defined functions and the settings
+     *  of this evaluator
+     * @since 4.0.0
+     */
+    public SharedWorkbookEvaluator createSharedEvaluator() {
+        return createSharedEvaluator(_book, this);
+    }
+
     /**
      * Returns a CellValue wrapper around the supplied ValueEval instance.
      * @param cell
      */
     protected CellValue evaluateFormulaCellValue(Cell cell) {
-        ValueEval eval = _bookEvaluator.evaluate(new HSSFEvaluationCell((HSSFCell)cell));
-        if (eval instanceof BoolEval) {
-            BoolEval be = (BoolEval) eval;
-            return CellValue.valueOf(be.getBooleanValue());
-        }
-        if (eval instanceof NumericValueEval) {
-            NumericValueEval ne = (NumericValueEval) eval;
-            return new CellValue(ne.getNumberValue());
-        }
-        if (eval instanceof StringValueEval) {
-            StringValueEval ne = (StringValueEval) eval;
-            return new CellValue(ne.getStringValue());
-        }
-        if (eval instanceof ErrorEval) {
-            return CellValue.getError(((ErrorEval)eval).getErrorCode());
-        }
-        throw new RuntimeException("Unexpected eval class (" + eval.getClass().getName() + ")");
+        ValueEval eval = _bookEvaluator.evaluate(toEvaluationCell(cell));
+        return toCellValue(eval);
+    }
+
+    /**
+     * Turns a HSSFCell into a HSSFEvaluationCell
+     */
+    @Override
+    protected EvaluationCell toEvaluationCell(Cell cell) {
+        return new HSSFEvaluationCell((HSSFCell)cell);
+    }
+
+    @Override
+    protected Cell toCell(EvaluationCell cell) {
+        return ((HSSFEvaluationCell)cell).getHSSFCell();
     }
 
     /** {@inheritDoc} */
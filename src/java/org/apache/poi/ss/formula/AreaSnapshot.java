@@ -0,0 +1,186 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.usermodel.CellType;
+
+/**
+ * The values of an area of plain value cells, which functions scanning large ranges like SUM,
+ * SUMIFS or VLOOKUP can use instead of reading every cell through the evaluator.<p>
+ *
+ * The cells of the area are numbered row by row, starting with zero. Only the rows up to the
+ * last row of the sheet are stored, the cells below are blank.<p>
+ *
+ * Snapshots are created by the {@link WorkbookEvaluator} for areas which contain no formula
+ * cells, and are cached together with the derived {@link #getMatches(Predicate) matches} and
+ * {@link #getLookupIndex() lookup index} until one of the cells of the area is changed.
+ *
+ * @see TwoDEval#getSnapshot()
+ * @since 4.0.0
+ */
+public final class AreaSnapshot {
+
+    /** the number of predicates whose matches are kept */
+    private static final int MAX_CACHED_MATCHES = 256;
+
+    private final int _width;
+    private final int _size;
+    /** the values of the stored cells */
+    private final ValueEval[] _values;
+    /** the numeric values of the stored cells, zero for other values */
+    private final double[] _numbers;
+
+    private Map<Predicate<ValueEval>, BitSet> _matches;
+    private LookupIndex _lookupIndex;
+
+    private AreaSnapshot(int width, int size, ValueEval[] values, double[] numbers) {
+        _width = width;
+        _size = size;
+        _values = values;
+        _numbers = numbers;
+    }
+
+    /**
+     * Reads the values of the cells of the given area
+     *
+     * @return <code>null</code> if the area contains a formula cell
+     */
+    static AreaSnapshot create(EvaluationSheet sheet, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        int width = lastColumn - firstColumn + 1;
+        int storedLastRow = Math.min(lastRow, sheet.getLastRowNum());
+        int stored = storedLastRow < firstRow ? 0 : (storedLastRow - firstRow + 1) * width;
+        ValueEval[] values = new ValueEval[stored];
+        double[] numbers = new double[stored];
+        int i = 0;
+        for (int row = firstRow; row <= storedLastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                EvaluationCell cell = sheet.getCell(row, column);
+                if (cell != null && cell.getCellType() == CellType.FORMULA) {
+                    return null;
+                }
+                ValueEval value = WorkbookEvaluator.getValueFromNonFormulaCell(cell);
+                if (value instanceof NumberEval) {
+                    numbers[i] = ((NumberEval) value).getNumberValue();
+                }
+                values[i++] = value;
+            }
+        }
+        return new AreaSnapshot(width, (lastRow - firstRow + 1) * width, values, numbers);
+    }
+
+    /**
+     * @return the number of cells of the area
+     */
+    public int getSize() {
+        return _size;
+    }
+
+    public int getWidth() {
+        return _width;
+    }
+
+    public int getHeight() {
+        return _size / _width;
+    }
+
+    /**
+     * @param index the number of the cell, row by row
+     * @return the value of the cell, {@link BlankEval} for empty cells
+     */
+    public ValueEval getValue(int index) {
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Specified index (" + index
+                    + ") is outside the allowed range (0.." + (_size - 1) + ")");
+        }
+        return index < _values.length ? _values[index] : BlankEval.instance;
+    }
+
+    /**
+     * @return the cells which match the predicate, computed only once for equal predicates
+     */
+    public BitSet getMatches(Predicate<ValueEval> predicate) {
+        BitSet result = _matches == null ? null : _matches.get(predicate);
+        if (result == null) {
+            result = new BitSet(_size);
+            int stored = _values.length;
+            for (int i = 0; i < stored; i++) {
+                if (predicate.test(_values[i])) {
+                    result.set(i);
+                }
+            }
+            if (stored < _size && predicate.test(BlankEval.instance)) {
+                result.set(stored, _size);
+            }
+            if (_matches == null) {
+                _matches = new HashMap<>();
+            }
+            if (_matches.size() < MAX_CACHED_MATCHES) {
+                _matches.put(predicate, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the sum of the numeric values of the given cells, other values count as zero
+     */
+    public double sum(BitSet cells) {
+        double result = 0.0;
+        int stored = _values.length;
+        for (int i = cells.nextSetBit(0); i >= 0 && i < stored; i = cells.nextSetBit(i + 1)) {
+            result += _numbers[i];
+        }
+        return result;
+    }
+
+    /**
+     * @return the numeric values of the given cells in the order of the cells, booleans count
+     *  as 1 or 0 and all other values as zero
+     */
+    public double[] getNumbers(BitSet cells) {
+        double[] result = new double[cells.cardinality()];
+        int stored = _values.length;
+        int n = 0;
+        for (int i = cells.nextSetBit(0); i >= 0 && i < stored; i = cells.nextSetBit(i + 1)) {
+            ValueEval value = _values[i];
+            result[n++] = value instanceof BoolEval ? ((BoolEval) value).getNumberValue() : _numbers[i];
+        }
+        // the cells below the stored rows are blank, which counts as zero
+        return result;
+    }
+
+    /**
+     * @return the index of the values of this single row or column area for exact-match
+     *  lookups, <code>null</code> if the area has more than one row and column
+     */
+    public LookupIndex getLookupIndex() {
+        if (_lookupIndex == null && (_width == 1 || _width == _size)) {
+            _lookupIndex = LookupIndex.create(_values);
+        }
+        return _lookupIndex;
+    }
+}
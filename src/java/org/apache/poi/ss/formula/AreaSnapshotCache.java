@@ -0,0 +1,132 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches the {@link AreaSnapshot}s of large areas by their location.<p>
+ *
+ * Formulas which use a snapshot don't read the cells of the area, so they consume the cache
+ * entry of the snapshot instead. When a cell of the area changes, the entry is removed and
+ * the cached results of these formulas are cleared.
+ */
+final class AreaSnapshotCache {
+
+	private static final class Area {
+		private final int _bookIndex;
+		private final int _sheetIndex;
+		private final int _firstRow;
+		private final int _firstColumn;
+		private final int _lastRow;
+		private final int _lastColumn;
+
+		public Area(int bookIndex, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+			_bookIndex = bookIndex;
+			_sheetIndex = sheetIndex;
+			_firstRow = firstRow;
+			_firstColumn = firstColumn;
+			_lastRow = lastRow;
+			_lastColumn = lastColumn;
+		}
+
+		public boolean containsCell(int bookIndex, int sheetIndex, int rowIndex, int columnIndex) {
+			return _bookIndex == bookIndex && _sheetIndex == sheetIndex
+					&& _firstRow <= rowIndex && rowIndex <= _lastRow
+					&& _firstColumn <= columnIndex && columnIndex <= _lastColumn;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((((_bookIndex * 31 + _sheetIndex) * 31 + _firstRow) * 31 + _firstColumn) * 31
+					+ _lastRow) * 31 + _lastColumn;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Area)) {
+				return false;
+			}
+			Area other = (Area) obj;
+			return _bookIndex == other._bookIndex && _sheetIndex == other._sheetIndex
+					&& _firstRow == other._firstRow && _firstColumn == other._firstColumn
+					&& _lastRow == other._lastRow && _lastColumn == other._lastColumn;
+		}
+	}
+
+	static final class Entry extends CellCacheEntry {
+		/** <code>null</code> if the area contains formula cells */
+		private final AreaSnapshot _snapshot;
+
+		public Entry(AreaSnapshot snapshot) {
+			_snapshot = snapshot;
+		}
+
+		public AreaSnapshot getSnapshot() {
+			return _snapshot;
+		}
+	}
+
+	private final Map<Area, Entry> _entriesByArea;
+
+	public AreaSnapshotCache() {
+		_entriesByArea = new HashMap<>();
+	}
+
+	public Entry getOrCreate(int bookIndex, int sheetIndex, EvaluationSheet sheet,
+			int firstRow, int firstColumn, int lastRow, int lastColumn, EvaluationProfiler profiler) {
+		Area area = new Area(bookIndex, sheetIndex, firstRow, firstColumn, lastRow, lastColumn);
+		Entry result = _entriesByArea.get(area);
+		if (profiler != null) {
+			profiler.onAreaSnapshotCacheAccess(result != null);
+		}
+		if (result == null) {
+			result = new Entry(AreaSnapshot.create(sheet, firstRow, firstColumn, lastRow, lastColumn));
+			_entriesByArea.put(area, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the entries whose area contains the specified cell and clears the cached results
+	 * of the formulas which used them
+	 *
+	 * @param clearedCells collects the formula cells whose results are cleared
+	 */
+	public void notifyUpdateCell(int bookIndex, int sheetIndex, int rowIndex, int columnIndex,
+			IEvaluationListener evaluationListener, Set<FormulaCellCacheEntry> clearedCells) {
+		if (_entriesByArea.isEmpty()) {
+			return;
+		}
+		Iterator<Map.Entry<Area, Entry>> it = _entriesByArea.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Area, Entry> mapEntry = it.next();
+			if (mapEntry.getKey().containsCell(bookIndex, sheetIndex, rowIndex, columnIndex)) {
+				it.remove();
+				mapEntry.getValue().recurseClearCachedFormulaResults(evaluationListener, clearedCells);
+			}
+		}
+	}
+
+	public void clear() {
+		_entriesByArea.clear();
+	}
+}
@@ -17,8 +17,19 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.NumericValueEval;
+import org.apache.poi.ss.formula.eval.StringValueEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.CellValue;
@@ -150,6 +161,57 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
 
     protected abstract CellValue evaluateFormulaCellValue(Cell cell);
 
+    /**
+     * Turns a cell of the evaluated workbook into an EvaluationCell, which is needed
+     * to evaluate the formula cells concurrently. The evaluators of POI override this,
+     * other subclasses need to do so to use
+     * {@link #evaluateAllFormulaCells(Workbook, BaseFormulaEvaluator, ForkJoinPool)}.
+     *
+     * @throws UnsupportedOperationException if not overridden
+     * @since 4.0.0
+     */
+    protected EvaluationCell toEvaluationCell(Cell cell) {
+        throw new UnsupportedOperationException(getClass().getName()
+                + " does not override toEvaluationCell(Cell), so its formula cells can't be evaluated concurrently");
+    }
+
+    /**
+     * Turns an EvaluationCell of the evaluated workbook back into its cell, which is
+     * needed by {@link #recalculate(Collection)} to only evaluate the dependent cells.
+     * The evaluators of POI override this.
+     *
+     * @return the cell, or <code>null</code> if not overridden, in which case
+     *  {@link #recalculate(Collection)} evaluates all formula cells again
+     * @since 4.0.0
+     */
+    protected Cell toCell(EvaluationCell cell) {
+        return null;
+    }
+
+    /**
+     * Returns a CellValue wrapper around the supplied ValueEval instance.
+     *
+     * @since 4.0.0
+     */
+    protected CellValue toCellValue(ValueEval eval) {
+        if (eval instanceof BoolEval) {
+            BoolEval be = (BoolEval) eval;
+            return CellValue.valueOf(be.getBooleanValue());
+        }
+        if (eval instanceof NumericValueEval) {
+            NumericValueEval ne = (NumericValueEval) eval;
+            return new CellValue(ne.getNumberValue());
+        }
+        if (eval instanceof StringValueEval) {
+            StringValueEval ne = (StringValueEval) eval;
+            return new CellValue(ne.getStringValue());
+        }
+        if (eval instanceof ErrorEval) {
+            return CellValue.getError(((ErrorEval)eval).getErrorCode());
+        }
+        throw new RuntimeException("Unexpected eval class (" + eval.getClass().getName() + ")");
+    }
+
     /**
      * If cell contains formula, it evaluates the formula,
      *  and saves the result of the formula. The cell
@@ -208,6 +270,104 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
         return evaluateFormulaCell(cell);
     }
 
+    /**
+     * Recalculates the formula cells which depend on the given changed cells, directly or
+     * through other formula cells, and saves their results like {@link #evaluateFormulaCell(Cell)}.
+     * Formula cells which don't depend on the changed cells are not evaluated again.<p>
+     *
+     * The dependencies are taken from the cache of this evaluator, so only formula cells
+     * which have been evaluated by this evaluator since the cache was last cleared are
+     * recalculated, e.g. after a call to the single-threaded {@link #evaluateAll()}.
+     * Nothing is recalculated after {@link #clearAllCachedResultValues()} or after
+     * the {@code evaluateAll(ForkJoinPool)} of the subclasses, which evaluates with
+     * separate caches and leaves the cache of this evaluator empty.
+     * Cells which have already been passed to {@link #notifyUpdateCell(Cell)} or
+     * {@link #notifyDeleteCell(Cell)} since the last call don't need to be passed again.<p>
+     *
+     * Subclasses which don't override {@link #toCell(EvaluationCell)} clear the cache and
+     * evaluate all formula cells of the workbook of the given cells instead.
+     *
+     * <pre>
+     * evaluator.evaluateAll();
+     * input.setCellValue(42);
+     * Set&lt;Cell&gt; changed = evaluator.recalculate(Collections.singleton(input));
+     * </pre>
+     *
+     * @param updatedCells the value or formula cells which have changed since the last evaluation
+     * @return the formula cells whose result has changed, in no particular order
+     * @since 4.0.0
+     */
+    public Set<Cell> recalculate(Collection<? extends Cell> updatedCells) {
+        for (Cell cell : updatedCells) {
+            notifyUpdateCell(cell);
+        }
+        List<EvaluationCell> dirtyCells = _bookEvaluator.getDirtyFormulaCells();
+        if (!dirtyCells.isEmpty() && toCell(dirtyCells.get(0)) == null) {
+            return recalculateAll(updatedCells);
+        }
+        Set<Cell> changedCells = new LinkedHashSet<>();
+        for (EvaluationCell evalCell : dirtyCells) {
+            Cell cell = toCell(evalCell);
+            if (cell.getCellType() != CellType.FORMULA) {
+                continue;
+            }
+            // dirty precedents are evaluated on the way, later calls get them from the cache
+            CellValue cv = toCellValue(_bookEvaluator.evaluate(evalCell));
+            if (!isCachedFormulaResult(cell, cv)) {
+                setCellValue(cell, cv);
+                changedCells.add(cell);
+            }
+        }
+        return changedCells;
+    }
+
+    /**
+     * Evaluates all formula cells of the workbook of the given cells, for subclasses
+     * which can't turn the dirty cells of the cache back into cells
+     */
+    private Set<Cell> recalculateAll(Collection<? extends Cell> updatedCells) {
+        clearAllCachedResultValues();
+        Set<Cell> changedCells = new LinkedHashSet<>();
+        if (updatedCells.isEmpty()) {
+            return changedCells;
+        }
+        Workbook wb = updatedCells.iterator().next().getSheet().getWorkbook();
+        for (Sheet sheet : wb) {
+            for (Row r : sheet) {
+                for (Cell cell : r) {
+                    if (cell.getCellType() != CellType.FORMULA) {
+                        continue;
+                    }
+                    CellValue cv = evaluateFormulaCellValue(cell);
+                    if (!isCachedFormulaResult(cell, cv)) {
+                        setCellValue(cell, cv);
+                        changedCells.add(cell);
+                    }
+                }
+            }
+        }
+        return changedCells;
+    }
+
+    private static boolean isCachedFormulaResult(Cell cell, CellValue cv) {
+        CellType cellType = cv.getCellType();
+        if (cell.getCachedFormulaResultType() != cellType) {
+            return false;
+        }
+        switch (cellType) {
+            case BOOLEAN:
+                return cell.getBooleanCellValue() == cv.getBooleanValue();
+            case ERROR:
+                return cell.getErrorCellValue() == cv.getErrorValue();
+            case NUMERIC:
+                return Double.compare(cell.getNumericCellValue(), cv.getNumberValue()) == 0;
+            case STRING:
+                return cell.getStringCellValue().equals(cv.getStringValue());
+            default:
+                return false;
+        }
+    }
+
     protected static void setCellType(Cell cell, CellValue cv) {
         CellType cellType = cv.getCellType();
         switch (cellType) {
@@ -284,6 +444,70 @@ public abstract class BaseFormulaEvaluator implements FormulaEvaluator, Workbook
         }
     }
 
+    /**
+     * Evaluates all formula cells of the supplied workbook like
+     *  {@link #evaluateAllFormulaCells(Workbook, FormulaEvaluator)},
+     *  but evaluates the cells which don't depend on each other
+     *  concurrently on the given pool.
+     * The dependencies are determined from the references of the
+     *  formulas, see {@link FormulaDependencyGraph}. The results are
+     *  saved in the calling thread after all cells have been evaluated.
+     *
+     * @throws UnsupportedOperationException if the evaluator doesn't override
+     *  {@link #toEvaluationCell(Cell)}
+     * @since 4.0.0
+     */
+    protected static void evaluateAllFormulaCells(Workbook wb, BaseFormulaEvaluator evaluator, ForkJoinPool pool) {
+        evaluator.clearAllCachedResultValues();
+        FormulaDependencyGraph graph = new FormulaDependencyGraph(evaluator._bookEvaluator, wb.getNumberOfSheets());
+        List<Cell> cells = new ArrayList<>();
+        for(int i=0; i<wb.getNumberOfSheets(); i++) {
+            Sheet sheet = wb.getSheetAt(i);
+
+            for(Row r : sheet) {
+                for (Cell c : r) {
+                    if (c.getCellType() == CellType.FORMULA) {
+                        cells.add(c);
+                        graph.addFormulaCell(evaluator.toEvaluationCell(c), i);
+                    }
+                }
+            }
+        }
+
+        ValueEval[] results = graph.evaluate(pool);
+        for (int i=0; i<results.length; i++) {
+            evaluator.setCellValue(cells.get(i), evaluator.toCellValue(results[i]));
+        }
+    }
+
+    /**
+     * Creates an evaluator for the cells of the supplied workbook, which may be used
+     *  by several threads at the same time, see {@link SharedWorkbookEvaluator}.
+     *
+     * @since 4.0.0
+     */
+    protected static SharedWorkbookEvaluator createSharedEvaluator(Workbook wb, BaseFormulaEvaluator evaluator) {
+        return new SharedWorkbookEvaluator(wb, evaluator);
+    }
+
+    /**
+     * Collects statistics about the following evaluations with the given profiler, including
+     *  the evaluations of {@code evaluateAll} on a pool and of the shared evaluators created
+     *  from this evaluator.
+     * <pre>
+     * EvaluationProfiler profiler = new EvaluationProfiler();
+     * evaluator.setProfiler(profiler);
+     * evaluator.evaluateAll();
+     * profiler.writeReport(System.out);
+     * </pre>
+     *
+     * @param profiler the profiler, or <code>null</code> to stop profiling
+     * @since 4.0.0
+     */
+    public void setProfiler(EvaluationProfiler profiler) {
+        _bookEvaluator.setProfiler(profiler);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void setIgnoreMissingWorkbooks(boolean ignore){
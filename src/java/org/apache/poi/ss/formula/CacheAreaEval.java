@@ -20,6 +20,7 @@ package org.apache.poi.ss.formula;
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.AreaEvalBase;
 import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
 import org.apache.poi.ss.formula.eval.ValueEval;
 import org.apache.poi.ss.formula.ptg.AreaI;
 import org.apache.poi.ss.formula.ptg.AreaI.OffsetArea;
@@ -28,22 +29,55 @@ import org.apache.poi.ss.util.CellReference;
 /**
  * @author Robert Hulbert
  * Provides holding structure for temporary values in arrays during the evaluation process.
- * As such, Row/Column references do not actually correspond to data in the file.
+ * As such, Row/Column references do not actually correspond to data in the file.<p>
+ *
+ * The values of arrays calculated by operators and matrix functions are mostly numbers, which
+ * are held as a <code>double[]</code>, together with the values of the other cells. Functions
+ * reading such arrays can get the numbers through {@link #isNumber(int, int)} and
+ * {@link #getNumberValue(int, int)} without creating a {@link NumberEval} for each cell.
  */
 
 public final class CacheAreaEval extends AreaEvalBase {
     
-    /* Value Containter */
+    /* Value Containter, only holding the values which aren't numbers if _numbers is set */
     private final ValueEval[] _values;
+    /* The numeric values, zero for the cells whose value is in _values, or null if all values are in _values */
+    private final double[] _numbers;
     
     public CacheAreaEval(AreaI ptg, ValueEval[] values) {
         super(ptg);
         _values = values;
+        _numbers = null;
     }
     
     public CacheAreaEval(int firstRow, int firstColumn, int lastRow, int lastColumn, ValueEval[] values) {
         super(firstRow, firstColumn, lastRow, lastColumn);
         _values = values;
+        _numbers = null;
+    }
+    
+    /**
+     * Creates an array of numbers
+     *
+     * @param numbers the values of the cells, row by row
+     * @since 4.0.0
+     */
+    public CacheAreaEval(int firstRow, int firstColumn, int lastRow, int lastColumn, double[] numbers) {
+        this(firstRow, firstColumn, lastRow, lastColumn, numbers, null);
+    }
+    
+    /**
+     * Creates an array of numbers and other values
+     *
+     * @param numbers the numeric values of the cells, row by row
+     * @param values the values of the cells which aren't numbers, <code>null</code> for the
+     *  numeric cells. The array may be <code>null</code> if all cells are numeric.
+     * @since 4.0.0
+     */
+    public CacheAreaEval(int firstRow, int firstColumn, int lastRow, int lastColumn, double[] numbers, ValueEval[] values) {
+        super(firstRow, firstColumn, lastRow, lastColumn);
+        _values = values;
+        _numbers = numbers;
     }
     
     public ValueEval getRelativeValue(int relativeRowIndex, int relativeColumnIndex) {
@@ -52,7 +86,24 @@ public final class CacheAreaEval extends AreaEvalBase {
     
     public ValueEval getRelativeValue(int sheetIndex, int relativeRowIndex, int relativeColumnIndex) {
         int oneDimensionalIndex = relativeRowIndex * getWidth() + relativeColumnIndex;
-        return _values[oneDimensionalIndex];
+        ValueEval value = _values == null ? null : _values[oneDimensionalIndex];
+        return value == null ? new NumberEval(_numbers[oneDimensionalIndex]) : value;
+    }
+    
+    /**
+     * @return <code>true</code> if the value of the cell is a number held without a {@link NumberEval}
+     * @since 4.0.0
+     */
+    public boolean isNumber(int relativeRowIndex, int relativeColumnIndex) {
+        return _numbers != null && (_values == null || _values[relativeRowIndex * getWidth() + relativeColumnIndex] == null);
+    }
+    
+    /**
+     * @return the number of the cell if {@link #isNumber(int, int)}, zero for other values
+     * @since 4.0.0
+     */
+    public double getNumberValue(int relativeRowIndex, int relativeColumnIndex) {
+        return isNumber(relativeRowIndex, relativeColumnIndex) ? _numbers[relativeRowIndex * getWidth() + relativeColumnIndex] : 0.0;
     }
 
     public AreaEval offset(int relFirstRowIx, int relLastRowIx,
@@ -61,32 +112,7 @@ public final class CacheAreaEval extends AreaEvalBase {
         AreaI area = new OffsetArea(getFirstRow(), getFirstColumn(),
                 relFirstRowIx, relLastRowIx, relFirstColIx, relLastColIx);
         
-        int height = area.getLastRow() - area.getFirstRow() + 1;
-        int width = area.getLastColumn() - area.getFirstColumn() + 1;
-        
-        ValueEval newVals[] = new ValueEval[height * width];
-        
-        int startRow = area.getFirstRow() - getFirstRow();
-        int startCol = area.getFirstColumn() - getFirstColumn();
-        
-        for (int j = 0; j < height; j++) {
-            for (int i = 0; i < width; i++) {
-                ValueEval temp;
-                
-                /* CacheAreaEval is only temporary value representation, does not equal sheet selection
-                 * so any attempts going beyond the selection results in BlankEval
-                 */
-                if (startRow + j > getLastRow() || startCol + i > getLastColumn()) {
-                    temp = BlankEval.instance;
-                }
-                else {
-                    temp = _values[(startRow + j) * getWidth() + (startCol + i)];
-                }
-                newVals[j * width + i] = temp;     
-            }
-        }
-
-        return new CacheAreaEval(area, newVals);
+        return copy(area.getFirstRow(), area.getFirstColumn(), area.getLastRow(), area.getLastColumn());
     }
 
     public TwoDEval getRow(int rowIndex) {
@@ -95,12 +121,7 @@ public final class CacheAreaEval extends AreaEvalBase {
                     + ".  Allowable range is (0.." + getHeight() + ").");
         }
         int absRowIndex = getFirstRow() + rowIndex;
-        ValueEval[] values = new ValueEval[getWidth()];
-        
-        for (int i = 0; i < values.length; i++) {
-            values[i] = getRelativeValue(rowIndex, i);
-        }
-        return new CacheAreaEval(absRowIndex, getFirstColumn() , absRowIndex, getLastColumn(), values);
+        return copy(absRowIndex, getFirstColumn(), absRowIndex, getLastColumn());
     }
 
     public TwoDEval getColumn(int columnIndex) {
@@ -109,13 +130,52 @@ public final class CacheAreaEval extends AreaEvalBase {
                     + ".  Allowable range is (0.." + getWidth() + ").");
         }
         int absColIndex = getFirstColumn() + columnIndex;
-        ValueEval[] values = new ValueEval[getHeight()];
+        return copy(getFirstRow(), absColIndex, getLastRow(), absColIndex);
+    }
+
+    /**
+     * Copies the values of the given area, keeping the numbers as numbers
+     */
+    private CacheAreaEval copy(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        int height = lastRow - firstRow + 1;
+        int width = lastColumn - firstColumn + 1;
         
-        for (int i = 0; i < values.length; i++) {
-            values[i] = getRelativeValue(i, columnIndex);
-        }
+        int startRow = firstRow - getFirstRow();
+        int startCol = firstColumn - getFirstColumn();
         
-        return new CacheAreaEval(getFirstRow(), absColIndex, getLastRow(), absColIndex, values);
+        double[] newNumbers = _numbers == null ? null : new double[height * width];
+        ValueEval[] newVals = null;
+        
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                int row = startRow + j;
+                int col = startCol + i;
+                ValueEval temp;
+                
+                /* CacheAreaEval is only temporary value representation, does not equal sheet selection
+                 * so any attempts going beyond the selection results in BlankEval
+                 */
+                if (row < 0 || row >= getHeight() || col < 0 || col >= getWidth()) {
+                    temp = BlankEval.instance;
+                }
+                else if (isNumber(row, col)) {
+                    newNumbers[j * width + i] = getNumberValue(row, col);
+                    continue;
+                }
+                else {
+                    temp = getRelativeValue(row, col);
+                }
+                if (newVals == null) {
+                    newVals = new ValueEval[height * width];
+                }
+                newVals[j * width + i] = temp;
+            }
+        }
+
+        if (newNumbers == null) {
+            return new CacheAreaEval(firstRow, firstColumn, lastRow, lastColumn, newVals);
+        }
+        return new CacheAreaEval(firstRow, firstColumn, lastRow, lastColumn, newNumbers, newVals);
     }
     
     public String toString() {
@@ -17,6 +17,8 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.Set;
+
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -94,12 +96,16 @@ abstract class CellCacheEntry implements ICacheEntry {
 			throw new IllegalStateException("Specified formula cell is not consumed by this cell");
 		}
 	}
-	public final void recurseClearCachedFormulaResults(IEvaluationListener listener) {
+	/**
+	 * @param clearedCells collects the formula cells whose results are cleared
+	 */
+	public final void recurseClearCachedFormulaResults(IEvaluationListener listener,
+			Set<FormulaCellCacheEntry> clearedCells) {
 		if (listener == null) {
-			recurseClearCachedFormulaResults();
+			recurseClearCachedFormulaResults(clearedCells);
 		} else {
 			listener.onClearCachedValue(this);
-			recurseClearCachedFormulaResults(listener, 1);
+			recurseClearCachedFormulaResults(listener, 1, clearedCells);
 		}
 	}
 
@@ -107,22 +113,24 @@ abstract class CellCacheEntry implements ICacheEntry {
 	 * Calls formulaCell.setFormulaResult(null, null) recursively all the way up the tree of
 	 * dependencies. Calls usedCell.clearConsumingCell(fc) for each child of a cell that is
 	 * cleared along the way.
-	 * @param formulaCells
+	 * @param clearedCells collects the formula cells whose results are cleared
 	 */
-	protected final void recurseClearCachedFormulaResults() {
+	protected final void recurseClearCachedFormulaResults(Set<FormulaCellCacheEntry> clearedCells) {
 		FormulaCellCacheEntry[] formulaCells = getConsumingCells();
 
 		for (int i = 0; i < formulaCells.length; i++) {
 			FormulaCellCacheEntry fc = formulaCells[i];
 			fc.clearFormulaEntry();
-			fc.recurseClearCachedFormulaResults();
+			clearedCells.add(fc);
+			fc.recurseClearCachedFormulaResults(clearedCells);
 		}
 	}
 
 	/**
-	 * Identical to {@link #recurseClearCachedFormulaResults()} except for the listener call-backs
+	 * Identical to {@link #recurseClearCachedFormulaResults(Set)} except for the listener call-backs
 	 */
-	protected final void recurseClearCachedFormulaResults(IEvaluationListener listener, int depth) {
+	protected final void recurseClearCachedFormulaResults(IEvaluationListener listener, int depth,
+			Set<FormulaCellCacheEntry> clearedCells) {
 		FormulaCellCacheEntry[] formulaCells = getConsumingCells();
 
 		listener.sortDependentCachedValues(formulaCells);
@@ -130,7 +138,8 @@ abstract class CellCacheEntry implements ICacheEntry {
 			FormulaCellCacheEntry fc = formulaCells[i];
 			listener.onClearDependentCachedValue(fc, depth);
 			fc.clearFormulaEntry();
-			fc.recurseClearCachedFormulaResults(listener, depth+1);
+			clearedCells.add(fc);
+			fc.recurseClearCachedFormulaResults(listener, depth+1, clearedCells);
 		}
 	}
 }
@@ -17,6 +17,11 @@
 
 package org.apache.poi.ss.formula;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.apache.poi.ss.formula.FormulaCellCache.IEntryOperation;
 import org.apache.poi.ss.formula.FormulaUsedBlankCellSet.BookSheetKey;
 import org.apache.poi.ss.formula.PlainCellCache.Loc;
@@ -39,6 +44,9 @@ final class EvaluationCache {
 
 	private final PlainCellCache _plainCellCache;
 	private final FormulaCellCache _formulaCellCache;
+	private final AreaSnapshotCache _areaSnapshotCache;
+	/** the formula cells whose results have been cleared by the notify~ methods */
+	private final Set<FormulaCellCacheEntry> _dirtyFormulaCells;
 	/** only used for testing. <code>null</code> otherwise */
 	final IEvaluationListener _evaluationListener;
 
@@ -46,6 +54,8 @@ final class EvaluationCache {
 		_evaluationListener = evaluationListener;
 		_plainCellCache = new PlainCellCache();
 		_formulaCellCache = new FormulaCellCache();
+		_areaSnapshotCache = new AreaSnapshotCache();
+		_dirtyFormulaCells = new LinkedHashSet<>();
 	}
 
 	public void notifyUpdateCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
@@ -55,10 +65,12 @@ final class EvaluationCache {
 		int columnIndex = cell.getColumnIndex();
 		Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
 		PlainValueCellCacheEntry pcce = _plainCellCache.get(loc);
+		_areaSnapshotCache.notifyUpdateCell(bookIndex, sheetIndex, rowIndex, columnIndex, _evaluationListener,
+				_dirtyFormulaCells);
 
 		if (cell.getCellType() == CellType.FORMULA) {
 			if (fcce == null) {
-				fcce = new FormulaCellCacheEntry();
+				fcce = new FormulaCellCacheEntry(cell);
 				if (pcce == null) {
 					if (_evaluationListener != null) {
 						_evaluationListener.onChangeFromBlankValue(sheetIndex, rowIndex,
@@ -69,14 +81,15 @@ final class EvaluationCache {
 				}
 				_formulaCellCache.put(cell, fcce);
 			} else {
-				fcce.recurseClearCachedFormulaResults(_evaluationListener);
+				fcce.recurseClearCachedFormulaResults(_evaluationListener, _dirtyFormulaCells);
 				fcce.clearFormulaEntry();
 			}
+			_dirtyFormulaCells.add(fcce);
 			if (pcce == null) {
 				// was formula cell before - no change of type
 			} else {
 				// changing from plain cell to formula cell
-				pcce.recurseClearCachedFormulaResults(_evaluationListener);
+				pcce.recurseClearCachedFormulaResults(_evaluationListener, _dirtyFormulaCells);
 				_plainCellCache.remove(loc);
 			}
 		} else {
@@ -98,7 +111,7 @@ final class EvaluationCache {
 				}
 			} else {
 				if (pcce.updateValue(value)) {
-					pcce.recurseClearCachedFormulaResults(_evaluationListener);
+					pcce.recurseClearCachedFormulaResults(_evaluationListener, _dirtyFormulaCells);
 				}
 				if (value == BlankEval.instance) {
 					_plainCellCache.remove(loc);
@@ -109,8 +122,9 @@ final class EvaluationCache {
 			} else {
 				// was formula cell before - now a plain value
 				_formulaCellCache.remove(cell);
+				_dirtyFormulaCells.remove(fcce);
 				fcce.setSensitiveInputCells(null);
-				fcce.recurseClearCachedFormulaResults(_evaluationListener);
+				fcce.recurseClearCachedFormulaResults(_evaluationListener, _dirtyFormulaCells);
 			}
 		}
 	}
@@ -121,13 +135,16 @@ final class EvaluationCache {
 		_formulaCellCache.applyOperation(new IEntryOperation() {
 
 			public void processEntry(FormulaCellCacheEntry entry) {
-				entry.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener);
+				entry.notifyUpdatedBlankCell(bsk, rowIndex, columnIndex, _evaluationListener, _dirtyFormulaCells);
 			}
 		});
 	}
 
+	/**
+	 * @param profiler the profiler counting the cache hits, may be <code>null</code>
+	 */
 	public PlainValueCellCacheEntry getPlainValueEntry(int bookIndex, int sheetIndex,
-			int rowIndex, int columnIndex, ValueEval value) {
+			int rowIndex, int columnIndex, ValueEval value, EvaluationProfiler profiler) {
 
 		Loc loc = new Loc(bookIndex, sheetIndex, rowIndex, columnIndex);
 		PlainValueCellCacheEntry result = _plainCellCache.get(loc);
@@ -137,6 +154,9 @@ final class EvaluationCache {
 			if (_evaluationListener != null) {
 				_evaluationListener.onReadPlainValue(sheetIndex, rowIndex, columnIndex, result);
 			}
+			if (profiler != null) {
+				profiler.onPlainValueCacheAccess(false);
+			}
 		} else {
 			// TODO - if we are confident that this sanity check is not required, we can remove 'value' from plain value cache entry
 			if (!areValuesEqual(result.getValue(), value)) {
@@ -145,6 +165,9 @@ final class EvaluationCache {
 			if (_evaluationListener != null) {
 				_evaluationListener.onCacheHit(sheetIndex, rowIndex, columnIndex, value);
 			}
+			if (profiler != null) {
+				profiler.onPlainValueCacheAccess(true);
+			}
 		}
 		return result;
 	}
@@ -175,16 +198,42 @@ final class EvaluationCache {
 		throw new IllegalStateException("Unexpected value class (" + cls.getName() + ")");
 	}
 
+	/**
+	 * @param profiler the profiler counting the cache hits, may be <code>null</code>
+	 * @return the cache entry of the snapshot of the specified area, whose snapshot is
+	 * <code>null</code> if the area contains formula cells
+	 */
+	public AreaSnapshotCache.Entry getAreaSnapshotEntry(int bookIndex, int sheetIndex, EvaluationSheet sheet,
+			int firstRow, int firstColumn, int lastRow, int lastColumn, EvaluationProfiler profiler) {
+		return _areaSnapshotCache.getOrCreate(bookIndex, sheetIndex, sheet, firstRow, firstColumn, lastRow, lastColumn,
+				profiler);
+	}
+
 	public FormulaCellCacheEntry getOrCreateFormulaCellEntry(EvaluationCell cell) {
 		FormulaCellCacheEntry result = _formulaCellCache.get(cell);
 		if (result == null) {
 
-			result = new FormulaCellCacheEntry();
+			result = new FormulaCellCacheEntry(cell);
 			_formulaCellCache.put(cell, result);
 		}
 		return result;
 	}
 
+	/**
+	 * Returns and forgets the formula cells whose result has been cleared by one of the notify~
+	 * methods since the last call, unless they have been evaluated again in the meantime
+	 */
+	public List<EvaluationCell> getDirtyFormulaCells() {
+		List<EvaluationCell> result = new ArrayList<>(_dirtyFormulaCells.size());
+		for (FormulaCellCacheEntry entry : _dirtyFormulaCells) {
+			if (entry.getValue() == null && entry.getCell() != null) {
+				result.add(entry.getCell());
+			}
+		}
+		_dirtyFormulaCells.clear();
+		return result;
+	}
+
 	/**
 	 * Should be called whenever there are changes to input cells in the evaluated workbook.
 	 */
@@ -194,16 +243,21 @@ final class EvaluationCache {
 		}
 		_plainCellCache.clear();
 		_formulaCellCache.clear();
+		_areaSnapshotCache.clear();
+		_dirtyFormulaCells.clear();
 	}
 	public void notifyDeleteCell(int bookIndex, int sheetIndex, EvaluationCell cell) {
+		_areaSnapshotCache.notifyUpdateCell(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex(),
+				_evaluationListener, _dirtyFormulaCells);
 
 		if (cell.getCellType() == CellType.FORMULA) {
 			FormulaCellCacheEntry fcce = _formulaCellCache.remove(cell);
 			if (fcce == null) {
 				// formula cell has not been evaluated yet
 			} else {
+				_dirtyFormulaCells.remove(fcce);
 				fcce.setSensitiveInputCells(null);
-				fcce.recurseClearCachedFormulaResults(_evaluationListener);
+				fcce.recurseClearCachedFormulaResults(_evaluationListener, _dirtyFormulaCells);
 			}
 		} else {
 			Loc loc = new Loc(bookIndex, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
@@ -212,7 +266,7 @@ final class EvaluationCache {
 			if (pcce == null) {
 				// cache entry doesn't exist. nothing to do
 			} else {
-				pcce.recurseClearCachedFormulaResults(_evaluationListener);
+				pcce.recurseClearCachedFormulaResults(_evaluationListener, _dirtyFormulaCells);
 			}
 		}
 	}
@@ -0,0 +1,702 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import org.apache.poi.ss.formula.eval.FunctionNameEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.OperationPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.util.CellReference;
+
+/**
+ * Collects statistics about the formula evaluations of one or more {@link WorkbookEvaluator}s,
+ * to find the formulas which make the evaluation of a workbook slow.<p>
+ *
+ * A profiler is attached with {@link BaseFormulaEvaluator#setProfiler(EvaluationProfiler)}.
+ * It records
+ * <ul>
+ * <li>the number of calls and the time spent in each function and operator,</li>
+ * <li>the number of evaluations and the time spent in each formula cell,</li>
+ * <li>the hits and misses of the caches of formula results, plain cell values and area snapshots,</li>
+ * <li>the length of the longest chain of formula cells each formula cell depends on.</li>
+ * </ul>
+ * The time of a function or cell includes the evaluation of the formula cells it refers to,
+ * its <i>self</i> time doesn't. Cached results aren't evaluated again, so the time of a cell is
+ * only spent by the first formula which refers to it. The statistics are returned sorted by
+ * {@link #getFunctionStats()}, {@link #getSlowestCells(int)} and {@link #getDeepestChains(int)},
+ * or written as a plain text report by {@link #writeReport(Appendable, int)}.<p>
+ *
+ * Profiling slows down the evaluation, as the clock is read twice for every function call and
+ * cell evaluation. A profiler may be used by several threads at the same time, so it can also be
+ * attached while evaluating with a pool or a {@link SharedWorkbookEvaluator}.
+ *
+ * @since 4.0.0
+ */
+public final class EvaluationProfiler {
+
+    /** the number of functions, cells and chains listed by {@link #writeReport(Appendable)} */
+    public static final int DEFAULT_REPORT_SIZE = 20;
+
+    /** the number of cells of a chain which are listed in a report */
+    private static final int MAX_REPORTED_CHAIN_LENGTH = 10;
+
+    /**
+     * The statistics of a function or operator
+     */
+    public static final class FunctionStats {
+        private final String _name;
+        private final long _calls;
+        private final long _totalNanos;
+        private final long _selfNanos;
+
+        private FunctionStats(String name, long calls, long totalNanos, long selfNanos) {
+            _name = name;
+            _calls = calls;
+            _totalNanos = totalNanos;
+            _selfNanos = selfNanos;
+        }
+
+        /**
+         * @return the name of the function, like <tt>SUM</tt>, or of the operator, like <tt>Add</tt>
+         */
+        public String getName() {
+            return _name;
+        }
+
+        public long getCalls() {
+            return _calls;
+        }
+
+        /**
+         * @return the time spent in the function, including the evaluation of the formula cells
+         * referred to by its arguments
+         */
+        public long getTotalNanos() {
+            return _totalNanos;
+        }
+
+        /**
+         * @return the time spent in the function, without the evaluation of other formula cells
+         */
+        public long getSelfNanos() {
+            return _selfNanos;
+        }
+
+        @Override
+        public String toString() {
+            return _name + " [calls=" + _calls + ", totalNanos=" + _totalNanos + ", selfNanos=" + _selfNanos + "]";
+        }
+    }
+
+    /**
+     * The statistics of a formula cell
+     */
+    public static final class CellStats {
+        private final String _sheetName;
+        private final int _rowIndex;
+        private final int _columnIndex;
+        private final String _formula;
+        private final long _evaluations;
+        private final long _totalNanos;
+        private final long _selfNanos;
+        private final long _maxNanos;
+        private final int _chainDepth;
+
+        private CellStats(CellRecord record) {
+            _sheetName = record.getSheetName();
+            _rowIndex = record._rowIndex;
+            _columnIndex = record._columnIndex;
+            _formula = record.getFormula();
+            synchronized (record) {
+                _evaluations = record._evaluations;
+                _totalNanos = record._totalNanos;
+                _selfNanos = record._selfNanos;
+                _maxNanos = record._maxNanos;
+                _chainDepth = record._chainDepth;
+            }
+        }
+
+        /**
+         * @return the name of the sheet, or <code>null</code> if it isn't known anymore
+         */
+        public String getSheetName() {
+            return _sheetName;
+        }
+
+        public int getRowIndex() {
+            return _rowIndex;
+        }
+
+        public int getColumnIndex() {
+            return _columnIndex;
+        }
+
+        /**
+         * @return the reference of the cell, like <tt>Sheet1!A1</tt>
+         */
+        public String getReference() {
+            return new CellReference(_sheetName, _rowIndex, _columnIndex, false, false).formatAsString();
+        }
+
+        /**
+         * @return the formula of the cell, or <code>null</code> if it can't be rendered
+         */
+        public String getFormula() {
+            return _formula;
+        }
+
+        /**
+         * @return how often the formula of the cell has been evaluated, results taken from the
+         * cache are not counted
+         */
+        public long getEvaluations() {
+            return _evaluations;
+        }
+
+        /**
+         * @return the time spent evaluating the cell, including the formula cells it refers to
+         */
+        public long getTotalNanos() {
+            return _totalNanos;
+        }
+
+        /**
+         * @return the time spent evaluating the cell, without the formula cells it refers to
+         */
+        public long getSelfNanos() {
+            return _selfNanos;
+        }
+
+        /**
+         * @return the longest time a single evaluation of the cell took
+         */
+        public long getMaxNanos() {
+            return _maxNanos;
+        }
+
+        /**
+         * @return the number of formula cells of the longest chain of dependencies starting
+         * with this cell, 1 if it doesn't refer to any other formula cell
+         */
+        public int getChainDepth() {
+            return _chainDepth;
+        }
+
+        @Override
+        public String toString() {
+            return getReference() + " [evaluations=" + _evaluations + ", totalNanos=" + _totalNanos
+                    + ", selfNanos=" + _selfNanos + ", chainDepth=" + _chainDepth + "]";
+        }
+    }
+
+    private static final class FunctionRecord {
+        private final LongAdder _calls = new LongAdder();
+        private final LongAdder _totalNanos = new LongAdder();
+        private final LongAdder _selfNanos = new LongAdder();
+    }
+
+    private static final class CellKey {
+        private final EvaluationWorkbook _workbook;
+        private final int _sheetIndex;
+        private final int _rowIndex;
+        private final int _columnIndex;
+
+        public CellKey(EvaluationWorkbook workbook, int sheetIndex, int rowIndex, int columnIndex) {
+            _workbook = workbook;
+            _sheetIndex = sheetIndex;
+            _rowIndex = rowIndex;
+            _columnIndex = columnIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((System.identityHashCode(_workbook) * 31 + _sheetIndex) * 31 + _rowIndex) * 31 + _columnIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof CellKey)) {
+                return false;
+            }
+            CellKey other = (CellKey) obj;
+            return _workbook == other._workbook && _sheetIndex == other._sheetIndex
+                    && _rowIndex == other._rowIndex && _columnIndex == other._columnIndex;
+        }
+    }
+
+    /**
+     * The statistics of a formula cell while they are collected
+     */
+    private static final class CellRecord {
+        private final EvaluationWorkbook _workbook;
+        private final EvaluationCell _cell;
+        private final int _sheetIndex;
+        private final int _rowIndex;
+        private final int _columnIndex;
+
+        private long _evaluations;
+        private long _totalNanos;
+        private long _selfNanos;
+        private long _maxNanos;
+        private int _chainDepth;
+        /** the first cell of the longest chain of dependencies of this cell, or <code>null</code> */
+        private CellRecord _deepestPrecedent;
+
+        public CellRecord(EvaluationWorkbook workbook, EvaluationCell cell, int sheetIndex) {
+            _workbook = workbook;
+            _cell = cell;
+            _sheetIndex = sheetIndex;
+            _rowIndex = cell.getRowIndex();
+            _columnIndex = cell.getColumnIndex();
+        }
+
+        public synchronized void addEvaluation(long nanos, long selfNanos, int chainDepth, CellRecord deepestPrecedent) {
+            _evaluations++;
+            _totalNanos += nanos;
+            _selfNanos += selfNanos;
+            _maxNanos = Math.max(_maxNanos, nanos);
+            _chainDepth = chainDepth;
+            _deepestPrecedent = deepestPrecedent;
+        }
+
+        public synchronized int getChainDepth() {
+            return _chainDepth;
+        }
+
+        public synchronized long getSelfNanos() {
+            return _selfNanos;
+        }
+
+        public synchronized CellRecord getDeepestPrecedent() {
+            return _deepestPrecedent;
+        }
+
+        public String getSheetName() {
+            try {
+                return _workbook.getSheetName(_sheetIndex);
+            } catch (RuntimeException e) {
+                // the sheet has been removed since
+                return null;
+            }
+        }
+
+        public String getFormula() {
+            if (!(_workbook instanceof FormulaRenderingWorkbook)) {
+                return null;
+            }
+            try {
+                Ptg[] ptgs = _workbook.getFormulaTokens(_cell);
+                return FormulaRenderer.toFormulaString((FormulaRenderingWorkbook) _workbook, ptgs);
+            } catch (RuntimeException e) {
+                // the cell has been changed since
+                return null;
+            }
+        }
+    }
+
+    /**
+     * A cell evaluation or function call in progress
+     */
+    private static final class Frame {
+        private final Frame _parent;
+        /** the cell being evaluated, <code>null</code> for a function call */
+        private final CellRecord _cell;
+        private final long _start;
+        /** the time spent evaluating other formula cells within this frame */
+        private long _nestedNanos;
+        private int _maxPrecedentDepth;
+        private CellRecord _deepestPrecedent;
+
+        public Frame(Frame parent, CellRecord cell) {
+            _parent = parent;
+            _cell = cell;
+            _start = System.nanoTime();
+        }
+
+        /**
+         * @return the frame of the innermost cell being evaluated, or <code>null</code>
+         */
+        public Frame getCellFrame() {
+            Frame frame = this;
+            while (frame != null && frame._cell == null) {
+                frame = frame._parent;
+            }
+            return frame;
+        }
+
+        public void acceptPrecedent(CellRecord precedent, int depth) {
+            if (depth > _maxPrecedentDepth) {
+                _maxPrecedentDepth = depth;
+                _deepestPrecedent = precedent;
+            }
+        }
+    }
+
+    private final ConcurrentMap<String, FunctionRecord> _functions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<CellKey, CellRecord> _cells = new ConcurrentHashMap<>();
+    private final ThreadLocal<Frame> _currentFrame = new ThreadLocal<>();
+
+    private final LongAdder _evaluationNanos = new LongAdder();
+    private final LongAdder _formulaCacheHits = new LongAdder();
+    private final LongAdder _formulaCacheMisses = new LongAdder();
+    private final LongAdder _plainValueCacheHits = new LongAdder();
+    private final LongAdder _plainValueCacheMisses = new LongAdder();
+    private final LongAdder _areaSnapshotCacheHits = new LongAdder();
+    private final LongAdder _areaSnapshotCacheMisses = new LongAdder();
+
+    /**
+     * Called before the formula of the given cell is evaluated. Every call must be followed
+     * by a call to {@link #onEndEvaluateCell()} in the same thread.
+     */
+    /* package */ void onStartEvaluateCell(EvaluationWorkbook workbook, EvaluationCell cell, int sheetIndex) {
+        _formulaCacheMisses.increment();
+        CellKey key = new CellKey(workbook, sheetIndex, cell.getRowIndex(), cell.getColumnIndex());
+        CellRecord record = _cells.get(key);
+        if (record == null) {
+            record = new CellRecord(workbook, cell, sheetIndex);
+            CellRecord existing = _cells.putIfAbsent(key, record);
+            if (existing != null) {
+                record = existing;
+            }
+        }
+        _currentFrame.set(new Frame(_currentFrame.get(), record));
+    }
+
+    /* package */ void onEndEvaluateCell() {
+        Frame frame = _currentFrame.get();
+        long nanos = System.nanoTime() - frame._start;
+        int chainDepth = frame._maxPrecedentDepth + 1;
+        frame._cell.addEvaluation(nanos, nanos - frame._nestedNanos, chainDepth, frame._deepestPrecedent);
+
+        Frame parent = frame._parent;
+        _currentFrame.set(parent);
+        Frame consumer = parent == null ? null : parent.getCellFrame();
+        if (consumer == null) {
+            _evaluationNanos.add(nanos);
+        } else {
+            consumer.acceptPrecedent(frame._cell, chainDepth);
+        }
+        // the time is not spent by the enclosing functions and the consuming cell themselves
+        for (Frame f = parent; f != null; f = f._parent) {
+            f._nestedNanos += nanos;
+            if (f == consumer) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Called when the result of a formula cell is taken from a cache instead of evaluating it
+     */
+    /* package */ void onFormulaCacheHit(EvaluationWorkbook workbook, int sheetIndex, int rowIndex, int columnIndex) {
+        _formulaCacheHits.increment();
+        Frame frame = _currentFrame.get();
+        Frame consumer = frame == null ? null : frame.getCellFrame();
+        if (consumer != null) {
+            // the cached cell still lengthens the chains of the consuming cell
+            CellRecord record = _cells.get(new CellKey(workbook, sheetIndex, rowIndex, columnIndex));
+            if (record != null) {
+                consumer.acceptPrecedent(record, record.getChainDepth());
+            }
+        }
+    }
+
+    /* package */ void onPlainValueCacheAccess(boolean hit) {
+        (hit ? _plainValueCacheHits : _plainValueCacheMisses).increment();
+    }
+
+    /* package */ void onAreaSnapshotCacheAccess(boolean hit) {
+        (hit ? _areaSnapshotCacheHits : _areaSnapshotCacheMisses).increment();
+    }
+
+    /**
+     * Called before a function or operator is evaluated. Every call must be followed by a call
+     * to {@link #onEndFunction(OperationPtg, ValueEval[])} in the same thread.
+     */
+    /* package */ void onStartFunction() {
+        _currentFrame.set(new Frame(_currentFrame.get(), null));
+    }
+
+    /**
+     * @param ptg the token of the function or operator
+     * @param args the arguments the function has been called with
+     */
+    /* package */ void onEndFunction(OperationPtg ptg, ValueEval[] args) {
+        Frame frame = _currentFrame.get();
+        long nanos = System.nanoTime() - frame._start;
+        _currentFrame.set(frame._parent);
+
+        String name = getFunctionName(ptg, args);
+        FunctionRecord record = _functions.get(name);
+        if (record == null) {
+            record = new FunctionRecord();
+            FunctionRecord existing = _functions.putIfAbsent(name, record);
+            if (existing != null) {
+                record = existing;
+            }
+        }
+        record._calls.increment();
+        record._totalNanos.add(nanos);
+        record._selfNanos.add(nanos - frame._nestedNanos);
+    }
+
+    private static String getFunctionName(OperationPtg ptg, ValueEval[] args) {
+        if (ptg instanceof AbstractFunctionPtg) {
+            AbstractFunctionPtg fptg = (AbstractFunctionPtg) ptg;
+            if (fptg.isExternalFunction() && args.length > 0 && args[0] instanceof FunctionNameEval) {
+                return ((FunctionNameEval) args[0]).getFunctionName();
+            }
+            return fptg.getName();
+        }
+        String name = ptg.getClass().getSimpleName();
+        return name.endsWith("Ptg") ? name.substring(0, name.length() - 3) : name;
+    }
+
+    /**
+     * Discards all statistics collected so far. Must not be called while evaluating.
+     */
+    public void reset() {
+        _functions.clear();
+        _cells.clear();
+        _evaluationNanos.reset();
+        _formulaCacheHits.reset();
+        _formulaCacheMisses.reset();
+        _plainValueCacheHits.reset();
+        _plainValueCacheMisses.reset();
+        _areaSnapshotCacheHits.reset();
+        _areaSnapshotCacheMisses.reset();
+    }
+
+    /**
+     * @return the time spent evaluating formula cells, not counting the formula cells evaluated
+     * on behalf of other formula cells twice
+     */
+    public long getEvaluationNanos() {
+        return _evaluationNanos.sum();
+    }
+
+    /**
+     * @return the number of formula cell results taken from a cache
+     */
+    public long getFormulaCacheHits() {
+        return _formulaCacheHits.sum();
+    }
+
+    /**
+     * @return the number of formula cell evaluations
+     */
+    public long getFormulaCacheMisses() {
+        return _formulaCacheMisses.sum();
+    }
+
+    /**
+     * @return the number of plain cell values taken from the {@link PlainCellCache}
+     */
+    public long getPlainValueCacheHits() {
+        return _plainValueCacheHits.sum();
+    }
+
+    /**
+     * @return the number of plain cell values added to the {@link PlainCellCache}
+     */
+    public long getPlainValueCacheMisses() {
+        return _plainValueCacheMisses.sum();
+    }
+
+    /**
+     * @return the number of area snapshots taken from the cache
+     */
+    public long getAreaSnapshotCacheHits() {
+        return _areaSnapshotCacheHits.sum();
+    }
+
+    /**
+     * @return the number of area snapshots created
+     */
+    public long getAreaSnapshotCacheMisses() {
+        return _areaSnapshotCacheMisses.sum();
+    }
+
+    /**
+     * @return the statistics of all functions and operators called, the most time consuming first
+     */
+    public List<FunctionStats> getFunctionStats() {
+        List<FunctionStats> result = new ArrayList<>(_functions.size());
+        for (ConcurrentMap.Entry<String, FunctionRecord> entry : _functions.entrySet()) {
+            FunctionRecord record = entry.getValue();
+            result.add(new FunctionStats(entry.getKey(), record._calls.sum(),
+                    record._totalNanos.sum(), record._selfNanos.sum()));
+        }
+        result.sort((a, b) -> Long.compare(b._totalNanos, a._totalNanos));
+        return result;
+    }
+
+    /**
+     * @param limit the maximum number of cells returned
+     * @return the formula cells which took the most time to evaluate themselves, the slowest first
+     */
+    public List<CellStats> getSlowestCells(int limit) {
+        List<CellStats> result = new ArrayList<>();
+        for (CellRecord record : sortedRecords(limit, CellRecord::getSelfNanos, null)) {
+            result.add(new CellStats(record));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the longest chains of formula cells depending on each other. A chain starts with
+     * a formula cell, which is followed by the precedent with the longest chain of its own.
+     * Cells which are part of a longer chain don't start a chain of their own.
+     *
+     * @param limit the maximum number of chains returned
+     * @return the chains, the longest first
+     */
+    public List<List<CellStats>> getDeepestChains(int limit) {
+        Set<CellRecord> precedents = new HashSet<>();
+        for (CellRecord record : _cells.values()) {
+            CellRecord precedent = record.getDeepestPrecedent();
+            if (precedent != null) {
+                precedents.add(precedent);
+            }
+        }
+        List<List<CellStats>> result = new ArrayList<>();
+        for (CellRecord head : sortedRecords(limit, CellRecord::getChainDepth, precedents)) {
+            List<CellStats> chain = new ArrayList<>();
+            Set<CellRecord> visited = new HashSet<>();
+            for (CellRecord r = head; r != null && visited.add(r); r = r.getDeepestPrecedent()) {
+                chain.add(new CellStats(r));
+            }
+            result.add(chain);
+        }
+        return result;
+    }
+
+    /**
+     * @return the first records by the descending order of the given key, without the excluded ones
+     */
+    private List<CellRecord> sortedRecords(int limit, ToLongFunction<CellRecord> key, Set<CellRecord> excluded) {
+        final List<CellRecord> records = new ArrayList<>(_cells.size());
+        for (CellRecord record : _cells.values()) {
+            if (excluded == null || !excluded.contains(record)) {
+                records.add(record);
+            }
+        }
+        // sort by copies of the keys, as the records may still change while sorting
+        final long[] keys = new long[records.size()];
+        Integer[] indexes = new Integer[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = key.applyAsLong(records.get(i));
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, (a, b) -> Long.compare(keys[b], keys[a]));
+        List<CellRecord> result = new ArrayList<>(Math.min(limit, indexes.length));
+        for (int i = 0; i < indexes.length && i < limit; i++) {
+            result.add(records.get(indexes[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Writes a plain text report of the statistics, listing {@link #DEFAULT_REPORT_SIZE} functions,
+     * cells and chains
+     */
+    public void writeReport(Appendable out) throws IOException {
+        writeReport(out, DEFAULT_REPORT_SIZE);
+    }
+
+    /**
+     * Writes a plain text report of the statistics
+     *
+     * @param out where the report is written to
+     * @param limit the maximum number of functions, cells and chains listed
+     */
+    public void writeReport(Appendable out, int limit) throws IOException {
+        out.append(String.format(Locale.ROOT, "Formula evaluation profile: %d evaluations in %.3f ms%n",
+                getFormulaCacheMisses(), toMillis(getEvaluationNanos())));
+        appendCacheLine(out, "Formula result cache", getFormulaCacheHits(), getFormulaCacheMisses());
+        appendCacheLine(out, "Plain value cache", getPlainValueCacheHits(), getPlainValueCacheMisses());
+        appendCacheLine(out, "Area snapshot cache", getAreaSnapshotCacheHits(), getAreaSnapshotCacheMisses());
+
+        out.append(String.format(Locale.ROOT, "%nFunctions by total time:%n"));
+        out.append(String.format(Locale.ROOT, "  %-24s %10s %12s %12s%n", "function", "calls", "total ms", "self ms"));
+        List<FunctionStats> functions = getFunctionStats();
+        for (FunctionStats f : functions.subList(0, Math.min(limit, functions.size()))) {
+            out.append(String.format(Locale.ROOT, "  %-24s %10d %12.3f %12.3f%n",
+                    f.getName(), f.getCalls(), toMillis(f.getTotalNanos()), toMillis(f.getSelfNanos())));
+        }
+
+        out.append(String.format(Locale.ROOT, "%nSlowest formulas by self time:%n"));
+        out.append(String.format(Locale.ROOT, "  %-24s %6s %12s %12s %12s  %s%n",
+                "cell", "evals", "total ms", "self ms", "max ms", "formula"));
+        for (CellStats c : getSlowestCells(limit)) {
+            out.append(String.format(Locale.ROOT, "  %-24s %6d %12.3f %12.3f %12.3f  %s%n",
+                    c.getReference(), c.getEvaluations(), toMillis(c.getTotalNanos()),
+                    toMillis(c.getSelfNanos()), toMillis(c.getMaxNanos()), c.getFormula()));
+        }
+
+        out.append(String.format(Locale.ROOT, "%nDeepest dependency chains:%n"));
+        for (List<CellStats> chain : getDeepestChains(limit)) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < chain.size() && i < MAX_REPORTED_CHAIN_LENGTH; i++) {
+                if (i > 0) {
+                    sb.append(" <- ");
+                }
+                sb.append(chain.get(i).getReference());
+            }
+            if (chain.size() > MAX_REPORTED_CHAIN_LENGTH) {
+                sb.append(" <- ...");
+            }
+            out.append(String.format(Locale.ROOT, "  %6d  %s%n", chain.get(0).getChainDepth(), sb));
+        }
+    }
+
+    private static void appendCacheLine(Appendable out, String name, long hits, long misses) throws IOException {
+        long total = hits + misses;
+        out.append(String.format(Locale.ROOT, "%-20s %10d hits %10d misses (%.1f%% hits)%n",
+                name + ":", hits, misses, total == 0 ? 0.0 : 100.0 * hits / total));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeReport(sb);
+        } catch (IOException e) {
+            // never happens with a StringBuilder
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+}
@@ -40,9 +40,12 @@ final class EvaluationTracker {
 	private final List<CellEvaluationFrame> _evaluationFrames;
 	private final Set<FormulaCellCacheEntry> _currentlyEvaluatingCells;
 	private final EvaluationCache _cache;
+	/** <code>null</code> unless the evaluation is profiled */
+	private final EvaluationProfiler _profiler;
 
-	public EvaluationTracker(EvaluationCache cache) {
+	public EvaluationTracker(EvaluationCache cache, EvaluationProfiler profiler) {
 		_cache = cache;
+		_profiler = profiler;
 		_evaluationFrames = new ArrayList<>();
 		_currentlyEvaluatingCells = new HashSet<>();
 	}
@@ -143,7 +146,7 @@ final class EvaluationTracker {
 				consumingFrame.addUsedBlankCell(evalWorkbook, bookIndex, sheetIndex, rowIndex, columnIndex);
 			} else {
 				PlainValueCellCacheEntry cce = _cache.getPlainValueEntry(bookIndex, sheetIndex,
-						rowIndex, columnIndex, value);
+						rowIndex, columnIndex, value, _profiler);
 				consumingFrame.addSensitiveInputCell(cce);
 			}
 		}
@@ -39,8 +39,19 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
 
 	private FormulaUsedBlankCellSet _usedBlankCellGroup;
 
+	/** the formula cell of this entry, may be <code>null</code> */
+	private final EvaluationCell _cell;
+
 	public FormulaCellCacheEntry() {
-		// leave fields un-set
+		this(null);
+	}
+
+	public FormulaCellCacheEntry(EvaluationCell cell) {
+		_cell = cell;
+	}
+
+	public EvaluationCell getCell() {
+		return _cell;
 	}
 	
 	public boolean isInputSensitive() {
@@ -113,11 +124,13 @@ final class FormulaCellCacheEntry extends CellCacheEntry {
 		_usedBlankCellGroup = usedBlankAreas;
 	}
 
-	public void notifyUpdatedBlankCell(BookSheetKey bsk, int rowIndex, int columnIndex, IEvaluationListener evaluationListener) {
+	public void notifyUpdatedBlankCell(BookSheetKey bsk, int rowIndex, int columnIndex, IEvaluationListener evaluationListener,
+			Set<FormulaCellCacheEntry> clearedCells) {
 		if (_usedBlankCellGroup != null) {
 			if (_usedBlankCellGroup.containsCell(bsk, rowIndex, columnIndex)) {
 				clearFormulaEntry();
-				recurseClearCachedFormulaResults(evaluationListener);
+				clearedCells.add(this);
+				recurseClearCachedFormulaResults(evaluationListener, clearedCells);
 			}
 		}
 	}
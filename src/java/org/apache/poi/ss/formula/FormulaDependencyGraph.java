@@ -0,0 +1,507 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheet;
+import org.apache.poi.ss.formula.EvaluationWorkbook.ExternalSheetRange;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.ptg.Area3DPxg;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtgBase;
+import org.apache.poi.ss.formula.ptg.NamePtg;
+import org.apache.poi.ss.formula.ptg.NameXPtg;
+import org.apache.poi.ss.formula.ptg.NameXPxg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.Pxg3D;
+import org.apache.poi.ss.formula.ptg.Ref3DPxg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.formula.ptg.RefPtgBase;
+
+/**
+ * The precedents and dependents of the formula cells of a workbook, which are used to
+ * recalculate all formula cells concurrently.
+ * <p>
+ * The graph is built from the parsed formula tokens of the cells. The references of a formula
+ * and of the named ranges it uses are linked to the formula cells within the referenced cells
+ * or areas. The cells are then sorted into levels, so that the cells of a level only depend
+ * on the cells of the previous levels. The cells of a level are evaluated in parallel, each
+ * thread with its own {@link WorkbookEvaluator}. The evaluators look up the results of the
+ * previous levels in the graph, which is only read while the levels are evaluated.
+ * <p>
+ * References which are only known while evaluating, like the ones of INDIRECT or OFFSET, are
+ * not part of the graph. The evaluators simply evaluate such precedents themselves, if they
+ * haven't been evaluated yet. Cells in a reference cycle, cells referring to other workbooks
+ * of a {@link CollaboratingWorkbooksEnvironment} and the cells depending on these are evaluated
+ * afterwards by the evaluator of the workbook in the calling thread, in the order they were added.
+ * <p>
+ * The formula cells are added in the calling thread, which also builds the caches of the
+ * {@link EvaluationWorkbook} before they are shared with the other threads. The workbook must
+ * not be modified while it is evaluated.
+ */
+final class FormulaDependencyGraph {
+    /** the number of cells evaluated by one task */
+    private static final int CHUNK_SIZE = 64;
+    /** named ranges referring to named ranges are only followed up to this depth */
+    private static final int MAX_NAME_DEPTH = 16;
+
+    /**
+     * A formula cell, or an area containing several formula cells
+     */
+    static final class Node {
+        private final EvaluationCell cell;
+        private final int sheetIndex;
+        private final Ptg[] ptgs;
+        private Node[] dependents = NO_NODES;
+        private int dependentCount;
+        /** the number of precedents which haven't been sorted into a level yet */
+        private int pendingPrecedents;
+        private boolean sequential;
+        private boolean leveled;
+        private volatile ValueEval value;
+
+        private Node(EvaluationCell cell, int sheetIndex, Ptg[] ptgs) {
+            this.cell = cell;
+            this.sheetIndex = sheetIndex;
+            this.ptgs = ptgs;
+        }
+
+        private void addDependent(Node dependent) {
+            if (dependentCount == dependents.length) {
+                dependents = Arrays.copyOf(dependents, Math.max(4, dependentCount * 2));
+            }
+            dependents[dependentCount++] = dependent;
+            dependent.pendingPrecedents++;
+        }
+
+        /**
+         * @return the result, or <code>null</code> if the cell hasn't been evaluated yet
+         */
+        ValueEval getValue() {
+            return value;
+        }
+
+        Ptg[] getFormulaTokens() {
+            return ptgs;
+        }
+    }
+
+    private static final Node[] NO_NODES = {};
+
+    /** marks areas without formula cells */
+    private static final Node NO_FORMULA_CELLS = new Node(null, -1, null);
+
+    private final WorkbookEvaluator _evaluator;
+    private final EvaluationWorkbook _workbook;
+    private final boolean _hasOtherWorkbooks;
+
+    /** the formula cells in the order they were added */
+    private final List<Node> _nodes = new ArrayList<>();
+    /** the formula cells by the identity key of their cell, only read while evaluating */
+    private final Map<Object, Node> _nodesByCell = new HashMap<>();
+    /** the formula cells of each sheet by their row and column, see {@link #cellKey(int, int)} */
+    private final Map<Integer, TreeMap<Long, Node>> _nodesBySheet = new HashMap<>();
+    private final Map<AreaKey, Node> _areaNodes = new HashMap<>();
+    private final Map<Integer, Ptg[]> _nameDefinitions = new HashMap<>();
+    private final Map<String, int[]> _sheetRanges = new HashMap<>();
+
+    private final ConcurrentLinkedQueue<WorkbookEvaluator> _idleEvaluators = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param evaluator the evaluator of the workbook, whose cached results have been cleared
+     * @param numberOfSheets the number of sheets of the workbook
+     */
+    FormulaDependencyGraph(WorkbookEvaluator evaluator, int numberOfSheets) {
+        _evaluator = evaluator;
+        _workbook = evaluator.getWorkbook();
+        _hasOtherWorkbooks = evaluator.getEnvironment() != CollaboratingWorkbooksEnvironment.EMPTY;
+
+        // build the lazily created sheet and cell caches of the evaluation workbook in this thread
+        for (int i = 0; i < numberOfSheets; i++) {
+            _workbook.getSheet(i).getCell(0, 0);
+        }
+    }
+
+    /**
+     * Add a formula cell, whose formula tokens are parsed in the calling thread
+     *
+     * @param cell the formula cell
+     * @param sheetIndex the index of the sheet of the cell
+     */
+    void addFormulaCell(EvaluationCell cell, int sheetIndex) {
+        Node node = new Node(cell, sheetIndex, _workbook.getFormulaTokens(cell));
+        _nodes.add(node);
+        _nodesByCell.put(cell.getIdentityKey(), node);
+        _nodesBySheet.computeIfAbsent(sheetIndex, k -> new TreeMap<>())
+                .put(cellKey(cell.getRowIndex(), cell.getColumnIndex()), node);
+    }
+
+    /**
+     * @return the node of the given formula cell, or <code>null</code> if it isn't part of the graph
+     */
+    Node getNode(EvaluationCell cell) {
+        return _nodesByCell.get(cell.getIdentityKey());
+    }
+
+    /**
+     * Evaluate all formula cells which have been added
+     *
+     * @param pool the pool to evaluate the cells of a level on
+     * @return the results in the order the cells were added
+     */
+    ValueEval[] evaluate(ForkJoinPool pool) {
+        for (Node node : _nodes) {
+            addPrecedents(node, node.ptgs, node.sheetIndex, 0);
+        }
+        _areaNodes.clear();
+        _nodesBySheet.clear();
+
+        List<Node[]> levels = sortIntoLevels();
+        for (Node[] level : levels) {
+            if (level.length <= CHUNK_SIZE) {
+                evaluateNodes(level, 0, level.length);
+            } else {
+                pool.invoke(new LevelTask(level, 0, level.length));
+            }
+        }
+
+        List<Node> sequential = new ArrayList<>();
+        for (Node node : _nodes) {
+            if (node.sequential || !node.leveled) {
+                sequential.add(node);
+            }
+        }
+        if (!sequential.isEmpty()) {
+            _evaluator.setDependencyGraph(this);
+            try {
+                for (Node node : sequential) {
+                    node.value = _evaluator.evaluate(node.cell, node.sheetIndex);
+                }
+            } finally {
+                _evaluator.setDependencyGraph(null);
+                // the cached results lack the dependencies on the results of the graph
+                _evaluator.clearAllCachedResultValues();
+            }
+        }
+
+        ValueEval[] results = new ValueEval[_nodes.size()];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = _nodes.get(i).value;
+        }
+        return results;
+    }
+
+    /**
+     * Link the formula cells referenced by the given formula tokens to the node
+     */
+    private void addPrecedents(Node node, Ptg[] ptgs, int sheetIndex, int nameDepth) {
+        for (Ptg ptg : ptgs) {
+            if (ptg instanceof NamePtg) {
+                if (nameDepth < MAX_NAME_DEPTH) {
+                    Ptg[] definition = getNameDefinition((NamePtg) ptg);
+                    if (definition != null) {
+                        addPrecedents(node, definition, sheetIndex, nameDepth + 1);
+                    }
+                }
+            } else if (ptg instanceof NameXPtg || ptg instanceof NameXPxg) {
+                // external names are evaluated with the other workbooks, if there are any
+                node.sequential |= _hasOtherWorkbooks;
+            } else if (ptg instanceof RefPtgBase) {
+                RefPtgBase ref = (RefPtgBase) ptg;
+                int[] sheets = getSheetRange(node, ptg, sheetIndex);
+                if (sheets != null) {
+                    for (int s = sheets[0]; s <= sheets[1]; s++) {
+                        addPrecedent(node, s, ref.getRow(), ref.getColumn(), ref.getRow(), ref.getColumn());
+                    }
+                }
+            } else if (ptg instanceof AreaPtgBase) {
+                AreaPtgBase area = (AreaPtgBase) ptg;
+                int[] sheets = getSheetRange(node, ptg, sheetIndex);
+                if (sheets != null) {
+                    for (int s = sheets[0]; s <= sheets[1]; s++) {
+                        addPrecedent(node, s, area.getFirstRow(), area.getFirstColumn(),
+                                area.getLastRow(), area.getLastColumn());
+                    }
+                }
+            }
+        }
+    }
+
+    private Ptg[] getNameDefinition(NamePtg namePtg) {
+        Integer index = namePtg.getIndex();
+        if (_nameDefinitions.containsKey(index)) {
+            return _nameDefinitions.get(index);
+        }
+        EvaluationName name = _workbook.getName(namePtg);
+        Ptg[] definition = (name == null || name.isFunctionName() || !name.hasFormula())
+                ? null : name.getNameDefinition();
+        _nameDefinitions.put(index, definition);
+        return definition;
+    }
+
+    /**
+     * Resolve the sheets of a reference like {@link OperationEvaluationContext} does
+     *
+     * @return the first and the last sheet index, or <code>null</code> if the reference doesn't
+     *  refer to formula cells of this workbook
+     */
+    private int[] getSheetRange(Node node, Ptg ptg, int sheetIndex) {
+        if (ptg instanceof RefPtg || ptg instanceof AreaPtg) {
+            return new int[]{ sheetIndex, sheetIndex };
+        }
+        ExternalSheet externalSheet;
+        String key;
+        if (ptg instanceof ExternSheetReferenceToken) {
+            int externSheetIndex = ((ExternSheetReferenceToken) ptg).getExternSheetIndex();
+            key = Integer.toString(externSheetIndex);
+            if (_sheetRanges.containsKey(key)) {
+                return getCachedSheetRange(node, key);
+            }
+            externalSheet = _workbook.getExternalSheet(externSheetIndex);
+        } else if (ptg instanceof Ref3DPxg || ptg instanceof Area3DPxg) {
+            Pxg3D pxg = (Pxg3D) ptg;
+            key = pxg.getExternalWorkbookNumber() + "!" + pxg.getSheetName() + ":" + pxg.getLastSheetName();
+            if (_sheetRanges.containsKey(key)) {
+                return getCachedSheetRange(node, key);
+            }
+            externalSheet = _workbook.getExternalSheet(
+                    pxg.getSheetName(), pxg.getLastSheetName(), pxg.getExternalWorkbookNumber());
+        } else {
+            // relative references of shared formulas, deleted references
+            return null;
+        }
+
+        int[] sheets;
+        if (externalSheet != null && externalSheet.getWorkbookName() != null) {
+            sheets = NO_SHEETS;
+        } else if (externalSheet == null) {
+            sheets = new int[]{ 0, 0 };
+        } else {
+            int first = _workbook.getSheetIndex(externalSheet.getSheetName());
+            int last = first;
+            if (externalSheet instanceof ExternalSheetRange) {
+                last = _workbook.getSheetIndex(((ExternalSheetRange) externalSheet).getLastSheetName());
+            }
+            sheets = (first < 0 || last < first) ? null : new int[]{ first, last };
+        }
+        _sheetRanges.put(key, sheets);
+        return getCachedSheetRange(node, key);
+    }
+
+    /** marks references to other workbooks */
+    private static final int[] NO_SHEETS = {};
+
+    private int[] getCachedSheetRange(Node node, String key) {
+        int[] sheets = _sheetRanges.get(key);
+        if (sheets == NO_SHEETS) {
+            node.sequential |= _hasOtherWorkbooks;
+            return null;
+        }
+        return sheets;
+    }
+
+    private void addPrecedent(Node node, int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        TreeMap<Long, Node> sheetNodes = _nodesBySheet.get(sheetIndex);
+        if (sheetNodes == null) {
+            return;
+        }
+        if (firstRow == lastRow && firstColumn == lastColumn) {
+            Node precedent = sheetNodes.get(cellKey(firstRow, firstColumn));
+            if (precedent != null) {
+                precedent.addDependent(node);
+            }
+            return;
+        }
+
+        AreaKey areaKey = new AreaKey(sheetIndex, firstRow, firstColumn, lastRow, lastColumn);
+        Node precedent = _areaNodes.get(areaKey);
+        if (precedent == null) {
+            List<Node> cells = findNodes(sheetNodes, firstRow, firstColumn, lastRow, lastColumn);
+            if (cells.isEmpty()) {
+                precedent = NO_FORMULA_CELLS;
+            } else if (cells.size() == 1) {
+                precedent = cells.get(0);
+            } else {
+                // link the formula cells of the area once, instead of to each formula referring to the area
+                precedent = new Node(null, sheetIndex, null);
+                for (Node cell : cells) {
+                    cell.addDependent(precedent);
+                }
+            }
+            _areaNodes.put(areaKey, precedent);
+        }
+        if (precedent != NO_FORMULA_CELLS) {
+            precedent.addDependent(node);
+        }
+    }
+
+    private static List<Node> findNodes(TreeMap<Long, Node> sheetNodes,
+            int firstRow, int firstColumn, int lastRow, int lastColumn) {
+        List<Node> result = new ArrayList<>();
+        long key = cellKey(firstRow, firstColumn);
+        Map.Entry<Long, Node> entry;
+        while ((entry = sheetNodes.ceilingEntry(key)) != null) {
+            long found = entry.getKey();
+            int row = (int) (found >>> 32);
+            int column = (int) found;
+            if (row > lastRow) {
+                break;
+            }
+            if (column < firstColumn) {
+                key = cellKey(row, firstColumn);
+            } else if (column > lastColumn) {
+                key = cellKey(row + 1, firstColumn);
+            } else {
+                result.add(entry.getValue());
+                key = found + 1;
+            }
+        }
+        return result;
+    }
+
+    private static long cellKey(int row, int column) {
+        return ((long) row << 32) | column;
+    }
+
+    /**
+     * Sort the formula cells into levels, whose cells only depend on the cells of the previous levels.
+     * The cells to be evaluated sequentially aren't part of any level, and neither are the cells
+     * which are never reached because of a reference cycle.
+     */
+    private List<Node[]> sortIntoLevels() {
+        List<Node> current = new ArrayList<>();
+        for (Node node : _nodes) {
+            if (node.pendingPrecedents == 0) {
+                current.add(node);
+            }
+        }
+
+        List<Node[]> levels = new ArrayList<>();
+        List<Node> stack = new ArrayList<>();
+        while (!current.isEmpty()) {
+            List<Node> next = new ArrayList<>();
+            List<Node> level = new ArrayList<>(current.size());
+            stack.addAll(current);
+            while (!stack.isEmpty()) {
+                Node node = stack.remove(stack.size() - 1);
+                node.leveled = true;
+                if (node.cell != null && !node.sequential) {
+                    level.add(node);
+                }
+                for (int i = 0; i < node.dependentCount; i++) {
+                    Node dependent = node.dependents[i];
+                    dependent.sequential |= node.sequential;
+                    if (--dependent.pendingPrecedents == 0) {
+                        // areas are passed through within the same level
+                        (dependent.cell == null ? stack : next).add(dependent);
+                    }
+                }
+                // the edges aren't needed anymore
+                node.dependents = NO_NODES;
+                node.dependentCount = 0;
+            }
+            if (!level.isEmpty()) {
+                levels.add(level.toArray(NO_NODES));
+            }
+            current = next;
+        }
+        return levels;
+    }
+
+    private void evaluateNodes(Node[] nodes, int from, int to) {
+        WorkbookEvaluator evaluator = _idleEvaluators.poll();
+        if (evaluator == null) {
+            // the evaluators of the threads don't track any dependencies, as their cache is discarded
+            evaluator = new WorkbookEvaluator(_workbook, null, IStabilityClassifier.TOTALLY_IMMUTABLE, null);
+            evaluator.setIgnoreMissingWorkbooks(_evaluator.isIgnoreMissingWorkbooks());
+            evaluator.setDependencyGraph(this);
+            evaluator.setProfiler(_evaluator.getProfiler());
+        }
+        try {
+            for (int i = from; i < to; i++) {
+                Node node = nodes[i];
+                node.value = evaluator.evaluate(node.cell, node.sheetIndex);
+            }
+        } finally {
+            _idleEvaluators.offer(evaluator);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class LevelTask extends RecursiveAction {
+        private final Node[] nodes;
+        private final int from;
+        private final int to;
+
+        private LevelTask(Node[] nodes, int from, int to) {
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                evaluateNodes(nodes, from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LevelTask(nodes, from, mid), new LevelTask(nodes, mid, to));
+            }
+        }
+    }
+
+    private static final class AreaKey {
+        private final int sheetIndex;
+        private final int firstRow;
+        private final int firstColumn;
+        private final int lastRow;
+        private final int lastColumn;
+
+        private AreaKey(int sheetIndex, int firstRow, int firstColumn, int lastRow, int lastColumn) {
+            this.sheetIndex = sheetIndex;
+            this.firstRow = firstRow;
+            this.firstColumn = firstColumn;
+            this.lastRow = lastRow;
+            this.lastColumn = lastColumn;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof AreaKey)) {
+                return false;
+            }
+            AreaKey other = (AreaKey) obj;
+            return sheetIndex == other.sheetIndex && firstRow == other.firstRow && firstColumn == other.firstColumn
+                    && lastRow == other.lastRow && lastColumn == other.lastColumn;
+        }
+
+        @Override
+        public int hashCode() {
+            return (((sheetIndex * 31 + firstRow) * 31 + firstColumn) * 31 + lastRow) * 31 + lastColumn;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.util.Internal;
+
+/**
+ * Caches the tokens of parsed formulas by the formula text, the formula type and the sheet
+ * the formula is parsed for, so that formulas with the same text are parsed only once.
+ * The row of the formula is only part of the key for formulas with structured references,
+ * which may refer to the row of the formula.<p>
+ *
+ * The tokens are shared by all callers, which must not modify them. As the tokens depend on
+ * the sheets, names and tables of the workbook, the cache has to be cleared when these are
+ * changed. The least recently used formulas are dropped when the cache is full.<p>
+ *
+ * The cache may be used by several threads at the same time.
+ *
+ * @since 4.0.0
+ */
+@Internal
+public final class FormulaParseCache {
+
+    /** the default number of formulas which are kept */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private static final class Key {
+        private final String _formula;
+        private final FormulaType _formulaType;
+        private final int _sheetIndex;
+        private final int _rowIndex;
+
+        public Key(String formula, FormulaType formulaType, int sheetIndex, int rowIndex) {
+            _formula = formula;
+            _formulaType = formulaType;
+            _sheetIndex = sheetIndex;
+            _rowIndex = rowIndex;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((_formula.hashCode() * 31 + _formulaType.hashCode()) * 31 + _sheetIndex) * 31 + _rowIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return _sheetIndex == other._sheetIndex && _rowIndex == other._rowIndex
+                    && _formulaType == other._formulaType && _formula.equals(other._formula);
+        }
+    }
+
+    /**
+     * Drops the least recently used formulas when more than the maximum number are kept
+     */
+    private static final class LruMap extends LinkedHashMap<Key, Ptg[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int _maxSize;
+
+        public LruMap(int maxSize) {
+            super(16, 0.75f, true);
+            _maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Ptg[]> eldest) {
+            return size() > _maxSize;
+        }
+    }
+
+    private final Map<Key, Ptg[]> _tokensByFormula;
+
+    public FormulaParseCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize the number of formulas which are kept
+     */
+    public FormulaParseCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive, but had " + maxSize);
+        }
+        _tokensByFormula = new LruMap(maxSize);
+    }
+
+    /**
+     * Parses the formula like {@link FormulaParser#parse(String, FormulaParsingWorkbook, FormulaType, int, int)},
+     * unless it has been parsed before
+     *
+     * @return the parsed tokens, which must not be modified
+     * @throws FormulaParseException if the formula has incorrect syntax or is otherwise invalid
+     */
+    public Ptg[] parse(String formula, FormulaParsingWorkbook workbook, FormulaType formulaType, int sheetIndex, int rowIndex) {
+        // only structured references like Table1[[#This Row],[col]] depend on the row
+        Key key = new Key(formula, formulaType, sheetIndex, formula.indexOf('[') < 0 ? -1 : rowIndex);
+        Ptg[] result;
+        synchronized (_tokensByFormula) {
+            result = _tokensByFormula.get(key);
+        }
+        if (result == null) {
+            result = FormulaParser.parse(formula, workbook, formulaType, sheetIndex, rowIndex);
+            synchronized (_tokensByFormula) {
+                _tokensByFormula.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of cached formulas
+     */
+    public int size() {
+        synchronized (_tokensByFormula) {
+            return _tokensByFormula.size();
+        }
+    }
+
+    /**
+     * Discards all parsed formulas, e.g. after sheets, names or tables of the workbook have changed
+     */
+    public void clear() {
+        synchronized (_tokensByFormula) {
+            _tokensByFormula.clear();
+        }
+    }
+}
@@ -0,0 +1,501 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.Arrays;
+
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+import org.apache.poi.ss.formula.eval.EvaluationException;
+import org.apache.poi.ss.formula.eval.FunctionEval;
+import org.apache.poi.ss.formula.eval.MissingArgEval;
+import org.apache.poi.ss.formula.eval.NotImplementedException;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.RefListEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.formula.function.FunctionMetadataRegistry;
+import org.apache.poi.ss.formula.functions.ArrayMode;
+import org.apache.poi.ss.formula.functions.Choose;
+import org.apache.poi.ss.formula.functions.FreeRefFunction;
+import org.apache.poi.ss.formula.functions.Function;
+import org.apache.poi.ss.formula.functions.IfFunc;
+import org.apache.poi.ss.formula.functions.NotImplementedFunction;
+import org.apache.poi.ss.formula.ptg.AbstractFunctionPtg;
+import org.apache.poi.ss.formula.ptg.AreaPtg;
+import org.apache.poi.ss.formula.ptg.AttrPtg;
+import org.apache.poi.ss.formula.ptg.BoolPtg;
+import org.apache.poi.ss.formula.ptg.ControlPtg;
+import org.apache.poi.ss.formula.ptg.FuncVarPtg;
+import org.apache.poi.ss.formula.ptg.IntPtg;
+import org.apache.poi.ss.formula.ptg.MemAreaPtg;
+import org.apache.poi.ss.formula.ptg.MemErrPtg;
+import org.apache.poi.ss.formula.ptg.MemFuncPtg;
+import org.apache.poi.ss.formula.ptg.NumberPtg;
+import org.apache.poi.ss.formula.ptg.OperationPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.formula.ptg.RefPtg;
+import org.apache.poi.ss.formula.ptg.StringPtg;
+import org.apache.poi.ss.formula.ptg.UnionPtg;
+
+/**
+ * A formula token array compiled for repeated evaluation by {@link WorkbookEvaluator}.<p>
+ *
+ * The plan holds everything {@link WorkbookEvaluator#evaluateFormula(OperationEvaluationContext, Ptg[])}
+ * would otherwise work out from the tokens on each evaluation: the kind of each token, the
+ * resolved functions and operators, whether they run in array mode and where the optimized
+ * IF, CHOOSE and skip attributes jump to. The evaluation itself uses a plain array as operand
+ * stack.<p>
+ *
+ * References and literal values are still taken from the tokens of the evaluated formula, so
+ * one plan serves all formulas of the same {@link Shape}, e.g. the copies of a relative formula
+ * or the cells of a shared formula, which only differ in the cells they refer to.
+ */
+final class FormulaPlan {
+
+    /** token is skipped */
+    private static final byte NOOP = 0;
+    /** the value is looked up by {@link WorkbookEvaluator#getEvalForPtg(Ptg, OperationEvaluationContext)} */
+    private static final byte OPERAND = 1;
+    private static final byte REF = 2;
+    private static final byte AREA = 3;
+    private static final byte INT = 4;
+    private static final byte NUMBER = 5;
+    private static final byte STRING = 6;
+    private static final byte BOOL = 7;
+    private static final byte OPERATION = 8;
+    private static final byte UNION = 9;
+    private static final byte IF = 10;
+    private static final byte CHOOSE = 11;
+    private static final byte SKIP = 12;
+
+    private static final byte ARRAY_MODE_NO = 0;
+    private static final byte ARRAY_MODE_YES = 1;
+    /** the following function is not implemented yet, so look again on evaluation */
+    private static final byte ARRAY_MODE_UNKNOWN = 2;
+
+    private final byte[] _codes;
+    /** for operations: the operation, for the others <code>null</code> */
+    private final OperationPtg[] _operations;
+    /** for operations: the function evaluating it, if it could be resolved */
+    private final Function[] _functions;
+    /** for operations: the function evaluating INDIRECT and external functions */
+    private final FreeRefFunction[] _freeRefFunctions;
+    /** for operations: whether an area argument turns on the array mode */
+    private final byte[] _arrayModes;
+    /**
+     * for IF: the index to continue after an error and when the condition is false,
+     * for CHOOSE: the index to continue after an error, followed by the ones for each choice,
+     * for skip: the index to continue
+     */
+    private final int[][] _jumps;
+    /** for IF: whether FALSE is the result of the missing false parameter */
+    private final boolean[] _pushFalse;
+
+    private FormulaPlan(int length) {
+        _codes = new byte[length];
+        _operations = new OperationPtg[length];
+        _functions = new Function[length];
+        _freeRefFunctions = new FreeRefFunction[length];
+        _arrayModes = new byte[length];
+        _jumps = new int[length][];
+        _pushFalse = new boolean[length];
+    }
+
+    /**
+     * Compiles the given formula tokens
+     *
+     * @return <code>null</code> if the tokens are inconsistent, they then need to be interpreted
+     * to fail in the same way
+     */
+    public static FormulaPlan compile(Ptg[] ptgs) {
+        FormulaPlan plan = new FormulaPlan(ptgs.length);
+        try {
+            for (int i = 0; i < ptgs.length; i++) {
+                plan.compile(ptgs, i);
+            }
+        } catch (RuntimeException e) {
+            // bad skip distances etc. only fail once the jump is taken
+            return null;
+        }
+        return plan;
+    }
+
+    private void compile(Ptg[] ptgs, int i) {
+        Ptg ptg = ptgs[i];
+        if (ptg instanceof AttrPtg) {
+            AttrPtg attrPtg = (AttrPtg) ptg;
+            if (attrPtg.isSum()) {
+                ptg = FuncVarPtg.SUM;
+            }
+            if (attrPtg.isOptimizedChoose()) {
+                int[] jumpTable = attrPtg.getJumpTable();
+                int nChoices = jumpTable.length;
+                int[] jumps = new int[nChoices + 1];
+                for (int j = 0; j <= nChoices; j++) {
+                    int dist = j == 0 ? attrPtg.getChooseFuncOffset() + 4 : jumpTable[j - 1];
+                    dist -= nChoices*2+2;
+                    jumps[j] = i + countTokensToBeSkipped(ptgs, i, dist) + 1;
+                }
+                _codes[i] = CHOOSE;
+                _jumps[i] = jumps;
+                return;
+            }
+            if (attrPtg.isOptimizedIf()) {
+                int errorIndex = i + countTokensToBeSkipped(ptgs, i, attrPtg.getData());
+                AttrPtg skipPtg = (AttrPtg) ptgs[errorIndex];
+                errorIndex += countTokensToBeSkipped(ptgs, errorIndex, skipPtg.getData()+1);
+
+                int falseIndex = i + countTokensToBeSkipped(ptgs, i, attrPtg.getData());
+                Ptg nextPtg = ptgs[falseIndex+1];
+                if (ptgs[falseIndex] instanceof AttrPtg && nextPtg instanceof FuncVarPtg &&
+                        ((FuncVarPtg)nextPtg).getFunctionIndex() == FunctionMetadataRegistry.FUNCTION_INDEX_IF) {
+                    // IF without a false param
+                    falseIndex++;
+                    _pushFalse[i] = true;
+                }
+                _codes[i] = IF;
+                _jumps[i] = new int[] { errorIndex + 1, falseIndex + 1 };
+                return;
+            }
+            if (attrPtg.isSkip()) {
+                _codes[i] = SKIP;
+                _jumps[i] = new int[] { i + countTokensToBeSkipped(ptgs, i, attrPtg.getData()+1) + 1 };
+                return;
+            }
+        }
+        if (ptg instanceof ControlPtg || ptg instanceof MemFuncPtg
+                || ptg instanceof MemAreaPtg || ptg instanceof MemErrPtg) {
+            _codes[i] = NOOP;
+            return;
+        }
+        if (ptg instanceof UnionPtg) {
+            _codes[i] = UNION;
+            return;
+        }
+        if (ptg instanceof OperationPtg) {
+            OperationPtg optg = (OperationPtg) ptg;
+            _codes[i] = OPERATION;
+            _operations[i] = optg;
+            // functions which are not implemented are left to OperationEvaluatorFactory.evaluate(),
+            // in case they get registered later on
+            try {
+                Function func = OperationEvaluatorFactory.getFunction(optg);
+                if (!(func instanceof NotImplementedFunction)) {
+                    _functions[i] = func;
+                }
+            } catch (NotImplementedException e) {
+                // not even a placeholder
+            }
+            _freeRefFunctions[i] = OperationEvaluatorFactory.getFreeRefFunction(optg);
+            _arrayModes[i] = getArrayMode(ptgs, i);
+            return;
+        }
+
+        // exact classes, as the subclasses need the general lookup
+        Class<? extends Ptg> cls = ptg.getClass();
+        if (cls == RefPtg.class) {
+            _codes[i] = REF;
+        } else if (cls == AreaPtg.class) {
+            _codes[i] = AREA;
+        } else if (cls == IntPtg.class) {
+            _codes[i] = INT;
+        } else if (cls == NumberPtg.class) {
+            _codes[i] = NUMBER;
+        } else if (cls == StringPtg.class) {
+            _codes[i] = STRING;
+        } else if (cls == BoolPtg.class) {
+            _codes[i] = BOOL;
+        } else {
+            _codes[i] = OPERAND;
+        }
+    }
+
+    private static byte getArrayMode(Ptg[] ptgs, int i) {
+        for (int ii = i; ii < ptgs.length; ii++) {
+            if (ptgs[ii] instanceof FuncVarPtg) {
+                try {
+                    Function func = FunctionEval.getBasicFunction(((FuncVarPtg)ptgs[ii]).getFunctionIndex());
+                    if (func instanceof NotImplementedFunction) {
+                        return ARRAY_MODE_UNKNOWN;
+                    }
+                    return func instanceof ArrayMode ? ARRAY_MODE_YES : ARRAY_MODE_NO;
+                } catch (NotImplementedException e) {
+                    return ARRAY_MODE_UNKNOWN;
+                }
+            }
+        }
+        return ARRAY_MODE_NO;
+    }
+
+    private static boolean isArrayMode(Ptg[] ptgs, int i) {
+        for (int ii = i; ii < ptgs.length; ii++) {
+            if (ptgs[ii] instanceof FuncVarPtg) {
+                try {
+                    return FunctionEval.getBasicFunction(((FuncVarPtg)ptgs[ii]).getFunctionIndex()) instanceof ArrayMode;
+                } catch (NotImplementedException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as in {@link WorkbookEvaluator}, but counting on from the given index
+     */
+    private static int countTokensToBeSkipped(Ptg[] ptgs, int startIndex, int distInBytes) {
+        int remBytes = distInBytes;
+        int index = startIndex;
+        while (remBytes != 0) {
+            index++;
+            remBytes -= ptgs[index].getSize();
+            if (remBytes < 0) {
+                throw new RuntimeException("Bad skip distance (wrong token size calculation).");
+            }
+            if (index >= ptgs.length) {
+                throw new RuntimeException("Skip distance too far (ran out of formula tokens).");
+            }
+        }
+        return index-startIndex;
+    }
+
+    /**
+     * Evaluates the given formula tokens, which must have the shape this plan was compiled from
+     */
+    public ValueEval evaluate(WorkbookEvaluator evaluator, OperationEvaluationContext ec, Ptg[] ptgs) {
+        ValueEval[] stack = new ValueEval[ptgs.length];
+        int size = 0;
+        int i = 0;
+        while (i < ptgs.length) {
+            ValueEval opResult;
+            switch (_codes[i]) {
+                case NOOP:
+                    i++;
+                    continue;
+                case IF: {
+                    ValueEval arg0 = stack[--size];
+                    boolean evaluatedPredicate;
+                    try {
+                        evaluatedPredicate = IfFunc.evaluateFirstArg(arg0, ec.getRowIndex(), ec.getColumnIndex());
+                    } catch (EvaluationException e) {
+                        stack[size++] = e.getErrorEval();
+                        i = _jumps[i][0];
+                        continue;
+                    }
+                    if (evaluatedPredicate) {
+                        // nothing to skip - true param follows
+                        i++;
+                    } else {
+                        if (_pushFalse[i]) {
+                            stack[size++] = BoolEval.FALSE;
+                        }
+                        i = _jumps[i][1];
+                    }
+                    continue;
+                }
+                case CHOOSE: {
+                    ValueEval arg0 = stack[--size];
+                    int[] jumps = _jumps[i];
+                    try {
+                        int switchIndex = Choose.evaluateFirstArg(arg0, ec.getRowIndex(), ec.getColumnIndex());
+                        if (switchIndex<1 || switchIndex >= jumps.length) {
+                            stack[size++] = ErrorEval.VALUE_INVALID;
+                            i = jumps[0];
+                        } else {
+                            i = jumps[switchIndex];
+                        }
+                    } catch (EvaluationException e) {
+                        stack[size++] = e.getErrorEval();
+                        i = jumps[0];
+                    }
+                    continue;
+                }
+                case SKIP:
+                    if (stack[size-1] == MissingArgEval.instance) {
+                        stack[size-1] = BlankEval.instance;
+                    }
+                    i = _jumps[i][0];
+                    continue;
+                case UNION: {
+                    ValueEval v2 = stack[--size];
+                    ValueEval v1 = stack[--size];
+                    opResult = new RefListEval(v1, v2);
+                    break;
+                }
+                case OPERATION: {
+                    OperationPtg optg = _operations[i];
+                    int numops = optg.getNumberOfOperands();
+                    ValueEval[] ops = new ValueEval[numops];
+                    boolean areaArg = false;
+                    for (int j = numops - 1; j >= 0; j--) {
+                        ValueEval p = stack[--size];
+                        ops[j] = p;
+                        if (p instanceof AreaEval) {
+                            areaArg = true;
+                        }
+                    }
+                    boolean arrayMode = areaArg && (_arrayModes[i] == ARRAY_MODE_YES
+                            || (_arrayModes[i] == ARRAY_MODE_UNKNOWN && isArrayMode(ptgs, i)));
+                    ec.setArrayMode(arrayMode);
+                    EvaluationProfiler profiler = evaluator.getProfiler();
+                    if (profiler == null) {
+                        opResult = evaluateOperation(i, optg, ops, ec);
+                    } else {
+                        profiler.onStartFunction();
+                        try {
+                            opResult = evaluateOperation(i, optg, ops, ec);
+                        } finally {
+                            profiler.onEndFunction(optg, ops);
+                        }
+                    }
+                    ec.setArrayMode(false);
+                    break;
+                }
+                case REF: {
+                    RefPtg rptg = (RefPtg) ptgs[i];
+                    opResult = ec.getRefEval(rptg.getRow(), rptg.getColumn());
+                    break;
+                }
+                case AREA: {
+                    AreaPtg aptg = (AreaPtg) ptgs[i];
+                    opResult = ec.getAreaEval(aptg.getFirstRow(), aptg.getFirstColumn(), aptg.getLastRow(), aptg.getLastColumn());
+                    break;
+                }
+                case INT:
+                    opResult = new NumberEval(((IntPtg)ptgs[i]).getValue());
+                    break;
+                case NUMBER:
+                    opResult = new NumberEval(((NumberPtg)ptgs[i]).getValue());
+                    break;
+                case STRING:
+                    opResult = new StringEval(((StringPtg)ptgs[i]).getValue());
+                    break;
+                case BOOL:
+                    opResult = BoolEval.valueOf(((BoolPtg)ptgs[i]).getValue());
+                    break;
+                default:
+                    opResult = evaluator.getEvalForPtg(ptgs[i], ec);
+                    break;
+            }
+            if (opResult == null) {
+                throw new RuntimeException("Evaluation result must not be null");
+            }
+            stack[size++] = opResult;
+            i++;
+        }
+
+        if (size != 1) {
+            throw new IllegalStateException("evaluation stack not empty");
+        }
+        ValueEval value = stack[0];
+        return ec.isSingleValue() ? WorkbookEvaluator.dereferenceResult(value, ec) : value;
+    }
+
+    /**
+     * Evaluates the operation at the given token index through the function resolved at compile time
+     */
+    private ValueEval evaluateOperation(int i, OperationPtg optg, ValueEval[] ops, OperationEvaluationContext ec) {
+        if (_functions[i] != null) {
+            return OperationEvaluatorFactory.evaluate(_functions[i], ops, ec);
+        }
+        if (_freeRefFunctions[i] != null) {
+            return _freeRefFunctions[i].evaluate(ops, ec);
+        }
+        return OperationEvaluatorFactory.evaluate(optg, ops, ec);
+    }
+
+    /**
+     * The parts of a formula which a {@link FormulaPlan} depends on: the token classes and sizes,
+     * the operations and the attributes, but not the referenced cells or literal values
+     */
+    static final class Shape {
+        private final Ptg[] _ptgs;
+        private final int _hashCode;
+
+        public Shape(Ptg[] ptgs) {
+            _ptgs = ptgs;
+            int hash = ptgs.length;
+            for (Ptg ptg : ptgs) {
+                hash = hash * 31 + ptg.getClass().hashCode();
+                hash = hash * 31 + ptg.getSize();
+                if (ptg instanceof AbstractFunctionPtg) {
+                    hash = hash * 31 + ((AbstractFunctionPtg)ptg).getFunctionIndex();
+                } else if (ptg instanceof AttrPtg) {
+                    hash = hash * 31 + ((AttrPtg)ptg).getData();
+                }
+            }
+            _hashCode = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return _hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Shape)) {
+                return false;
+            }
+            Shape other = (Shape) obj;
+            if (_hashCode != other._hashCode || _ptgs.length != other._ptgs.length) {
+                return false;
+            }
+            for (int i = 0; i < _ptgs.length; i++) {
+                if (!isSameShape(_ptgs[i], other._ptgs[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isSameShape(Ptg a, Ptg b) {
+            if (a.getClass() != b.getClass() || a.getSize() != b.getSize()) {
+                return false;
+            }
+            if (a instanceof AbstractFunctionPtg) {
+                AbstractFunctionPtg fa = (AbstractFunctionPtg) a;
+                AbstractFunctionPtg fb = (AbstractFunctionPtg) b;
+                return fa.getFunctionIndex() == fb.getFunctionIndex()
+                        && fa.getNumberOfOperands() == fb.getNumberOfOperands();
+            }
+            if (a instanceof AttrPtg) {
+                AttrPtg aa = (AttrPtg) a;
+                AttrPtg ab = (AttrPtg) b;
+                if (aa.isSum() != ab.isSum()
+                        || aa.isOptimizedIf() != ab.isOptimizedIf()
+                        || aa.isOptimizedChoose() != ab.isOptimizedChoose()
+                        || aa.isSkip() != ab.isSkip()
+                        || aa.getData() != ab.getData()) {
+                    return false;
+                }
+                return !aa.isOptimizedChoose()
+                        || (aa.getChooseFuncOffset() == ab.getChooseFuncOffset()
+                        && Arrays.equals(aa.getJumpTable(), ab.getJumpTable()));
+            }
+            // the other operations are singletons, the operands are read on evaluation
+            return true;
+        }
+    }
+}
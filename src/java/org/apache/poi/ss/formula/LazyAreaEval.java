@@ -94,4 +94,13 @@ final class LazyAreaEval extends AreaEvalBase {
         SheetRefEvaluator _sre = _evaluator.getSheetEvaluator(_evaluator.getFirstSheetIndex());
         return _sre.isSubTotal(getFirstRow() + rowIndex, getFirstColumn() + columnIndex);
     }
+
+    /**
+     * @return the snapshot of this area on the first sheet, which is cached by the evaluator
+     */
+    @Override
+    public AreaSnapshot getSnapshot() {
+        SheetRefEvaluator _sre = _evaluator.getSheetEvaluator(_evaluator.getFirstSheetIndex());
+        return _sre.getAreaSnapshot(getFirstRow(), getFirstColumn(), getLastRow(), getLastColumn());
+    }
 }
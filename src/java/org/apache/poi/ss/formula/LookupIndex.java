@@ -0,0 +1,119 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+
+/**
+ * Hash index of the values of a single row or column area, which finds the first exact
+ * match of a lookup value without comparing it with every value of the area.<p>
+ *
+ * Two values match if they are of the same type and numbers are equal, booleans are equal or
+ * strings are equal ignoring case, as with the comparison of
+ * {@link org.apache.poi.ss.formula.functions.LookupUtils}. Wildcards are not supported.<p>
+ *
+ * The indexes are built from the {@link AreaSnapshot}s of areas which contain no formula
+ * cells, and are cached with them until one of the cells of the area is changed.
+ *
+ * @see AreaSnapshot#getLookupIndex()
+ * @since 4.0.0
+ */
+public final class LookupIndex {
+
+	private final Map<Double, Integer> _numbers = new HashMap<>();
+	private final Map<String, Integer> _strings = new HashMap<>();
+	private int _firstTrue = -1;
+	private int _firstFalse = -1;
+
+	private LookupIndex() {
+		// no instances outside the evaluator
+	}
+
+	/**
+	 * Indexes the values of a single row or column area
+	 */
+	static LookupIndex create(ValueEval[] values) {
+		LookupIndex result = new LookupIndex();
+		for (int i = 0; i < values.length; i++) {
+			result.add(values[i], i);
+		}
+		return result;
+	}
+
+	private void add(ValueEval value, int index) {
+		Class<? extends ValueEval> cls = value.getClass();
+		if (cls == NumberEval.class) {
+			Double key = Double.valueOf(((NumberEval) value).getNumberValue());
+			if (!_numbers.containsKey(key)) {
+				_numbers.put(key, Integer.valueOf(index));
+			}
+		} else if (cls == StringEval.class) {
+			String key = toKey(((StringEval) value).getStringValue());
+			if (!_strings.containsKey(key)) {
+				_strings.put(key, Integer.valueOf(index));
+			}
+		} else if (cls == BoolEval.class) {
+			if (((BoolEval) value).getBooleanValue()) {
+				if (_firstTrue < 0) {
+					_firstTrue = index;
+				}
+			} else if (_firstFalse < 0) {
+				_firstFalse = index;
+			}
+		}
+		// blanks and errors are never matched
+	}
+
+	/**
+	 * @param lookupValue a {@link NumberEval}, {@link StringEval} or {@link BoolEval}
+	 * @return the zero based index of the first value that matches the lookup value,
+	 *  -1 if there is none
+	 */
+	public int indexOf(ValueEval lookupValue) {
+		Integer result;
+		if (lookupValue instanceof NumberEval) {
+			result = _numbers.get(Double.valueOf(((NumberEval) lookupValue).getNumberValue()));
+		} else if (lookupValue instanceof StringEval) {
+			result = _strings.get(toKey(((StringEval) lookupValue).getStringValue()));
+		} else if (lookupValue instanceof BoolEval) {
+			return ((BoolEval) lookupValue).getBooleanValue() ? _firstTrue : _firstFalse;
+		} else {
+			throw new IllegalArgumentException("Bad lookup value type (" + lookupValue.getClass().getName() + ")");
+		}
+		return result == null ? -1 : result.intValue();
+	}
+
+	/**
+	 * Maps all strings which are equal according to {@link String#compareToIgnoreCase(String)}
+	 * to the same key
+	 */
+	private static String toKey(String value) {
+		int len = value.length();
+		char[] chars = new char[len];
+		for (int i = 0; i < len; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(value.charAt(i)));
+		}
+		return new String(chars);
+	}
+}
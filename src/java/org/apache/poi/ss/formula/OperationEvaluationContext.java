@@ -348,17 +348,27 @@ public final class OperationEvaluationContext {
     public ValueEval getAreaValueEval(int firstRowIndex, int firstColumnIndex,
             int lastRowIndex, int lastColumnIndex, Object[][] tokens) {
         
-        ValueEval values[] = new ValueEval[tokens.length * tokens[0].length];
+        // the numbers are held as double[], the other values only where they occur
+        double numbers[] = new double[tokens.length * tokens[0].length];
+        ValueEval values[] = null;
         
         int index = 0;
         for (int jdx = 0; jdx < tokens.length; jdx++) {
             for (int idx = 0; idx < tokens[0].length; idx++) {
-                values[index++] = convertObjectEval(tokens[jdx][idx]);
+                Object token = tokens[jdx][idx];
+                if (token instanceof Double) {
+                    numbers[index++] = ((Double)token).doubleValue();
+                    continue;
+                }
+                if (values == null) {
+                    values = new ValueEval[numbers.length];
+                }
+                values[index++] = convertObjectEval(token);
             }
         }
         
         return new CacheAreaEval(firstRowIndex, firstColumnIndex, lastRowIndex,
-                                 lastColumnIndex, values);
+                                 lastColumnIndex, numbers, values);
     }
     
     private ValueEval convertObjectEval(Object token) {
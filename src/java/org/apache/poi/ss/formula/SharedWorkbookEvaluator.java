@@ -0,0 +1,159 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
+import org.apache.poi.ss.usermodel.Workbook;
+
+/**
+ * Evaluates the formula cells of a workbook, which isn't modified anymore, from several threads
+ * at the same time.<p>
+ *
+ * The results of the formula cells are kept in a concurrent cache shared by all threads, so
+ * a result calculated for one thread is reused by the others. Each evaluation runs on a
+ * {@link WorkbookEvaluator} of its own, which detects circular references within the current
+ * thread only. These evaluators are kept for later evaluations together with their caches of
+ * intermediate values, so there are at most as many of them as threads evaluating at the same
+ * time. They are created with {@code createSharedEvaluator()} of the formula evaluator of
+ * the workbook.<p>
+ *
+ * The workbook must not be modified while this evaluator is used. Call
+ * {@link #clearAllCachedResultValues()} after it has been modified. The evaluators of the
+ * threads aren't part of a {@link CollaboratingWorkbooksEnvironment}, so formulas referring to
+ * other workbooks only get a result if the given evaluator ignores missing workbooks, see
+ * {@link FormulaEvaluator#setIgnoreMissingWorkbooks(boolean)}.
+ *
+ * @since 4.0.0
+ */
+public final class SharedWorkbookEvaluator {
+
+    private final Workbook _book;
+    private final BaseFormulaEvaluator _evaluator;
+    private final EvaluationWorkbook _workbook;
+    private final boolean _ignoreMissingWorkbooks;
+
+    private final ConcurrentLinkedQueue<Worker> _idleWorkers = new ConcurrentLinkedQueue<>();
+    private volatile ConcurrentMap<Object, ValueEval> _results = new ConcurrentHashMap<>();
+
+    /**
+     * An evaluator of a thread, whose cache belongs to the given shared results
+     */
+    private static final class Worker {
+        private final WorkbookEvaluator evaluator;
+        private final ConcurrentMap<Object, ValueEval> results;
+
+        private Worker(WorkbookEvaluator evaluator, ConcurrentMap<Object, ValueEval> results) {
+            this.evaluator = evaluator;
+            this.results = results;
+            evaluator.setSharedResults(results);
+        }
+    }
+
+    /**
+     * @param wb the workbook to evaluate
+     * @param evaluator the evaluator of the workbook, whose user defined functions and settings
+     *  are used by all threads. It is not used for evaluating.
+     */
+    /* package */ SharedWorkbookEvaluator(Workbook wb, BaseFormulaEvaluator evaluator) {
+        WorkbookEvaluator bookEvaluator = evaluator._getWorkbookEvaluator();
+        _book = wb;
+        _evaluator = evaluator;
+        _workbook = bookEvaluator.getWorkbook();
+        _ignoreMissingWorkbooks = bookEvaluator.isIgnoreMissingWorkbooks();
+        buildWorkbookCaches();
+    }
+
+    /**
+     * Build the lazily created caches of the evaluation workbook in this thread,
+     * before they are read by the other threads
+     */
+    private void buildWorkbookCaches() {
+        int numberOfSheets = _book.getNumberOfSheets();
+        for (int i = 0; i < numberOfSheets; i++) {
+            _workbook.getSheet(i).getCell(0, 0);
+        }
+        if (_workbook instanceof FormulaParsingWorkbook && _workbook.getSpreadsheetVersion() == SpreadsheetVersion.EXCEL2007) {
+            // formulas referring to tables are parsed while evaluating
+            ((FormulaParsingWorkbook) _workbook).getTable("");
+        }
+    }
+
+    /**
+     * Evaluates the given cell like {@link FormulaEvaluator#evaluate(Cell)}.
+     * This method may be called by several threads at the same time.
+     *
+     * @param cell a cell of the workbook, may be <code>null</code>
+     * @return the evaluated value, or <code>null</code> if the cell is <code>null</code> or blank
+     */
+    public CellValue evaluate(Cell cell) {
+        if (cell == null || cell.getCellType() != CellType.FORMULA) {
+            // plain values are read from the cell
+            return _evaluator.evaluate(cell);
+        }
+        if (cell.getSheet().getWorkbook() != _book) {
+            throw new IllegalArgumentException("The cell is not part of the evaluated workbook");
+        }
+        int sheetIndex = _book.getSheetIndex(cell.getSheet());
+        EvaluationCell evalCell = _workbook.getSheet(sheetIndex).getCell(cell.getRowIndex(), cell.getColumnIndex());
+        return _evaluator.toCellValue(evaluate(evalCell, sheetIndex));
+    }
+
+    private ValueEval evaluate(EvaluationCell cell, int sheetIndex) {
+        ConcurrentMap<Object, ValueEval> results = _results;
+        ValueEval result = results.get(cell.getIdentityKey());
+        if (result != null) {
+            return result;
+        }
+
+        Worker worker = _idleWorkers.poll();
+        if (worker == null || worker.results != results) {
+            // the dependencies of the cells aren't tracked, as the workbook isn't modified
+            WorkbookEvaluator evaluator = new WorkbookEvaluator(_workbook, null, IStabilityClassifier.TOTALLY_IMMUTABLE, null);
+            evaluator.setIgnoreMissingWorkbooks(_ignoreMissingWorkbooks);
+            worker = new Worker(evaluator, results);
+        }
+        worker.evaluator.setProfiler(_evaluator._getWorkbookEvaluator().getProfiler());
+        try {
+            return worker.evaluator.evaluate(cell, sheetIndex);
+        } finally {
+            if (worker.results == _results) {
+                _idleWorkers.offer(worker);
+            }
+        }
+    }
+
+    /**
+     * Discards the results of all formula cells and the caches of the evaluators of the threads.
+     * Call this method after the workbook has been modified, before evaluating again.
+     */
+    public void clearAllCachedResultValues() {
+        _workbook.clearAllCachedResultValues();
+        _results = new ConcurrentHashMap<>();
+        _idleWorkers.clear();
+        buildWorkbookCaches();
+    }
+}
@@ -48,6 +48,14 @@ final class SheetRefEvaluator {
 		return _bookEvaluator.evaluateReference(getSheet(), _sheetIndex, rowIndex, columnIndex, _tracker);
 	}
 
+	/**
+	 * @return the cached snapshot of the specified area, <code>null</code> if the area has to be
+	 * read cell by cell
+	 */
+	public AreaSnapshot getAreaSnapshot(int firstRow, int firstColumn, int lastRow, int lastColumn) {
+		return _bookEvaluator.getAreaSnapshot(getSheet(), _sheetIndex, firstRow, firstColumn, lastRow, lastColumn, _tracker);
+	}
+
 	private EvaluationSheet getSheet() {
 		if (_sheet == null) {
 			_sheet = _bookEvaluator.getSheet(_sheetIndex);
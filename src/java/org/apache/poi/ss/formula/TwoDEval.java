@@ -65,4 +65,11 @@ public interface TwoDEval extends ValueEval {
      */
     boolean isSubTotal(int rowIndex, int columnIndex);
 
+    /**
+     * @return the values of this area to scan it without reading every cell, or
+     *  <code>null</code> if the area has to be read value by value
+     * @since 4.0.0
+     */
+    AreaSnapshot getSnapshot();
+
 }
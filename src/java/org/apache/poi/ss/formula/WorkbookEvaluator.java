@@ -20,10 +20,13 @@ package org.apache.poi.ss.formula;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.CollaboratingWorkbooksEnvironment.WorkbookNotFoundException;
@@ -57,6 +60,12 @@ public final class WorkbookEvaluator {
     
     private static final POILogger LOG = POILogFactory.getLogger(WorkbookEvaluator.class);
 
+    /** the number of formula shapes whose plans are kept, the formulas of other shapes are interpreted */
+    private static final int MAX_FORMULA_PLANS = 10000;
+
+    /** the number of cells from which on areas are scanned through snapshots, smaller areas are read cell by cell */
+    private static final int MIN_AREA_SNAPSHOT_SIZE = 32;
+
     private final EvaluationWorkbook _workbook;
     private EvaluationCache _cache;
     /** part of cache entry key (useful when evaluating multiple workbooks) */
@@ -71,6 +80,34 @@ public final class WorkbookEvaluator {
 
     private boolean _ignoreMissingWorkbooks;
 
+    /**
+     * the results of the formula cells which are evaluated concurrently, or <code>null</code>
+     */
+    private FormulaDependencyGraph _dependencyGraph;
+
+    /**
+     * the results of the formula cells shared with the evaluators of other threads, by the
+     * identity key of the cells, or <code>null</code>
+     */
+    private ConcurrentMap<Object, ValueEval> _sharedResults;
+
+    /**
+     * the formula plans of this evaluator, by the shape of the formulas they were compiled from
+     */
+    private final Map<FormulaPlan.Shape, FormulaPlan> _formulaPlans = new HashMap<>();
+    /**
+     * the tokens of the formulas evaluated by their text, like the formulas of conditional
+     * formatting rules and data validations
+     */
+    private final FormulaParseCache _formulaParseCache = new FormulaParseCache();
+    private boolean _useFormulaPlans = true;
+    private boolean _useAreaSnapshots = true;
+
+    /**
+     * the profiler collecting statistics about the evaluations, or <code>null</code>
+     */
+    private EvaluationProfiler _profiler;
+
     /**
      * whether print detailed messages about the next formula evaluation
      */
@@ -170,14 +207,37 @@ public final class WorkbookEvaluator {
         return _evaluationListener;
     }
 
+    /**
+     * Collect statistics about the following evaluations with the given profiler
+     *
+     * @param profiler the profiler, or <code>null</code> to stop profiling
+     * @since 4.0.0
+     */
+    public void setProfiler(EvaluationProfiler profiler) {
+        _profiler = profiler;
+    }
+
+    /**
+     * @return the profiler collecting statistics about the evaluations, or <code>null</code>
+     * @since 4.0.0
+     */
+    public EvaluationProfiler getProfiler() {
+        return _profiler;
+    }
+
     /**
      * Should be called whenever there are changes to input cells in the evaluated workbook.
      * Failure to call this method after changing cell values will cause incorrect behaviour
-     * of the evaluate~ methods of this class
+     * of the evaluate~ methods of this class.<p>
+     *
+     * This method also discards the cached tokens of the formulas evaluated by their text, see
+     * {@link #evaluate(String, CellReference)}, so it must be called as well after sheets or
+     * names have been added, removed, renamed or reordered.
      */
     public void clearAllCachedResultValues() {
         _cache.clear();
         _sheetIndexesBySheet.clear();
+        _formulaParseCache.clear();
         _workbook.clearAllCachedResultValues();
     }
 
@@ -198,6 +258,17 @@ public final class WorkbookEvaluator {
         _cache.notifyDeleteCell(_workbookIx, sheetIndex, cell);
     }
     
+    /**
+     * Returns the formula cells which have been evaluated before, but whose results have
+     * been cleared since by {@link #notifyUpdateCell(EvaluationCell)} or
+     * {@link #notifyDeleteCell(EvaluationCell)} because one of their precedents has changed.
+     * The cells are only returned once, i.e. a second call returns only the cells which have
+     * been invalidated since the first one.
+     */
+    /* package */ List<EvaluationCell> getDirtyFormulaCells() {
+        return _cache.getDirtyFormulaCells();
+    }
+
     private int getSheetIndex(EvaluationSheet sheet) {
         Integer result = _sheetIndexesBySheet.get(sheet);
         if (result == null) {
@@ -213,7 +284,31 @@ public final class WorkbookEvaluator {
 
     public ValueEval evaluate(EvaluationCell srcCell) {
         int sheetIndex = getSheetIndex(srcCell.getSheet());
-        return evaluateAny(srcCell, sheetIndex, srcCell.getRowIndex(), srcCell.getColumnIndex(), new EvaluationTracker(_cache));
+        return evaluate(srcCell, sheetIndex);
+    }
+
+    /* package */ ValueEval evaluate(EvaluationCell srcCell, int sheetIndex) {
+        return evaluateAny(srcCell, sheetIndex, srcCell.getRowIndex(), srcCell.getColumnIndex(), new EvaluationTracker(_cache, _profiler));
+    }
+
+    /**
+     * Use the results of the given graph for the formula cells which have already been evaluated
+     *
+     * @param graph the graph, or <code>null</code> to stop using it
+     */
+    /* package */ void setDependencyGraph(FormulaDependencyGraph graph) {
+        _dependencyGraph = graph;
+    }
+
+    /**
+     * Look up the results of formula cells in the given map before evaluating them, and add
+     * the results of the formula cells evaluated by this evaluator
+     *
+     * @param results the results shared with other threads, or <code>null</code> to stop sharing
+     * @see SharedWorkbookEvaluator
+     */
+    /* package */ void setSharedResults(ConcurrentMap<Object, ValueEval> results) {
+        _sharedResults = results;
     }
 
     /**
@@ -255,20 +350,44 @@ public final class WorkbookEvaluator {
             return result;
         }
 
+        FormulaDependencyGraph.Node node = null;
+        if (_dependencyGraph != null) {
+            node = _dependencyGraph.getNode(srcCell);
+            if (node != null && node.getValue() != null) {
+                if (_profiler != null) {
+                    _profiler.onFormulaCacheHit(_workbook, sheetIndex, rowIndex, columnIndex);
+                }
+                return node.getValue();
+            }
+        }
+        if (_sharedResults != null) {
+            ValueEval sharedResult = _sharedResults.get(srcCell.getIdentityKey());
+            if (sharedResult != null) {
+                if (_profiler != null) {
+                    _profiler.onFormulaCacheHit(_workbook, sheetIndex, rowIndex, columnIndex);
+                }
+                return sharedResult;
+            }
+        }
+
         FormulaCellCacheEntry cce = _cache.getOrCreateFormulaCellEntry(srcCell);
         if (shouldCellDependencyBeRecorded || cce.isInputSensitive()) {
             tracker.acceptFormulaDependency(cce);
         }
         IEvaluationListener evalListener = _evaluationListener;
+        EvaluationProfiler profiler = _profiler;
         ValueEval result;
         if (cce.getValue() == null) {
             if (!tracker.startEvaluate(cce)) {
                 return ErrorEval.CIRCULAR_REF_ERROR;
             }
+            if (profiler != null) {
+                profiler.onStartEvaluateCell(_workbook, srcCell, sheetIndex);
+            }
 
             try {
 
-                Ptg[] ptgs = _workbook.getFormulaTokens(srcCell);
+                Ptg[] ptgs = node == null ? _workbook.getFormulaTokens(srcCell) : node.getFormulaTokens();
                 OperationEvaluationContext ec = new OperationEvaluationContext
                         (this, _workbook, sheetIndex, rowIndex, columnIndex, tracker);
                 if (evalListener == null) {
@@ -280,6 +399,10 @@ public final class WorkbookEvaluator {
                 }
 
                 tracker.updateCacheResult(result);
+                if (_sharedResults != null && cce.getValue() != null) {
+                    // circular reference errors of cells within a loop are not cached
+                    _sharedResults.putIfAbsent(srcCell.getIdentityKey(), cce.getValue());
+                }
             }
              catch (NotImplementedException e) {
                 throw addExceptionInfo(e, sheetIndex, rowIndex, columnIndex);
@@ -311,11 +434,17 @@ public final class WorkbookEvaluator {
                  }
              } finally {
                 tracker.endEvaluate(cce);
+                if (profiler != null) {
+                    profiler.onEndEvaluateCell();
+                }
             }
         } else {
             if(evalListener != null) {
                 evalListener.onCacheHit(sheetIndex, rowIndex, columnIndex, cce.getValue());
             }
+            if (profiler != null) {
+                profiler.onFormulaCacheHit(_workbook, sheetIndex, rowIndex, columnIndex);
+            }
             return cce.getValue();
         }
         if (isDebugLogEnabled()) {
@@ -379,6 +508,12 @@ public final class WorkbookEvaluator {
     // visibility raised for testing
     @Internal
     /* package */ ValueEval evaluateFormula(OperationEvaluationContext ec, Ptg[] ptgs) {
+        if (_useFormulaPlans && !dbgEvaluationOutputForNextEval && dbgEvaluationOutputIndent <= 0) {
+            FormulaPlan plan = getFormulaPlan(ptgs);
+            if (plan != null) {
+                return plan.evaluate(this, ec, ptgs);
+            }
+        }
 
         String dbgIndentStr = "";        // always init. to non-null just for defensive avoiding NPE
         if (dbgEvaluationOutputForNextEval) {
@@ -531,7 +666,16 @@ public final class WorkbookEvaluator {
                 ec.setArrayMode(arrayMode);
 
 //                logDebug("invoke " + operation + " (nAgs=" + numops + ")");
-                opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                if (_profiler == null) {
+                    opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                } else {
+                    _profiler.onStartFunction();
+                    try {
+                        opResult = OperationEvaluatorFactory.evaluate(optg, ops, ec);
+                    } finally {
+                        _profiler.onEndFunction(optg, ops);
+                    }
+                }
 
                 ec.setArrayMode(false);
 
@@ -576,6 +720,37 @@ public final class WorkbookEvaluator {
 
     }
 
+    /**
+     * Returns the plan for evaluating the given formula tokens, compiling it on first use
+     *
+     * @return <code>null</code> if the tokens need to be interpreted
+     */
+    private FormulaPlan getFormulaPlan(Ptg[] ptgs) {
+        FormulaPlan.Shape shape = new FormulaPlan.Shape(ptgs);
+        FormulaPlan plan = _formulaPlans.get(shape);
+        if (plan == null && _formulaPlans.size() < MAX_FORMULA_PLANS && !_formulaPlans.containsKey(shape)) {
+            plan = FormulaPlan.compile(ptgs);
+            _formulaPlans.put(shape, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Whether formulas are evaluated through compiled {@link FormulaPlan}s (the default)
+     * or by interpreting their tokens on each evaluation
+     */
+    /* package */ void setUseFormulaPlans(boolean useFormulaPlans) {
+        _useFormulaPlans = useFormulaPlans;
+    }
+
+    /**
+     * Whether large areas are scanned through {@link AreaSnapshot}s (the default) or read
+     * cell by cell
+     */
+    /* package */ void setUseAreaSnapshots(boolean useAreaSnapshots) {
+        _useAreaSnapshots = useAreaSnapshots;
+    }
+
     /**
      * Calculates the number of tokens that the evaluator should skip upon reaching a tAttrSkip.
      *
@@ -607,7 +782,7 @@ public final class WorkbookEvaluator {
      *         {@link ErrorEval}. Never <code>null</code>. {@link BlankEval} is
      *         converted to {@link NumberEval#ZERO}
      */
-    private static ValueEval dereferenceResult(ValueEval evaluationResult, OperationEvaluationContext ec) {
+    /* package */ static ValueEval dereferenceResult(ValueEval evaluationResult, OperationEvaluationContext ec) {
         ValueEval value;
 
         if (ec == null) {
@@ -662,7 +837,7 @@ public final class WorkbookEvaluator {
      * StringPtg, BoolPtg <br/>special Note: OperationPtg subtypes cannot be
      * passed here!
      */
-    private ValueEval getEvalForPtg(Ptg ptg, OperationEvaluationContext ec) {
+    /* package */ ValueEval getEvalForPtg(Ptg ptg, OperationEvaluationContext ec) {
         //  consider converting all these (ptg instanceof XxxPtg) expressions to (ptg.getClass() == XxxPtg.class)
 
         if (ptg instanceof NamePtg) {
@@ -782,12 +957,36 @@ public final class WorkbookEvaluator {
         EvaluationCell cell = sheet.getCell(rowIndex, columnIndex);
         return evaluateAny(cell, sheetIndex, rowIndex, columnIndex, tracker);
     }
+
+    /**
+     * Used by the lazy area evals to scan large areas without reading every cell.
+     * The evaluating formula depends on the returned snapshot instead of the cells of the area.
+     *
+     * @return <code>null</code> if the area is too small or contains formula cells
+     */
+    /* package */ AreaSnapshot getAreaSnapshot(EvaluationSheet sheet, int sheetIndex, int firstRow,
+            int firstColumn, int lastRow, int lastColumn, EvaluationTracker tracker) {
+        if (!_useAreaSnapshots
+                || (lastRow - firstRow + 1) * (long)(lastColumn - firstColumn + 1) < MIN_AREA_SNAPSHOT_SIZE) {
+            return null;
+        }
+        AreaSnapshotCache.Entry entry = _cache.getAreaSnapshotEntry(_workbookIx, sheetIndex, sheet,
+                firstRow, firstColumn, lastRow, lastColumn, _profiler);
+        AreaSnapshot result = entry.getSnapshot();
+        if (result != null) {
+            tracker.acceptFormulaDependency(entry);
+        }
+        return result;
+    }
     public FreeRefFunction findUserDefinedFunction(String functionName) {
         return _udfFinder.findFunction(functionName);
     }
 
     /**
-     * Evaluate a formula outside a cell value, e.g. conditional format rules or data validation expressions
+     * Evaluate a formula outside a cell value, e.g. conditional format rules or data validation expressions.
+     * The parsed tokens of the formula are cached by its text and sheet, and refer to sheets and
+     * names by their index. Call {@link #clearAllCachedResultValues()} after sheets or names have
+     * been added, removed, renamed or reordered.
      * 
      * @param formula to evaluate
      * @param ref defines the optional sheet and row/column base for the formula, if it is relative
@@ -809,9 +1008,9 @@ public final class WorkbookEvaluator {
                 sheetIndex, 
                 rowIndex, 
                 colIndex, 
-                new EvaluationTracker(_cache)
+                new EvaluationTracker(_cache, _profiler)
             );
-        Ptg[] ptgs = FormulaParser.parse(formula, (FormulaParsingWorkbook) getWorkbook(), FormulaType.CELL, sheetIndex, rowIndex);
+        Ptg[] ptgs = _formulaParseCache.parse(formula, (FormulaParsingWorkbook) getWorkbook(), FormulaType.CELL, sheetIndex, rowIndex);
         return evaluateNameFormula(ptgs, ec);
     }
     
@@ -856,14 +1055,27 @@ public final class WorkbookEvaluator {
         if (sheetName == null) throw new IllegalArgumentException("Sheet name is required");
         
         final int sheetIndex = getWorkbook().getSheetIndex(sheetName);
-        Ptg[] ptgs = FormulaParser.parse(formula, (FormulaParsingWorkbook) getWorkbook(), formulaType, sheetIndex, target.getRow());
+        Ptg[] ptgs = copyCellReferences(_formulaParseCache.parse(formula, (FormulaParsingWorkbook) getWorkbook(), formulaType, sheetIndex, target.getRow()));
 
         adjustRegionRelativeReference(ptgs, target, region);
         
-        final OperationEvaluationContext ec = new OperationEvaluationContext(this, getWorkbook(), sheetIndex, target.getRow(), target.getCol(), new EvaluationTracker(_cache), formulaType.isSingleValue());
+        final OperationEvaluationContext ec = new OperationEvaluationContext(this, getWorkbook(), sheetIndex, target.getRow(), target.getCol(), new EvaluationTracker(_cache, _profiler), formulaType.isSingleValue());
         return evaluateNameFormula(ptgs, ec);
     }
     
+    /**
+     * @return a copy of the given cached tokens, whose cell references can be adjusted
+     */
+    private static Ptg[] copyCellReferences(Ptg[] ptgs) {
+        Ptg[] result = ptgs.clone();
+        for (int i = 0; i < result.length; i++) {
+            if (result[i] instanceof RefPtgBase) {
+                result[i] = ((RefPtgBase) result[i]).copy();
+            }
+        }
+        return result;
+    }
+
     /**
      * Adjust formula relative references by the offset between the start of the given region and the given target cell.
      * That is, treat the region top-left cell as "A1" for the purposes of evaluating relative reference components (row and/or column),
@@ -17,6 +17,7 @@
 
 package org.apache.poi.ss.formula.eval;
 
+import org.apache.poi.ss.formula.AreaSnapshot;
 import org.apache.poi.ss.formula.SheetRange;
 import org.apache.poi.ss.formula.ptg.AreaI;
 
@@ -146,4 +147,11 @@ public abstract class AreaEvalBase implements AreaEval {
         return false;
     }
 
+    /**
+     * @return <code>null</code> by default, which means the area is read value by value
+     */
+    public AreaSnapshot getSnapshot() {
+        return null;
+    }
+
 }
@@ -17,6 +17,7 @@
 
 package org.apache.poi.ss.formula.eval;
 
+import org.apache.poi.ss.formula.AreaSnapshot;
 import org.apache.poi.ss.formula.CacheAreaEval;
 import org.apache.poi.ss.formula.functions.ArrayFunction;
 import org.apache.poi.ss.formula.functions.Fixed2ArgFunction;
@@ -119,20 +120,32 @@ public abstract class RelationalOperationEval extends Fixed2ArgFunction implemen
 
 		ValueEval[] vals = new ValueEval[height * width];
 
+		// the values of areas of plain value cells are read from their snapshots
+		AreaSnapshot s1 = arg0 instanceof AreaEval ? ((AreaEval) arg0).getSnapshot() : null;
+		AreaSnapshot s2 = arg1 instanceof AreaEval ? ((AreaEval) arg1).getSnapshot() : null;
+
 		int idx = 0;
 		for(int i = 0; i < height; i++){
 			for(int j = 0; j < width; j++){
 				ValueEval vA;
-				try {
-					vA = OperandResolver.getSingleValue(arg0, a1FirstRow + i, a1FirstCol + j);
-				} catch (EvaluationException e) {
-					vA = e.getErrorEval();
+				if (s1 != null && i < h1 && j < w1) {
+					vA = s1.getValue(i * w1 + j);
+				} else {
+					try {
+						vA = OperandResolver.getSingleValue(arg0, a1FirstRow + i, a1FirstCol + j);
+					} catch (EvaluationException e) {
+						vA = e.getErrorEval();
+					}
 				}
 				ValueEval vB;
-				try {
-					vB = OperandResolver.getSingleValue(arg1, a2FirstRow + i, a2FirstCol + j);
-				} catch (EvaluationException e) {
-					vB = e.getErrorEval();
+				if (s2 != null && i < h2 && j < w2) {
+					vB = s2.getValue(i * w2 + j);
+				} else {
+					try {
+						vB = OperandResolver.getSingleValue(arg1, a2FirstRow + i, a2FirstCol + j);
+					} catch (EvaluationException e) {
+						vB = e.getErrorEval();
+					}
 				}
 				if(vA instanceof ErrorEval){
 					vals[idx++] = vA;
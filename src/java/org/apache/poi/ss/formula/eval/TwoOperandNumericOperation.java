@@ -17,9 +17,11 @@
 
 package org.apache.poi.ss.formula.eval;
 
+import org.apache.poi.ss.formula.CacheAreaEval;
 import org.apache.poi.ss.formula.functions.ArrayFunction;
 import org.apache.poi.ss.formula.functions.Fixed2ArgFunction;
 import org.apache.poi.ss.formula.functions.Function;
+import org.apache.poi.ss.formula.functions.MatrixFunction;
 import org.apache.poi.ss.formula.functions.MatrixFunction.MutableValueCollector;
 import org.apache.poi.ss.formula.functions.MatrixFunction.TwoArrayArg;
 
@@ -69,6 +71,47 @@ public abstract class TwoOperandNumericOperation extends Fixed2ArgFunction imple
         protected double[] collectValues(ValueEval arg) throws EvaluationException {
             return instance.collectValues(arg);
         }
+        
+        /**
+         * Combines areas of the same size value by value, without copying them to 2D arrays
+         */
+        @Override
+        public ValueEval evaluate(int srcRowIndex, int srcColumnIndex, ValueEval arg0, ValueEval arg1) {
+            if (!(arg0 instanceof AreaEval) || !(arg1 instanceof AreaEval)) {
+                return super.evaluate(srcRowIndex, srcColumnIndex, arg0, arg1);
+            }
+            AreaEval ae0 = (AreaEval) arg0;
+            AreaEval ae1 = (AreaEval) arg1;
+            if (ae0.getHeight() != ae1.getHeight() || ae0.getWidth() != ae1.getWidth()) {
+                return super.evaluate(srcRowIndex, srcColumnIndex, arg0, arg1);
+            }
+            
+            double result[] = new double[ae0.getHeight() * ae0.getWidth()];
+            try {
+                double values0[] = collectValues(arg0);
+                if (values0.length < 1) {
+                    throw new EvaluationException(ErrorEval.VALUE_INVALID);
+                }
+                double values1[] = collectValues(arg1);
+                if (values1.length < 1) {
+                    throw new EvaluationException(ErrorEval.VALUE_INVALID);
+                }
+                // missing values are zero, like in the arrays filled by TwoArrayArg
+                for (int idx = 0; idx < result.length; idx++) {
+                    result[idx] = TwoOperandNumericOperation.this.evaluate(
+                            idx < values0.length ? values0[idx] : 0.0, idx < values1.length ? values1[idx] : 0.0);
+                }
+                MatrixFunction.checkValues(result);
+            }
+            catch (EvaluationException e) {
+                return e.getErrorEval();
+            }
+            
+            if (result.length == 1) {
+                return new NumberEval(result[0]);
+            }
+            return new CacheAreaEval(ae0.getFirstRow(), ae0.getFirstColumn(), ae0.getLastRow(), ae0.getLastColumn(), result);
+        }
 	    
 	    protected double[][] evaluate(double[][] d1, double[][] d2) throws IllegalArgumentException, EvaluationException {
 	        int width = (d1[0].length < d2[0].length) ? d1[0].length : d2[0].length;
@@ -19,6 +19,8 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import java.util.BitSet;
+
 import org.apache.poi.ss.formula.OperationEvaluationContext;
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
@@ -123,6 +125,14 @@ import org.apache.poi.ss.formula.functions.Countif.ErrorMatcher;
      * @return the computed value
      */
     private static double aggregateMatchingCells(AreaEval sumRange, AreaEval[] ranges, I_MatchPredicate[] predicates) {
+        BitSet matchingCells = getMatchingCells(ranges, predicates);
+        if (matchingCells != null) {
+            if (sumRange == null) {
+                return matchingCells.cardinality();
+            }
+            return Sumif.sumCells(sumRange, matchingCells);
+        }
+
         int height = ranges[0].getHeight();
         int width = ranges[0].getWidth();
 
@@ -151,6 +161,34 @@ import org.apache.poi.ss.formula.functions.Countif.ErrorMatcher;
         return result;
     }
 
+    /**
+     * Intersects the cached matches of the criteria of all ranges which can be scanned through
+     * their {@link org.apache.poi.ss.formula.AreaSnapshot}s
+     *
+     * @return the cells matching all criteria, <code>null</code> if a range has to be
+     *  matched cell by cell
+     */
+    private static BitSet getMatchingCells(AreaEval[] ranges, I_MatchPredicate[] predicates) {
+        BitSet result = null;
+        for (int i = 0; i < ranges.length; i++) {
+            if (predicates[i] == null) {
+                // no cell matches a blank criteria
+                return new BitSet();
+            }
+            BitSet matches = Countif.getMatchingCells(ranges[i].getSnapshot(), predicates[i]);
+            if (matches == null) {
+                return null;
+            }
+            if (result == null) {
+                // the cached matches must not be modified
+                result = (BitSet) matches.clone();
+            } else {
+                result.and(matches);
+            }
+        }
+        return result;
+    }
+
     /**
      * For counts, this would return 1, for sums it returns a cell value or zero.
      * This is only called after all the criteria are confirmed true for the coordinates.
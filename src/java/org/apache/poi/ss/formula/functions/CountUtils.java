@@ -17,6 +17,9 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import java.util.function.Predicate;
+
+import org.apache.poi.ss.formula.AreaSnapshot;
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.RefEval;
@@ -35,9 +38,16 @@ final class CountUtils {
 
 	/**
 	 * Common interface for the matching criteria.
+	 * {@link AreaSnapshot}s cache the matches by predicate, so the predicates are either
+	 * shared instances or compare equal when they match the same values.
 	 */
-	public interface I_MatchPredicate {
+	public interface I_MatchPredicate extends Predicate<ValueEval> {
 		boolean matches(ValueEval x);
+
+		@Override
+		default boolean test(ValueEval x) {
+			return matches(x);
+		}
 	}
     public interface I_MatchAreaPredicate extends I_MatchPredicate {
         boolean matches(TwoDEval x, int rowIndex, int columnIndex);
@@ -51,6 +61,13 @@ final class CountUtils {
 
         final int firstSheetIndex = areaEval.getFirstSheetIndex();
         final int lastSheetIndex = areaEval.getLastSheetIndex();
+        if (firstSheetIndex == lastSheetIndex) {
+            // the snapshots only hold plain values, which are never subtotals
+            AreaSnapshot snapshot = areaEval.getSnapshot();
+            if (snapshot != null) {
+                return snapshot.getMatches(criteriaPredicate).cardinality();
+            }
+        }
         for (int sIx = firstSheetIndex; sIx <= lastSheetIndex; sIx++) {
             int height = areaEval.getHeight();
             int width = areaEval.getWidth();
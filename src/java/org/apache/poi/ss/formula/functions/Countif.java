@@ -17,8 +17,10 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import java.util.BitSet;
 import java.util.regex.Pattern;
 
+import org.apache.poi.ss.formula.AreaSnapshot;
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -148,12 +150,28 @@ public final class Countif extends Fixed2ArgFunction {
         }
     }
 
+    /**
+     * The matchers are immutable and compare equal for the same operator and value, so
+     * {@link AreaSnapshot}s can cache their matches.
+     */
     private static abstract class MatcherBase implements I_MatchPredicate {
         private final CmpOp _operator;
 
         MatcherBase(CmpOp operator) {
             _operator = operator;
         }
+        @Override
+        public final boolean equals(Object obj) {
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            MatcherBase other = (MatcherBase) obj;
+            return _operator == other._operator && getKey().equals(other.getKey());
+        }
+        @Override
+        public final int hashCode() {
+            return getKey().hashCode() * 31 + _operator.getCode();
+        }
         protected final int getCode() {
             return _operator.getCode();
         }
@@ -173,6 +191,8 @@ public final class Countif extends Fixed2ArgFunction {
             return sb.toString();
         }
         protected abstract String getValueText();
+        /** @return the boxed value of this matcher */
+        protected abstract Object getKey();
     }
 
     private static final class NumberMatcher extends MatcherBase {
@@ -187,6 +207,10 @@ public final class Countif extends Fixed2ArgFunction {
         protected String getValueText() {
             return String.valueOf(_value);
         }
+        @Override
+        protected Object getKey() {
+            return Double.valueOf(_value);
+        }
 
         @Override
         public boolean matches(ValueEval x) {
@@ -243,6 +267,10 @@ public final class Countif extends Fixed2ArgFunction {
         protected String getValueText() {
             return _value == 1 ? "TRUE" : "FALSE";
         }
+        @Override
+        protected Object getKey() {
+            return Integer.valueOf(_value);
+        }
 
         private static int boolToInt(boolean value) {
             return value ? 1 : 0;
@@ -300,6 +328,10 @@ public final class Countif extends Fixed2ArgFunction {
         protected String getValueText() {
             return FormulaError.forInt(_value).getString();
         }
+        @Override
+        protected Object getKey() {
+            return Integer.valueOf(_value);
+        }
 
         @Override
         public boolean matches(ValueEval x) {
@@ -340,6 +372,10 @@ public final class Countif extends Fixed2ArgFunction {
             }
             return _pattern.pattern();
         }
+        @Override
+        protected Object getKey() {
+            return _value;
+        }
 
         @Override
         public boolean matches(ValueEval x) {
@@ -461,6 +497,18 @@ public final class Countif extends Fixed2ArgFunction {
         }
     }
 
+    /**
+     * @param snapshot the values of a criteria range, may be <code>null</code>
+     * @return the cells of the snapshot matching the criteria, which are cached by the snapshot,
+     *  or <code>null</code> if the cells have to be matched one by one
+     */
+    /* package */ static BitSet getMatchingCells(AreaSnapshot snapshot, I_MatchPredicate criteriaPredicate) {
+        if (snapshot == null || !(criteriaPredicate instanceof MatcherBase)) {
+            return null;
+        }
+        return snapshot.getMatches((MatcherBase) criteriaPredicate);
+    }
+
     /**
      * Creates a criteria predicate object for the supplied criteria arg
      * @return <code>null</code> if the arg evaluates to blank.
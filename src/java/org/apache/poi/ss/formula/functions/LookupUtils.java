@@ -20,6 +20,8 @@ package org.apache.poi.ss.formula.functions;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.poi.ss.formula.AreaSnapshot;
+import org.apache.poi.ss.formula.LookupIndex;
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
 import org.apache.poi.ss.formula.eval.BoolEval;
@@ -73,6 +75,9 @@ final class LookupUtils {
 		public int getSize() {
 			return _size;
 		}
+		public AreaSnapshot getSnapshot() {
+			return _tableArray.getRow(_rowIndex).getSnapshot();
+		}
 	}
 
 	private static final class ColumnVector implements ValueVector {
@@ -102,6 +107,9 @@ final class LookupUtils {
 		public int getSize() {
 			return _size;
 		}
+		public AreaSnapshot getSnapshot() {
+			return _tableArray.getColumn(_columnIndex).getSnapshot();
+		}
 	}
 
     private static final class SheetVector implements ValueVector {
@@ -480,7 +488,7 @@ final class LookupUtils {
 		if(isRangeLookup) {
 			result = performBinarySearch(vector, lookupComparer);
 		} else {
-			result = lookupIndexOfExactValue(lookupComparer, vector);
+			result = lookupIndexOfExactValue(lookupValue, lookupComparer, vector);
 		}
 		if(result < 0) {
 			throw new EvaluationException(ErrorEval.NA);
@@ -496,7 +504,14 @@ final class LookupUtils {
 	 * 	tableArray. For HLOOKUP this is the first row of the tableArray.
 	 * @return zero based index into the vector, -1 if value cannot be found
 	 */
-	private static int lookupIndexOfExactValue(LookupValueComparer lookupComparer, ValueVector vector) {
+	/* package */ static int lookupIndexOfExactValue(ValueEval lookupValue, LookupValueComparer lookupComparer,
+			ValueVector vector) {
+
+		LookupIndex index = getLookupIndex(lookupValue, vector);
+		if (index != null) {
+			// blank eval translates to zero, see createLookupComparer()
+			return index.indexOf(lookupValue == BlankEval.instance ? NumberEval.ZERO : lookupValue);
+		}
 
 		// find first occurrence of lookup value
 		int size = vector.getSize();
@@ -509,6 +524,30 @@ final class LookupUtils {
 	}
 
 
+	/**
+	 * Large areas of plain values are indexed by the evaluator, unless the lookup value contains
+	 * wildcards, which have to be matched value by value.
+	 * @return <code>null</code> if the vector has to be searched value by value
+	 */
+	private static LookupIndex getLookupIndex(ValueEval lookupValue, ValueVector vector) {
+		if (lookupValue instanceof StringEval) {
+			String value = ((StringEval) lookupValue).getStringValue();
+			if (Countif.StringMatcher.getWildCardPattern(value) != null) {
+				return null;
+			}
+		} else if (!(lookupValue instanceof NumberEval || lookupValue instanceof BoolEval
+				|| lookupValue == BlankEval.instance)) {
+			return null;
+		}
+		AreaSnapshot snapshot = null;
+		if (vector instanceof ColumnVector) {
+			snapshot = ((ColumnVector) vector).getSnapshot();
+		} else if (vector instanceof RowVector) {
+			snapshot = ((RowVector) vector).getSnapshot();
+		}
+		return snapshot == null ? null : snapshot.getLookupIndex();
+	}
+
 	/**
 	 * Encapsulates some standard binary search functionality so the unusual Excel behaviour can
 	 * be clearly distinguished.
@@ -113,20 +113,14 @@ public abstract class MatrixFunction implements Function{
                     return e.getErrorEval();
                 }
                 
-                ValueEval vals[] = new ValueEval[result.length];
-                
-                for (int idx = 0; idx < result.length; idx++) {
-                    vals[idx] = new NumberEval(result[idx]);
-                }
-                                
                 if (result.length == 1) {
-                    return vals[0];
+                    return new NumberEval(result[0]);
                 }
                 else {
                     /* find a better solution */
                     return new CacheAreaEval(((AreaEval) arg0).getFirstRow(), ((AreaEval) arg0).getFirstColumn(), 
                                             ((AreaEval) arg0).getFirstRow() + height - 1, 
-                                            ((AreaEval) arg0).getFirstColumn() + width - 1, vals);
+                                            ((AreaEval) arg0).getFirstColumn() + width - 1, result);
                 }
             }
             else {
@@ -214,18 +208,12 @@ public abstract class MatrixFunction implements Function{
             }
                 
                 
-            ValueEval vals[] = new ValueEval[result.length];
-            
-            for (int idx = 0; idx < result.length; idx++) {
-                vals[idx] = new NumberEval(result[idx]);
-            }
-            
             if (result.length == 1)
-                return vals[0];
+                return new NumberEval(result[0]);
             else {
                 return new CacheAreaEval(((AreaEval) arg0).getFirstRow(), ((AreaEval) arg0).getFirstColumn(), 
                         ((AreaEval) arg0).getFirstRow() + height - 1, 
-                        ((AreaEval) arg0).getFirstColumn() + width - 1, vals);
+                        ((AreaEval) arg0).getFirstColumn() + width - 1, result);
             }
       
         }
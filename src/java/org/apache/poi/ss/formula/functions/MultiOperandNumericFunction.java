@@ -17,7 +17,12 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import java.util.BitSet;
+import java.util.function.Predicate;
+
 import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.formula.AreaSnapshot;
+import org.apache.poi.ss.formula.CacheAreaEval;
 import org.apache.poi.ss.formula.ThreeDEval;
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
@@ -40,12 +45,54 @@ public abstract class MultiOperandNumericFunction implements Function {
 
 	private final boolean _isReferenceBoolCounted;
 	private final boolean _isBlankCounted;
+	private final CountedValues _countedValues;
 
     protected MultiOperandNumericFunction(boolean isReferenceBoolCounted, boolean isBlankCounted) {
         _isReferenceBoolCounted = isReferenceBoolCounted;
         _isBlankCounted = isBlankCounted;
+        _countedValues = new CountedValues(isReferenceBoolCounted, isBlankCounted);
     }
 
+	/**
+	 * Matches the values of referenced cells which are collected, compares equal for the same
+	 * settings so {@link AreaSnapshot}s can cache the matches of all functions alike
+	 */
+	private static final class CountedValues implements Predicate<ValueEval> {
+		private final boolean _isBoolCounted;
+		private final boolean _isBlankCounted;
+
+		CountedValues(boolean isBoolCounted, boolean isBlankCounted) {
+			_isBoolCounted = isBoolCounted;
+			_isBlankCounted = isBlankCounted;
+		}
+
+		@Override
+		public boolean test(ValueEval ve) {
+			// BoolEval is a NumericValueEval too, but is only counted if requested
+			if (ve instanceof BoolEval) {
+				return _isBoolCounted;
+			}
+			return ve instanceof NumericValueEval
+					|| (_isBlankCounted && ve == BlankEval.instance);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CountedValues)) {
+				return false;
+			}
+			CountedValues other = (CountedValues) obj;
+			return _isBoolCounted == other._isBoolCounted && _isBlankCounted == other._isBlankCounted;
+		}
+
+		@Override
+		public int hashCode() {
+			return (_isBoolCounted ? 2 : 0) + (_isBlankCounted ? 1 : 0);
+		}
+	}
+
+	private static final Predicate<ValueEval> IS_ERROR = ve -> ve instanceof ErrorEval;
+
 	static final double[] EMPTY_DOUBLE_ARRAY = { };
 
 	private static class DoubleList {
@@ -80,6 +127,12 @@ public abstract class MultiOperandNumericFunction implements Function {
 			_array[_count] = value;
 			_count++;
 		}
+
+		public void add(double[] values) {
+			ensureCapacity(_count + values.length);
+			System.arraycopy(values, 0, _array, _count, values.length);
+			_count += values.length;
+		}
 	}
 
 	private static final int DEFAULT_MAX_NUM_OPERANDS = SpreadsheetVersion.EXCEL2007.getMaxFunctionArgs();
@@ -142,8 +195,15 @@ public abstract class MultiOperandNumericFunction implements Function {
 	 * Collects values from a single argument
 	 */
 	private void collectValues(ValueEval operand, DoubleList temp) throws EvaluationException {
+		if (operand instanceof CacheAreaEval) {
+			collectValues((CacheAreaEval) operand, temp);
+			return;
+		}
         if (operand instanceof ThreeDEval) {
             ThreeDEval ae = (ThreeDEval) operand;
+            if (ae.getFirstSheetIndex() == ae.getLastSheetIndex() && collectValues(ae.getSnapshot(), temp)) {
+                return;
+            }
             for (int sIx=ae.getFirstSheetIndex(); sIx <= ae.getLastSheetIndex(); sIx++) {
                 int width = ae.getWidth();
                 int height = ae.getHeight();
@@ -159,6 +219,9 @@ public abstract class MultiOperandNumericFunction implements Function {
         }
 		if (operand instanceof TwoDEval) {
 			TwoDEval ae = (TwoDEval) operand;
+			if (collectValues(ae.getSnapshot(), temp)) {
+				return;
+			}
 			int width = ae.getWidth();
 			int height = ae.getHeight();
 			for (int rrIx=0; rrIx<height; rrIx++) {
@@ -179,6 +242,43 @@ public abstract class MultiOperandNumericFunction implements Function {
 		}
 		collectValue(operand, false, temp);
 	}
+	/**
+	 * Collects the values of an area from its snapshot, in the same order as cell by cell.
+	 * The snapshots only hold plain values, which are never subtotals.
+	 *
+	 * @param snapshot the values of the area, may be <code>null</code>
+	 * @return <code>false</code> if the values have to be collected cell by cell
+	 */
+	private boolean collectValues(AreaSnapshot snapshot, DoubleList temp) throws EvaluationException {
+		if (snapshot == null) {
+			return false;
+		}
+		BitSet errors = snapshot.getMatches(IS_ERROR);
+		if (!errors.isEmpty()) {
+			throw new EvaluationException((ErrorEval) snapshot.getValue(errors.nextSetBit(0)));
+		}
+		temp.add(snapshot.getNumbers(snapshot.getMatches(_countedValues)));
+		return true;
+	}
+
+	/**
+	 * Collects the values of an array calculated by an operator or function, reading its
+	 * numbers without creating a {@link NumberEval} for each of them
+	 */
+	private void collectValues(CacheAreaEval ae, DoubleList temp) throws EvaluationException {
+		int width = ae.getWidth();
+		int height = ae.getHeight();
+		for (int rrIx=0; rrIx<height; rrIx++) {
+			for (int rcIx=0; rcIx<width; rcIx++) {
+				if (ae.isNumber(rrIx, rcIx)) {
+					temp.add(ae.getNumberValue(rrIx, rcIx));
+				} else {
+					collectValue(ae.getValue(rrIx, rcIx), true, temp);
+				}
+			}
+		}
+	}
+
 	private void collectValue(ValueEval ve, boolean isViaReference, DoubleList temp)  throws EvaluationException {
 		if (ve == null) {
 			throw new IllegalArgumentException("ve must not be null");
@@ -17,6 +17,9 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import java.util.BitSet;
+
+import org.apache.poi.ss.formula.AreaSnapshot;
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.ErrorEval;
 import org.apache.poi.ss.formula.eval.EvaluationException;
@@ -80,6 +83,10 @@ public final class Sumif extends Var2or3ArgFunction {
 	}
 
 	private static double sumMatchingCells(AreaEval aeRange, I_MatchPredicate mp, AreaEval aeSum) {
+		BitSet matches = Countif.getMatchingCells(aeRange.getSnapshot(), mp);
+		if (matches != null) {
+			return sumCells(aeSum, matches);
+		}
 		int height=aeRange.getHeight();
 		int width= aeRange.getWidth();
 
@@ -92,6 +99,26 @@ public final class Sumif extends Var2or3ArgFunction {
 		return result;
 	}
 
+	/**
+	 * @param cells the matching cells of the criteria range, numbered row by row
+	 * @return the sum of the numeric values of the corresponding cells of the sum range
+	 */
+	/* package */ static double sumCells(AreaEval aeSum, BitSet cells) {
+		AreaSnapshot snapshot = aeSum.getSnapshot();
+		if (snapshot != null) {
+			return snapshot.sum(cells);
+		}
+		int width = aeSum.getWidth();
+		double result = 0.0;
+		for (int i = cells.nextSetBit(0); i >= 0; i = cells.nextSetBit(i + 1)) {
+			ValueEval addend = aeSum.getRelativeValue(i / width, i % width);
+			if (addend instanceof NumberEval) {
+				result += ((NumberEval)addend).getNumberValue();
+			}
+		}
+		return result;
+	}
+
 	private static double accumulate(AreaEval aeRange, I_MatchPredicate mp, AreaEval aeSum, int relRowIndex,
 			int relColIndex) {
 
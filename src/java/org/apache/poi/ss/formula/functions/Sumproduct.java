@@ -17,6 +17,8 @@
 
 package org.apache.poi.ss.formula.functions;
 
+import org.apache.poi.ss.formula.AreaSnapshot;
+import org.apache.poi.ss.formula.CacheAreaEval;
 import org.apache.poi.ss.formula.TwoDEval;
 import org.apache.poi.ss.formula.eval.AreaEval;
 import org.apache.poi.ss.formula.eval.BlankEval;
@@ -76,6 +78,10 @@ public final class Sumproduct implements Function {
 				}
 				return evaluateAreaSumProduct(args);
 			}
+			if (firstArg instanceof ErrorEval) {
+				// e.g. from an operator calculating the array
+				return firstArg;
+			}
 		} catch (EvaluationException e) {
 			return e.getErrorEval();
 		}
@@ -148,13 +154,21 @@ public final class Sumproduct implements Function {
 			return ErrorEval.VALUE_INVALID;
 		}
 
+		// the values of areas of plain value cells are read from their snapshots
+		AreaSnapshot[] snapshots = new AreaSnapshot[maxN];
+		for (int n = 0; n < maxN; n++) {
+			snapshots[n] = args[n].getSnapshot();
+		}
+
 		double acc = 0;
 
 		for (int rrIx=0; rrIx<height; rrIx++) {
 			for (int rcIx=0; rcIx<width; rcIx++) {
 				double term = 1D;
 				for(int n=0; n<maxN; n++) {
-					double val = getProductTerm(args[n].getValue(rrIx, rcIx), false);
+					double val = snapshots[n] != null
+							? getProductTerm(snapshots[n].getValue(rrIx * width + rcIx), false)
+							: getProductTerm(args[n], rrIx, rcIx);
 					term *= val;
 				}
 				acc += term;
@@ -192,6 +206,20 @@ public final class Sumproduct implements Function {
 	}
 
 
+	/**
+	 * Determines a <code>double</code> value for a cell of an area, reading the numbers of
+	 * calculated arrays without creating a {@link NumberEval} for each of them.
+	 */
+	private static double getProductTerm(TwoDEval areaEval, int rowIndex, int columnIndex) throws EvaluationException {
+		if (areaEval instanceof CacheAreaEval) {
+			CacheAreaEval cae = (CacheAreaEval) areaEval;
+			if (cae.isNumber(rowIndex, columnIndex)) {
+				return cae.getNumberValue(rowIndex, columnIndex);
+			}
+		}
+		return getProductTerm(areaEval.getValue(rowIndex, columnIndex), false);
+	}
+
 	/**
 	 * Determines a <code>double</code> value for the specified <code>ValueEval</code>.
 	 * @param isScalarProduct <code>false</code> for SUMPRODUCTs over area refs.
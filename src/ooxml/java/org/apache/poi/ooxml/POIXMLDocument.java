@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
@@ -207,6 +208,19 @@ public abstract class POIXMLDocument extends POIXMLDocumentPart implements Close
         }
     }
 
+    /**
+     * The executor on which the parts of this document are committed by {@link #write(OutputStream)},
+     * see {@link POIXMLDocumentPart#isCommitIsolated()}. The committed parts are kept in memory
+     * and written to the zip file in the usual order afterwards.
+     *
+     * @return the executor, or {@code null} to commit the parts in the calling thread (default)
+     *
+     * @since 4.0.0
+     */
+    protected Executor getCommitExecutor() {
+        return null;
+    }
+
     /**
      * Write out this document to an Outputstream.
      *
@@ -233,7 +247,12 @@ public abstract class POIXMLDocument extends POIXMLDocumentPart implements Close
         //force all children to commit their changes into the underlying OOXML Package
         // TODO Shouldn't they be committing to the new one instead?
         Set<PackagePart> context = new HashSet<>();
-        onSave(context);
+        Executor executor = getCommitExecutor();
+        if (executor == null) {
+            onSave(context);
+        } else {
+            onSave(context, executor);
+        }
         context.clear();
 
         //save extended and custom properties
@@ -17,6 +17,7 @@
 package org.apache.poi.ooxml;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -24,6 +25,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
@@ -469,6 +473,106 @@ public class POIXMLDocumentPart {
         }
     }
 
+    /**
+     * Save changes in the underlying OOXML package like {@link #onSave(Set)}, but commit the
+     * parts which are {@link #isCommitIsolated() isolated} concurrently on the executor.
+     * <p>
+     * The parts are committed level by level, i.e. the relations of a part are only followed
+     * after it has been committed, as a commit might still add or remove relations. Within
+     * a level, the other parts are committed in the calling thread before the isolated ones
+     * are submitted to the executor.
+     *
+     * @param alreadySaved context set containing already visited nodes
+     * @param executor the executor to commit the isolated parts
+     * @throws IOException a related part may throw an IOException if the changes can't be saved
+     *
+     * @since 4.0.0
+     */
+    protected final void onSave(Set<PackagePart> alreadySaved, Executor executor) throws IOException {
+        List<POIXMLDocumentPart> level = Collections.singletonList(this);
+        while (!level.isEmpty()) {
+            List<POIXMLDocumentPart> committed = new ArrayList<>();
+            List<POIXMLDocumentPart> isolated = new ArrayList<>();
+            for (POIXMLDocumentPart p : level) {
+                if (p.isCommited || alreadySaved.contains(p.getPackagePart())) {
+                    continue;
+                }
+                p.prepareForCommit();
+                alreadySaved.add(p.getPackagePart());
+                committed.add(p);
+                if (p.isCommitIsolated()) {
+                    isolated.add(p);
+                } else {
+                    p.commit();
+                }
+            }
+            commitAll(isolated, executor);
+
+            List<POIXMLDocumentPart> next = new ArrayList<>();
+            for (POIXMLDocumentPart p : committed) {
+                for (RelationPart rp : p.relations.values()) {
+                    next.add(rp.getDocumentPart());
+                }
+            }
+            level = next;
+        }
+    }
+
+    private static void commitAll(List<POIXMLDocumentPart> parts, Executor executor) throws IOException {
+        if (parts.size() == 1) {
+            parts.get(0).commit();
+            return;
+        }
+        List<FutureTask<Void>> tasks = new ArrayList<>(parts.size());
+        for (POIXMLDocumentPart p : parts) {
+            FutureTask<Void> task = new FutureTask<>(() -> {
+                p.commit();
+                return null;
+            });
+            tasks.add(task);
+            executor.execute(task);
+        }
+        for (int i=0; i<tasks.size(); i++) {
+            try {
+                tasks.get(i).get();
+            } catch (InterruptedException e) {
+                cancelAll(tasks);
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while committing " + parts.get(i));
+            } catch (ExecutionException e) {
+                cancelAll(tasks);
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                } else if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IOException("Failed to commit " + parts.get(i), cause);
+            }
+        }
+    }
+
+    private static void cancelAll(List<FutureTask<Void>> tasks) {
+        for (FutureTask<Void> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Whether {@link #commit()} only writes the package part of this document part, without
+     * adding or removing package parts or relations and without modifying other document parts.
+     * The commits of such parts may run concurrently, see {@link POIXMLDocument#getCommitExecutor()}.
+     *
+     * @return {@code false} by default
+     *
+     * @since 4.0.0
+     */
+    protected boolean isCommitIsolated() {
+        return false;
+    }
+
     /**
      * Ensure that a memory based package part does not have lingering data from previous
      * commit() calls.
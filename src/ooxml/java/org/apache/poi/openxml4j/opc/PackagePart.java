@@ -527,12 +527,16 @@ public abstract class PackagePart implements RelationshipSource, Comparable<Pack
         // If this part is a zip package part (read only by design) we convert
         // this part into a MemoryPackagePart instance for write purpose.
         if (this instanceof ZipPackagePart) {
-            // Delete logically this part
-            _container.removePart(this._partName);
-
-            // Create a memory part
-            PackagePart part = _container.createPart(this._partName,
-                    this._contentType.toString(), false);
+            PackagePart part;
+            // parts may be committed concurrently, but the part list of the package isn't thread-safe
+            synchronized (_container) {
+                // Delete logically this part
+                _container.removePart(this._partName);
+
+                // Create a memory part
+                part = _container.createPart(this._partName,
+                        this._contentType.toString(), false);
+            }
             if (part == null) {
                 throw new InvalidOperationException(
                         "Can't create a temporary part !");
@@ -42,12 +42,18 @@ public enum XSSFBRecordType {
     BrtRowHdr(0),
     BrtCellRString(62),
     BrtBeginSheet(129),
+    BrtEndSheet(130),
     BrtWsProp(147),
     BrtWsDim(148),
     BrtColInfo(60),
+    BrtBeginColInfos(390),
+    BrtEndColInfos(391),
     BrtBeginSheetData(145),
     BrtEndSheetData(146),
     BrtHLink(494),
+    BrtBeginMergeCells(177),
+    BrtEndMergeCells(178),
+    BrtMergeCell(176),
     BrtBeginHeaderFooter(479),
 
     //comments
@@ -58,27 +64,53 @@ public enum XSSFBRecordType {
     BrtCommentText(637),
     BrtEndComment(636),
     //styles table
+    BrtBeginStyleSheet(278),
+    BrtEndStyleSheet(279),
     BrtXf(47),
     BrtFmt(44),
+    BrtFont(43),
+    BrtFill(45),
+    BrtBorder(46),
+    BrtStyle(48),
+    BrtBeginFonts(611),
+    BrtEndFonts(612),
+    BrtBeginFills(603),
+    BrtEndFills(604),
+    BrtBeginBorders(613),
+    BrtEndBorders(614),
     BrtBeginFmts(615),
     BrtEndFmts(616),
     BrtBeginCellXFs(617),
     BrtEndCellXFs(618),
     BrtBeginCellStyleXFS(626),
     BrtEndCellStyleXFS(627),
+    BrtBeginStyles(619),
+    BrtEndStyles(620),
+    BrtBeginDXFs(505),
+    BrtEndDXFs(506),
+    BrtBeginTableStyles(508),
+    BrtEndTableStyles(509),
 
     //stored strings table
     BrtSstItem(19),   //stored strings items
     BrtBeginSst(159), //stored strings begin sst
     BrtEndSst(160),   //stored strings end sst
 
+    //workbook
+    BrtBeginBook(131),
+    BrtEndBook(132),
+    BrtWbProp(153), //Workbook prop contains 1904/1900-date based bit
+    BrtBeginBookViews(135),
+    BrtEndBookViews(136),
+    BrtBookView(158),
+    BrtBeginBundleShs(143),
+    BrtEndBundleShs(144),
     BrtBundleSh(156), //defines worksheet in wb part
 
     BrtAbsPath15(2071), //Excel 2013 path where the file was stored in wbpart
 
     //TODO -- implement these as needed
     //BrtFileVersion(128), //file version
-    //BrtWbProp(153), //Workbook prop contains 1904/1900-date based bit
     Unimplemented(-1);
 
     private static final Map<Integer, XSSFBRecordType> TYPE_MAP =
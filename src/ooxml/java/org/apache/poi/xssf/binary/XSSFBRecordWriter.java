@@ -0,0 +1,193 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.binary;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.poi.util.Internal;
+import org.apache.poi.util.LittleEndian;
+
+/**
+ * Counterpart of {@link XSSFBParser}: writes records of the binary
+ * spreadsheet format to a stream.
+ * <p>
+ * A record is started with {@link #beginRecord(XSSFBRecordType)}, its
+ * payload is appended with the <code>write*</code> methods and the whole
+ * record is emitted with {@link #endRecord()}.  The payload buffer is reused
+ * between records, so writing a record does not allocate once the buffer
+ * has grown to the size of the largest record.
+ *
+ * @since 4.0.0
+ */
+@Internal
+public class XSSFBRecordWriter implements Closeable {
+
+    //same limit as used for reading, see XSSFBParser
+    private static final int MAX_RECORD_LENGTH = 1_000_000;
+
+    private final OutputStream out;
+    private final byte[] header = new byte[6];
+    private byte[] data = new byte[256];
+    private int length;
+    private int recordId = -1;
+
+    public XSSFBRecordWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Start a new record, the previous record must have been ended
+     *
+     * @param type the record type
+     */
+    public void beginRecord(XSSFBRecordType type) {
+        if (recordId != -1) {
+            throw new IllegalStateException("Record "+recordId+" hasn't been ended yet");
+        }
+        recordId = type.getId();
+        length = 0;
+    }
+
+    /**
+     * Write the current record to the underlying stream
+     */
+    public void endRecord() throws IOException {
+        if (recordId == -1) {
+            throw new IllegalStateException("No record has been started");
+        }
+        int hdrLen = 0;
+        //record ids above 127 are stored in two bytes with the highest bit of the first byte set
+        if (recordId > 0x7F) {
+            header[hdrLen++] = (byte)((recordId & 0x7F) | 0x80);
+            header[hdrLen++] = (byte)((recordId >> 7) & 0x7F);
+        } else {
+            header[hdrLen++] = (byte)recordId;
+        }
+        //the length is stored in up to 4 bytes, 7 bits each, the highest bit flags a following byte
+        int len = length;
+        do {
+            int b = len & 0x7F;
+            len >>>= 7;
+            if (len > 0) {
+                b |= 0x80;
+            }
+            header[hdrLen++] = (byte)b;
+        } while (len > 0);
+        out.write(header, 0, hdrLen);
+        out.write(data, 0, length);
+        recordId = -1;
+    }
+
+    /**
+     * Write a record without payload, e.g. the begin/end markers
+     *
+     * @param type the record type
+     */
+    public void writeRecord(XSSFBRecordType type) throws IOException {
+        beginRecord(type);
+        endRecord();
+    }
+
+    public void writeByte(int v) {
+        ensureCapacity(1);
+        data[length++] = (byte)v;
+    }
+
+    public void writeShort(int v) {
+        ensureCapacity(LittleEndian.SHORT_SIZE);
+        LittleEndian.putUShort(data, length, v & 0xFFFF);
+        length += LittleEndian.SHORT_SIZE;
+    }
+
+    public void writeInt(int v) {
+        ensureCapacity(LittleEndian.INT_SIZE);
+        LittleEndian.putInt(data, length, v);
+        length += LittleEndian.INT_SIZE;
+    }
+
+    public void writeDouble(double v) {
+        ensureCapacity(LittleEndian.DOUBLE_SIZE);
+        LittleEndian.putDouble(data, length, v);
+        length += LittleEndian.DOUBLE_SIZE;
+    }
+
+    /**
+     * Write a zero filled block, e.g. for reserved fields
+     *
+     * @param count number of bytes
+     */
+    public void writeZeros(int count) {
+        ensureCapacity(count);
+        Arrays.fill(data, length, length+count, (byte)0);
+        length += count;
+    }
+
+    /**
+     * Writes an XLWideString, i.e. the number of UTF-16 characters followed by the
+     * UTF-16LE encoded characters
+     *
+     * @param s the string, <code>null</code> is written as empty string
+     */
+    public void writeXLWideString(String s) {
+        int numChars = (s == null) ? 0 : s.length();
+        ensureCapacity(LittleEndian.INT_SIZE + 2*numChars);
+        LittleEndian.putInt(data, length, numChars);
+        length += LittleEndian.INT_SIZE;
+        for (int i=0; i<numChars; i++) {
+            char c = s.charAt(i);
+            data[length++] = (byte)c;
+            data[length++] = (byte)(c >>> 8);
+        }
+    }
+
+    /**
+     * Writes an XLNullableWideString, i.e. a {@link #writeXLWideString(String) XLWideString}
+     * where <code>null</code> is encoded as character count of 0xFFFFFFFF
+     *
+     * @param s the string or <code>null</code>
+     */
+    public void writeXLNullableWideString(String s) {
+        if (s == null) {
+            writeInt(0xFFFFFFFF);
+        } else {
+            writeXLWideString(s);
+        }
+    }
+
+    private void ensureCapacity(int extra) {
+        int needed = length + extra;
+        if (needed > MAX_RECORD_LENGTH) {
+            throw new XSSFBParseException("Record length "+needed+" exceeds maximum of "+MAX_RECORD_LENGTH);
+        }
+        if (needed > data.length) {
+            data = Arrays.copyOf(data, Math.min(MAX_RECORD_LENGTH, Math.max(needed, 2*data.length)));
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
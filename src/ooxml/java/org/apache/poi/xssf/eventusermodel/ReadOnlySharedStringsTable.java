@@ -96,7 +96,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
     /**
      * The shared strings table.
      */
-    private List<String> strings;
+    private ArrayList<String> strings;
 
     /**
      * Map of phonetic strings (if they exist) indexed
@@ -160,6 +160,17 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
         this.includePhoneticRuns = includePhoneticRuns;
         readFrom(part.getInputStream());
     }
+
+    /**
+     * Constructor for subclasses which need to be initialized before
+     * calling {@link #readFrom(InputStream)} themselves.
+     *
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @since 4.0.0
+     */
+    protected ReadOnlySharedStringsTable(boolean includePhoneticRuns) {
+        this.includePhoneticRuns = includePhoneticRuns;
+    }
     
     /**
      * Read this shared strings table from an XML file.
@@ -221,6 +232,20 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
         return strings;
     }
 
+    /**
+     * Store a parsed entry. The entries are added in the order of their index.
+     *
+     * @param entry the text of the <code>si</code> element
+     * @throws SAXException if the entry cannot be stored
+     * @since 4.0.0
+     */
+    protected void addEntry(String entry) throws SAXException {
+        if (strings.isEmpty()) {
+            strings.ensureCapacity(uniqueCount);
+        }
+        strings.add(entry);
+    }
+
     //// ContentHandler methods ////
 
     private StringBuilder characters;
@@ -239,7 +264,8 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
             String uniqueCount = attributes.getValue("uniqueCount");
             if(uniqueCount != null) this.uniqueCount = Integer.parseInt(uniqueCount);
 
-            this.strings = new ArrayList<>(this.uniqueCount);
+            // sized on the first entry, so subclasses storing them elsewhere don't pay for it
+            this.strings = new ArrayList<>();
             this.phoneticStrings = new HashMap<>();
             characters = new StringBuilder(64);
         } else if ("si".equals(localName)) {
@@ -262,7 +288,7 @@ public class ReadOnlySharedStringsTable extends DefaultHandler {
         }
 
         if ("si".equals(localName)) {
-            strings.add(characters.toString());
+            addEntry(characters.toString());
         } else if ("t".equals(localName)) {
             tIsOpen = false;
         } else if ("rPh".equals(localName)) {
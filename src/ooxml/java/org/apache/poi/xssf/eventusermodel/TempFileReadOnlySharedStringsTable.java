@@ -0,0 +1,276 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.SAXException;
+
+/**
+ * A {@link ReadOnlySharedStringsTable} which keeps the parsed strings in a temp file
+ * instead of the heap.
+ * <p>
+ * The shared strings table is parsed once into two temp files: the UTF-8 encoded strings
+ * and an index with the file offset of each string. {@link #getEntryAt(int)} reads the
+ * requested string with a positional read and keeps the most recently used strings in a
+ * bounded cache. The heap usage is therefore independent of the number of strings, which
+ * makes it possible to process workbooks with tens of millions of unique strings via
+ * {@link XSSFReader} and {@link XSSFSheetXMLHandler}.
+ * </p>
+ * <p>
+ * {@link #getItems()} returns a read-only view which reads through {@link #getEntryAt(int)}.
+ * The table must be closed to delete the temp files.
+ * </p>
+ *
+ * @since 4.0.0
+ */
+public class TempFileReadOnlySharedStringsTable extends ReadOnlySharedStringsTable implements Closeable {
+    /**
+     * The default number of strings kept in the cache
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    private final File dataFile;
+    private final File indexFile;
+    private final Map<Integer, String> cache;
+
+    private DataOutputStream dataOut;
+    private DataOutputStream indexOut;
+    private long dataLength;
+    private int entries;
+
+    private RandomAccessFile dataRaf;
+    private RandomAccessFile indexRaf;
+
+    /**
+     * Parse the shared strings table of the package, including phonetic runs,
+     * with a cache of {@link #DEFAULT_CACHE_SIZE} strings.
+     *
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(OPCPackage pkg) throws IOException, SAXException {
+        this(pkg, true, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Parse the shared strings table of the package.
+     *
+     * @param pkg The {@link OPCPackage} to use as basis for the shared-strings table.
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @param cacheSize the number of recently used strings which are kept in memory
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(OPCPackage pkg, boolean includePhoneticRuns, int cacheSize)
+            throws IOException, SAXException {
+        this(findPart(pkg), includePhoneticRuns, cacheSize);
+    }
+
+    /**
+     * Parse the given shared strings part.
+     *
+     * @param part the shared strings part, or <code>null</code> for an empty table
+     * @param includePhoneticRuns whether or not to concatenate phoneticRuns onto the shared string
+     * @param cacheSize the number of recently used strings which are kept in memory
+     * @throws IOException If reading the data from the package fails.
+     * @throws SAXException if parsing the XML data fails.
+     */
+    public TempFileReadOnlySharedStringsTable(PackagePart part, boolean includePhoneticRuns, final int cacheSize)
+            throws IOException, SAXException {
+        super(includePhoneticRuns);
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative, but had " + cacheSize);
+        }
+        cache = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        File data = null;
+        File index = null;
+        boolean success = false;
+        try {
+            data = TempFile.createTempFile("poi-sst-data", ".tmp");
+            index = TempFile.createTempFile("poi-sst-index", ".tmp");
+            dataOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(data)));
+            indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(index)));
+            if (part != null) {
+                try (InputStream is = part.getInputStream()) {
+                    readFrom(is);
+                }
+            }
+            // the end offset of the last entry
+            indexOut.writeLong(dataLength);
+            dataOut.close();
+            indexOut.close();
+            dataOut = null;
+            indexOut = null;
+            dataRaf = new RandomAccessFile(data, "r");
+            indexRaf = new RandomAccessFile(index, "r");
+            success = true;
+        } finally {
+            if (!success) {
+                // delete whatever has been created so far, the original exception is propagated
+                closeStreams();
+                deleteQuietly(data);
+                deleteQuietly(index);
+            }
+        }
+        dataFile = data;
+        indexFile = index;
+    }
+
+    private static void deleteQuietly(File file) {
+        if (file != null && !file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+
+    private static PackagePart findPart(OPCPackage pkg) {
+        List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        // Some workbooks have no shared strings table.
+        return parts.isEmpty() ? null : parts.get(0);
+    }
+
+    @Override
+    protected void addEntry(String entry) throws SAXException {
+        if (indexOut == null) {
+            throw new IllegalStateException("The table has already been read");
+        }
+        try {
+            indexOut.writeLong(dataLength);
+            byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+            dataOut.write(bytes);
+            dataLength += bytes.length;
+            entries++;
+        } catch (IOException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    /**
+     * Return the string at a given index.
+     * Formatting is ignored.
+     *
+     * @param idx index of item to return.
+     * @return the item at the specified position in this Shared String table.
+     * @throws POIXMLException if the temp file cannot be read
+     */
+    @Override
+    public String getEntryAt(int idx) {
+        if (idx < 0 || idx >= entries) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + entries);
+        }
+        synchronized (cache) {
+            String s = cache.get(idx);
+            if (s != null) {
+                return s;
+            }
+        }
+        String s;
+        try {
+            ByteBuffer offsets = ByteBuffer.allocate(16);
+            readFully(indexRaf.getChannel(), offsets, idx * 8L);
+            long start = offsets.getLong(0);
+            long end = offsets.getLong(8);
+            ByteBuffer data = ByteBuffer.allocate((int)(end - start));
+            readFully(dataRaf.getChannel(), data, start);
+            s = new String(data.array(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new POIXMLException("Failed to read shared string " + idx + " from " + dataFile, e);
+        }
+        synchronized (cache) {
+            cache.put(idx, s);
+        }
+        return s;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        // positional reads don't move the channel position, so concurrent lookups are safe
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * @return a read-only view of the strings which reads them one by one
+     */
+    @Override
+    public List<String> getItems() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return getEntryAt(index);
+            }
+
+            @Override
+            public int size() {
+                return entries;
+            }
+        };
+    }
+
+    /**
+     * Close and delete the temp files.
+     */
+    @Override
+    public void close() throws IOException {
+        closeStreams();
+        synchronized (cache) {
+            cache.clear();
+        }
+        boolean deleted = (!dataFile.exists() || dataFile.delete());
+        deleted = (!indexFile.exists() || indexFile.delete()) && deleted;
+        if (!deleted) {
+            throw new IOException("Could not delete the temp files " + dataFile + " and " + indexFile);
+        }
+    }
+
+    private void closeStreams() {
+        IOUtils.closeQuietly(dataOut);
+        IOUtils.closeQuietly(indexOut);
+        IOUtils.closeQuietly(dataRaf);
+        IOUtils.closeQuietly(indexRaf);
+    }
+}
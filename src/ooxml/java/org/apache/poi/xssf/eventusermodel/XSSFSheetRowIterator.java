@@ -0,0 +1,503 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.util.StaxHelper;
+
+/**
+ * A pull based alternative to {@link XSSFSheetXMLHandler}, which reads the rows of one
+ * worksheet part with a StAX parser.
+ * <p>
+ * Instead of pushing the cells to a {@link XSSFSheetXMLHandler.SheetContentsHandler}, the
+ * caller asks for the next row when it is ready for it, and can stop at any time by closing
+ * the iterator. The returned {@link RowView} and its {@link CellView}s are reused for every
+ * row, and the cell values are exposed as the raw {@link CharSequence} of the XML, so parsing
+ * a sheet creates hardly any garbage beyond what the StAX parser itself allocates.
+ * Consumers which need to keep a value must copy it before calling {@link #next()} again.
+ * </p>
+ * <pre>
+ * XSSFReader reader = new XSSFReader(pkg);
+ * ReadOnlySharedStringsTable sst = new ReadOnlySharedStringsTable(pkg);
+ * Iterator&lt;InputStream&gt; sheets = reader.getSheetsData();
+ * while (sheets.hasNext()) {
+ *     try (XSSFSheetRowIterator rows = new XSSFSheetRowIterator(sheets.next())) {
+ *         while (rows.hasNext()) {
+ *             XSSFSheetRowIterator.RowView row = rows.next();
+ *             for (int i = 0; i &lt; row.getCellCount(); i++) {
+ *                 XSSFSheetRowIterator.CellView cell = row.getCell(i);
+ *                 if (cell.getDataType() == XSSFSheetRowIterator.CellDataType.SST_STRING) {
+ *                     String s = sst.getEntryAt(cell.getSharedStringIndex());
+ *                 }
+ *             }
+ *         }
+ *     }
+ * }
+ * </pre>
+ * <p>
+ * Like {@link XSSFSheetXMLHandler}, rows and cells without a reference are numbered after
+ * their predecessor. The values are not formatted, see {@link org.apache.poi.ss.usermodel.DataFormatter}
+ * and {@link org.apache.poi.xssf.model.StylesTable#getStyleAt(int)} for that.
+ * </p>
+ *
+ * @since 4.0.0
+ */
+public class XSSFSheetRowIterator implements Iterator<XSSFSheetRowIterator.RowView>, Closeable {
+
+    /**
+     * The data type of a cell, as given by the <code>t</code> attribute
+     */
+    public enum CellDataType {
+        /** <code>n</code> or no type: a number, or an empty cell if there is no value */
+        NUMBER,
+        /** <code>s</code>: the value is an index into the shared strings table */
+        SST_STRING,
+        /** <code>inlineStr</code>: the string is stored in the cell */
+        INLINE_STRING,
+        /** <code>str</code>: the string result of a formula */
+        FORMULA_STRING,
+        /** <code>b</code>: <code>0</code> or <code>1</code> */
+        BOOLEAN,
+        /** <code>e</code>: an error code like <code>#DIV/0!</code> */
+        ERROR,
+        /** <code>d</code>: an ISO 8601 date */
+        DATE
+    }
+
+    /**
+     * A reusable view of the current row, which is only valid until the next call to {@link #next()}
+     */
+    public static final class RowView {
+        private int rowNum;
+        private int cellCount;
+        private CellView[] cells = new CellView[16];
+
+        private RowView() {}
+
+        /**
+         * @return the zero based row number
+         */
+        public int getRowNum() {
+            return rowNum;
+        }
+
+        /**
+         * @return the number of cells which are present in the XML of the row
+         */
+        public int getCellCount() {
+            return cellCount;
+        }
+
+        /**
+         * @param i the position of the cell in the row, not its column
+         * @return the view of the cell, which is only valid until the next call to {@link #next()}
+         */
+        public CellView getCell(int i) {
+            if (i < 0 || i >= cellCount) {
+                throw new IndexOutOfBoundsException("Cell " + i + " of " + cellCount);
+            }
+            return cells[i];
+        }
+
+        private CellView nextCell() {
+            if (cellCount == cells.length) {
+                cells = Arrays.copyOf(cells, cellCount * 2);
+            }
+            CellView cell = cells[cellCount];
+            if (cell == null) {
+                cell = cells[cellCount] = new CellView();
+            }
+            cellCount++;
+            return cell;
+        }
+    }
+
+    /**
+     * A reusable view of a cell, which is only valid until the next call to {@link #next()}
+     */
+    public static final class CellView {
+        private int column;
+        private int styleIndex;
+        private CellDataType dataType;
+        private boolean hasValue;
+        private boolean hasFormula;
+        private final StringBuilder value = new StringBuilder(32);
+        private final StringBuilder formula = new StringBuilder(32);
+
+        private CellView() {}
+
+        private void reset(int column) {
+            this.column = column;
+            styleIndex = 0;
+            dataType = CellDataType.NUMBER;
+            hasValue = false;
+            hasFormula = false;
+            value.setLength(0);
+            formula.setLength(0);
+        }
+
+        /**
+         * @return the zero based column index
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * @return the index of the cell style, <code>0</code> if none is given
+         */
+        public int getStyleIndex() {
+            return styleIndex;
+        }
+
+        public CellDataType getDataType() {
+            return dataType;
+        }
+
+        /**
+         * @return <code>true</code> if the cell has a value or an inline string,
+         *  <code>false</code> for a cell which only has a style
+         */
+        public boolean hasValue() {
+            return hasValue;
+        }
+
+        /**
+         * @return the raw value, i.e. the text of the <code>v</code> element, or the
+         *  concatenated text of an inline string
+         */
+        public CharSequence getRawValue() {
+            return value;
+        }
+
+        /**
+         * @return <code>true</code> if the cell has a <code>f</code> element
+         */
+        public boolean hasFormula() {
+            return hasFormula;
+        }
+
+        /**
+         * @return the text of the formula, which is empty for cells sharing the formula of another cell
+         */
+        public CharSequence getFormula() {
+            return formula;
+        }
+
+        /**
+         * @return the value of a numeric cell
+         * @throws NumberFormatException if the value is no number
+         */
+        public double getNumericValue() {
+            return Double.parseDouble(value.toString());
+        }
+
+        /**
+         * @return the value of a boolean cell
+         */
+        public boolean getBooleanValue() {
+            return value.length() == 1 && value.charAt(0) == '1';
+        }
+
+        /**
+         * @return the index into the shared strings table of a {@link CellDataType#SST_STRING} cell
+         * @throws NumberFormatException if the value is no index
+         */
+        public int getSharedStringIndex() {
+            int len = value.length();
+            if (len == 0) {
+                throw new NumberFormatException("Empty shared string index");
+            }
+            int idx = 0;
+            for (int i = 0; i < len; i++) {
+                int digit = value.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("Invalid shared string index: " + value);
+                }
+                idx = idx * 10 + digit;
+            }
+            return idx;
+        }
+    }
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = StaxHelper.newXMLInputFactory();
+
+    private final InputStream sheetData;
+    private final XMLStreamReader reader;
+    private final RowView row = new RowView();
+    private boolean rowPending;
+    private boolean finished;
+    private int nextRowNum;
+
+    /**
+     * @param sheetData the XML of a worksheet part, e.g. from {@link XSSFReader#getSheetsData()},
+     *                  which is closed together with this iterator
+     * @throws XMLStreamException if the parser cannot be created
+     */
+    public XSSFSheetRowIterator(InputStream sheetData) throws XMLStreamException {
+        this.sheetData = sheetData;
+        // the factory is thread-safe once configured
+        this.reader = XML_INPUT_FACTORY.createXMLStreamReader(sheetData);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (rowPending) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT && isElement("row")) {
+                    rowPending = true;
+                    return true;
+                }
+                if (event == XMLStreamConstants.END_ELEMENT && isElement("sheetData")) {
+                    break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new POIXMLException("Failed to parse the sheet data", e);
+        }
+        finished = true;
+        return false;
+    }
+
+    /**
+     * @return the view of the next row, which is only valid until the next call to this method
+     * @throws POIXMLException if the XML cannot be parsed
+     */
+    @Override
+    public RowView next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        rowPending = false;
+        try {
+            readRow();
+        } catch (XMLStreamException e) {
+            throw new POIXMLException("Failed to parse row " + (row.rowNum + 1), e);
+        }
+        return row;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * Close the parser and the sheet data stream. Further rows are not read.
+     */
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        rowPending = false;
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        } finally {
+            sheetData.close();
+        }
+    }
+
+    private void readRow() throws XMLStreamException {
+        String r = getAttribute("r");
+        row.rowNum = (r == null) ? nextRowNum : parseInt(r) - 1;
+        nextRowNum = row.rowNum + 1;
+        row.cellCount = 0;
+
+        int nextColumn = 0;
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT && isElement("c")) {
+                CellView cell = row.nextCell();
+                readCellAttributes(cell, nextColumn);
+                nextColumn = cell.column + 1;
+                readCellContent(cell);
+            } else if (event == XMLStreamConstants.END_ELEMENT && isElement("row")) {
+                return;
+            } else if (event == XMLStreamConstants.END_DOCUMENT) {
+                throw new XMLStreamException("Unexpected end of document in row " + (row.rowNum + 1));
+            }
+        }
+    }
+
+    private void readCellAttributes(CellView cell, int defaultColumn) {
+        cell.reset(defaultColumn);
+        for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+            String name = reader.getAttributeLocalName(i);
+            if ("r".equals(name)) {
+                cell.column = parseColumn(reader.getAttributeValue(i));
+            } else if ("s".equals(name)) {
+                cell.styleIndex = parseInt(reader.getAttributeValue(i));
+            } else if ("t".equals(name)) {
+                cell.dataType = parseDataType(reader.getAttributeValue(i));
+            }
+        }
+    }
+
+    private void readCellContent(CellView cell) throws XMLStreamException {
+        int depth = 0;
+        // within the t element of an inline string, but not in a phonetic run
+        boolean inText = false;
+        boolean inPhonetic = false;
+        while (true) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    if (depth == 1 && isElement("v")) {
+                        readText(cell.value);
+                        cell.hasValue = true;
+                        depth--;
+                    } else if (depth == 1 && isElement("f")) {
+                        readText(cell.formula);
+                        cell.hasFormula = true;
+                        depth--;
+                    } else if (depth == 1 && isElement("is")) {
+                        cell.hasValue = true;
+                    } else if (isElement("rPh")) {
+                        inPhonetic = true;
+                    } else if (isElement("t")) {
+                        inText = !inPhonetic;
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == 0) {
+                        // end of the c element
+                        return;
+                    }
+                    depth--;
+                    if (isElement("rPh")) {
+                        inPhonetic = false;
+                    } else if (isElement("t")) {
+                        inText = false;
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (inText) {
+                        appendText(cell.value);
+                    }
+                    break;
+                case XMLStreamConstants.END_DOCUMENT:
+                    throw new XMLStreamException("Unexpected end of document in row " + (row.rowNum + 1));
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Append the text content of a simple element, the reader ends on its end element
+     */
+    private void readText(StringBuilder sb) throws XMLStreamException {
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return;
+            }
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                    || event == XMLStreamConstants.SPACE) {
+                appendText(sb);
+            } else if (event == XMLStreamConstants.END_DOCUMENT) {
+                throw new XMLStreamException("Unexpected end of document in row " + (row.rowNum + 1));
+            }
+        }
+    }
+
+    private void appendText(StringBuilder sb) {
+        // copies from the parser buffer without creating a String
+        sb.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+    }
+
+    private boolean isElement(String localName) {
+        String uri = reader.getNamespaceURI();
+        return localName.equals(reader.getLocalName()) && (uri == null || NS_SPREADSHEETML.equals(uri));
+    }
+
+    private String getAttribute(String localName) {
+        for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+            if (localName.equals(reader.getAttributeLocalName(i))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    private static CellDataType parseDataType(String t) {
+        switch (t) {
+            case "s": return CellDataType.SST_STRING;
+            case "inlineStr": return CellDataType.INLINE_STRING;
+            case "str": return CellDataType.FORMULA_STRING;
+            case "b": return CellDataType.BOOLEAN;
+            case "e": return CellDataType.ERROR;
+            case "d": return CellDataType.DATE;
+            default: return CellDataType.NUMBER;
+        }
+    }
+
+    /**
+     * Parse the column of a cell reference like <code>AB12</code>
+     */
+    private static int parseColumn(String ref) {
+        int col = 0;
+        for (int i = 0, len = ref.length(); i < len; i++) {
+            char ch = ref.charAt(i);
+            if (ch >= 'A' && ch <= 'Z') {
+                col = col * 26 + (ch - 'A' + 1);
+            } else if (ch >= 'a' && ch <= 'z') {
+                col = col * 26 + (ch - 'a' + 1);
+            } else if (ch != '$') {
+                break;
+            }
+        }
+        return col - 1;
+    }
+
+    private static int parseInt(String s) {
+        int val = 0;
+        for (int i = 0, len = s.length(); i < len; i++) {
+            int digit = s.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid number: " + s);
+            }
+            val = val * 10 + digit;
+        }
+        return val;
+    }
+}
@@ -18,6 +18,8 @@ package org.apache.poi.xssf.extractor;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import org.apache.poi.ooxml.extractor.POIXMLTextExtractor;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
@@ -116,44 +118,42 @@ public class XSSFBEventBasedExcelExtractor extends XSSFEventBasedExcelExtractor
      * Processes the file and returns the text
      */
     public String getText() {
+        Deque<PendingSheet> pending = new ArrayDeque<>();
         try {
-            XSSFBSharedStringsTable strings = new XSSFBSharedStringsTable(getPackage());
+            final XSSFBSharedStringsTable strings = new XSSFBSharedStringsTable(getPackage());
             XSSFBReader xssfbReader = new XSSFBReader(getPackage());
-            XSSFBStylesTable styles = xssfbReader.getXSSFBStylesTable();
+            final XSSFBStylesTable styles = xssfbReader.getXSSFBStylesTable();
             XSSFBReader.SheetIterator iter = (XSSFBReader.SheetIterator) xssfbReader.getSheetsData();
 
             StringBuilder text = new StringBuilder(64);
-            SheetTextExtractor sheetExtractor = new SheetTextExtractor();
             XSSFBHyperlinksTable hyperlinksTable = null;
             while (iter.hasNext()) {
-                InputStream stream = iter.next();
-                if (getIncludeSheetNames()) {
-                    text.append(iter.getSheetName());
-                    text.append('\n');
-                }
+                final InputStream stream = iter.next();
                 if (handleHyperlinksInCells) {
                     hyperlinksTable = new XSSFBHyperlinksTable(iter.getSheetPart());
                 }
-                XSSFBCommentsTable comments = getIncludeCellComments() ? iter.getXSSFBSheetComments() : null;
-                processSheet(sheetExtractor, styles, comments, strings, stream);
-                if (getIncludeHeadersFooters()) {
-                    sheetExtractor.appendHeaderText(text);
-                }
-                sheetExtractor.appendCellText(text);
+                final XSSFBCommentsTable comments = getIncludeCellComments() ? iter.getXSSFBSheetComments() : null;
+                PendingSheet sheet = submitSheet(iter.getSheetName(), sheetExtractor -> {
+                    try {
+                        processSheet(sheetExtractor, styles, comments, strings, stream);
+                    } finally {
+                        stream.close();
+                    }
+                });
+                pending.add(sheet);
                 if (getIncludeTextBoxes()) {
-                    processShapes(iter.getShapes(), text);
-                }
-                if (getIncludeHeadersFooters()) {
-                    sheetExtractor.appendFooterText(text);
+                    processShapes(iter.getShapes(), sheet.shapes);
                 }
-                sheetExtractor.reset();
-                stream.close();
+                appendSheets(text, pending, false);
             }
+            appendSheets(text, pending, true);
 
             return text.toString();
         } catch (IOException | OpenXML4JException | SAXException e) {
             LOGGER.log(POILogger.WARN, e);
             return null;
+        } finally {
+            cancelSheets(pending);
         }
     }
 
@@ -19,10 +19,16 @@ package org.apache.poi.xssf.extractor;
 import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.poi.ooxml.POIXMLProperties;
 import org.apache.poi.ooxml.POIXMLProperties.CoreProperties;
@@ -69,6 +75,7 @@ public class XSSFEventBasedExcelExtractor extends POIXMLTextExtractor
     private boolean includeHeadersFooters = true;
     private boolean formulasNotResults;
     private boolean concatenatePhoneticRuns = true;
+    private Executor executor;
 
     public XSSFEventBasedExcelExtractor(String path) throws XmlException, OpenXML4JException, IOException {
         this(OPCPackage.open(path));
@@ -192,6 +199,31 @@ public class XSSFEventBasedExcelExtractor extends POIXMLTextExtractor
         return locale;
     }
 
+    /**
+     * Parse the sheets concurrently on the given executor. The shared strings and styles
+     * are loaded up front and only read by the sheets, so every worksheet can be parsed
+     * independently. The text is still assembled in sheet order.
+     * <p>
+     * Default is <code>null</code>, which parses the sheets one after the other
+     * in the calling thread.
+     * </p>
+     *
+     * @param executor the executor to parse the sheets on, or <code>null</code>
+     * @since 4.0.0
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return the executor the sheets are parsed on, or <code>null</code> if they
+     *  are parsed in the calling thread
+     * @since 4.0.0
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
     /**
      * Returns the opened OPCPackage container.
      */
@@ -259,41 +291,134 @@ public class XSSFEventBasedExcelExtractor extends POIXMLTextExtractor
      * Processes the file and returns the text
      */
     public String getText() {
+        Deque<PendingSheet> pending = new ArrayDeque<>();
         try {
-            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(container, concatenatePhoneticRuns);
+            final ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(container, concatenatePhoneticRuns);
             XSSFReader xssfReader = new XSSFReader(container);
-            StylesTable styles = xssfReader.getStylesTable();
+            final StylesTable styles = xssfReader.getStylesTable();
             XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
             StringBuilder text = new StringBuilder(64);
-            SheetTextExtractor sheetExtractor = new SheetTextExtractor();
 
             while (iter.hasNext()) {
-                InputStream stream = iter.next();
-                if (includeSheetNames) {
-                    text.append(iter.getSheetName());
-                    text.append('\n');
-                }
-                CommentsTable comments = includeCellComments ? iter.getSheetComments() : null;
-                processSheet(sheetExtractor, styles, comments, strings, stream);
-                if (includeHeadersFooters) {
-                    sheetExtractor.appendHeaderText(text);
-                }
-                sheetExtractor.appendCellText(text);
+                final InputStream stream = iter.next();
+                final CommentsTable comments = includeCellComments ? iter.getSheetComments() : null;
+                PendingSheet sheet = submitSheet(iter.getSheetName(), sheetExtractor -> {
+                    try {
+                        processSheet(sheetExtractor, styles, comments, strings, stream);
+                    } finally {
+                        stream.close();
+                    }
+                });
+                pending.add(sheet);
                 if (includeTextBoxes) {
-                    processShapes(iter.getShapes(), text);
-                }
-                if (includeHeadersFooters) {
-                    sheetExtractor.appendFooterText(text);
+                    processShapes(iter.getShapes(), sheet.shapes);
                 }
-                sheetExtractor.reset();
-                stream.close();
+                appendSheets(text, pending, false);
             }
+            appendSheets(text, pending, true);
 
             return text.toString();
         } catch (IOException | OpenXML4JException | SAXException e) {
             LOGGER.log(POILogger.WARN, e);
             return null;
+        } finally {
+            cancelSheets(pending);
+        }
+    }
+
+    /**
+     * Parses one sheet into a {@link SheetTextExtractor}
+     */
+    interface SheetParser {
+        void parse(SheetTextExtractor sheetExtractor) throws IOException, SAXException;
+    }
+
+    /**
+     * A sheet whose cells are possibly still being parsed on the executor
+     */
+    final class PendingSheet {
+        private final String sheetName;
+        private final FutureTask<SheetTextExtractor> cells;
+        final StringBuilder shapes = new StringBuilder();
+
+        private PendingSheet(String sheetName, FutureTask<SheetTextExtractor> cells) {
+            this.sheetName = sheetName;
+            this.cells = cells;
+        }
+    }
+
+    /**
+     * Parse the sheet on the executor, or right away if there is none
+     */
+    PendingSheet submitSheet(String sheetName, final SheetParser parser) {
+        FutureTask<SheetTextExtractor> task = new FutureTask<>(() -> {
+            SheetTextExtractor sheetExtractor = new SheetTextExtractor();
+            parser.parse(sheetExtractor);
+            return sheetExtractor;
+        });
+        if (executor == null) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+        return new PendingSheet(sheetName, task);
+    }
+
+    /**
+     * Append the text of the leading sheets which have been parsed, so the text
+     * stays in sheet order.
+     *
+     * @param wait whether to wait for all pending sheets
+     */
+    void appendSheets(StringBuilder text, Deque<PendingSheet> pending, boolean wait)
+            throws IOException, SAXException {
+        while (!pending.isEmpty() && (wait || pending.peekFirst().cells.isDone())) {
+            PendingSheet sheet = pending.removeFirst();
+            SheetTextExtractor sheetExtractor = getParsedSheet(sheet);
+            if (includeSheetNames) {
+                text.append(sheet.sheetName);
+                text.append('\n');
+            }
+            if (includeHeadersFooters) {
+                sheetExtractor.appendHeaderText(text);
+            }
+            sheetExtractor.appendCellText(text);
+            text.append(sheet.shapes);
+            if (includeHeadersFooters) {
+                sheetExtractor.appendFooterText(text);
+            }
+        }
+    }
+
+    private static SheetTextExtractor getParsedSheet(PendingSheet sheet) throws IOException, SAXException {
+        try {
+            return sheet.cells.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting sheet " + sheet.sheetName);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Failed to extract sheet " + sheet.sheetName, cause);
+        }
+    }
+
+    /**
+     * Stop parsing the remaining sheets after a failure
+     */
+    static void cancelSheets(Deque<PendingSheet> pending) {
+        for (PendingSheet sheet : pending) {
+            sheet.cells.cancel(true);
         }
+        pending.clear();
     }
 
     void processShapes(List<XSSFShape> shapes, StringBuilder text) {
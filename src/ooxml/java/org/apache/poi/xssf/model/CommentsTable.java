@@ -88,6 +88,11 @@ public class CommentsTable extends POIXMLDocumentPart {
         writeTo(out);
         out.close();
     }
+
+    @Override
+    protected boolean isCommitIsolated() {
+        return true;
+    }
     
     /**
      * Called after the reference is updated, so that
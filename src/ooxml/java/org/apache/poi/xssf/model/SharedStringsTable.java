@@ -61,6 +61,10 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.SstDocument;
  * The shared string table contains all the necessary information for displaying the string: the text, formatting
  * properties, and phonetic properties (for East Asian languages).
  * </p>
+ * <p>
+ * The methods to add and look up entries are synchronized, so the table can be filled
+ * by concurrently written sheets, see {@link org.apache.poi.xssf.streaming.SXSSFWorkbook#generateSheets}.
+ * </p>
  */
 public class SharedStringsTable extends POIXMLDocumentPart implements Closeable {
 
@@ -147,7 +151,7 @@ public class SharedStringsTable extends POIXMLDocumentPart implements Closeable
      * @deprecated use <code>getItemAt(int idx)</code> instead
      */
     @Removal(version = "4.2")
-    public CTRst getEntryAt(int idx) {
+    public synchronized CTRst getEntryAt(int idx) {
         return strings.get(idx);
     }
 
@@ -157,7 +161,7 @@ public class SharedStringsTable extends POIXMLDocumentPart implements Closeable
      * @param idx index of item to return.
      * @return the item at the specified position in this Shared String table.
      */
-    public RichTextString getItemAt(int idx) {
+    public synchronized RichTextString getItemAt(int idx) {
         return new XSSFRichTextString(strings.get(idx));
     }
 
@@ -167,7 +171,7 @@ public class SharedStringsTable extends POIXMLDocumentPart implements Closeable
      *
      * @return the total count of strings in the workbook
      */
-    public int getCount(){
+    public synchronized int getCount(){
         return count;
     }
 
@@ -178,7 +182,7 @@ public class SharedStringsTable extends POIXMLDocumentPart implements Closeable
      *
      * @return the total count of unique strings in the workbook
      */
-    public int getUniqueCount(){
+    public synchronized int getUniqueCount(){
         return uniqueCount;
     }
 
@@ -195,7 +199,7 @@ public class SharedStringsTable extends POIXMLDocumentPart implements Closeable
      * @deprecated use <code>addSharedStringItem(RichTextString string)</code> instead
      */
     @Removal(version = "4.2") //make private in 4.2
-    public int addEntry(CTRst st) {
+    public synchronized int addEntry(CTRst st) {
         String s = xmlText(st);
         count++;
         if (stmap.containsKey(s)) {
@@ -224,7 +228,7 @@ public class SharedStringsTable extends POIXMLDocumentPart implements Closeable
      * @since POI 4.0.0
      * @return index the index of added entry
      */
-    public int addSharedStringItem(RichTextString string) {
+    public synchronized int addSharedStringItem(RichTextString string) {
         if(!(string instanceof XSSFRichTextString)){
             throw new IllegalArgumentException("Only XSSFRichTextString argument is supported");
         }
@@ -284,6 +288,11 @@ public class SharedStringsTable extends POIXMLDocumentPart implements Closeable
         }
     }
 
+    @Override
+    protected boolean isCommitIsolated() {
+        return true;
+    }
+
     /**
      * Close any open resources, like temp files. This method is called by <code>XSSFWorkbook#close()</code>.
      * <p>
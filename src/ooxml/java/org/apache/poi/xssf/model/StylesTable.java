@@ -55,6 +55,11 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.*;
 
 /**
  * Table of styles shared across all sheets in a workbook.
+ * <p>
+ * The methods to look up and register number formats, fonts, fills, borders and
+ * cell formats are synchronized, so styles can be created while the sheets of a
+ * streaming workbook are populated concurrently,
+ * see {@link org.apache.poi.xssf.streaming.SXSSFWorkbook#generateSheets}.
  */
 public class StylesTable extends POIXMLDocumentPart {
     private final SortedMap<Short, String> numberFormats = new TreeMap<>();
@@ -261,7 +266,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * @param fmtId number format id
      * @return number format code
      */
-    public String getNumberFormatAt(short fmtId) {
+    public synchronized String getNumberFormatAt(short fmtId) {
         return numberFormats.get(fmtId);
     }
     
@@ -285,7 +290,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * @throws IllegalStateException if adding the number format to the styles table
      * would exceed the {@link #MAXIMUM_NUMBER_OF_DATA_FORMATS} allowed.
      */
-    public int putNumberFormat(String fmt) {
+    public synchronized int putNumberFormat(String fmt) {
         // Check if number format already exists
         if (numberFormats.containsValue(fmt)) {
             try {
@@ -334,7 +339,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * @param index the number format ID
      * @param fmt the number format code
      */
-    public void putNumberFormat(short index, String fmt) {
+    public synchronized void putNumberFormat(short index, String fmt) {
         numberFormats.put(index, fmt);
     }
     
@@ -345,7 +350,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * @param index the number format id to remove
      * @return true if the number format was removed
      */
-    public boolean removeNumberFormat(short index) {
+    public synchronized boolean removeNumberFormat(short index) {
         String fmt = numberFormats.remove(index);
         boolean removed = (fmt != null);
         if (removed) {
@@ -366,12 +371,12 @@ public class StylesTable extends POIXMLDocumentPart {
      * @param fmt the number format to remove
      * @return true if the number format was removed
      */
-    public boolean removeNumberFormat(String fmt) {
+    public synchronized boolean removeNumberFormat(String fmt) {
         short id = getNumberFormatId(fmt);
         return removeNumberFormat(id);
     }
 
-    public XSSFFont getFontAt(int idx) {
+    public synchronized XSSFFont getFontAt(int idx) {
         return fonts.get(idx);
     }
 
@@ -385,7 +390,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * Note - End Users probably want to call
      *  {@link XSSFFont#registerTo(StylesTable)}
      */
-    public int putFont(XSSFFont font, boolean forceRegistration) {
+    public synchronized int putFont(XSSFFont font, boolean forceRegistration) {
         int idx = -1;
         if(!forceRegistration) {
             idx = fonts.indexOf(font);
@@ -399,7 +404,7 @@ public class StylesTable extends POIXMLDocumentPart {
         fonts.add(font);
         return idx;
     }
-    public int putFont(XSSFFont font) {
+    public synchronized int putFont(XSSFFont font) {
         return putFont(font, false);
     }
 
@@ -408,7 +413,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * @param idx style index
      * @return XSSFCellStyle or null if idx is out of bounds for xfs array
      */
-    public XSSFCellStyle getStyleAt(int idx) {
+    public synchronized XSSFCellStyle getStyleAt(int idx) {
         int styleXfId = 0;
 
         if (idx < 0 || idx >= xfs.size()) {
@@ -422,7 +427,7 @@ public class StylesTable extends POIXMLDocumentPart {
 
         return new XSSFCellStyle(idx, styleXfId, this, theme);
     }
-    public int putStyle(XSSFCellStyle style) {
+    public synchronized int putStyle(XSSFCellStyle style) {
         CTXf mainXF = style.getCoreXf();
 
         if(! xfs.contains(mainXF)) {
@@ -431,7 +436,7 @@ public class StylesTable extends POIXMLDocumentPart {
         return xfs.indexOf(mainXF);
     }
 
-    public XSSFCellBorder getBorderAt(int idx) {
+    public synchronized XSSFCellBorder getBorderAt(int idx) {
         return borders.get(idx);
     }
 
@@ -442,7 +447,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * @param border border to add
      * @return the index of the added border
      */
-    public int putBorder(XSSFCellBorder border) {
+    public synchronized int putBorder(XSSFCellBorder border) {
         int idx = borders.indexOf(border);
         if (idx != -1) {
             return idx;
@@ -452,7 +457,7 @@ public class StylesTable extends POIXMLDocumentPart {
         return borders.size() - 1;
     }
 
-    public XSSFCellFill getFillAt(int idx) {
+    public synchronized XSSFCellFill getFillAt(int idx) {
         return fills.get(idx);
     }
 
@@ -479,7 +484,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * @param fill fill to add
      * @return the index of the added fill
      */
-    public int putFill(XSSFCellFill fill) {
+    public synchronized int putFill(XSSFCellFill fill) {
         int idx = fills.indexOf(fill);
         if (idx != -1) {
             return idx;
@@ -489,7 +494,7 @@ public class StylesTable extends POIXMLDocumentPart {
     }
 
     @Internal
-    public CTXf getCellXfAt(int idx) {
+    public synchronized CTXf getCellXfAt(int idx) {
         return xfs.get(idx);
     }
     
@@ -501,18 +506,18 @@ public class StylesTable extends POIXMLDocumentPart {
      * @return the added cell ID in the style table
      */
     @Internal
-    public int putCellXf(CTXf cellXf) {
+    public synchronized int putCellXf(CTXf cellXf) {
         xfs.add(cellXf);
         return xfs.size();
     }
     
     @Internal
-    public void replaceCellXfAt(int idx, CTXf cellXf) {
+    public synchronized void replaceCellXfAt(int idx, CTXf cellXf) {
         xfs.set(idx, cellXf);
     }
 
     @Internal
-    public CTXf getCellStyleXfAt(int idx) {
+    public synchronized CTXf getCellStyleXfAt(int idx) {
         try {
             return styleXfs.get(idx);
         }
@@ -529,7 +534,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * @return the cell style ID in the style table
      */
     @Internal
-    public int putCellStyleXf(CTXf cellStyleXf) {
+    public synchronized int putCellStyleXf(CTXf cellStyleXf) {
         styleXfs.add(cellStyleXf);
         // TODO: check for duplicate
         return styleXfs.size();
@@ -543,7 +548,7 @@ public class StylesTable extends POIXMLDocumentPart {
     /**
      * get the size of cell styles
      */
-    public int getNumCellStyles(){
+    public synchronized int getNumCellStyles(){
         // Each cell style has a unique xfs entry
         // Several might share the same styleXfs entry
         return xfs.size();
@@ -552,7 +557,7 @@ public class StylesTable extends POIXMLDocumentPart {
     /**
      * @return number of data formats in the styles table
      */
-    public int getNumDataFormats() {
+    public synchronized int getNumDataFormats() {
         return numberFormats.size();
     }
 
@@ -693,6 +698,11 @@ public class StylesTable extends POIXMLDocumentPart {
         out.close();
     }
 
+    @Override
+    protected boolean isCommitIsolated() {
+        return true;
+    }
+
     private void initialize() {
         //CTFont ctFont = createDefaultFont();
         XSSFFont xssfFont = createDefaultFont();
@@ -750,7 +760,7 @@ public class StylesTable extends POIXMLDocumentPart {
     }
 
     @Internal
-    public CTDxf getDxfAt(int idx) {
+    public synchronized CTDxf getDxfAt(int idx) {
         return dxfs.get(idx);
     }
 
@@ -762,7 +772,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * @return added dxf ID in the style table
      */
     @Internal
-    public int putDxf(CTDxf dxf) {
+    public synchronized int putDxf(CTDxf dxf) {
         this.dxfs.add(dxf);
         return this.dxfs.size();
     }
@@ -807,7 +817,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * rather than working with the styles table directly.
      * @throws IllegalStateException if the maximum number of cell styles has been reached. 
      */
-    public XSSFCellStyle createCellStyle() {
+    public synchronized XSSFCellStyle createCellStyle() {
         if (getNumCellStyles() > MAXIMUM_STYLE_ID) {
             throw new IllegalStateException("The maximum number of Cell Styles was exceeded. " +
                       "You can define up to " + MAXIMUM_STYLE_ID + " style in a .xlsx Workbook");
@@ -828,7 +838,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * Finds a font that matches the one with the supplied attributes,
      * where color is the indexed-value, not the actual color.
      */
-    public XSSFFont findFont(boolean bold, short color, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
+    public synchronized XSSFFont findFont(boolean bold, short color, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
         for (XSSFFont font : fonts) {
             if (    (font.getBold() == bold)
                     && font.getColor() == color
@@ -849,7 +859,7 @@ public class StylesTable extends POIXMLDocumentPart {
      * Finds a font that matches the one with the supplied attributes,
      * where color is the actual Color-value, not the indexed color
      */
-    public XSSFFont findFont(boolean bold, Color color, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
+    public synchronized XSSFFont findFont(boolean bold, Color color, short fontHeight, String name, boolean italic, boolean strikeout, short typeOffset, byte underline) {
         for (XSSFFont font : fonts) {
             if (    (font.getBold() == bold)
                     && font.getXSSFColor().equals(color)
@@ -0,0 +1,245 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.poi.ss.usermodel.AutoFilter;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataValidation;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+/**
+ * Sheet of an {@link EmittingSXSSFWorkbook}: the rows aren't created upfront,
+ * but by the {@link RowGeneratorFunction} while the workbook is written.
+ * The flushed rows go directly into the worksheet part of the package,
+ * so no temp file is used.
+ * <p>
+ * The rest of the worksheet is written before the rows are generated, so the
+ * sheet settings like merged regions, column widths or panes can't be changed
+ * by the row generator anymore - the corresponding methods throw an
+ * {@link IllegalStateException} while the workbook is written.
+ *
+ * @since 4.0.0
+ */
+public class EmittingSXSSFSheet extends SXSSFSheet {
+    private RowGeneratorFunction rowGenerator;
+
+    EmittingSXSSFSheet(EmittingSXSSFWorkbook workbook, XSSFSheet xSheet) {
+        super(workbook, xSheet, null);
+    }
+
+    /**
+     * Set the function which creates the rows when the workbook is written
+     *
+     * @param rowGenerator the row generator, <code>null</code> for an empty sheet
+     */
+    public void setRowGenerator(RowGeneratorFunction rowGenerator) {
+        this.rowGenerator = rowGenerator;
+    }
+
+    public RowGeneratorFunction getRowGenerator() {
+        return rowGenerator;
+    }
+
+    /**
+     * Create a new row - this is only allowed inside the {@link RowGeneratorFunction}
+     *
+     * @throws IllegalStateException if called outside of the row generation
+     */
+    @Override
+    public SXSSFRow createRow(int rownum) {
+        if (_writer == null) {
+            throw new IllegalStateException("Rows can only be created by the row generator while the workbook is written");
+        }
+        return super.createRow(rownum);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public int addMergedRegion(CellRangeAddress region) {
+        getWorkbook().checkNotWriting();
+        return super.addMergedRegion(region);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public int addMergedRegionUnsafe(CellRangeAddress region) {
+        getWorkbook().checkNotWriting();
+        return super.addMergedRegionUnsafe(region);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void setColumnWidth(int columnIndex, int width) {
+        getWorkbook().checkNotWriting();
+        super.setColumnWidth(columnIndex, width);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void setColumnHidden(int columnIndex, boolean hidden) {
+        getWorkbook().checkNotWriting();
+        super.setColumnHidden(columnIndex, hidden);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void setDefaultColumnWidth(int width) {
+        getWorkbook().checkNotWriting();
+        super.setDefaultColumnWidth(width);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void setDefaultColumnStyle(int column, CellStyle style) {
+        getWorkbook().checkNotWriting();
+        super.setDefaultColumnStyle(column, style);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void setDefaultRowHeight(short height) {
+        getWorkbook().checkNotWriting();
+        super.setDefaultRowHeight(height);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void setDefaultRowHeightInPoints(float height) {
+        getWorkbook().checkNotWriting();
+        super.setDefaultRowHeightInPoints(height);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void groupColumn(int fromColumn, int toColumn) {
+        getWorkbook().checkNotWriting();
+        super.groupColumn(fromColumn, toColumn);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void createFreezePane(int colSplit, int rowSplit, int leftmostColumn, int topRow) {
+        getWorkbook().checkNotWriting();
+        super.createFreezePane(colSplit, rowSplit, leftmostColumn, topRow);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void createFreezePane(int colSplit, int rowSplit) {
+        getWorkbook().checkNotWriting();
+        super.createFreezePane(colSplit, rowSplit);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void createSplitPane(int xSplitPos, int ySplitPos, int leftmostColumn, int topRow, int activePane) {
+        getWorkbook().checkNotWriting();
+        super.createSplitPane(xSplitPos, ySplitPos, leftmostColumn, topRow, activePane);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public AutoFilter setAutoFilter(CellRangeAddress range) {
+        getWorkbook().checkNotWriting();
+        return super.setAutoFilter(range);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the worksheet is already written
+     */
+    @Override
+    public void addValidationData(DataValidation dataValidation) {
+        getWorkbook().checkNotWriting();
+        super.addValidationData(dataValidation);
+    }
+
+    @Override
+    public EmittingSXSSFWorkbook getWorkbook() {
+        return (EmittingSXSSFWorkbook)super.getWorkbook();
+    }
+
+    /**
+     * The sheet data isn't buffered, so it can't be read again
+     */
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        throw new UnsupportedOperationException("The sheet data is streamed to the package and can't be read");
+    }
+
+    @Override
+    void writeSheetData(OutputStream out) throws IOException {
+        _writer = new StreamingSheetWriter(out);
+        boolean success = false;
+        try {
+            if (rowGenerator != null) {
+                rowGenerator.generateRows(this);
+            }
+            flushRows(0);
+            success = true;
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to generate the rows of sheet " + getSheetName(), e);
+        } finally {
+            if (!success) {
+                // the rows of the failed run must not be written by the next write()
+                discardRows();
+            }
+            _writer.close();
+            _writer = null;
+        }
+    }
+
+    /**
+     * There's no temp file to delete
+     */
+    @Override
+    boolean dispose() {
+        return true;
+    }
+}
@@ -0,0 +1,172 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Name;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+
+/**
+ * Streaming workbook which doesn't buffer the sheet data in temp files.
+ * <p>
+ * The rows of each {@link EmittingSXSSFSheet} are produced by a
+ * {@link RowGeneratorFunction} while the workbook is written and the
+ * flushed rows go directly into the zip entry of the worksheet.
+ * This avoids writing and re-reading every row through the file system,
+ * which is the main cost of {@link SXSSFWorkbook} for big sheets.
+ * <p>
+ * As the workbook parts (e.g. the styles) are written before the sheet data,
+ * the following restrictions apply:
+ * <ul>
+ *   <li>cell styles, fonts, names and sheet settings have to be created before {@link #write(OutputStream)},
+ *   see {@link RowGeneratorFunction#generateRows(SXSSFSheet)}</li>
+ *   <li>strings are always written inline, a shared strings table isn't supported</li>
+ *   <li>rows can only be created by the row generator</li>
+ * </ul>
+ *
+ * <pre>
+ * try (EmittingSXSSFWorkbook wb = new EmittingSXSSFWorkbook()) {
+ *     EmittingSXSSFSheet sheet = wb.createSheet("Data");
+ *     sheet.setRowGenerator(sh -&gt; {
+ *         for (int i = 0; i &lt; 1_000_000; i++) {
+ *             sh.createRow(i).createCell(0).setCellValue(i);
+ *         }
+ *     });
+ *     wb.write(out);
+ * }
+ * </pre>
+ *
+ * @since 4.0.0
+ */
+public class EmittingSXSSFWorkbook extends SXSSFWorkbook {
+    private boolean writing;
+
+    /**
+     * Construct a new workbook with default row window size
+     */
+    public EmittingSXSSFWorkbook() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Construct an empty workbook and specify the window for row access.
+     *
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out,
+     *  see {@link SXSSFWorkbook#SXSSFWorkbook(int)}
+     */
+    public EmittingSXSSFWorkbook(int rowAccessWindowSize) {
+        super(null, rowAccessWindowSize, false, false);
+    }
+
+    @Override
+    SXSSFSheet createSXSSFSheet(XSSFSheet xSheet) {
+        return new EmittingSXSSFSheet(this, xSheet);
+    }
+
+    @Override
+    public EmittingSXSSFSheet createSheet() {
+        return (EmittingSXSSFSheet)super.createSheet();
+    }
+
+    @Override
+    public EmittingSXSSFSheet createSheet(String sheetname) {
+        return (EmittingSXSSFSheet)super.createSheet(sheetname);
+    }
+
+    @Override
+    public EmittingSXSSFSheet getSheetAt(int index) {
+        return (EmittingSXSSFSheet)super.getSheetAt(index);
+    }
+
+    @Override
+    public EmittingSXSSFSheet getSheet(String name) {
+        return (EmittingSXSSFSheet)super.getSheet(name);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the styles are already written
+     */
+    @Override
+    public CellStyle createCellStyle() {
+        checkNotWriting();
+        return super.createCellStyle();
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the styles are already written
+     */
+    @Override
+    public Font createFont() {
+        checkNotWriting();
+        return super.createFont();
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the names are already written
+     */
+    @Override
+    public Name createName() {
+        checkNotWriting();
+        return super.createName();
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the names are already written
+     */
+    @Override
+    public void setPrintArea(int sheetIndex, String reference) {
+        checkNotWriting();
+        super.setPrintArea(sheetIndex, reference);
+    }
+
+    /**
+     * @throws IllegalStateException if called by a row generator, as the names are already written
+     */
+    @Override
+    public void setPrintArea(int sheetIndex, int startColumn, int endColumn, int startRow, int endRow) {
+        checkNotWriting();
+        super.setPrintArea(sheetIndex, startColumn, endColumn, startRow, endRow);
+    }
+
+    /* package */ void checkNotWriting() {
+        if (writing) {
+            throw new IllegalStateException("Only rows can be created while the workbook is written, "
+                    + "styles, fonts, names and sheet settings need to be set up before");
+        }
+    }
+
+    /**
+     * Write out this workbook to an OutputStream - the rows of the sheets are
+     * created by their row generators in the course of this call.
+     *
+     * @param stream - the java OutputStream you wish to write to
+     * @exception IOException if anything can't be written or a row generator failed
+     */
+    @Override
+    public void write(OutputStream stream) throws IOException {
+        writing = true;
+        try {
+            super.write(stream);
+        } finally {
+            writing = false;
+        }
+    }
+}
@@ -0,0 +1,348 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.LittleEndian;
+
+/**
+ * Fast LZ77 temp file codec in the spirit of LZ4: the data is split into blocks
+ * of 64k, repeated sequences of at least 4 bytes within a block are replaced by
+ * back references found via a hash table.
+ * <p>
+ * The repetitive sheet XML typically shrinks to a third or less, at a fraction
+ * of the CPU time of deflate.  The format is private to this class, the temp
+ * files are not meant to be read by other tools.
+ * <p>
+ * Block layout: raw length (int), compressed length (int, -1 if the block is stored),
+ * followed by the sequences - a token byte with the literal length in the high
+ * and the match length - 4 in the low nibble, the literals and the match offset (short).
+ * Lengths of 15 and above continue in the following bytes, each 255 announces another byte.
+ * The last sequence of a block consists only of literals.
+ *
+ * @since 4.0.0
+ */
+public class LZTempFileCodec implements TempFileCodec {
+    static final int BLOCK_SIZE = 64*1024;
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int HASH_LOG = 14;
+    private static final int HEADER_SIZE = 2*LittleEndian.INT_SIZE;
+
+    @Override
+    public String getFileSuffix() {
+        return ".lz";
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) {
+        return new LZOutputStream(os);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) {
+        return new LZInputStream(is);
+    }
+
+    /**
+     * Compress a block
+     *
+     * @param src the uncompressed data
+     * @param srcLen the length of the data
+     * @param dst the output buffer, at least as long as srcLen
+     * @param table the hash table, will be cleared
+     * @return the compressed length or -1 if the data can't be compressed
+     */
+    static int compressBlock(byte[] src, int srcLen, byte[] dst, int[] table) {
+        Arrays.fill(table, -1);
+        final int matchLimit = srcLen - MIN_MATCH;
+        int anchor = 0, ip = 0, op = 0;
+        while (ip <= matchLimit) {
+            int seq = readInt(src, ip);
+            int h = (seq * -1640531535) >>> (32 - HASH_LOG);
+            int ref = table[h];
+            table[h] = ip;
+            if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+                ip++;
+                continue;
+            }
+            int len = MIN_MATCH;
+            while (ip + len < srcLen && src[ref + len] == src[ip + len]) {
+                len++;
+            }
+            op = writeSequence(src, anchor, ip - anchor, ip - ref, len, dst, op, srcLen);
+            if (op < 0) {
+                return -1;
+            }
+            ip += len;
+            anchor = ip;
+        }
+        op = writeSequence(src, anchor, srcLen - anchor, 0, 0, dst, op, srcLen);
+        return (op < srcLen) ? op : -1;
+    }
+
+    private static int writeSequence(byte[] src, int anchor, int litLen, int offset, int matchLen,
+                                     byte[] dst, int op, int dstLimit) {
+        // token + literal length bytes + literals + offset + match length bytes
+        int needed = 1 + (litLen/255 + 1) + litLen + 2 + (matchLen/255 + 1);
+        if (op + needed > dstLimit) {
+            return -1;
+        }
+        final int tokenPos = op++;
+        int token;
+        if (litLen >= 15) {
+            token = 15 << 4;
+            op = writeLength(dst, op, litLen - 15);
+        } else {
+            token = litLen << 4;
+        }
+        System.arraycopy(src, anchor, dst, op, litLen);
+        op += litLen;
+        if (matchLen > 0) {
+            dst[op++] = (byte)offset;
+            dst[op++] = (byte)(offset >>> 8);
+            int ml = matchLen - MIN_MATCH;
+            if (ml >= 15) {
+                token |= 15;
+                op = writeLength(dst, op, ml - 15);
+            } else {
+                token |= ml;
+            }
+        }
+        dst[tokenPos] = (byte)token;
+        return op;
+    }
+
+    private static int writeLength(byte[] dst, int op, int len) {
+        while (len >= 255) {
+            dst[op++] = (byte)255;
+            len -= 255;
+        }
+        dst[op++] = (byte)len;
+        return op;
+    }
+
+    /**
+     * Decompress a block
+     *
+     * @param src the compressed data
+     * @param srcLen the compressed length
+     * @param dst the output buffer
+     * @param dstLen the uncompressed length
+     * @throws IOException if the data is corrupt
+     */
+    static void decompressBlock(byte[] src, int srcLen, byte[] dst, int dstLen) throws IOException {
+        try {
+            int ip = 0, op = 0;
+            while (true) {
+                int token = src[ip++] & 0xFF;
+                int litLen = token >>> 4;
+                if (litLen == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        litLen += b;
+                    } while (b == 255);
+                }
+                System.arraycopy(src, ip, dst, op, litLen);
+                ip += litLen;
+                op += litLen;
+                if (op == dstLen) {
+                    break;
+                }
+                int offset = (src[ip++] & 0xFF) | ((src[ip++] & 0xFF) << 8);
+                int matchLen = token & 0x0F;
+                if (matchLen == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLen += b;
+                    } while (b == 255);
+                }
+                matchLen += MIN_MATCH;
+                int ref = op - offset;
+                if (offset == 0 || ref < 0 || op + matchLen > dstLen) {
+                    throw new IOException("Invalid match in compressed block");
+                }
+                // byte wise copy, as the match may overlap the output
+                for (int i=0; i<matchLen; i++) {
+                    dst[op++] = dst[ref++];
+                }
+            }
+            if (ip != srcLen) {
+                throw new IOException("Compressed block has trailing data");
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Compressed block is corrupt", e);
+        }
+    }
+
+    private static int readInt(byte[] buf, int pos) {
+        return (buf[pos] & 0xFF) | ((buf[pos+1] & 0xFF) << 8)
+            | ((buf[pos+2] & 0xFF) << 16) | ((buf[pos+3] & 0xFF) << 24);
+    }
+
+    private static class LZOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final byte[] buf = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[BLOCK_SIZE];
+        private final int[] table = new int[1 << HASH_LOG];
+        private final byte[] header = new byte[HEADER_SIZE];
+        private int count;
+        private boolean closed;
+
+        LZOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == BLOCK_SIZE) {
+                writeBlock();
+            }
+            buf[count++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == BLOCK_SIZE) {
+                    writeBlock();
+                }
+                int n = Math.min(len, BLOCK_SIZE - count);
+                System.arraycopy(b, off, buf, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            int compLen = compressBlock(buf, count, compressed, table);
+            LittleEndian.putInt(header, 0, count);
+            LittleEndian.putInt(header, LittleEndian.INT_SIZE, compLen);
+            out.write(header);
+            if (compLen < 0) {
+                out.write(buf, 0, count);
+            } else {
+                out.write(compressed, 0, compLen);
+            }
+            count = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writeBlock();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeBlock();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static class LZInputStream extends InputStream {
+        private final InputStream in;
+        private final byte[] buf = new byte[BLOCK_SIZE];
+        private final byte[] compressed = new byte[BLOCK_SIZE];
+        private final byte[] header = new byte[HEADER_SIZE];
+        private int pos, limit;
+
+        LZInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        private boolean readBlock() throws IOException {
+            int read = IOUtils.readFully(in, header, 0, HEADER_SIZE);
+            if (read <= 0) {
+                return false;
+            }
+            if (read < HEADER_SIZE) {
+                throw new IOException("Truncated block header");
+            }
+            int rawLen = LittleEndian.getInt(header, 0);
+            int compLen = LittleEndian.getInt(header, LittleEndian.INT_SIZE);
+            if (rawLen <= 0 || rawLen > BLOCK_SIZE || compLen < -1 || compLen >= rawLen) {
+                throw new IOException("Invalid block header, raw length: " + rawLen + ", compressed length: " + compLen);
+            }
+            if (compLen < 0) {
+                readBlockData(buf, rawLen);
+            } else {
+                readBlockData(compressed, compLen);
+                decompressBlock(compressed, compLen, buf, rawLen);
+            }
+            pos = 0;
+            limit = rawLen;
+            return true;
+        }
+
+        private void readBlockData(byte[] b, int len) throws IOException {
+            if (IOUtils.readFully(in, b, 0, len) != len) {
+                throw new IOException("Truncated block");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos == limit && !readBlock()) {
+                return -1;
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (pos == limit && !readBlock()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - pos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+/**
+ * Callback which creates the rows of an {@link EmittingSXSSFSheet} while
+ * the workbook is written.
+ *
+ * @see EmittingSXSSFSheet#setRowGenerator(RowGeneratorFunction)
+ * @since 4.0.0
+ */
+@FunctionalInterface
+public interface RowGeneratorFunction {
+
+    /**
+     * Create the rows of the given sheet via {@link SXSSFSheet#createRow(int)}.
+     * Rows are flushed to the output according to the row access window of the workbook.
+     * <p>
+     * All other parts of the workbook are already written at this point, so the generator
+     * must only create rows and cells. Creating cell styles, fonts or names and changing
+     * merged regions, column widths or panes throws an {@link IllegalStateException},
+     * other changes to the workbook or sheets (e.g. new data formats) would be lost.
+     *
+     * @param sheet the sheet to fill
+     * @throws Exception if the data can't be produced, the exception is rethrown
+     *  as {@link java.io.IOException} by {@link EmittingSXSSFWorkbook#write(java.io.OutputStream)}
+     */
+    void generateRows(SXSSFSheet sheet) throws Exception;
+}
@@ -0,0 +1,562 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.FontScheme;
+import org.apache.poi.ss.usermodel.SheetVisibility;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.binary.XSSFBRecordType;
+import org.apache.poi.xssf.binary.XSSFBRecordWriter;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFColor;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder.BorderSide;
+import org.apache.poi.xssf.usermodel.extensions.XSSFCellFill;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCellAlignment;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCellProtection;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCol;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCols;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTColor;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTXf;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STPatternType;
+
+/**
+ * Streaming workbook which writes the binary Excel 2007+ format (.xlsb)
+ * instead of the XML based .xlsx format.
+ * <p>
+ * Rows are flushed like in {@link SXSSFWorkbook}, but each row is stored as
+ * binary records (see {@link XSSFBSheetDataWriter}), which are considerably
+ * smaller and faster to produce than the XML of the same row.
+ * When the workbook is written, the package consisting of the workbook, styles
+ * and worksheet parts is assembled directly from the temp files.
+ * <p>
+ * Only a subset of the spreadsheet features is supported:
+ * <ul>
+ *   <li>cell values (no formulas) - strings are always written inline</li>
+ *   <li>cell styles, i.e. number formats, fonts, fills, borders and alignment</li>
+ *   <li>row heights/styles/outlines, column widths and merged regions</li>
+ *   <li>sheet names and visibility, active sheet and the 1904 date system</li>
+ * </ul>
+ * Other sheet content like comments, drawings, hyperlinks, data validations or
+ * conditional formatting is silently ignored on writing.
+ *
+ * @since 4.0.0
+ */
+public class SXSSFBWorkbook extends SXSSFWorkbook {
+    private static final String WORKBOOK_PART = "xl/workbook.bin";
+    private static final String STYLES_PART = "xl/styles.bin";
+    private static final String WORKSHEET_PART = "xl/worksheets/sheet#.bin";
+
+    private static final String WORKSHEET_CONTENT_TYPE = "application/vnd.ms-excel.worksheet";
+    private static final String STYLES_CONTENT_TYPE = "application/vnd.ms-excel.styles";
+
+    /**
+     * Construct a new workbook with default row window size
+     */
+    public SXSSFBWorkbook() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Construct an empty workbook and specify the window for row access.
+     *
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out,
+     *  see {@link SXSSFWorkbook#SXSSFWorkbook(int)}
+     */
+    public SXSSFBWorkbook(int rowAccessWindowSize) {
+        super(null, rowAccessWindowSize);
+    }
+
+    /**
+     * The binary sheet data is not compressed, so neither {@link #setCompressTempFiles(boolean)}
+     * nor {@link #setTempFileCodec(TempFileCodec)} have an effect on this workbook.
+     */
+    @Override
+    protected SheetDataWriter createSheetDataWriter() throws IOException {
+        return new XSSFBSheetDataWriter();
+    }
+
+    /**
+     * Write out this workbook as .xlsb to an OutputStream.
+     *
+     * @param stream - the java OutputStream you wish to write to
+     * @exception IOException if anything can't be written.
+     */
+    @Override
+    public void write(OutputStream stream) throws IOException {
+        flushSheets();
+
+        ZipArchiveOutputStream zos = new ZipArchiveOutputStream(stream);
+        try {
+            final int numSheets = getNumberOfSheets();
+
+            putTextEntry(zos, "[Content_Types].xml", getContentTypes(numSheets));
+            putTextEntry(zos, "_rels/.rels", getPackageRelationships());
+            putTextEntry(zos, "xl/_rels/workbook.bin.rels", getWorkbookRelationships(numSheets));
+
+            XSSFBRecordWriter rw = new XSSFBRecordWriter(zos);
+
+            zos.putArchiveEntry(new ZipArchiveEntry(WORKBOOK_PART));
+            writeWorkbookPart(rw);
+            zos.closeArchiveEntry();
+
+            zos.putArchiveEntry(new ZipArchiveEntry(STYLES_PART));
+            writeStylesPart(rw, getXSSFWorkbook().getStylesSource());
+            zos.closeArchiveEntry();
+
+            for (int i=0; i<numSheets; i++) {
+                zos.putArchiveEntry(new ZipArchiveEntry(getWorksheetPartName(i)));
+                writeWorksheetPart(rw, zos, getSheetAt(i));
+                zos.closeArchiveEntry();
+            }
+        } finally {
+            zos.finish();
+        }
+    }
+
+    private static String getWorksheetPartName(int sheetIndex) {
+        return WORKSHEET_PART.replace("#", Integer.toString(sheetIndex+1));
+    }
+
+    private static void putTextEntry(ZipArchiveOutputStream zos, String name, String text) throws IOException {
+        zos.putArchiveEntry(new ZipArchiveEntry(name));
+        zos.write(text.getBytes(StandardCharsets.UTF_8));
+        zos.closeArchiveEntry();
+    }
+
+    private static String getContentTypes(int numSheets) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        sb.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+        sb.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        sb.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        appendOverride(sb, WORKBOOK_PART, XSSFRelation.XLSB_BINARY_WORKBOOK.getContentType());
+        appendOverride(sb, STYLES_PART, STYLES_CONTENT_TYPE);
+        for (int i=0; i<numSheets; i++) {
+            appendOverride(sb, getWorksheetPartName(i), WORKSHEET_CONTENT_TYPE);
+        }
+        sb.append("</Types>");
+        return sb.toString();
+    }
+
+    private static void appendOverride(StringBuilder sb, String partName, String contentType) {
+        sb.append("<Override PartName=\"/").append(partName)
+          .append("\" ContentType=\"").append(contentType).append("\"/>");
+    }
+
+    private static String getPackageRelationships() {
+        StringBuilder sb = new StringBuilder();
+        appendRelationshipsStart(sb);
+        appendRelationship(sb, "rId1", PackageRelationshipTypes.CORE_DOCUMENT, WORKBOOK_PART);
+        sb.append("</Relationships>");
+        return sb.toString();
+    }
+
+    private static String getWorkbookRelationships(int numSheets) {
+        StringBuilder sb = new StringBuilder();
+        appendRelationshipsStart(sb);
+        for (int i=0; i<numSheets; i++) {
+            appendRelationship(sb, "rId"+(i+1), XSSFRelation.WORKSHEET.getRelation(),
+                    getWorksheetPartName(i).substring("xl/".length()));
+        }
+        appendRelationship(sb, "rId"+(numSheets+1), PackageRelationshipTypes.STYLE_PART,
+                STYLES_PART.substring("xl/".length()));
+        sb.append("</Relationships>");
+        return sb.toString();
+    }
+
+    private static void appendRelationshipsStart(StringBuilder sb) {
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        sb.append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+    }
+
+    private static void appendRelationship(StringBuilder sb, String id, String type, String target) {
+        sb.append("<Relationship Id=\"").append(id)
+          .append("\" Type=\"").append(type)
+          .append("\" Target=\"").append(target).append("\"/>");
+    }
+
+    private void writeWorkbookPart(XSSFBRecordWriter rw) throws IOException {
+        rw.writeRecord(XSSFBRecordType.BrtBeginBook);
+
+        rw.beginRecord(XSSFBRecordType.BrtWbProp);
+        rw.writeInt(isDate1904() ? 1 : 0);
+        // dwThemeVersion
+        rw.writeInt(0);
+        // code name
+        rw.writeXLWideString("");
+        rw.endRecord();
+
+        rw.writeRecord(XSSFBRecordType.BrtBeginBookViews);
+        rw.beginRecord(XSSFBRecordType.BrtBookView);
+        // window position and size in twips
+        rw.writeInt(0);
+        rw.writeInt(0);
+        rw.writeInt(28800);
+        rw.writeInt(12300);
+        // iTabRatio
+        rw.writeInt(600);
+        rw.writeInt(getFirstVisibleTab());
+        rw.writeInt(getActiveSheetIndex());
+        // fDspHScroll, fDspVScroll, fBotAdornment, fAFDateGroup
+        rw.writeByte(0xF0);
+        rw.endRecord();
+        rw.writeRecord(XSSFBRecordType.BrtEndBookViews);
+
+        rw.writeRecord(XSSFBRecordType.BrtBeginBundleShs);
+        for (int i=0; i<getNumberOfSheets(); i++) {
+            rw.beginRecord(XSSFBRecordType.BrtBundleSh);
+            SheetVisibility visibility = getSheetVisibility(i);
+            rw.writeInt(visibility == SheetVisibility.VERY_HIDDEN ? 2 : visibility == SheetVisibility.HIDDEN ? 1 : 0);
+            rw.writeInt(i+1);
+            rw.writeXLNullableWideString("rId"+(i+1));
+            rw.writeXLWideString(getSheetName(i));
+            rw.endRecord();
+        }
+        rw.writeRecord(XSSFBRecordType.BrtEndBundleShs);
+
+        rw.writeRecord(XSSFBRecordType.BrtEndBook);
+    }
+
+    private void writeWorksheetPart(XSSFBRecordWriter rw, OutputStream out, SXSSFSheet sheet) throws IOException {
+        XSSFBSheetDataWriter writer = (XSSFBSheetDataWriter)sheet.getSheetDataWriter();
+        XSSFSheet xSheet = getXSSFSheet(sheet);
+
+        rw.writeRecord(XSSFBRecordType.BrtBeginSheet);
+
+        rw.beginRecord(XSSFBRecordType.BrtWsDim);
+        boolean hasRows = writer.getNumberOfFlushedRows() > 0;
+        rw.writeInt(hasRows ? writer.getLowestIndexOfFlushedRows() : 0);
+        rw.writeInt(hasRows ? writer.getLastFlushedRow() : 0);
+        rw.writeInt(Math.max(0, writer.getFirstColumn()));
+        rw.writeInt(Math.max(0, writer.getLastColumn()));
+        rw.endRecord();
+
+        CTCols[] colsArray = xSheet.getCTWorksheet().getColsArray();
+        if (colsArray.length > 0 && colsArray[0].sizeOfColArray() > 0) {
+            rw.writeRecord(XSSFBRecordType.BrtBeginColInfos);
+            for (CTCols cols : colsArray) {
+                for (CTCol col : cols.getColArray()) {
+                    writeColInfo(rw, col);
+                }
+            }
+            rw.writeRecord(XSSFBRecordType.BrtEndColInfos);
+        }
+
+        rw.writeRecord(XSSFBRecordType.BrtBeginSheetData);
+        sheet.writeSheetData(out);
+        rw.writeRecord(XSSFBRecordType.BrtEndSheetData);
+
+        List<CellRangeAddress> mergedRegions = sheet.getMergedRegions();
+        if (!mergedRegions.isEmpty()) {
+            rw.beginRecord(XSSFBRecordType.BrtBeginMergeCells);
+            rw.writeInt(mergedRegions.size());
+            rw.endRecord();
+            for (CellRangeAddress region : mergedRegions) {
+                rw.beginRecord(XSSFBRecordType.BrtMergeCell);
+                rw.writeInt(region.getFirstRow());
+                rw.writeInt(region.getLastRow());
+                rw.writeInt(region.getFirstColumn());
+                rw.writeInt(region.getLastColumn());
+                rw.endRecord();
+            }
+            rw.writeRecord(XSSFBRecordType.BrtEndMergeCells);
+        }
+
+        rw.writeRecord(XSSFBRecordType.BrtEndSheet);
+    }
+
+    private static void writeColInfo(XSSFBRecordWriter rw, CTCol col) throws IOException {
+        rw.beginRecord(XSSFBRecordType.BrtColInfo);
+        // min/max are 1-based in the xml, but 0-based in the binary format
+        rw.writeInt((int)col.getMin()-1);
+        rw.writeInt((int)col.getMax()-1);
+        // width in 1/256th of a character
+        rw.writeInt(col.isSetWidth() ? (int)(col.getWidth()*256) : 0);
+        rw.writeInt(col.isSetStyle() ? (int)col.getStyle() : 0);
+        int flags = 0;
+        if (col.getHidden()) {
+            flags |= 0x01;
+        }
+        if (col.getCustomWidth()) {
+            flags |= 0x02;
+        }
+        if (col.getBestFit()) {
+            flags |= 0x04;
+        }
+        flags |= (col.getOutlineLevel() & 0x07) << 8;
+        if (col.getCollapsed()) {
+            flags |= 0x1000;
+        }
+        rw.writeShort(flags);
+        rw.endRecord();
+    }
+
+    private static void writeStylesPart(XSSFBRecordWriter rw, StylesTable styles) throws IOException {
+        rw.writeRecord(XSSFBRecordType.BrtBeginStyleSheet);
+
+        Map<Short,String> numberFormats = styles.getNumberFormats();
+        rw.beginRecord(XSSFBRecordType.BrtBeginFmts);
+        rw.writeInt(numberFormats.size());
+        rw.endRecord();
+        for (Map.Entry<Short,String> fmt : numberFormats.entrySet()) {
+            rw.beginRecord(XSSFBRecordType.BrtFmt);
+            rw.writeShort(fmt.getKey());
+            rw.writeXLWideString(fmt.getValue());
+            rw.endRecord();
+        }
+        rw.writeRecord(XSSFBRecordType.BrtEndFmts);
+
+        List<XSSFFont> fonts = styles.getFonts();
+        rw.beginRecord(XSSFBRecordType.BrtBeginFonts);
+        rw.writeInt(fonts.size());
+        rw.endRecord();
+        for (XSSFFont font : fonts) {
+            writeFont(rw, font);
+        }
+        rw.writeRecord(XSSFBRecordType.BrtEndFonts);
+
+        List<XSSFCellFill> fills = styles.getFills();
+        rw.beginRecord(XSSFBRecordType.BrtBeginFills);
+        rw.writeInt(fills.size());
+        rw.endRecord();
+        for (XSSFCellFill fill : fills) {
+            writeFill(rw, fill);
+        }
+        rw.writeRecord(XSSFBRecordType.BrtEndFills);
+
+        List<XSSFCellBorder> borders = styles.getBorders();
+        rw.beginRecord(XSSFBRecordType.BrtBeginBorders);
+        rw.writeInt(borders.size());
+        rw.endRecord();
+        for (XSSFCellBorder border : borders) {
+            writeBorder(rw, border);
+        }
+        rw.writeRecord(XSSFBRecordType.BrtEndBorders);
+
+        int numStyleXfs = styles._getStyleXfsSize();
+        rw.beginRecord(XSSFBRecordType.BrtBeginCellStyleXFS);
+        rw.writeInt(numStyleXfs);
+        rw.endRecord();
+        for (int i=0; i<numStyleXfs; i++) {
+            writeXf(rw, styles.getCellStyleXfAt(i), true);
+        }
+        rw.writeRecord(XSSFBRecordType.BrtEndCellStyleXFS);
+
+        int numXfs = styles.getNumCellStyles();
+        rw.beginRecord(XSSFBRecordType.BrtBeginCellXFs);
+        rw.writeInt(numXfs);
+        rw.endRecord();
+        for (int i=0; i<numXfs; i++) {
+            writeXf(rw, styles.getCellXfAt(i), false);
+        }
+        rw.writeRecord(XSSFBRecordType.BrtEndCellXFs);
+
+        rw.beginRecord(XSSFBRecordType.BrtBeginStyles);
+        rw.writeInt(1);
+        rw.endRecord();
+        rw.beginRecord(XSSFBRecordType.BrtStyle);
+        rw.writeInt(0);
+        // fBuiltIn
+        rw.writeShort(1);
+        // iStyBuiltIn = Normal, iLevel is ignored for Normal
+        rw.writeByte(0);
+        rw.writeByte(0xFF);
+        rw.writeXLWideString("Normal");
+        rw.endRecord();
+        rw.writeRecord(XSSFBRecordType.BrtEndStyles);
+
+        rw.beginRecord(XSSFBRecordType.BrtBeginDXFs);
+        rw.writeInt(0);
+        rw.endRecord();
+        rw.writeRecord(XSSFBRecordType.BrtEndDXFs);
+
+        rw.beginRecord(XSSFBRecordType.BrtBeginTableStyles);
+        rw.writeInt(0);
+        rw.writeXLWideString("TableStyleMedium9");
+        rw.writeXLWideString("PivotStyleLight16");
+        rw.endRecord();
+        rw.writeRecord(XSSFBRecordType.BrtEndTableStyles);
+
+        rw.writeRecord(XSSFBRecordType.BrtEndStyleSheet);
+    }
+
+    private static void writeFont(XSSFBRecordWriter rw, XSSFFont font) throws IOException {
+        rw.beginRecord(XSSFBRecordType.BrtFont);
+        rw.writeShort(font.getFontHeight());
+        int grbit = 0;
+        if (font.getItalic()) {
+            grbit |= 0x02;
+        }
+        if (font.getStrikeout()) {
+            grbit |= 0x08;
+        }
+        rw.writeShort(grbit);
+        rw.writeShort(font.getBold() ? 700 : 400);
+        rw.writeShort(font.getTypeOffset());
+        rw.writeByte(font.getUnderline());
+        rw.writeByte(font.getFamily());
+        rw.writeByte(font.getCharSet());
+        rw.writeByte(0);
+        writeColor(rw, font.getXSSFColor());
+        FontScheme scheme = font.getScheme();
+        rw.writeByte(scheme == null ? 0 : scheme.getValue()-1);
+        rw.writeXLWideString(font.getFontName());
+        rw.endRecord();
+    }
+
+    private static void writeFill(XSSFBRecordWriter rw, XSSFCellFill fill) throws IOException {
+        rw.beginRecord(XSSFBRecordType.BrtFill);
+        // the binary fill pattern ids are the xml ones minus one
+        STPatternType.Enum patternType = fill.getPatternType();
+        rw.writeInt(patternType == null ? 0 : patternType.intValue()-1);
+        writeColor(rw, fill.getFillForegroundColor());
+        writeColor(rw, fill.getFillBackgroundColor());
+        // gradient type, degree, fill-to-left/right/top/bottom and the number of gradient stops
+        rw.writeZeros(4 + 5*8 + 4);
+        rw.endRecord();
+    }
+
+    private static void writeBorder(XSSFBRecordWriter rw, XSSFCellBorder border) throws IOException {
+        rw.beginRecord(XSSFBRecordType.BrtBorder);
+        // diagonal up/down flags
+        rw.writeByte(0);
+        for (BorderSide side : new BorderSide[]{BorderSide.TOP, BorderSide.BOTTOM, BorderSide.LEFT, BorderSide.RIGHT}) {
+            BorderStyle style = border.getBorderStyle(side);
+            rw.writeByte(style == null ? 0 : style.getCode());
+            rw.writeByte(0);
+            writeColor(rw, border.getBorderColor(side));
+        }
+        // diagonal border
+        rw.writeZeros(2);
+        writeColor(rw, null);
+        rw.endRecord();
+    }
+
+    private static void writeXf(XSSFBRecordWriter rw, CTXf xf, boolean isStyleXf) throws IOException {
+        rw.beginRecord(XSSFBRecordType.BrtXf);
+        rw.writeShort(isStyleXf ? 0xFFFF : (int)xf.getXfId());
+        rw.writeShort((int)xf.getNumFmtId());
+        rw.writeShort((int)xf.getFontId());
+        rw.writeShort((int)xf.getFillId());
+        rw.writeShort((int)xf.getBorderId());
+
+        int alc = 0, alcv = 2, flags = 0, trot = 0, indent = 0;
+        if (xf.isSetAlignment()) {
+            CTCellAlignment align = xf.getAlignment();
+            // the binary alignment ids are the xml ones minus one
+            if (align.isSetHorizontal()) {
+                alc = align.getHorizontal().intValue()-1;
+            }
+            if (align.isSetVertical()) {
+                alcv = align.getVertical().intValue()-1;
+            }
+            if (align.getWrapText()) {
+                flags |= 0x40;
+            }
+            if (align.getShrinkToFit()) {
+                flags |= 0x100;
+            }
+            trot = (int)align.getTextRotation();
+            indent = (int)align.getIndent();
+        }
+        boolean locked = true, hidden = false;
+        if (xf.isSetProtection()) {
+            CTCellProtection protection = xf.getProtection();
+            locked = !protection.isSetLocked() || protection.getLocked();
+            hidden = protection.isSetHidden() && protection.getHidden();
+        }
+        if (locked) {
+            flags |= 0x1000;
+        }
+        if (hidden) {
+            flags |= 0x2000;
+        }
+        rw.writeByte(trot);
+        rw.writeByte(indent);
+        rw.writeShort(flags | alc | (alcv << 3));
+
+        int atr = 0;
+        if (xf.getApplyNumberFormat()) {
+            atr |= 0x01;
+        }
+        if (xf.getApplyFont()) {
+            atr |= 0x02;
+        }
+        if (xf.getApplyAlignment()) {
+            atr |= 0x04;
+        }
+        if (xf.getApplyBorder()) {
+            atr |= 0x08;
+        }
+        if (xf.getApplyFill()) {
+            atr |= 0x10;
+        }
+        if (xf.getApplyProtection()) {
+            atr |= 0x20;
+        }
+        rw.writeShort(atr);
+        rw.endRecord();
+    }
+
+    /**
+     * Writes a BrtColor structure, <code>null</code> is written as automatic color
+     */
+    private static void writeColor(XSSFBRecordWriter rw, XSSFColor color) {
+        CTColor ctColor = (color == null) ? null : color.getCTColor();
+        int colorType = 0, index = 0;
+        byte[] argb = null;
+        if (ctColor != null) {
+            if (ctColor.isSetRgb()) {
+                colorType = 2;
+                argb = color.getARGB();
+            } else if (ctColor.isSetTheme()) {
+                colorType = 3;
+                index = (int)ctColor.getTheme();
+            } else if (ctColor.isSetIndexed()) {
+                colorType = 1;
+                index = (int)ctColor.getIndexed();
+            }
+        }
+        // xColorType in the upper 7 bits, fValidRGB in the lowest bit
+        rw.writeByte((colorType << 1) | (argb != null ? 1 : 0));
+        rw.writeByte(index);
+        rw.writeShort(ctColor != null && ctColor.isSetTint() ? (short)(ctColor.getTint()*Short.MAX_VALUE) : 0);
+        if (argb != null) {
+            rw.writeByte(argb[1]);
+            rw.writeByte(argb[2]);
+            rw.writeByte(argb[3]);
+            rw.writeByte(argb[0]);
+        } else {
+            rw.writeZeros(4);
+        }
+    }
+}
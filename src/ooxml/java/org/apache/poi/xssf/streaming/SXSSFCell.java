@@ -48,17 +48,39 @@ import org.apache.poi.xssf.usermodel.XSSFRichTextString;
 public class SXSSFCell implements Cell {
     private static final POILogger logger = POILogFactory.getLogger(SXSSFCell.class);
 
+    private static final BlankValue BLANK = new BlankValue();
+
     private final SXSSFRow _row;
+    private final int _column;
     private Value _value;
     private CellStyle _style;
     private Property _firstProperty;
     
     public SXSSFCell(SXSSFRow row, CellType cellType)
+    {
+        this(row, -1, cellType);
+    }
+
+    /**
+     * @param row the parent row
+     * @param column the column index, which is used to keep the cells of the row sorted
+     * @param cellType the initial cell type
+     */
+    SXSSFCell(SXSSFRow row, int column, CellType cellType)
     {
         _row=row;
+        _column=column;
         setType(cellType);
     }
 
+    /**
+     * @return the column this cell was created for, regardless whether it's still part of the row
+     */
+    int getColumn()
+    {
+        return _column;
+    }
+
 //start of interface implementation
 
     /**
@@ -910,7 +932,8 @@ public class SXSSFCell implements Cell {
             }
             case BLANK:
             {
-                _value = new BlankValue();
+                // the blank value has no state, so it's shared by all blank cells
+                _value = BLANK;
                 break;
             }
             case BOOLEAN:
@@ -81,6 +81,11 @@ public final class SXSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
 
         return new SXSSFEvaluationCell((SXSSFCell)cell);
     }
+
+    @Override
+    protected Cell toCell(EvaluationCell cell) {
+        return ((SXSSFEvaluationCell)cell).getSXSSFCell();
+    }
     
     @Override
     public SXSSFCell evaluateInCell(Cell cell) {
@@ -94,8 +99,10 @@ public final class SXSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
      *  it can either skip them silently, or give an exception
      */
     public static void evaluateAllFormulaCells(SXSSFWorkbook wb, boolean skipOutOfWindow) {
-        SXSSFFormulaEvaluator eval = new SXSSFFormulaEvaluator(wb);
-        
+        evaluateAllFormulaCells(wb, new SXSSFFormulaEvaluator(wb), skipOutOfWindow);
+    }
+
+    private static void evaluateAllFormulaCells(SXSSFWorkbook wb, SXSSFFormulaEvaluator eval, boolean skipOutOfWindow) {
         // Check they're all available
         for (Sheet sheet : wb) {
             if (((SXSSFSheet)sheet).areAllRowsFlushed()) {
@@ -133,7 +140,7 @@ public final class SXSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
      */
     public void evaluateAll() {
         // Have the evaluation done, with exceptions
-        evaluateAllFormulaCells(wb, false);
+        evaluateAllFormulaCells(wb, this, false);
     }
     
     public static class SheetsFlushedException extends IllegalStateException {
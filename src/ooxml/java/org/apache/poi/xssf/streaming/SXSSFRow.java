@@ -17,11 +17,10 @@
 
 package org.apache.poi.xssf.streaming;
 
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
-import java.util.Map.Entry;
 import java.util.NoSuchElementException;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.eval.NotImplementedException;
@@ -35,13 +34,21 @@ import org.apache.poi.util.NotImplemented;
 
 /**
  * Streaming version of XSSFRow implementing the "BigGridDemo" strategy.
+ * <p>
+ * The cells are kept in an array sorted by their column index - compared to a
+ * sorted map, this saves the map entries and boxed column indexes of every cell
+ * of the rows in the random access window.
  */
 public class SXSSFRow implements Row, Comparable<SXSSFRow>
 {
     private static final Boolean UNDEFINED = null;
+    private static final SXSSFCell[] NO_CELLS = {};
     
     private final SXSSFSheet _sheet; // parent sheet
-    private final SortedMap<Integer, SXSSFCell> _cells = new TreeMap<>();
+    private SXSSFCell[] _cells = NO_CELLS; // sorted by column index
+    private int _numCells;
+    private int _modCount;
+    private int _rowNum = -1; // maintained by the sheet
     private short _style = -1; // index of cell style in style table
     private short _height = -1; // row height in twips (1/20 point)
     private boolean _zHeight; // row zero-height (this is somehow different than being hidden)
@@ -139,11 +146,67 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     public SXSSFCell createCell(int column, CellType type)
     {
         checkBounds(column);
-        SXSSFCell cell = new SXSSFCell(this, type);
-        _cells.put(column, cell);
+        SXSSFCell cell = new SXSSFCell(this, column, type);
+        int idx = findCell(column);
+        if (idx >= 0) {
+            _cells[idx] = cell;
+        } else {
+            insertCell(-(idx + 1), cell);
+        }
         return cell;
     }
 
+    /**
+     * @return the index of the cell in the cells array or <code>-(insertion point)-1</code>
+     */
+    private int findCell(int column)
+    {
+        // cells are usually created from left to right
+        if (_numCells == 0 || _cells[_numCells-1].getColumn() < column) {
+            return -(_numCells + 1);
+        }
+        int low = 0, high = _numCells - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midCol = _cells[mid].getColumn();
+            if (midCol < column) {
+                low = mid + 1;
+            } else if (midCol > column) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertCell(int idx, SXSSFCell cell)
+    {
+        if (_numCells == _cells.length) {
+            _cells = Arrays.copyOf(_cells, Math.max(8, _numCells + (_numCells >> 1)));
+        }
+        System.arraycopy(_cells, idx, _cells, idx + 1, _numCells - idx);
+        _cells[idx] = cell;
+        _numCells++;
+        _modCount++;
+    }
+
+    private SXSSFCell getCellInternal(int column)
+    {
+        int idx = findCell(column);
+        return idx >= 0 ? _cells[idx] : null;
+    }
+
+    void setRowNumInternal(int rowNum)
+    {
+        _rowNum = rowNum;
+    }
+
+    int getRowNumInternal()
+    {
+        return _rowNum;
+    }
+
     /**
      * @throws RuntimeException if the bounds are exceeded.
      */
@@ -166,7 +229,12 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     public void removeCell(Cell cell)
     {
         int index = getCellIndex((SXSSFCell) cell);
-        _cells.remove(index);
+        if (index >= 0) {
+            int idx = findCell(index);
+            System.arraycopy(_cells, idx + 1, _cells, idx, _numCells - idx - 1);
+            _cells[--_numCells] = null;
+            _modCount++;
+        }
     }
 
     /**
@@ -178,12 +246,9 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
      */
     /*package*/ int getCellIndex(SXSSFCell cell)
     {
-        for (Entry<Integer, SXSSFCell> entry : _cells.entrySet()) {
-            if (entry.getValue()==cell) {
-                return entry.getKey();
-            }
-        }
-        return -1;
+        int column = cell.getColumn();
+        int idx = findCell(column);
+        return (idx >= 0 && _cells[idx] == cell) ? column : -1;
     }
 
     /**
@@ -236,7 +301,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     {
         checkBounds(cellnum);
         
-        final SXSSFCell cell = _cells.get(cellnum);
+        final SXSSFCell cell = getCellInternal(cellnum);
         switch (policy) {
             case RETURN_NULL_AND_BLANK:
                 return cell;
@@ -259,11 +324,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public short getFirstCellNum()
     {
-        try {
-            return _cells.firstKey().shortValue();
-        } catch (final NoSuchElementException e) {
-            return -1;
-        }
+        return _numCells == 0 ? -1 : (short)_cells[0].getColumn();
     }
 
     /**
@@ -288,7 +349,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public short getLastCellNum()
     {
-        return _cells.isEmpty() ? -1 : (short)(_cells.lastKey() + 1);
+        return _numCells == 0 ? -1 : (short)(_cells[_numCells-1].getColumn() + 1);
     }
 
     /**
@@ -300,7 +361,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     @Override
     public int getPhysicalNumberOfCells()
     {
-        return _cells.size();
+        return _numCells;
     }
 
     /**
@@ -447,17 +508,24 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
      */
     public class FilledCellIterator implements Iterator<Cell>
     {
-        private final Iterator<SXSSFCell> iter = _cells.values().iterator();
+        private final int expectedModCount = _modCount;
+        private int pos;
 
         @Override
         public boolean hasNext()
         {
-            return iter.hasNext();
+            return pos < _numCells;
         }
         @Override
         public Cell next() throws NoSuchElementException
         {
-            return iter.next();
+            if (_modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return _cells[pos++];
         }
         @Override
         public void remove()
@@ -476,6 +544,7 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
     {
         final int maxColumn = getLastCellNum(); //last column PLUS ONE
         int pos;
+        int idx; // index of the next filled cell
 
         @Override
         public boolean hasNext()
@@ -485,10 +554,14 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
         @Override
         public Cell next() throws NoSuchElementException
         {
-            if (hasNext())
-                return _cells.get(pos++);
-            else
+            if (!hasNext())
                 throw new NoSuchElementException();
+            if (idx < _numCells && _cells[idx].getColumn() == pos) {
+                pos++;
+                return _cells[idx++];
+            }
+            pos++;
+            return null;
         }
         @Override
         public void remove()
@@ -544,7 +617,12 @@ public class SXSSFRow implements Row, Comparable<SXSSFRow>
 
     @Override
     public int hashCode() {
-        return _cells.hashCode();
+        // same as the former sorted map of cells
+        int h = 0;
+        for (int i=0; i<_numCells; i++) {
+            h += _cells[i].getColumn() ^ _cells[i].hashCode();
+        }
+        return h;
     }
 
     @Override
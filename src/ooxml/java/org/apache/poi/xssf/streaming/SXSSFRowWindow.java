@@ -0,0 +1,228 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The rows of a {@link SXSSFSheet} which haven't been flushed yet, sorted by row number.
+ * <p>
+ * The rows are kept in an array, where new rows are usually appended at the end and
+ * flushed rows are removed from the front - so both operations are O(1) and there
+ * are no map entries and boxed row numbers like in a sorted map.
+ * Each row knows its row number, so the lookups are binary searches.
+ */
+final class SXSSFRowWindow implements Iterable<SXSSFRow> {
+    private SXSSFRow[] _rows = new SXSSFRow[16];
+    // the rows are stored in [_head, _tail)
+    private int _head, _tail;
+    private int _modCount;
+
+    int size() {
+        return _tail - _head;
+    }
+
+    boolean isEmpty() {
+        return _tail == _head;
+    }
+
+    SXSSFRow first() {
+        return isEmpty() ? null : _rows[_head];
+    }
+
+    SXSSFRow last() {
+        return isEmpty() ? null : _rows[_tail-1];
+    }
+
+    SXSSFRow get(int rownum) {
+        int idx = find(rownum);
+        return idx >= 0 ? _rows[idx] : null;
+    }
+
+    /**
+     * @return the row number of the row or -1 if it's not part of the window
+     */
+    int getRowNum(SXSSFRow row) {
+        int rownum = row.getRowNumInternal();
+        int idx = find(rownum);
+        return (idx >= 0 && _rows[idx] == row) ? rownum : -1;
+    }
+
+    /**
+     * Add the row, an existing row with the same number is replaced
+     */
+    void put(int rownum, SXSSFRow row) {
+        row.setRowNumInternal(rownum);
+        int idx = find(rownum);
+        if (idx >= 0) {
+            _rows[idx] = row;
+            _modCount++;
+            return;
+        }
+        idx = -(idx + 1);
+        if (idx == _head && _head > 0) {
+            _rows[--_head] = row;
+        } else {
+            if (_tail == _rows.length) {
+                idx -= makeRoom();
+            }
+            System.arraycopy(_rows, idx, _rows, idx + 1, _tail - idx);
+            _rows[idx] = row;
+            _tail++;
+        }
+        _modCount++;
+    }
+
+    /**
+     * Compact or grow the array, if the end has been reached
+     *
+     * @return the number of slots the rows have been moved to the front
+     */
+    private int makeRoom() {
+        final int size = size();
+        final int shift = _head;
+        if (size < _rows.length / 2) {
+            System.arraycopy(_rows, _head, _rows, 0, size);
+        } else {
+            SXSSFRow[] rows = new SXSSFRow[_rows.length * 2];
+            System.arraycopy(_rows, _head, rows, 0, size);
+            _rows = rows;
+        }
+        for (int i = size; i < _tail; i++) {
+            _rows[i] = null;
+        }
+        _head = 0;
+        _tail = size;
+        return shift;
+    }
+
+    /**
+     * @return true, if the row was part of the window
+     */
+    boolean remove(SXSSFRow row) {
+        int idx = find(row.getRowNumInternal());
+        if (idx < 0 || _rows[idx] != row) {
+            return false;
+        }
+        removeAt(idx);
+        return true;
+    }
+
+    SXSSFRow removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        SXSSFRow row = _rows[_head];
+        _rows[_head++] = null;
+        if (_head == _tail) {
+            _head = _tail = 0;
+        }
+        _modCount++;
+        return row;
+    }
+
+    void clear() {
+        for (int i = _head; i < _tail; i++) {
+            _rows[i] = null;
+        }
+        _head = _tail = 0;
+        _modCount++;
+    }
+
+    private void removeAt(int idx) {
+        if (idx == _head) {
+            removeFirst();
+            return;
+        }
+        System.arraycopy(_rows, idx + 1, _rows, idx, _tail - idx - 1);
+        _rows[--_tail] = null;
+        _modCount++;
+    }
+
+    /**
+     * @return the index of the row in the array or <code>-(insertion point)-1</code>
+     */
+    private int find(int rownum) {
+        // rows are usually created in ascending order
+        if (isEmpty() || _rows[_tail-1].getRowNumInternal() < rownum) {
+            return -(_tail + 1);
+        }
+        int low = _head, high = _tail - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midRow = _rows[mid].getRowNumInternal();
+            if (midRow < rownum) {
+                low = mid + 1;
+            } else if (midRow > rownum) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return a fail-fast iterator over the rows in ascending order, which supports removal
+     */
+    @Override
+    public Iterator<SXSSFRow> iterator() {
+        return new Iterator<SXSSFRow>() {
+            private int expectedModCount = _modCount;
+            private int pos = _head;
+            private SXSSFRow lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                return pos < _tail;
+            }
+
+            @Override
+            public SXSSFRow next() {
+                checkModCount();
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = _rows[pos++];
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                checkModCount();
+                // the index is stable, unless the first row is removed
+                int idx = pos - 1;
+                boolean wasHead = (idx == _head);
+                removeAt(idx);
+                pos = wasHead ? _head : idx;
+                lastReturned = null;
+                expectedModCount = _modCount;
+            }
+
+            private void checkModCount() {
+                if (_modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+}
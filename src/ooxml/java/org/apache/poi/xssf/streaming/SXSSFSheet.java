@@ -19,12 +19,12 @@ package org.apache.poi.xssf.streaming;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.AutoFilter;
@@ -45,6 +45,7 @@ import org.apache.poi.ss.util.CellAddress;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.ss.util.PaneInformation;
 import org.apache.poi.ss.util.SheetUtil;
+import org.apache.poi.util.IOUtils;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.NotImplemented;
 import org.apache.poi.xssf.usermodel.XSSFColor;
@@ -65,9 +66,9 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
 public class SXSSFSheet implements Sheet
 {
     /*package*/ final XSSFSheet _sh;
-    private final SXSSFWorkbook _workbook;
-    private final TreeMap<Integer,SXSSFRow> _rows = new TreeMap<>();
-    private final SheetDataWriter _writer;
+    /*package*/ final SXSSFWorkbook _workbook;
+    private final SXSSFRowWindow _rows = new SXSSFRowWindow();
+    /*package*/ SheetDataWriter _writer;
     private int _randomAccessWindowSize = SXSSFWorkbook.DEFAULT_WINDOW_SIZE;
     private final AutoSizeColumnTracker _autoSizeColumnTracker;
     private int outlineLevelRow;
@@ -75,9 +76,17 @@ public class SXSSFSheet implements Sheet
     private boolean allFlushed;
 
     public SXSSFSheet(SXSSFWorkbook workbook, XSSFSheet xSheet) throws IOException {
+        this(workbook, xSheet, workbook.createSheetDataWriter());
+    }
+
+    /**
+     * @param writer the sheet data writer or <code>null</code> if the subclass
+     *  creates the writer later on, see {@link EmittingSXSSFSheet}
+     */
+    SXSSFSheet(SXSSFWorkbook workbook, XSSFSheet xSheet, SheetDataWriter writer) {
         _workbook = workbook;
         _sh = xSheet;
-        _writer = workbook.createSheetDataWriter();
+        _writer = writer;
         setRandomAccessWindowSize(_workbook.getRandomAccessWindowSize());
         _autoSizeColumnTracker = new AutoSizeColumnTracker(this);
     }
@@ -99,6 +108,17 @@ public class SXSSFSheet implements Sheet
         return _writer.getWorksheetXMLInputStream();
     }
 
+    /**
+     * Writes the "&lt;sheetData&gt;" document fragment to the given stream
+     *
+     * @param out the stream of the worksheet part
+     */
+    void writeSheetData(OutputStream out) throws IOException {
+        try (InputStream xis = getWorksheetXMLInputStream()) {
+            IOUtils.copy(xis, out);
+        }
+    }
+
 //start of interface implementation
     @Override
     public Iterator<Row> iterator()
@@ -125,7 +145,7 @@ public class SXSSFSheet implements Sheet
         }
 
         // attempt to overwrite a row that is already flushed to disk
-        if(rownum <= _writer.getLastFlushedRow() ) {
+        if(_writer != null && rownum <= _writer.getLastFlushedRow() ) {
             throw new IllegalArgumentException(
                     "Attempting to write a row["+rownum+"] " +
                     "in the range [0," + _writer.getLastFlushedRow() + "] that is already written to disk.");
@@ -163,13 +183,7 @@ public class SXSSFSheet implements Sheet
             throw new IllegalArgumentException("Specified row does not belong to this sheet");
         }
 
-        for(Iterator<Map.Entry<Integer, SXSSFRow>> iter = _rows.entrySet().iterator(); iter.hasNext();) {
-            Map.Entry<Integer, SXSSFRow> entry = iter.next();
-            if(entry.getValue() == row) {
-                iter.remove();
-                return;
-            }
-        }
+        _rows.remove((SXSSFRow)row);
     }
 
     /**
@@ -193,7 +207,7 @@ public class SXSSFSheet implements Sheet
     @Override
     public int getPhysicalNumberOfRows()
     {
-        return _rows.size() + _writer.getNumberOfFlushedRows();
+        return _rows.size() + (_writer == null ? 0 : _writer.getNumberOfFlushedRows());
     }
 
     /**
@@ -203,10 +217,10 @@ public class SXSSFSheet implements Sheet
      */
     @Override
     public int getFirstRowNum() {
-        if(_writer.getNumberOfFlushedRows() > 0) {
+        if(_writer != null && _writer.getNumberOfFlushedRows() > 0) {
             return _writer.getLowestIndexOfFlushedRows();
         }
-        return _rows.size() == 0 ? 0 : _rows.firstKey();
+        return _rows.isEmpty() ? 0 : _rows.first().getRowNumInternal();
     }
 
     /**
@@ -217,7 +231,7 @@ public class SXSSFSheet implements Sheet
     @Override
     public int getLastRowNum()
     {
-        return _rows.size() == 0 ? 0 : _rows.lastKey();
+        return _rows.isEmpty() ? 0 : _rows.last().getRowNumInternal();
     }
 
     /**
@@ -518,7 +532,7 @@ public class SXSSFSheet implements Sheet
     public Iterator<Row> rowIterator()
     {
         @SuppressWarnings("unchecked")
-        Iterator<Row> result = (Iterator<Row>)(Iterator<? extends Row>)_rows.values().iterator();
+        Iterator<Row> result = (Iterator<Row>)(Iterator<? extends Row>)_rows.iterator();
         return result;
     }
 
@@ -1269,7 +1283,11 @@ public class SXSSFSheet implements Sheet
     @Override
     public void groupRow(int fromRow, int toRow)
     {
-        for(SXSSFRow row : _rows.subMap(fromRow, toRow + 1).values()){
+        for(SXSSFRow row : _rows){
+            int rownum = row.getRowNumInternal();
+            if (rownum < fromRow || rownum > toRow) {
+                continue;
+            }
             int level = row.getOutlineLevel() + 1;
             row.setOutlineLevel(level);
 
@@ -1865,16 +1883,25 @@ public class SXSSFSheet implements Sheet
         this.flushRows(0);
     }
 
+    /**
+     * Drop the rows which haven't been flushed yet without writing them,
+     * e.g. after the generation of the sheet data failed
+     */
+    /* package */ void discardRows() {
+        _rows.clear();
+        allFlushed = false;
+        lastFlushedRowNumber = -1;
+    }
+
     private void flushOneRow() throws IOException
     {
-        Integer firstRowNum = _rows.firstKey();
-        if (firstRowNum!=null) {
-            int rowIndex = firstRowNum.intValue();
-            SXSSFRow row = _rows.get(firstRowNum);
+        SXSSFRow row = _rows.first();
+        if (row!=null) {
+            int rowIndex = row.getRowNumInternal();
             // Update the best fit column widths for auto-sizing just before the rows are flushed
             _autoSizeColumnTracker.updateColumnWidths(row);
             _writer.writeRow(rowIndex, row);
-            _rows.remove(firstRowNum);
+            _rows.removeFirst();
             lastFlushedRowNumber = rowIndex;
         }
     }
@@ -1887,13 +1914,7 @@ public class SXSSFSheet implements Sheet
 
     public int getRowNum(SXSSFRow row)
     {
-        for (Map.Entry<Integer, SXSSFRow> entry : _rows.entrySet()) {
-            if (entry.getValue() == row) {
-                return entry.getKey().intValue();
-            }
-        }
-
-        return -1;
+        return _rows.getRowNum(row);
     }
 
     /**
@@ -1904,7 +1925,7 @@ public class SXSSFSheet implements Sheet
         if (!allFlushed) {
             flushRows();
         }
-        return _writer.dispose();
+        return _writer == null || _writer.dispose();
     }
 
     @Override
@@ -22,15 +22,20 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
@@ -112,6 +117,8 @@ public class SXSSFWorkbook implements Workbook {
      */
     private boolean _compressTmpFiles;
 
+    private TempFileCodec _tempFileCodec;
+
     /**
      * shared string table - a cache of strings in this workbook
      */
@@ -237,19 +244,61 @@ public class SXSSFWorkbook implements Workbook {
      * @param useSharedStringsTable whether to use a shared strings table
      */
     public SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles, boolean useSharedStringsTable){
+        this(workbook, rowAccessWindowSize, compressTmpFiles, useSharedStringsTable, null);
+    }
+
+    /**
+     * Constructs an workbook from an existing workbook, which writes its shared strings
+     * to a temp file instead of keeping them in memory.
+     * <p>
+     * The entries of the shared strings table of the template workbook are copied into
+     * <code>sharedStringsTable</code>, which then takes its place when the workbook is written.
+     * </p>
+     *
+     * @param workbook  the template workbook, or <code>null</code> for an empty workbook
+     * @param rowAccessWindowSize the number of rows that are kept in memory until flushed out,
+     *                            see {@link #SXSSFWorkbook(XSSFWorkbook, int)}.
+     * @param compressTmpFiles whether to use gzip compression for temporary files
+     * @param sharedStringsTable the table which collects the strings of the streamed cells
+     * @throws IOException if the entries of the template workbook cannot be copied
+     * @since 4.0.0
+     */
+    public SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles,
+            TempFileSharedStringsTable sharedStringsTable) throws IOException {
+        this(workbook, rowAccessWindowSize, compressTmpFiles, true, importEntries(workbook, sharedStringsTable));
+    }
+
+    private SXSSFWorkbook(XSSFWorkbook workbook, int rowAccessWindowSize, boolean compressTmpFiles,
+            boolean useSharedStringsTable, SharedStringsTable sharedStringsTable){
         setRandomAccessWindowSize(rowAccessWindowSize);
         setCompressTempFiles(compressTmpFiles);
         if (workbook == null) {
             _wb=new XSSFWorkbook();
-            _sharedStringSource = useSharedStringsTable ? _wb.getSharedStringSource() : null;
         } else {
             _wb=workbook;
+        }
+        if (sharedStringsTable != null) {
+            _sharedStringSource = sharedStringsTable;
+        } else {
             _sharedStringSource = useSharedStringsTable ? _wb.getSharedStringSource() : null;
+        }
+        if (workbook != null) {
             for ( Sheet sheet : _wb ) {
                 createAndRegisterSXSSFSheet( (XSSFSheet)sheet );
             }
         }
     }
+
+    private static TempFileSharedStringsTable importEntries(XSSFWorkbook workbook,
+            TempFileSharedStringsTable sharedStringsTable) throws IOException {
+        if (sharedStringsTable == null) {
+            throw new IllegalArgumentException("sharedStringsTable must not be null");
+        }
+        if (workbook != null && workbook.getSharedStringSource() != null) {
+            sharedStringsTable.importEntries(workbook.getSharedStringSource());
+        }
+        return sharedStringsTable;
+    }
     /**
      * Construct an empty workbook and specify the window for row access.
      * <p>
@@ -314,10 +363,41 @@ public class SXSSFWorkbook implements Workbook {
      *     calls.
      * </p>
      * @param compress whether to compress temp files
+     * @see #setTempFileCodec(TempFileCodec)
      */
     public void setCompressTempFiles(boolean compress) {
         _compressTmpFiles = compress;
     }
+
+    /**
+     * Get the codec used to compress the temp files
+     *
+     * @return the codec or <code>null</code> if none is set
+     * @since 4.0.0
+     */
+    public TempFileCodec getTempFileCodec() {
+        return _tempFileCodec;
+    }
+
+    /**
+     * Set the codec to compress the temp files with.
+     * <p>
+     *     Unlike {@link #setCompressTempFiles(boolean)}, which always uses gzip,
+     *     this allows to choose the trade-off between CPU time and temp file size,
+     *     e.g. the fast {@link LZTempFileCodec} or a {@link DeflateTempFileCodec}
+     *     with a low level. If a codec is set, it takes precedence over the
+     *     "compress" flag.
+     * </p>
+     * <p>
+     *     Setting this option only affects compression for subsequent <code>createSheet()</code> 
+     *     calls.
+     * </p>
+     * @param codec the codec or <code>null</code> to fall back to the "compress" flag
+     * @since 4.0.0
+     */
+    public void setTempFileCodec(TempFileCodec codec) {
+        _tempFileCodec = codec;
+    }
     
     @Internal
     protected SharedStringsTable getSharedStringSource() {
@@ -325,6 +405,9 @@ public class SXSSFWorkbook implements Workbook {
     }
 
     protected SheetDataWriter createSheetDataWriter() throws IOException {
+        if(_tempFileCodec != null) {
+            return new SheetDataWriter(_sharedStringSource, _tempFileCodec);
+        }
         if(_compressTmpFiles) {
             return new GZIPSheetDataWriter(_sharedStringSource);
         }
@@ -354,7 +437,10 @@ public class SXSSFWorkbook implements Workbook {
         
         // ensure that the writer is closed in all cases to not have lingering writers
         try {
-            sxSheet.getSheetDataWriter().close();
+            SheetDataWriter writer = sxSheet.getSheetDataWriter();
+            if (writer != null) {
+                writer.close();
+            }
         } catch (IOException e) {
             // ignore exception here
         }
@@ -390,11 +476,11 @@ public class SXSSFWorkbook implements Workbook {
                     }
                     XSSFSheet xSheet = getSheetFromZipEntryName(ze.getName());
                     // See bug 56557, we should not inject data into the special ChartSheets
-                    if (xSheet != null && !(xSheet instanceof XSSFChartSheet)) {
+                    if (isTempFileSharedStringsEntry(ze.getName())) {
+                        _sharedStringSource.writeTo(zos);
+                    } else if (xSheet != null && !(xSheet instanceof XSSFChartSheet)) {
                         SXSSFSheet sxSheet = getSXSSFSheet(xSheet);
-                        try (InputStream xis = sxSheet.getWorksheetXMLInputStream()) {
-                            copyStreamAndInjectWorksheet(is, zos, xis);
-                        }
+                        copyStreamAndInjectWorksheet(is, zos, sxSheet);
                     } else {
                         IOUtils.copy(is, zos);
                     }
@@ -408,7 +494,16 @@ public class SXSSFWorkbook implements Workbook {
         }
     }
 
-    private static void copyStreamAndInjectWorksheet(InputStream in, OutputStream out, InputStream worksheetData) throws IOException {
+    private boolean isTempFileSharedStringsEntry(String entryName) {
+        if (!(_sharedStringSource instanceof TempFileSharedStringsTable)) {
+            return false;
+        }
+        SharedStringsTable sst = _wb.getSharedStringSource();
+        return sst != null && sst.getPackagePart() != null
+                && entryName.equals(sst.getPackagePart().getPartName().getName().substring(1));
+    }
+
+    private static void copyStreamAndInjectWorksheet(InputStream in, OutputStream out, SXSSFSheet sheet) throws IOException {
         InputStreamReader inReader = new InputStreamReader(in, StandardCharsets.UTF_8);
         OutputStreamWriter outWriter = new OutputStreamWriter(out, StandardCharsets.UTF_8);
         boolean needsStartTag = true;
@@ -501,7 +596,7 @@ public class SXSSFWorkbook implements Workbook {
         	outWriter.flush();
         }
         //Copy the worksheet data to "out".
-        IOUtils.copy(worksheetData,out);
+        sheet.writeSheetData(out);
         outWriter.write("</sheetData>");
         outWriter.flush();
         //Copy the rest of "in" to "out".
@@ -658,7 +753,7 @@ public class SXSSFWorkbook implements Workbook {
         final SXSSFSheet sxSheet;
         try
         {
-            sxSheet=new SXSSFSheet(this,xSheet);
+            sxSheet=createSXSSFSheet(xSheet);
         }
         catch (IOException ioe)
         {
@@ -668,6 +763,11 @@ public class SXSSFWorkbook implements Workbook {
         return sxSheet;
     }
 
+    SXSSFSheet createSXSSFSheet(XSSFSheet xSheet) throws IOException
+    {
+        return new SXSSFSheet(this,xSheet);
+    }
+
     /**
      * Create an Sheet for this Workbook, adds it to the sheets and returns
      * the high level representation.  Use this to create new sheets.
@@ -898,7 +998,10 @@ public class SXSSFWorkbook implements Workbook {
         for (SXSSFSheet sheet : _xFromSxHash.values())
         {
             try {
-                sheet.getSheetDataWriter().close();
+                SheetDataWriter writer = sheet.getSheetDataWriter();
+                if (writer != null) {
+                    writer.close();
+                }
             } catch (IOException e) {
                 logger.log(POILogger.WARN,
                         "An exception occurred while closing sheet data writer for sheet "
@@ -906,12 +1009,86 @@ public class SXSSFWorkbook implements Workbook {
             }
         }
 
-        
+        if (_sharedStringSource instanceof TempFileSharedStringsTable) {
+            _sharedStringSource.close();
+        }
+
         // Tell the base workbook to close, does nothing if 
         //  it's a newly created one
         _wb.close();
     }
     
+    /**
+     * Populate several sheets concurrently, e.g. for reports consisting of many independent sheets.
+     * <p>
+     * Each generator is run by the executor and fills its sheet via {@link SXSSFSheet#createRow(int)}.
+     * As each sheet has its own temp file, the rows of different sheets are written in parallel;
+     * the remaining rows are flushed by the generator thread when it's done.
+     * This method returns, when all generators are finished - afterwards the workbook
+     * can be written as usual.
+     * </p>
+     * <p>
+     * The following rules apply while the generators are running:
+     * </p>
+     * <ul>
+     *   <li>a sheet must only be accessed by its generator</li>
+     *   <li>cell styles, fonts and data formats can be created and looked up via the workbook,
+     *   as the styles and shared strings table are synchronized. Modifying an existing cell style
+     *   which is used by another sheet isn't safe though.</li>
+     *   <li>workbook level changes like creating/removing sheets, names or pictures aren't allowed</li>
+     * </ul>
+     *
+     * @param generators the row generator of each sheet
+     * @param executor the executor to run the generators, e.g. a fixed thread pool
+     * @throws IOException if a generator failed - further failures are added as suppressed exceptions
+     * @since 4.0.0
+     */
+    public void generateSheets(Map<? extends SXSSFSheet, ? extends RowGeneratorFunction> generators, Executor executor)
+    throws IOException {
+        List<FutureTask<Void>> tasks = new ArrayList<>(generators.size());
+        List<String> sheetNames = new ArrayList<>(generators.size());
+        for (Map.Entry<? extends SXSSFSheet, ? extends RowGeneratorFunction> me : generators.entrySet()) {
+            final SXSSFSheet sheet = me.getKey();
+            final RowGeneratorFunction generator = me.getValue();
+            if (sheet.getWorkbook() != this) {
+                throw new IllegalArgumentException("Sheet " + sheet.getSheetName() + " does not belong to this workbook");
+            }
+            tasks.add(new FutureTask<>(() -> {
+                generator.generateRows(sheet);
+                sheet.flushRows();
+                return null;
+            }));
+            sheetNames.add(sheet.getSheetName());
+        }
+
+        for (FutureTask<Void> task : tasks) {
+            executor.execute(task);
+        }
+
+        IOException failure = null;
+        for (int i=0; i<tasks.size(); i++) {
+            try {
+                tasks.get(i).get();
+            } catch (InterruptedException e) {
+                for (FutureTask<Void> task : tasks) {
+                    task.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while generating sheet " + sheetNames.get(i));
+            } catch (ExecutionException e) {
+                IOException ex = new IOException("Failed to generate the rows of sheet " + sheetNames.get(i), e.getCause());
+                if (failure == null) {
+                    failure = ex;
+                } else {
+                    failure.addSuppressed(ex);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     /**
      * Write out this workbook to an OutputStream.
      *
@@ -965,6 +1142,14 @@ public class SXSSFWorkbook implements Workbook {
                 success = false;
             }
         }
+        if (_sharedStringSource instanceof TempFileSharedStringsTable) {
+            try {
+                success = ((TempFileSharedStringsTable)_sharedStringSource).dispose() && success;
+            } catch (IOException e) {
+                logger.log(POILogger.WARN, e);
+                success = false;
+            }
+        }
         return success;
     }
 
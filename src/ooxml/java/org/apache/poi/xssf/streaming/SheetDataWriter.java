@@ -19,7 +19,6 @@
 
 package org.apache.poi.xssf.streaming;
 
-import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
@@ -27,7 +26,6 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.Iterator;
 
@@ -53,8 +51,11 @@ import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
 public class SheetDataWriter implements Closeable {
     private static final POILogger logger = POILogFactory.getLogger(SheetDataWriter.class);
     
+    private final TempFileCodec _codec;
     private final File _fd;
     private final Writer _out;
+    // the byte level writer, if the sheet data isn't written via a custom writer
+    private final Utf8XmlWriter _xml;
     private int _rownum;
     private int _numberOfFlushedRows;
     private int _lowestIndexOfFlushedRows; // meaningful only of _numberOfFlushedRows>0
@@ -68,28 +69,76 @@ public class SheetDataWriter implements Closeable {
     private SharedStringsTable _sharedStringSource;
 
     public SheetDataWriter() throws IOException {
+        this(null, null);
+    }
+
+    public SheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
+        this(sharedStringsTable, null);
+    }
+
+    /**
+     * @param sharedStringsTable the shared strings table, or null if inline text is used
+     * @param codec the codec to compress the temp file, or null to write it uncompressed
+     *
+     * @since 4.0.0
+     */
+    public SheetDataWriter(SharedStringsTable sharedStringsTable, TempFileCodec codec) throws IOException {
+        _codec = codec;
+        _sharedStringSource = sharedStringsTable;
         _fd = createTempFile();
         _out = createWriter(_fd);
+        _xml = toXmlWriter(_out);
     }
 
-    public SheetDataWriter(SharedStringsTable sharedStringsTable) throws IOException {
-        this();
-        this._sharedStringSource = sharedStringsTable;
+    /**
+     * Constructor for writers which don't use a temp file but write the
+     * sheet data directly to the given writer, see {@link StreamingSheetWriter}
+     *
+     * @param writer the writer to output the sheet data to
+     */
+    public SheetDataWriter(Writer writer) throws IOException {
+        _codec = null;
+        _fd = null;
+        _out = writer;
+        _xml = toXmlWriter(writer);
+    }
+
+    /**
+     * Constructor for subclasses which don't write the sheet data as XML,
+     * e.g. {@link XSSFBSheetDataWriter}. No character writer is opened on
+     * the temp file, so these subclasses need to override the methods
+     * writing rows and cells as well as {@link #close()} and {@link #dispose()}.
+     *
+     * @param fd the temp file to write the sheet data to
+     */
+    SheetDataWriter(File fd) {
+        _codec = null;
+        _fd = fd;
+        _out = null;
+        _xml = null;
     }
+
+    private static Utf8XmlWriter toXmlWriter(Writer writer) {
+        return (writer instanceof Utf8XmlWriter) ? (Utf8XmlWriter)writer : null;
+    }
+
     /**
      * Create a temp file to write sheet data. 
      * By default, temp files are created in the default temporary-file directory
-     * with a prefix "poi-sxssf-sheet" and suffix ".xml".  Subclasses can override 
-     * it and specify a different temp directory or filename or suffix, e.g. <code>.gz</code>
+     * with a prefix "poi-sxssf-sheet" and suffix ".xml" or the suffix of the {@link TempFileCodec}.
+     * Subclasses can override it and specify a different temp directory or filename or suffix, e.g. <code>.gz</code>
      * 
      * @return temp file to write sheet data
      */
     public File createTempFile() throws IOException {
-        return TempFile.createTempFile("poi-sxssf-sheet", ".xml");
+        return TempFile.createTempFile("poi-sxssf-sheet", _codec == null ? ".xml" : _codec.getFileSuffix());
     }
 
     /**
      * Create a writer for the sheet data.
+     * The default writer encodes the XML directly into UTF-8 bytes, custom writers
+     * returned by overriding this method are supported, but are slower as the
+     * numbers and cell references are converted to Strings first.
      * 
      * @param  fd the file to write to
      */
@@ -102,14 +151,14 @@ public class SheetDataWriter implements Closeable {
             fos.close();
             throw e;
         }
-        return new BufferedWriter(
-                new OutputStreamWriter(decorated, "UTF-8"));
+        return new Utf8XmlWriter(decorated);
     }
     
     /**
      * Override this to translate (such as encrypt or compress) the file output stream
      * as it is being written to disk.
-     * The default behavior is to to pass the stream through unmodified.
+     * The default behavior is to to pass the stream through unmodified
+     * or to compress it with the {@link TempFileCodec}, if one is set.
      *
      * @param fos  the stream to decorate
      * @return a decorated stream
@@ -117,7 +166,7 @@ public class SheetDataWriter implements Closeable {
      * @see #decorateInputStream(FileInputStream)
      */
     protected OutputStream decorateOutputStream(FileOutputStream fos) throws IOException {
-        return fos;
+        return _codec == null ? fos : _codec.compress(fos);
     }
 
     /**
@@ -150,7 +199,8 @@ public class SheetDataWriter implements Closeable {
     /**
      * Override this to translate (such as decrypt or expand) the file input stream
      * as it is being read from disk.
-     * The default behavior is to to pass the stream through unmodified.
+     * The default behavior is to to pass the stream through unmodified
+     * or to decompress it with the {@link TempFileCodec}, if one is set.
      *
      * @param fis  the stream to decorate
      * @return a decorated stream
@@ -158,7 +208,7 @@ public class SheetDataWriter implements Closeable {
      * @see #decorateOutputStream(FileOutputStream)
      */
     protected InputStream decorateInputStream(FileInputStream fis) throws IOException {
-        return fis;
+        return _codec == null ? fis : _codec.decompress(fis);
     }
 
     public int getNumberOfFlushedRows() {
@@ -179,7 +229,7 @@ public class SheetDataWriter implements Closeable {
 
     @Override
     protected void finalize() throws Throwable {
-        if (!_fd.delete()) {
+        if (_fd != null && !_fd.delete()) {
             logger.log(POILogger.ERROR, "Can't delete temporary encryption file: "+_fd);
         }
 
@@ -211,7 +261,7 @@ public class SheetDataWriter implements Closeable {
 
     void beginRow(int rownum, SXSSFRow row) throws IOException {
         _out.write("<row");
-        writeAttribute("r", Integer.toString(rownum + 1));
+        writeAttribute("r", rownum + 1);
         if (row.hasCustomHeight()) {
             writeAttribute("customHeight", "true");
             writeAttribute("ht", Float.toString(row.getHeightInPoints()));
@@ -220,11 +270,11 @@ public class SheetDataWriter implements Closeable {
             writeAttribute("hidden", "true");
         }
         if (row.isFormatted()) {
-            writeAttribute("s", Integer.toString(row.getRowStyleIndex()));
+            writeAttribute("s", row.getRowStyleIndex());
             writeAttribute("customFormat", "1");
         }
         if (row.getOutlineLevel() != 0) {
-            writeAttribute("outlineLevel", Integer.toString(row.getOutlineLevel()));
+            writeAttribute("outlineLevel", row.getOutlineLevel());
         }
         if(row.getHidden() != null) {
             writeAttribute("hidden", row.getHidden() ? "1" : "0");
@@ -245,15 +295,15 @@ public class SheetDataWriter implements Closeable {
         if (cell == null) {
             return;
         }
-        String ref = new CellReference(_rownum, columnIndex).formatAsString();
-        _out.write("<c");
-        writeAttribute("r", ref);
+        _out.write("<c r=\"");
+        writeCellReference(_rownum, columnIndex);
+        _out.write('"');
         CellStyle cellStyle = cell.getCellStyle();
         if (cellStyle.getIndex() != 0) {
             // need to convert the short to unsigned short as the indexes can be up to 64k
             // ideally we would use int for this index, but that would need changes to some more 
             // APIs
-            writeAttribute("s", Integer.toString(cellStyle.getIndex() & 0xffff));
+            writeAttribute("s", cellStyle.getIndex() & 0xffff);
         }
         CellType cellType = cell.getCellType();
         switch (cellType) {
@@ -270,7 +320,7 @@ public class SheetDataWriter implements Closeable {
                         double nval = cell.getNumericCellValue();
                         if (!Double.isNaN(nval)) {
                             _out.write("<v>");
-                            _out.write(Double.toString(nval));
+                            writeDouble(nval);
                             _out.write("</v>");
                         }
                         break;
@@ -281,12 +331,18 @@ public class SheetDataWriter implements Closeable {
             }
             case STRING: {
                 if (_sharedStringSource != null) {
-                    XSSFRichTextString rt = new XSSFRichTextString(cell.getStringCellValue());
-                    int sRef = _sharedStringSource.addSharedStringItem(rt);
+                    int sRef;
+                    if (_sharedStringSource instanceof TempFileSharedStringsTable) {
+                        // plain strings go to the temp file without an intermediate CTRst bean
+                        sRef = ((TempFileSharedStringsTable)_sharedStringSource).addSharedString(cell.getStringCellValue());
+                    } else {
+                        XSSFRichTextString rt = new XSSFRichTextString(cell.getStringCellValue());
+                        sRef = _sharedStringSource.addSharedStringItem(rt);
+                    }
 
                     writeAttribute("t", STCellType.S.toString());
                     _out.write("><v>");
-                    _out.write(String.valueOf(sRef));
+                    writeInt(sRef);
                     _out.write("</v>");
                 } else {
                     writeAttribute("t", "inlineStr");
@@ -303,7 +359,7 @@ public class SheetDataWriter implements Closeable {
             case NUMERIC: {
                 writeAttribute("t", "n");
                 _out.write("><v>");
-                _out.write(Double.toString(cell.getNumericCellValue()));
+                writeDouble(cell.getNumericCellValue());
                 _out.write("</v>");
                 break;
             }
@@ -330,6 +386,38 @@ public class SheetDataWriter implements Closeable {
         _out.write("</c>");
     }
 
+    private void writeAttribute(String name, int value) throws IOException {
+        _out.write(' ');
+        _out.write(name);
+        _out.write("=\"");
+        writeInt(value);
+        _out.write('\"');
+    }
+
+    private void writeInt(int value) throws IOException {
+        if (_xml != null) {
+            _xml.writeLong(value);
+        } else {
+            _out.write(Integer.toString(value));
+        }
+    }
+
+    private void writeDouble(double value) throws IOException {
+        if (_xml != null) {
+            _xml.writeDouble(value);
+        } else {
+            _out.write(Double.toString(value));
+        }
+    }
+
+    private void writeCellReference(int rownum, int colnum) throws IOException {
+        if (_xml != null) {
+            _xml.writeCellReference(rownum, colnum);
+        } else {
+            _out.write(new CellReference(rownum, colnum).formatAsString());
+        }
+    }
+
     private void writeAttribute(String name, String value) throws IOException {
         _out.write(' ');
         _out.write(name);
@@ -342,7 +430,7 @@ public class SheetDataWriter implements Closeable {
      * @return  whether the string has leading / trailing spaces that
      *  need to be preserved with the xml:space=\"preserve\" attribute
      */
-    boolean hasLeadingTrailingSpaces(String str) {
+    static boolean hasLeadingTrailingSpaces(String str) {
         if (str != null && str.length() > 0) {
             char firstChar = str.charAt(0);
             char lastChar  = str.charAt(str.length() - 1);
@@ -356,6 +444,11 @@ public class SheetDataWriter implements Closeable {
             return;
         }
 
+        if (_xml != null) {
+            _xml.writeEscaped(s);
+            return;
+        }
+
         for (String codepoint : new StringCodepointsIterable(s)) {
             switch (codepoint) {
                 case "<":
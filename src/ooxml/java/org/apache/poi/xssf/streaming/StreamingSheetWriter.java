@@ -0,0 +1,71 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Sheet writer which writes the "sheetData" document fragment directly to
+ * the given stream, usually the zip entry of the worksheet, instead of
+ * buffering it in a temp file.
+ *
+ * @see EmittingSXSSFWorkbook
+ * @since 4.0.0
+ */
+public class StreamingSheetWriter extends SheetDataWriter {
+
+    public StreamingSheetWriter(OutputStream out) throws IOException {
+        super(new Utf8XmlWriter(new NonClosingOutputStream(out)));
+    }
+
+    /**
+     * The sheet data isn't kept, so it can't be read again
+     */
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        throw new UnsupportedOperationException("The sheet data has been streamed to the package and can't be read again");
+    }
+
+    @Override
+    boolean dispose() throws IOException {
+        close();
+        return true;
+    }
+
+    /**
+     * Closing the sheet writer mustn't close the zip stream of the package,
+     * only the current entry is finished by the caller
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Compression codec for the temp files holding the sheet data of a {@link SXSSFWorkbook}.
+ * <p>
+ * The temp files are written once and read once, so the codec choice is a trade-off between
+ * the CPU time of compressing/decompressing and the disk space and I/O of the temp files:
+ * <ul>
+ *   <li>no codec - fastest, but the XML can be a multiple of the final .xlsx size</li>
+ *   <li>{@link LZTempFileCodec} - a fast LZ77 codec with moderate compression</li>
+ *   <li>{@link DeflateTempFileCodec} - deflate with a configurable level, e.g.
+ *   {@link java.util.zip.Deflater#BEST_SPEED} or the gzip default</li>
+ * </ul>
+ * Custom implementations, e.g. for a native codec, can be set via
+ * {@link SXSSFWorkbook#setTempFileCodec(TempFileCodec)}.
+ *
+ * @since 4.0.0
+ */
+public interface TempFileCodec {
+    /**
+     * @return the suffix of the temp files, e.g. <code>.lz</code>
+     */
+    String getFileSuffix();
+
+    /**
+     * Wrap the stream of the temp file for writing.
+     * Closing the returned stream must close the given stream.
+     *
+     * @param os the file stream
+     * @return the compressing stream
+     */
+    OutputStream compress(OutputStream os) throws IOException;
+
+    /**
+     * Wrap the stream of the temp file for reading.
+     * Closing the returned stream must close the given stream.
+     *
+     * @param is the file stream
+     * @return the decompressing stream
+     */
+    InputStream decompress(InputStream is) throws IOException;
+}
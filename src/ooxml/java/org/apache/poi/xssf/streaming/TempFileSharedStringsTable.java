@@ -0,0 +1,231 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.RichTextString;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
+
+/**
+ * A shared strings table for {@link SXSSFWorkbook} which appends its entries to a temp file
+ * instead of keeping them in memory.
+ * <p>
+ * The regular {@link SharedStringsTable} holds every unique string as an XmlBeans object, so
+ * the memory of a streamed workbook with many distinct strings grows with the number of rows,
+ * which defeats the purpose of SXSSF. This table writes each new entry as an <code>&lt;si&gt;</code>
+ * element to a temp file and only remembers the most recently used strings in a bounded cache
+ * for de-duplication. When the workbook is written, the temp file is copied into the
+ * <code>sharedStrings.xml</code> part.
+ * </p>
+ * <p>
+ * A string which has been evicted from the cache is appended again when it reappears, so the
+ * table may contain duplicates. This is valid SpreadsheetML, it only makes the file a little
+ * larger. A bigger cache trades memory for fewer duplicates.
+ * </p>
+ * <p>
+ * The entries cannot be read back, i.e. {@link #getEntryAt(int)}, {@link #getItemAt(int)} and
+ * {@link #getSharedStringItems()} throw an {@link UnsupportedOperationException}.
+ * </p>
+ *
+ * @see SXSSFWorkbook#SXSSFWorkbook(org.apache.poi.xssf.usermodel.XSSFWorkbook, int, boolean, TempFileSharedStringsTable)
+ * @since 4.0.0
+ */
+public class TempFileSharedStringsTable extends SharedStringsTable {
+    /**
+     * The default number of strings kept in the de-duplication cache
+     */
+    public static final int DEFAULT_CACHE_SIZE = 100000;
+
+    private final File _fd;
+    private final Utf8XmlWriter _out;
+    private final Map<String, Integer> _cache;
+
+    /**
+     * Create a table with a de-duplication cache of {@link #DEFAULT_CACHE_SIZE} strings.
+     *
+     * @throws IOException if the temp file cannot be created
+     */
+    public TempFileSharedStringsTable() throws IOException {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Create a table with the given de-duplication cache size.
+     *
+     * @param cacheSize the number of recently added strings which are looked up before a new
+     *                  entry is appended, <code>0</code> disables the de-duplication
+     * @throws IOException if the temp file cannot be created
+     */
+    public TempFileSharedStringsTable(final int cacheSize) throws IOException {
+        super();
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("cacheSize must not be negative, but had " + cacheSize);
+        }
+        _fd = TempFile.createTempFile("poi-sxssf-sst", ".xml");
+        _out = new Utf8XmlWriter(new FileOutputStream(_fd));
+        _cache = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Copy the entries of an existing table, e.g. of the template workbook, so that their
+     * indexes remain valid.
+     */
+    synchronized void importEntries(SharedStringsTable sst) throws IOException {
+        //noinspection deprecation
+        List<CTRst> items = sst.getItems();
+        for (CTRst st : items) {
+            appendEntry(st);
+        }
+        count += sst.getCount() - items.size();
+    }
+
+    /**
+     * Add a plain string to this table.
+     *
+     * @param string the string to add
+     * @return the index of the entry
+     */
+    public synchronized int addSharedString(String string) throws IOException {
+        count++;
+        Integer idx = _cache.get(string);
+        if (idx != null) {
+            return idx;
+        }
+        _out.write("<si><t");
+        if (SheetDataWriter.hasLeadingTrailingSpaces(string)) {
+            _out.write(" xml:space=\"preserve\"");
+        }
+        _out.write('>');
+        _out.writeEscaped(string);
+        _out.write("</t></si>");
+        idx = uniqueCount++;
+        _cache.put(string, idx);
+        return idx;
+    }
+
+    /**
+     * Add an entry to this table. Only plain strings are de-duplicated, formatted entries
+     * are always appended.
+     */
+    @Override
+    public synchronized int addEntry(CTRst st) {
+        try {
+            return appendEntry(st);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write shared string to " + _fd, e);
+        }
+    }
+
+    private int appendEntry(CTRst st) throws IOException {
+        count++;
+        _out.write("<si>");
+        _out.write(xmlText(st));
+        _out.write("</si>");
+        return uniqueCount++;
+    }
+
+    @Override
+    public synchronized int addSharedStringItem(RichTextString string) {
+        if (string instanceof XSSFRichTextString && !((XSSFRichTextString) string).hasFormatting()) {
+            try {
+                return addSharedString(string.getString());
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write shared string to " + _fd, e);
+            }
+        }
+        return super.addSharedStringItem(string);
+    }
+
+    @Override
+    public CTRst getEntryAt(int idx) {
+        throw new UnsupportedOperationException("The entries of a TempFileSharedStringsTable cannot be read");
+    }
+
+    @Override
+    public RichTextString getItemAt(int idx) {
+        throw new UnsupportedOperationException("The entries of a TempFileSharedStringsTable cannot be read");
+    }
+
+    @Override
+    public List<CTRst> getItems() {
+        throw new UnsupportedOperationException("The entries of a TempFileSharedStringsTable cannot be read");
+    }
+
+    @Override
+    public List<RichTextString> getSharedStringItems() {
+        throw new UnsupportedOperationException("The entries of a TempFileSharedStringsTable cannot be read");
+    }
+
+    /**
+     * Write the <code>sst</code> element with all entries added so far.
+     *
+     * @param out The stream to write to.
+     * @throws IOException if an error occurs while writing.
+     */
+    @Override
+    public synchronized void writeTo(OutputStream out) throws IOException {
+        _out.flush();
+        String header = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<sst xmlns=\"" + NS_SPREADSHEETML + "\" count=\"" + count
+                + "\" uniqueCount=\"" + uniqueCount + "\">";
+        out.write(header.getBytes(StandardCharsets.UTF_8));
+        try (InputStream is = new FileInputStream(_fd)) {
+            IOUtils.copy(is, out);
+        }
+        out.write("</sst>".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() throws IOException {
+        _out.close();
+    }
+
+    /**
+     * Close and delete the temp file.
+     *
+     * @return <code>true</code> if the file was deleted successfully.
+     */
+    boolean dispose() throws IOException {
+        _out.close();
+        return _fd.delete();
+    }
+
+    File getTempFile() {
+        return _fd;
+    }
+}
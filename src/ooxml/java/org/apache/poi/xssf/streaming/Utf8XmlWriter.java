@@ -0,0 +1,297 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import org.apache.poi.util.Internal;
+
+/**
+ * Writer which encodes the sheet data as UTF-8 directly into a reusable byte
+ * buffer - this replaces the BufferedWriter/OutputStreamWriter pair, which
+ * copies every character twice and needs a String for every number.
+ * <p>
+ * Besides the {@link Writer} methods, it renders numbers, cell references and
+ * XML escaped text without creating intermediate Strings.
+ * Unpaired surrogates are written as <code>?</code>, like the default
+ * replacement of the UTF-8 charset encoder.
+ *
+ * @since 4.0.0
+ */
+@Internal
+public final class Utf8XmlWriter extends Writer {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final OutputStream _out;
+    private final byte[] _buf = new byte[BUFFER_SIZE];
+    private int _pos;
+    // high surrogate of a pair which has been split between two write calls
+    private char _highSurrogate;
+
+    public Utf8XmlWriter(OutputStream out) {
+        _out = out;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        writeChar((char)c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i=off; i<off+len; i++) {
+            writeChar(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str) throws IOException {
+        write(str, 0, str.length());
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i=off; i<off+len; i++) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    private void writeChar(char c) throws IOException {
+        if (_highSurrogate != 0) {
+            char high = _highSurrogate;
+            _highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                writeCodePoint(Character.toCodePoint(high, c));
+                return;
+            }
+            writeByte('?');
+        }
+        if (c < 0x80) {
+            writeByte(c);
+        } else if (Character.isHighSurrogate(c)) {
+            _highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            writeByte('?');
+        } else {
+            writeCodePoint(c);
+        }
+    }
+
+    private void writeByte(int b) throws IOException {
+        if (_pos == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        _buf[_pos++] = (byte)b;
+    }
+
+    private void writeCodePoint(int cp) throws IOException {
+        if (_pos > BUFFER_SIZE - 4) {
+            flushBuffer();
+        }
+        final byte[] buf = _buf;
+        if (cp < 0x80) {
+            buf[_pos++] = (byte)cp;
+        } else if (cp < 0x800) {
+            buf[_pos++] = (byte)(0xC0 | (cp >> 6));
+            buf[_pos++] = (byte)(0x80 | (cp & 0x3F));
+        } else if (cp < 0x10000) {
+            buf[_pos++] = (byte)(0xE0 | (cp >> 12));
+            buf[_pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+            buf[_pos++] = (byte)(0x80 | (cp & 0x3F));
+        } else {
+            buf[_pos++] = (byte)(0xF0 | (cp >> 18));
+            buf[_pos++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+            buf[_pos++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+            buf[_pos++] = (byte)(0x80 | (cp & 0x3F));
+        }
+    }
+
+    /**
+     * A dangling high surrogate can't be completed by the following output anymore
+     */
+    private void endPendingSurrogate() throws IOException {
+        if (_highSurrogate != 0) {
+            _highSurrogate = 0;
+            writeByte('?');
+        }
+    }
+
+    /**
+     * Writes the decimal representation of the given value,
+     * i.e. the same as <code>write(Long.toString(v))</code>
+     */
+    public void writeLong(long v) throws IOException {
+        endPendingSurrogate();
+        // Long.MIN_VALUE has 20 characters
+        if (_pos > BUFFER_SIZE - 20) {
+            flushBuffer();
+        }
+        if (v == Long.MIN_VALUE) {
+            write(Long.toString(v));
+            return;
+        }
+        if (v < 0) {
+            _buf[_pos++] = '-';
+            v = -v;
+        }
+        int start = _pos;
+        do {
+            _buf[_pos++] = (byte)('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        reverse(start, _pos-1);
+    }
+
+    /**
+     * Writes the number in the same format as {@link Double#toString(double)}.
+     * Integral values, the most common case for spreadsheet data, are rendered
+     * without allocation, the other values fall back to {@link Double#toString(double)}.
+     */
+    public void writeDouble(double v) throws IOException {
+        // Double.toString switches to the scientific notation at 10^7
+        if (v == (long)v && Math.abs(v) < 1e7 && Double.doubleToRawLongBits(v) != Double.doubleToRawLongBits(-0d)) {
+            writeLong((long)v);
+            writeByte('.');
+            writeByte('0');
+        } else {
+            write(Double.toString(v));
+        }
+    }
+
+    /**
+     * Writes a relative cell reference like <code>AB12</code>
+     *
+     * @param rownum 0-based row index
+     * @param colnum 0-based column index
+     */
+    public void writeCellReference(int rownum, int colnum) throws IOException {
+        endPendingSurrogate();
+        // 3 letters for the columns of Excel 2007
+        if (_pos > BUFFER_SIZE - 8) {
+            flushBuffer();
+        }
+        int start = _pos;
+        int col = colnum + 1;
+        while (col > 0) {
+            int rem = (col - 1) % 26;
+            _buf[_pos++] = (byte)('A' + rem);
+            col = (col - rem - 1) / 26;
+        }
+        reverse(start, _pos-1);
+        writeLong(rownum + 1L);
+    }
+
+    private void reverse(int from, int to) {
+        final byte[] buf = _buf;
+        while (from < to) {
+            byte b = buf[from];
+            buf[from++] = buf[to];
+            buf[to--] = b;
+        }
+    }
+
+    /**
+     * Writes the text with the XML escaping of {@link SheetDataWriter#outputQuotedString(String)}
+     */
+    public void writeEscaped(String s) throws IOException {
+        endPendingSurrogate();
+        final int len = s.length();
+        for (int i=0; i<len; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<':
+                    writeAscii("&lt;");
+                    break;
+                case '>':
+                    writeAscii("&gt;");
+                    break;
+                case '&':
+                    writeAscii("&amp;");
+                    break;
+                case '"':
+                    writeAscii("&quot;");
+                    break;
+                // Special characters
+                case '\n':
+                    writeAscii("&#xa;");
+                    break;
+                case '\r':
+                    writeAscii("&#xd;");
+                    break;
+                case '\t':
+                    writeAscii("&#x9;");
+                    break;
+                case '\u00A0': // NO-BREAK SPACE
+                    writeAscii("&#xa0;");
+                    break;
+                default:
+                    if (Character.isHighSurrogate(c) && i+1 < len && Character.isLowSurrogate(s.charAt(i+1))) {
+                        writeCodePoint(Character.toCodePoint(c, s.charAt(++i)));
+                    } else if (SheetDataWriter.replaceWithQuestionMark(c) || Character.isSurrogate(c)) {
+                        writeByte('?');
+                    } else {
+                        writeCodePoint(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Writes a String which only consists of ASCII characters, e.g. markup
+     */
+    public void writeAscii(String s) throws IOException {
+        endPendingSurrogate();
+        final int len = s.length();
+        if (_pos > BUFFER_SIZE - len) {
+            flushBuffer();
+            if (len > BUFFER_SIZE) {
+                write(s);
+                return;
+            }
+        }
+        final byte[] buf = _buf;
+        for (int i=0; i<len; i++) {
+            buf[_pos++] = (byte)s.charAt(i);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (_pos > 0) {
+            _out.write(_buf, 0, _pos);
+            _pos = 0;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        _out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        endPendingSurrogate();
+        flushBuffer();
+        _out.close();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *  ====================================================================
+ *    Licensed to the Apache Software Foundation (ASF) under one or more
+ *    contributor license agreements.  See the NOTICE file distributed with
+ *    this work for additional information regarding copyright ownership.
+ *    The ASF licenses this file to You under the Apache License, Version 2.0
+ *    (the "License"); you may not use this file except in compliance with
+ *    the License.  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ * ====================================================================
+ */
+
+package org.apache.poi.xssf.streaming;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.binary.XSSFBRecordType;
+import org.apache.poi.xssf.binary.XSSFBRecordWriter;
+
+/**
+ * Sheet writer which writes the rows as records of the binary (.xlsb)
+ * format instead of XML, i.e. a <code>BrtRowHdr</code> for each row followed
+ * by one <code>BrtCell*</code> record per cell.
+ * <p>
+ * Strings are always written inline (<code>BrtCellSt</code>).
+ * Formula cells are not supported, as the formulas would have to be
+ * converted to the binary token format of xlsb.
+ *
+ * @see SXSSFBWorkbook
+ * @since 4.0.0
+ */
+public class XSSFBSheetDataWriter extends SheetDataWriter {
+    private final XSSFBRecordWriter _out;
+    private int _rownum;
+    private int _firstColumn = -1;
+    private int _lastColumn = -1;
+
+    public XSSFBSheetDataWriter() throws IOException {
+        super(TempFile.createTempFile("poi-sxssf-sheet-bin", ".bin"));
+        FileOutputStream fos = new FileOutputStream(getTempFile());
+        OutputStream decorated;
+        try {
+            decorated = decorateOutputStream(fos);
+        } catch (final IOException e) {
+            fos.close();
+            throw e;
+        }
+        _out = new XSSFBRecordWriter(new BufferedOutputStream(decorated));
+    }
+
+    /**
+     * @return the lowest column index of the written cells or -1 if no cells were written
+     */
+    public int getFirstColumn() {
+        return _firstColumn;
+    }
+
+    /**
+     * @return the highest column index of the written cells or -1 if no cells were written
+     */
+    public int getLastColumn() {
+        return _lastColumn;
+    }
+
+    @Override
+    void beginRow(int rownum, SXSSFRow row) throws IOException {
+        _rownum = rownum;
+        int firstCol = row.getFirstCellNum();
+        int lastCol = row.getLastCellNum() - 1;
+
+        _out.beginRecord(XSSFBRecordType.BrtRowHdr);
+        _out.writeInt(rownum);
+        _out.writeInt(row.isFormatted() ? row.getRowStyleIndex() : 0);
+        _out.writeShort(row.getHeight());
+        // fExtraAsc / fExtraDsc
+        _out.writeByte(0);
+
+        int flags = row.getOutlineLevel() & 0x07;
+        if (Boolean.TRUE.equals(row.getCollapsed())) {
+            flags |= 0x08;
+        }
+        if (row.getZeroHeight() || Boolean.TRUE.equals(row.getHidden())) {
+            flags |= 0x10;
+        }
+        if (row.hasCustomHeight()) {
+            flags |= 0x20;
+        }
+        if (row.isFormatted()) {
+            flags |= 0x40;
+        }
+        _out.writeByte(flags);
+        // fPhShow
+        _out.writeByte(0);
+
+        // the column span is only a hint for the loading application
+        if (firstCol >= 0) {
+            _out.writeInt(1);
+            _out.writeInt(firstCol);
+            _out.writeInt(lastCol);
+            if (_firstColumn == -1 || firstCol < _firstColumn) {
+                _firstColumn = firstCol;
+            }
+            _lastColumn = Math.max(_lastColumn, lastCol);
+        } else {
+            _out.writeInt(0);
+        }
+        _out.endRecord();
+    }
+
+    @Override
+    void endRow() {
+        // there's no end record for rows
+    }
+
+    @Override
+    public void writeCell(int columnIndex, Cell cell) throws IOException {
+        if (cell == null) {
+            return;
+        }
+        CellType cellType = cell.getCellType();
+        switch (cellType) {
+            case BLANK:
+                beginCell(XSSFBRecordType.BrtCellBlank, columnIndex, cell);
+                break;
+            case NUMERIC:
+                writeNumber(columnIndex, cell);
+                break;
+            case STRING:
+                beginCell(XSSFBRecordType.BrtCellSt, columnIndex, cell);
+                _out.writeXLWideString(cell.getStringCellValue());
+                break;
+            case BOOLEAN:
+                beginCell(XSSFBRecordType.BrtCellBool, columnIndex, cell);
+                _out.writeByte(cell.getBooleanCellValue() ? 1 : 0);
+                break;
+            case ERROR:
+                beginCell(XSSFBRecordType.BrtCellError, columnIndex, cell);
+                _out.writeByte(cell.getErrorCellValue());
+                break;
+            case FORMULA:
+                throw new IllegalStateException("Formula cells can't be written in the binary format, found "
+                        + cell.getCellFormula() + " in " + new CellReference(_rownum, columnIndex).formatAsString());
+            default:
+                throw new IllegalStateException("Invalid cell type: " + cellType);
+        }
+        _out.endRecord();
+    }
+
+    /**
+     * Numbers are written as RK number if the double value can be stored in 30 bits without
+     * loss of precision, otherwise the full IEEE value is stored
+     */
+    private void writeNumber(int columnIndex, Cell cell) {
+        double val = cell.getNumericCellValue();
+        long bits = Double.doubleToLongBits(val);
+        if ((bits & 0x3FFFFFFFFL) == 0) {
+            // RK floating point: the 30 most significant bits, fX100 and fInt are cleared
+            beginCell(XSSFBRecordType.BrtCellRk, columnIndex, cell);
+            _out.writeInt((int)(bits >>> 32));
+        } else {
+            beginCell(XSSFBRecordType.BrtCellReal, columnIndex, cell);
+            _out.writeDouble(val);
+        }
+    }
+
+    private void beginCell(XSSFBRecordType type, int columnIndex, Cell cell) {
+        _out.beginRecord(type);
+        _out.writeInt(columnIndex);
+        // 24 bit style index, the remaining byte contains the phonetic flag
+        _out.writeInt(cell.getCellStyle().getIndex() & 0xFFFF);
+    }
+
+    /**
+     * flush and close the temp data writer.
+     * This method <em>must</em> be invoked before calling {@link #getWorksheetXMLInputStream()}
+     */
+    @Override
+    public void close() throws IOException {
+        _out.flush();
+        _out.close();
+    }
+
+    @Override
+    boolean dispose() throws IOException {
+        final boolean ret;
+        try {
+            _out.close();
+        } finally {
+            ret = getTempFile().delete();
+        }
+        return ret;
+    }
+}
@@ -25,7 +25,7 @@ import java.util.Map;
 import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.formula.EvaluationName;
 import org.apache.poi.ss.formula.EvaluationWorkbook;
-import org.apache.poi.ss.formula.FormulaParser;
+import org.apache.poi.ss.formula.FormulaParseCache;
 import org.apache.poi.ss.formula.FormulaParsingWorkbook;
 import org.apache.poi.ss.formula.FormulaRenderingWorkbook;
 import org.apache.poi.ss.formula.FormulaType;
@@ -58,6 +58,10 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
     // keys are lower-case to make this a quasi-case-insensitive map
     private Map<String, XSSFTable> _tableCache;
 
+    // the tokens of the parsed cell and name formulas, by formula text and sheet
+    private final FormulaParseCache _formulaCache = new FormulaParseCache();
+    // the structure version of the workbook the cached tokens were parsed for
+    private int _formulaCacheVersion;
 
     protected BaseXSSFEvaluationWorkbook(XSSFWorkbook book) {
         _uBook = book;
@@ -69,6 +73,24 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
     @Override
     public void clearAllCachedResultValues() {
         _tableCache = null;
+        _formulaCache.clear();
+    }
+    
+    /**
+     * Parses a formula of a cell or name, reusing the tokens of formulas with the same text which
+     * have been parsed before. The tokens must not be modified. The cached tokens are discarded
+     * when sheets or names of the workbook are added, removed, renamed or reordered.
+     *
+     * @since 4.0.0
+     */
+    protected Ptg[] parseFormula(String formula, FormulaType formulaType, int sheetIndex, int rowIndex) {
+        int version = _uBook.getStructureVersion();
+        if (version != _formulaCacheVersion) {
+            // the sheet and name indexes of the cached tokens may have changed
+            _formulaCache.clear();
+            _formulaCacheVersion = version;
+        }
+        return _formulaCache.parse(formula, this, formulaType, sheetIndex, rowIndex);
     }
     
     private int convertFromExternalSheetIndex(int externSheetIndex) {
@@ -411,9 +433,9 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
 
         private final XSSFName _nameRecord;
         private final int _index;
-        private final FormulaParsingWorkbook _fpBook;
+        private final BaseXSSFEvaluationWorkbook _fpBook;
 
-        public Name(XSSFName name, int index, FormulaParsingWorkbook fpBook) {
+        public Name(XSSFName name, int index, BaseXSSFEvaluationWorkbook fpBook) {
             _nameRecord = name;
             _index = index;
             _fpBook = fpBook;
@@ -421,7 +443,7 @@ public abstract class BaseXSSFEvaluationWorkbook implements FormulaRenderingWork
 
         public Ptg[] getNameDefinition() {
 
-            return FormulaParser.parse(_nameRecord.getRefersToFormula(), _fpBook, FormulaType.NAMEDRANGE, _nameRecord.getSheetIndex());
+            return _fpBook.parseFormula(_nameRecord.getRefersToFormula(), FormulaType.NAMEDRANGE, _nameRecord.getSheetIndex(), -1);
         }
 
         public String getNameText() {
@@ -44,6 +44,7 @@ public abstract class BaseXSSFFormulaEvaluator extends BaseFormulaEvaluator {
     /**
      * Turns a XSSFCell / SXSSFCell into a XSSFEvaluationCell
      */
+    @Override
     protected abstract EvaluationCell toEvaluationCell(Cell cell);
     
     /**
@@ -52,6 +53,11 @@ public abstract class BaseXSSFFormulaEvaluator extends BaseFormulaEvaluator {
     protected CellValue evaluateFormulaCellValue(Cell cell) {
         EvaluationCell evalCell = toEvaluationCell(cell);
         ValueEval eval = _bookEvaluator.evaluate(evalCell);
+        return toCellValue(eval);
+    }
+
+    @Override
+    protected CellValue toCellValue(ValueEval eval) {
         if (eval instanceof NumberEval) {
             NumberEval ne = (NumberEval) eval;
             return new CellValue(ne.getNumberValue());
@@ -103,6 +103,14 @@ public final class XSSFCell implements Cell {
      */
     private StylesTable _stylesSource;
 
+    /**
+     * The value, the "t" attribute and the style index of a cell which has been read
+     * without an xml bean, see {@link XSSFSheetDataReader}. Only used while <code>_cell</code> is null.
+     */
+    private String _rawValue;
+    private STCellType.Enum _rawType;
+    private int _rawStyle;
+
     /**
      * Construct a XSSFCell.
      *
@@ -123,6 +131,41 @@ public final class XSSFCell implements Cell {
         _sharedStringSource = row.getSheet().getWorkbook().getSharedStringSource();
         _stylesSource = row.getSheet().getWorkbook().getStylesSource();
     }
+
+    /**
+     * Construct a XSSFCell whose column index is already known to the row.
+     *
+     * @param row the parent row.
+     * @param cell the xml bean containing information about the cell.
+     * @param cellNum the 0-based column index of the cell.
+     */
+    XSSFCell(XSSFRow row, CTCell cell, int cellNum) {
+        _cell = cell;
+        _row = row;
+        _cellNum = cellNum;
+        _sharedStringSource = row.getSheet().getWorkbook().getSharedStringSource();
+        _stylesSource = row.getSheet().getWorkbook().getStylesSource();
+    }
+
+    /**
+     * Construct a XSSFCell which has been read without an xml bean.
+     * The bean is created when the cell is modified or {@link #getCTCell()} is called.
+     *
+     * @param row the parent row.
+     * @param cellNum the 0-based column index of the cell.
+     * @param type the "t" attribute of the cell, or <code>null</code> if it is not set
+     * @param style the style index of the cell, or -1 if it is not set
+     * @param value the content of the "v" element, or <code>null</code> if there is none
+     */
+    XSSFCell(XSSFRow row, int cellNum, STCellType.Enum type, int style, String value) {
+        _row = row;
+        _cellNum = cellNum;
+        _rawType = type;
+        _rawStyle = style;
+        _rawValue = value;
+        _sharedStringSource = row.getSheet().getWorkbook().getSharedStringSource();
+        _stylesSource = row.getSheet().getWorkbook().getStylesSource();
+    }
     
     /**
      * Copy cell value, formula and style, from srcCell per cell copy policy
@@ -249,10 +292,10 @@ public final class XSSFCell implements Cell {
             case BLANK:
                 return false;
             case BOOLEAN:
-                return _cell.isSetV() && TRUE_AS_STRING.equals(_cell.getV());
+                return TRUE_AS_STRING.equals(getRawValue());
             case FORMULA:
                 //YK: should throw an exception if requesting boolean value from a non-boolean formula
-                return _cell.isSetV() && TRUE_AS_STRING.equals(_cell.getV());
+                return TRUE_AS_STRING.equals(getRawValue());
             default:
                 throw typeMismatch(CellType.BOOLEAN, cellType, false);
         }
@@ -267,6 +310,7 @@ public final class XSSFCell implements Cell {
      */
     @Override
     public void setCellValue(boolean value) {
+        ensureCTCell();
         _cell.setT(STCellType.B);
         _cell.setV(value ? TRUE_AS_STRING : FALSE_AS_STRING);
     }
@@ -291,8 +335,8 @@ public final class XSSFCell implements Cell {
             case FORMULA:
                 // fall-through
             case NUMERIC:
-                if(_cell.isSetV()) {
-                   String v = _cell.getV();
+                String v = getRawValue();
+                if(v != null) {
                    if (v.isEmpty()) {
                        return 0.0;
                    }
@@ -319,6 +363,7 @@ public final class XSSFCell implements Cell {
      */
     @Override
     public void setCellValue(double value) {
+        ensureCTCell();
         if(Double.isInfinite(value)) {
             // Excel does not support positive/negative infinities,
             // rather, it gives a #DIV/0! error in these cases.
@@ -365,22 +410,23 @@ public final class XSSFCell implements Cell {
                 rt = new XSSFRichTextString("");
                 break;
             case STRING:
-                if (_cell.getT() == STCellType.INLINE_STR) {
-                    if(_cell.isSetIs()) {
+                STCellType.Enum t = getTypeAttribute();
+                if (t == STCellType.INLINE_STR) {
+                    if(_cell != null && _cell.isSetIs()) {
                         //string is expressed directly in the cell definition instead of implementing the shared string table.
                         rt = new XSSFRichTextString(_cell.getIs());
-                    } else if (_cell.isSetV()) {
+                    } else if (getRawValue() != null) {
                         //cached result of a formula
-                        rt = new XSSFRichTextString(_cell.getV());
+                        rt = new XSSFRichTextString(getRawValue());
                     } else {
                         rt = new XSSFRichTextString("");
                     }
-                } else if (_cell.getT() == STCellType.STR) {
+                } else if (t == STCellType.STR) {
                     //cached formula value
-                    rt = new XSSFRichTextString(_cell.isSetV() ? _cell.getV() : "");
+                    rt = new XSSFRichTextString(getRawValue() != null ? getRawValue() : "");
                 } else {
-                    if (_cell.isSetV()) {
-                        int idx = Integer.parseInt(_cell.getV());
+                    if (getRawValue() != null) {
+                        int idx = Integer.parseInt(getRawValue());
                         rt = new XSSFRichTextString(_sharedStringSource.getEntryAt(idx));
                     }
                     else {
@@ -390,7 +436,7 @@ public final class XSSFCell implements Cell {
                 break;
             case FORMULA:
                 checkFormulaCachedValueType(CellType.STRING, getBaseCellType(false));
-                rt = new XSSFRichTextString(_cell.isSetV() ? _cell.getV() : "");
+                rt = new XSSFRichTextString(getRawValue() != null ? getRawValue() : "");
                 break;
             default:
                 throw typeMismatch(CellType.STRING, cellType, false);
@@ -437,6 +483,7 @@ public final class XSSFCell implements Cell {
             throw new IllegalArgumentException("The maximum length of cell contents (text) is 32,767 characters");
         }
 
+        ensureCTCell();
         CellType cellType = getCellType();
         switch (cellType){
             case FORMULA:
@@ -483,7 +530,7 @@ public final class XSSFCell implements Cell {
             throw typeMismatch(CellType.FORMULA, cellType, false);
         }
 
-        CTCellFormula f = _cell.getF();
+        CTCellFormula f = (_cell != null) ? _cell.getF() : null;
         if (isPartOfArrayFormulaGroup()) {
             /* In an excel generated array formula, the formula property might be set, but the string is empty in slave cells */
             if (f == null || f.getStringValue().isEmpty()) {
@@ -521,7 +568,7 @@ public final class XSSFCell implements Cell {
         int sheetIndex = sheet.getWorkbook().getSheetIndex(sheet);
         SharedFormula sf = new SharedFormula(SpreadsheetVersion.EXCEL2007);
 
-        Ptg[] ptgs = FormulaParser.parse(sharedFormula, fpb, FormulaType.CELL, sheetIndex, getRowIndex());
+        Ptg[] ptgs = fpb.parseFormula(sharedFormula, FormulaType.CELL, sheetIndex, getRowIndex());
         Ptg[] fmla = sf.convertSharedFormulas(ptgs,
                 getRowIndex() - ref.getFirstRow(), getColumnIndex() - ref.getFirstColumn());
         return FormulaRenderer.toFormulaString(fpb, fmla);
@@ -550,12 +597,13 @@ public final class XSSFCell implements Cell {
 
     /* package */ void setCellArrayFormula(String formula, CellRangeAddress range) {
         setFormula(formula, FormulaType.ARRAY);
-        CTCellFormula cellFormula = _cell.getF();
+        CTCellFormula cellFormula = getCTCell().getF();
         cellFormula.setT(STCellFormulaType.ARRAY);
         cellFormula.setRef(range.formatAsString());
     }
 
     private void setFormula(String formula, FormulaType formulaType) {
+        ensureCTCell();
         XSSFWorkbook wb = _row.getSheet().getWorkbook();
         if (formula == null) {
             wb.onDeleteFormula(this);
@@ -615,7 +663,7 @@ public final class XSSFCell implements Cell {
      * @return A1 style reference to the location of this cell
      */
     public String getReference() {
-        String ref = _cell.getR();
+        String ref = (_cell != null) ? _cell.getR() : null;
         if(ref == null) {
             return getAddress().formatAsString();
         }
@@ -639,7 +687,12 @@ public final class XSSFCell implements Cell {
     public XSSFCellStyle getCellStyle() {
         XSSFCellStyle style = null;
         if(_stylesSource.getNumCellStyles() > 0){
-            long idx = _cell.isSetS() ? _cell.getS() : 0;
+            long idx;
+            if (_cell != null) {
+                idx = _cell.isSetS() ? _cell.getS() : 0;
+            } else {
+                idx = Math.max(_rawStyle, 0);
+            }
             style = _stylesSource.getStyleAt((int)idx);
         }
         return style;
@@ -658,6 +711,7 @@ public final class XSSFCell implements Cell {
      */
     @Override
     public void setCellStyle(CellStyle style) {
+        ensureCTCell();
         if(style == null) {
             if(_cell.isSetS()) {
                 _cell.unsetS();
@@ -682,7 +736,7 @@ public final class XSSFCell implements Cell {
      * @return true if the cell is of a formula type POI can handle
      */
     private boolean isFormulaCell() {
-        if ( (_cell.isSetF() && _cell.getF().getT() != STCellFormulaType.DATA_TABLE ) || getSheet().isCellInArrayFormulaContext(this)) {
+        if ( (_cell != null && _cell.isSetF() && _cell.getF().getT() != STCellFormulaType.DATA_TABLE ) || getSheet().isCellInArrayFormulaContext(this)) {
             return true;
         }
         return false;
@@ -761,11 +815,12 @@ public final class XSSFCell implements Cell {
      * Detect cell type based on the "t" attribute of the CTCell bean
      */
     private CellType getBaseCellType(boolean blankCells) {
-        switch (_cell.getT().intValue()) {
+        STCellType.Enum t = getTypeAttribute();
+        switch (t.intValue()) {
             case STCellType.INT_B:
                 return CellType.BOOLEAN;
             case STCellType.INT_N:
-                if (!_cell.isSetV() && blankCells) {
+                if (getRawValue() == null && blankCells) {
                     // ooxml does have a separate cell type of 'blank'.  A blank cell gets encoded as
                     // (either not present or) a numeric cell with no value set.
                     // The formula evaluator (and perhaps other clients of this interface) needs to
@@ -781,7 +836,7 @@ public final class XSSFCell implements Cell {
             case STCellType.INT_STR:
                  return CellType.STRING;
             default:
-                throw new IllegalStateException("Illegal cell type: " + this._cell.getT());
+                throw new IllegalStateException("Illegal cell type: " + t);
         }
     }
 
@@ -865,7 +920,7 @@ public final class XSSFCell implements Cell {
             throw typeMismatch(CellType.ERROR, cellType, false);
         }
 
-        return _cell.getV();
+        return getRawValue();
     }
     /**
      * Get the value of the cell as an error code.
@@ -915,6 +970,7 @@ public final class XSSFCell implements Cell {
      *        cell and set its value.
      */
     public void setCellErrorValue(FormulaError error) {
+        ensureCTCell();
         _cell.setT(STCellType.E);
         _cell.setV(error.getString());
     }
@@ -932,6 +988,7 @@ public final class XSSFCell implements Cell {
      * This method erases all the data previously associated with this cell.
      */
     private void setBlank(){
+        ensureCTCell();
         CTCell blank = CTCell.Factory.newInstance();
         blank.setR(_cell.getR());
         if(_cell.isSetS()) {
@@ -948,8 +1005,10 @@ public final class XSSFCell implements Cell {
     protected void setCellNum(int num) {
         checkBounds(num);
         _cellNum = num;
-        String ref = new CellReference(getRowIndex(), getColumnIndex()).formatAsString();
-        _cell.setR(ref);
+        if (_cell != null) {
+            String ref = new CellReference(getRowIndex(), getColumnIndex()).formatAsString();
+            _cell.setR(ref);
+        }
     }
 
     /**
@@ -959,6 +1018,7 @@ public final class XSSFCell implements Cell {
      */
     @Override
     public void setCellType(CellType cellType) {
+        ensureCTCell();
         CellType prevType = getCellType();
 
         if(isPartOfArrayFormulaGroup()){
@@ -1063,7 +1123,17 @@ public final class XSSFCell implements Cell {
      *     <code>null</code> for blank cells.
      */
     public String getRawValue() {
-        return _cell.getV();
+        return (_cell != null) ? _cell.getV() : _rawValue;
+    }
+
+    /**
+     * @return the "t" attribute of the cell, which defaults to {@link STCellType#N}
+     */
+    private STCellType.Enum getTypeAttribute() {
+        if (_cell != null) {
+            return _cell.getT();
+        }
+        return (_rawType != null) ? _rawType : STCellType.N;
     }
 
 
@@ -1176,8 +1246,62 @@ public final class XSSFCell implements Cell {
      */
     @Internal
     public CTCell getCTCell(){
+        ensureCTCell();
         return _cell;
     }
+
+    /**
+     * Create the xml bean of a cell which has been read without one
+     */
+    private void ensureCTCell() {
+        if (_cell == null) {
+            CTCell cell = _row.getCTRow().addNewC();
+            copyRawTo(cell);
+            _cell = cell;
+            _rawValue = null;
+            _rawType = null;
+        }
+    }
+
+    /**
+     * @return false if the cell has been read without an xml bean, which has not been created yet
+     */
+    boolean hasCTCell() {
+        return _cell != null;
+    }
+
+    /**
+     * @return the "t" attribute of a cell which has been read without an xml bean,
+     *  or <code>null</code> if it is not set
+     */
+    STCellType.Enum getRawType() {
+        return _rawType;
+    }
+
+    /**
+     * @return the style index of a cell which has been read without an xml bean,
+     *  or -1 if it is not set
+     */
+    int getRawStyle() {
+        return _rawStyle;
+    }
+
+    /**
+     * Set the reference, the type, the style and the value of a cell which has been read
+     * without an xml bean to the given bean
+     */
+    void copyRawTo(CTCell cell) {
+        cell.setR(new CellReference(getRowIndex(), getColumnIndex()).formatAsString());
+        if (_rawType != null) {
+            cell.setT(_rawType);
+        }
+        if (_rawStyle >= 0) {
+            cell.setS(_rawStyle);
+        }
+        if (_rawValue != null) {
+            cell.setV(_rawValue);
+        }
+    }
     
     /**
      * Set a new internal xml bean. This is only for internal use, do not call this from outside!
@@ -1206,14 +1330,14 @@ public final class XSSFCell implements Cell {
 
         switch (cellType) {
             case BOOLEAN:
-                return TRUE_AS_STRING.equals(_cell.getV());
+                return TRUE_AS_STRING.equals(getRawValue());
             case STRING:
-                int sstIndex = Integer.parseInt(_cell.getV());
+                int sstIndex = Integer.parseInt(getRawValue());
                 XSSFRichTextString rt = new XSSFRichTextString(_sharedStringSource.getEntryAt(sstIndex));
                 String text = rt.getString();
                 return Boolean.parseBoolean(text);
             case NUMERIC:
-                return Double.parseDouble(_cell.getV()) != 0;
+                return Double.parseDouble(getRawValue()) != 0;
 
             case ERROR:
                 // fall-through
@@ -1232,14 +1356,14 @@ public final class XSSFCell implements Cell {
             case BLANK:
                 return "";
             case BOOLEAN:
-                return TRUE_AS_STRING.equals(_cell.getV()) ? TRUE : FALSE;
+                return TRUE_AS_STRING.equals(getRawValue()) ? TRUE : FALSE;
             case STRING:
-                int sstIndex = Integer.parseInt(_cell.getV());
+                int sstIndex = Integer.parseInt(getRawValue());
                 XSSFRichTextString rt = new XSSFRichTextString(_sharedStringSource.getEntryAt(sstIndex));
                 return rt.getString();
             case NUMERIC:
             case ERROR:
-                return _cell.getV();
+                return getRawValue();
             case FORMULA:
                 // should really evaluate, but HSSFCell can't call HSSFFormulaEvaluator
                 // just use cached formula result instead
@@ -1248,7 +1372,7 @@ public final class XSSFCell implements Cell {
                 throw new IllegalStateException("Unexpected cell type (" + cellType + ")");
         }
         cellType = getBaseCellType(false);
-        String textValue = _cell.getV();
+        String textValue = getRawValue();
         switch (cellType) {
             case BOOLEAN:
                 if (TRUE_AS_STRING.equals(textValue)) {
@@ -1280,7 +1404,7 @@ public final class XSSFCell implements Cell {
             throw new IllegalStateException("Cell " + getReference()
                     + " is not part of an array formula.");
         }
-        String formulaRef = cell._cell.getF().getRef();
+        String formulaRef = cell.getCTCell().getF().getRef();
         return CellRangeAddress.valueOf(formulaRef);
     }
 
@@ -1337,9 +1461,11 @@ public final class XSSFCell implements Cell {
         //remove the reference in the calculation chain
         if(calcChain != null) calcChain.removeItem(sheetId, getReference());
     
-        CTCell ctCell = getCTCell();
-        String r = new CellReference(getRowIndex(), getColumnIndex()).formatAsString();
-        ctCell.setR(r);
+        // cells read without an xml bean compute their reference when the bean is created
+        if (_cell != null) {
+            String r = new CellReference(getRowIndex(), getColumnIndex()).formatAsString();
+            _cell.setR(r);
+        }
     }
         
 }
@@ -158,6 +158,11 @@ public final class XSSFDrawing extends POIXMLDocumentPart implements Drawing<XSS
         out.close();
     }
 
+    @Override
+    protected boolean isCommitIsolated() {
+        return true;
+    }
+
 	@Override
     public XSSFClientAnchor createAnchor(int dx1, int dy1, int dx2, int dy2,
 			int col1, int row1, int col2, int row2) {
@@ -17,9 +17,12 @@
 
 package org.apache.poi.xssf.usermodel;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import org.apache.poi.ss.formula.EvaluationCell;
 import org.apache.poi.ss.formula.IStabilityClassifier;
+import org.apache.poi.ss.formula.SharedWorkbookEvaluator;
 import org.apache.poi.ss.formula.WorkbookEvaluator;
 import org.apache.poi.ss.formula.udf.UDFFinder;
 import org.apache.poi.ss.usermodel.Cell;
@@ -100,6 +103,33 @@ public final class XSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
         evaluateAllFormulaCells(_book, this);
     }
 
+    /**
+     * Recalculates all formula cells like {@link #evaluateAll()}, but evaluates the
+     *  cells which don't depend on each other concurrently on the given pool.
+     * The dependencies are taken from the references of the formulas. The results
+     *  are saved once all cells have been evaluated. The workbook must not be
+     *  modified until this method returns.
+     *
+     * @param pool the pool to evaluate the formula cells on
+     * @since 4.0.0
+     */
+    public void evaluateAll(ForkJoinPool pool) {
+        evaluateAllFormulaCells(_book, this, pool);
+    }
+
+    /**
+     * Creates an evaluator for the cells of this workbook, which may be used by
+     *  several threads at the same time. The threads share the cached results of
+     *  the formula cells. The workbook must not be modified while it is used.
+     *
+     * @return a new evaluator using the user defined functions and the settings
+     *  of this evaluator
+     * @since 4.0.0
+     */
+    public SharedWorkbookEvaluator createSharedEvaluator() {
+        return createSharedEvaluator(_book, this);
+    }
+
     /**
      * Turns a XSSFCell into a XSSFEvaluationCell
      */
@@ -111,4 +141,9 @@ public final class XSSFFormulaEvaluator extends BaseXSSFFormulaEvaluator {
 
         return new XSSFEvaluationCell((XSSFCell)cell);
     }
+
+    @Override
+    protected Cell toCell(EvaluationCell cell) {
+        return ((XSSFEvaluationCell)cell).getXSSFCell();
+    }
 }
@@ -226,6 +226,7 @@ public final class XSSFName implements Name {
         } else {
             _ctName.setLocalSheetId(index);
         }
+        _workbook.onStructureChange();
     }
 
     /**
@@ -17,10 +17,13 @@
 
 package org.apache.poi.xssf.usermodel;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.poi.ss.formula.FormulaShifter;
 import org.apache.poi.ss.SpreadsheetVersion;
@@ -30,6 +33,7 @@ import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
 import org.apache.poi.util.Beta;
 import org.apache.poi.util.Internal;
 import org.apache.poi.util.LocaleUtil;
@@ -49,11 +53,37 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      */
     private final CTRow _row;
 
+    private static final int[] EMPTY_COLUMNS = new int[0];
+    private static final CTCell[] EMPTY_CT_CELLS = new CTCell[0];
+    private static final XSSFCell[] EMPTY_CELLS = new XSSFCell[0];
+
+    /**
+     * Column indexes of the cells of this row in the ascending order.
+     * Only the first <code>_cellCount</code> entries are used.
+     */
+    private int[] _columns;
+
+    /**
+     * The xml beans of the cells, parallel to <code>_columns</code>.
+     * Superseded by the bean of the cell view once the view has been created.
+     */
+    private CTCell[] _ctCells;
+
+    /**
+     * The cell views, parallel to <code>_columns</code>.
+     * Views of cells read from a file are only created when they are requested.
+     */
+    private XSSFCell[] _cells;
+
+    /**
+     * the number of cells in this row
+     */
+    private int _cellCount;
+
     /**
-     * Cells of this row keyed by their column indexes.
-     * The TreeMap ensures that the cells are ordered by columnIndex in the ascending order.
+     * counts structural changes of the cells, for the fail-fast iterator
      */
-    private final TreeMap<Integer, XSSFCell> _cells;
+    private int _modCount;
 
     /**
      * the parent sheet
@@ -67,15 +97,49 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      * @param sheet the parent sheet.
      */
     protected XSSFRow(CTRow row, XSSFSheet sheet) {
+        this(row, sheet, null);
+    }
+
+    /**
+     * Construct a XSSFRow, whose plain cells may have been read without xml beans.
+     *
+     * @param row the xml bean containing the row and the cells which have been read with XmlBeans.
+     * @param sheet the parent sheet.
+     * @param rowCells all cells of the row in document order, or <code>null</code>
+     *  if all cells are contained in the row bean
+     */
+    XSSFRow(CTRow row, XSSFSheet sheet, XSSFSheetDataReader.RowCells rowCells) {
         _row = row;
         _sheet = sheet;
-        _cells = new TreeMap<>();
-        for (CTCell c : row.getCArray()) {
-            XSSFCell cell = new XSSFCell(this, c);
-            // Performance optimization for bug 57840: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-            final Integer colI = Integer.valueOf(cell.getColumnIndex()); // NOSONAR
-            _cells.put(colI, cell);
-            sheet.onReadCell(cell);
+        CTCell[] cArray = row.getCArray();
+        int size = (rowCells != null) ? rowCells.size() : cArray.length;
+        if (size == 0) {
+            _columns = EMPTY_COLUMNS;
+            _ctCells = EMPTY_CT_CELLS;
+            _cells = EMPTY_CELLS;
+        } else {
+            _columns = new int[size];
+            _ctCells = new CTCell[size];
+            _cells = new XSSFCell[size];
+        }
+        if (rowCells == null) {
+            for (CTCell c : cArray) {
+                String ref = c.getR();
+                // cells without a reference follow the last cell
+                int columnIndex = (ref != null) ? getColumnIndex(ref) : Math.max(0, getLastCellNum());
+                readCell(c, columnIndex);
+            }
+        } else {
+            int beanIdx = 0;
+            for (int i = 0; i < size; i++) {
+                int columnIndex = rowCells.getColumn(i);
+                if (rowCells.isXmlBeansCell(i)) {
+                    readCell(cArray[beanIdx++], columnIndex);
+                } else {
+                    putCell(columnIndex, null, new XSSFCell(this, columnIndex,
+                            rowCells.getType(i), rowCells.getStyle(i), rowCells.getValue(i)));
+                }
+            }
         }
         
         if (! row.isSetR()) {
@@ -89,6 +153,17 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
         }
     }
 
+    private void readCell(CTCell c, int columnIndex) {
+        if (c.isSetF()) {
+            // the sheet has to know about shared and array formulas up front
+            XSSFCell cell = new XSSFCell(this, c, columnIndex);
+            putCell(columnIndex, c, cell);
+            _sheet.onReadCell(cell);
+        } else {
+            putCell(columnIndex, c, null);
+        }
+    }
+
     /**
      * Returns the XSSFSheet this row belongs to
      *
@@ -111,9 +186,8 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      * @return an iterator over cells in this row.
      */
     @Override
-    @SuppressWarnings("unchecked")
     public Iterator<Cell> cellIterator() {
-        return (Iterator<Cell>)(Iterator<? extends Cell>)_cells.values().iterator();
+        return new CellIterator();
     }
 
     /**
@@ -208,22 +282,20 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      */
     @Override
     public XSSFCell createCell(int columnIndex, CellType type) {
-        // Performance optimization for bug 57840: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-        final Integer colI = Integer.valueOf(columnIndex); // NOSONAR
         CTCell ctCell;
-        XSSFCell prev = _cells.get(colI);
-        if(prev != null){
-            ctCell = prev.getCTCell();
+        int idx = indexOf(columnIndex);
+        if(idx >= 0){
+            ctCell = getCTCellAt(idx);
             ctCell.set(CTCell.Factory.newInstance());
         } else {
             ctCell = _row.addNewC();
         }
-        XSSFCell xcell = new XSSFCell(this, ctCell);
+        XSSFCell xcell = new XSSFCell(this, ctCell, columnIndex);
         xcell.setCellNum(columnIndex);
         if (type != CellType.BLANK) {
             xcell.setCellType(type);
         }
-        _cells.put(colI, xcell);
+        putCell(columnIndex, ctCell, xcell);
         return xcell;
     }
     /**
@@ -247,9 +319,8 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
     public XSSFCell getCell(int cellnum, MissingCellPolicy policy) {
         if(cellnum < 0) throw new IllegalArgumentException("Cell index must be >= 0");
 
-        // Performance optimization for bug 57840: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-        final Integer colI = Integer.valueOf(cellnum); // NOSONAR
-        XSSFCell cell = _cells.get(colI);
+        int idx = indexOf(cellnum);
+        XSSFCell cell = (idx >= 0) ? getCellAt(idx) : null;
         switch (policy) {
             case RETURN_NULL_AND_BLANK:
                 return cell;
@@ -271,7 +342,7 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      */
     @Override
     public short getFirstCellNum() {
-        return (short)(_cells.size() == 0 ? -1 : _cells.firstKey());
+        return (short)(_cellCount == 0 ? -1 : _columns[0]);
     }
 
     /**
@@ -295,7 +366,7 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      */
     @Override
     public short getLastCellNum() {
-        return (short)(_cells.size() == 0 ? -1 : (_cells.lastKey() + 1));
+        return (short)(_cellCount == 0 ? -1 : (_columns[_cellCount - 1] + 1));
     }
 
     /**
@@ -359,7 +430,7 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      */
     @Override
     public int getPhysicalNumberOfCells() {
-        return _cells.size();
+        return _cellCount;
     }
 
     /**
@@ -477,9 +548,18 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
         if(cell.getCellType() == CellType.FORMULA) {
            _sheet.getWorkbook().onDeleteFormula(xcell);
         }
-        // Performance optimization for bug 57840: explicit boxing is slightly faster than auto-unboxing, though may use more memory
-        final Integer colI = Integer.valueOf(cell.getColumnIndex()); // NOSONAR
-        _cells.remove(colI);
+        removeCell(cell.getColumnIndex());
+        detach(xcell);
+    }
+
+    /**
+     * Give a removed cell a copy of its xml bean, as the bean in the xml store is released
+     * when the beans of the row are rearranged by {@link #onDocumentWrite()}
+     */
+    private static void detach(XSSFCell cell) {
+        if (cell != null && cell.hasCTCell()) {
+            cell.setCTCell((CTCell)cell.getCTCell().copy());
+        }
     }
 
     /**
@@ -498,21 +578,64 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
      * @see org.apache.poi.xssf.usermodel.XSSFSheet#write(java.io.OutputStream) ()
      */
     protected void onDocumentWrite(){
-        CTCell[] cArray = new CTCell[_cells.size()];
-        int i = 0;
-        for (XSSFCell xssfCell : _cells.values()) {
-            cArray[i] = (CTCell) xssfCell.getCTCell().copy();
-            
-            // we have to copy and re-create the XSSFCell here because the 
-            // elements as otherwise setCArray below invalidates all the columns!
+        // the beans in the xml store only need to be rearranged if they are not in the
+        // order of the columns, or if cells have been removed since the last write
+        CTCell[] current = _row.getCArray();
+        CTCell[] cArray = new CTCell[_cellCount];
+        int size = 0;
+        boolean inOrder = true;
+        for (int i = 0; i < _cellCount; i++) {
+            XSSFCell cell = _cells[i];
+            if (cell != null && !cell.hasCTCell()) {
+                // cells read without an xml bean stay without one
+                continue;
+            }
+            CTCell ctCell = getCTCellAt(i);
+            inOrder = inOrder && size < current.length && current[size] == ctCell;
+            cArray[size++] = ctCell;
+        }
+        if (inOrder && size == current.length) {
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            // we have to copy the beans here because setCArray below invalidates all the previous ones!
             // see Bug 56170, XMLBeans seems to always release previous objects
             // in the CArray, so we need to provide completely new ones here!
-            //_cells.put(entry.getKey(), new XSSFCell(this, cArray[i]));
-            xssfCell.setCTCell(cArray[i]);
-            i++;
+            cArray[i] = (CTCell) cArray[i].copy();
+        }
+        _row.setCArray((size == _cellCount) ? cArray : Arrays.copyOf(cArray, size));
+
+        // attach the cells to the new beans in the xml store
+        CTCell[] stored = _row.getCArray();
+        int pos = 0;
+        for (int i = 0; i < _cellCount; i++) {
+            XSSFCell cell = _cells[i];
+            if (cell != null && !cell.hasCTCell()) {
+                continue;
+            }
+            _ctCells[i] = stored[pos];
+            if (cell != null) {
+                cell.setCTCell(stored[pos]);
+            }
+            pos++;
         }
+    }
 
-        _row.setCArray(cArray);
+    /**
+     * Write the cells of this row in the order of their columns. Cells which have been read
+     * without an xml bean are written from their raw value.
+     */
+    void writeCells(XSSFSheetDataWriter writer) throws IOException {
+        int rownum = getRowNum();
+        for (int i = 0; i < _cellCount; i++) {
+            XSSFCell cell = _cells[i];
+            if (cell != null && !cell.hasCTCell()) {
+                writer.writeRawCell(rownum, cell);
+            } else {
+                writer.writeElement(getCTCellAt(i), XSSFSheetDataWriter.CELL);
+            }
+        }
     }
 
     /**
@@ -636,7 +759,7 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
         }
         for (int columnIndex = firstShiftColumnIndex; columnIndex <= firstShiftColumnIndex+step-1; columnIndex++)
         {
-            _cells.remove(columnIndex);
+            removeCell(columnIndex);
             XSSFCell targetCell = getCell(columnIndex);
             if(targetCell != null)
                 targetCell.getCTCell().set(CTCell.Factory.newInstance());
@@ -661,7 +784,7 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
             shiftCell(columnIndex, -step);
         }
         for (int columnIndex = lastShiftColumnIndex-step+1; columnIndex <= lastShiftColumnIndex; columnIndex++){
-            _cells.remove(columnIndex);
+            removeCell(columnIndex);
             XSSFCell targetCell = getCell(columnIndex);
             if(targetCell != null)
                 targetCell.getCTCell().set(CTCell.Factory.newInstance());
@@ -674,13 +797,158 @@ public class XSSFRow implements Row, Comparable<XSSFRow> {
         XSSFCell currentCell = getCell(columnIndex);
         if(currentCell != null){
             currentCell.setCellNum(columnIndex+step);
-            _cells.put(columnIndex+step, currentCell);
+            putCell(columnIndex+step, currentCell.getCTCell(), currentCell);
         }
         else {
-            _cells.remove(columnIndex+step);
+            removeCell(columnIndex+step);
             XSSFCell targetCell = getCell(columnIndex+step);
             if(targetCell != null)
                 targetCell.getCTCell().set(CTCell.Factory.newInstance());
         }
     }
+
+    /**
+     * Parses the column of a cell reference like "AB12" without going through
+     * {@link CellReference}, as this happens for every cell which is read.
+     */
+    static int getColumnIndex(String ref) {
+        int col = 0;
+        int i = 0;
+        for (; i < ref.length(); i++) {
+            char ch = ref.charAt(i);
+            if (ch >= 'A' && ch <= 'Z') {
+                col = col * 26 + (ch - 'A' + 1);
+            } else if (ch >= 'a' && ch <= 'z') {
+                col = col * 26 + (ch - 'a' + 1);
+            } else {
+                break;
+            }
+        }
+        if (i == 0 || i == ref.length()) {
+            // let CellReference deal with anything unusual
+            return new CellReference(ref).getCol();
+        }
+        return col - 1;
+    }
+
+    /**
+     * @return the position of the cell with the given column index,
+     *  or <code>-(insertion point) - 1</code> if there is no such cell
+     */
+    private int indexOf(int columnIndex) {
+        // cells are usually added and read from left to right
+        if (_cellCount > 0 && _columns[_cellCount - 1] == columnIndex) {
+            return _cellCount - 1;
+        }
+        return Arrays.binarySearch(_columns, 0, _cellCount, columnIndex);
+    }
+
+    /**
+     * @return the view of the cell at the given position, which is created on first access
+     */
+    private XSSFCell getCellAt(int idx) {
+        XSSFCell cell = _cells[idx];
+        if (cell == null) {
+            cell = new XSSFCell(this, _ctCells[idx], _columns[idx]);
+            _cells[idx] = cell;
+        }
+        return cell;
+    }
+
+    private CTCell getCTCellAt(int idx) {
+        XSSFCell cell = _cells[idx];
+        return (cell != null) ? cell.getCTCell() : _ctCells[idx];
+    }
+
+    /**
+     * Put a cell at the given column, replacing any existing cell at this column
+     *
+     * @param cell the view of the cell, or <code>null</code> to create it lazily
+     */
+    private void putCell(int columnIndex, CTCell ctCell, XSSFCell cell) {
+        int idx = indexOf(columnIndex);
+        if (idx < 0) {
+            idx = -idx - 1;
+            if (_cellCount == _columns.length) {
+                int capacity = Math.max(4, _cellCount + (_cellCount >> 1));
+                _columns = Arrays.copyOf(_columns, capacity);
+                _ctCells = Arrays.copyOf(_ctCells, capacity);
+                _cells = Arrays.copyOf(_cells, capacity);
+            }
+            if (idx < _cellCount) {
+                System.arraycopy(_columns, idx, _columns, idx + 1, _cellCount - idx);
+                System.arraycopy(_ctCells, idx, _ctCells, idx + 1, _cellCount - idx);
+                System.arraycopy(_cells, idx, _cells, idx + 1, _cellCount - idx);
+            }
+            _cellCount++;
+            _modCount++;
+        }
+        _columns[idx] = columnIndex;
+        _ctCells[idx] = ctCell;
+        _cells[idx] = cell;
+    }
+
+    private void removeCell(int columnIndex) {
+        int idx = indexOf(columnIndex);
+        if (idx >= 0) {
+            removeCellAt(idx);
+        }
+    }
+
+    private void removeCellAt(int idx) {
+        int moved = _cellCount - idx - 1;
+        if (moved > 0) {
+            System.arraycopy(_columns, idx + 1, _columns, idx, moved);
+            System.arraycopy(_ctCells, idx + 1, _ctCells, idx, moved);
+            System.arraycopy(_cells, idx + 1, _cells, idx, moved);
+        }
+        _cellCount--;
+        _ctCells[_cellCount] = null;
+        _cells[_cellCount] = null;
+        _modCount++;
+    }
+
+    /**
+     * Iterates over the defined cells in the ascending order of their column indexes.
+     * Throws ConcurrentModificationException if cells are added or removed
+     * after the iterator is created, other than by {@link #remove()}.
+     */
+    private class CellIterator implements Iterator<Cell> {
+        private int expectedModCount = _modCount;
+        private int pos;
+        private int last = -1;
+
+        @Override
+        public boolean hasNext() {
+            return pos < _cellCount;
+        }
+
+        @Override
+        public Cell next() {
+            if (_modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = pos;
+            return getCellAt(pos++);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (_modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            XSSFCell cell = _cells[last];
+            removeCellAt(last);
+            detach(cell);
+            pos = last;
+            last = -1;
+            expectedModCount = _modCount;
+        }
+    }
 }
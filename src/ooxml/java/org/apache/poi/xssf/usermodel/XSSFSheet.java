@@ -46,6 +46,7 @@ import org.apache.poi.ooxml.POIXMLDocumentPart;
 import org.apache.poi.ooxml.POIXMLException;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.openxml4j.exceptions.PartAlreadyExistsException;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.openxml4j.opc.PackagePart;
 import org.apache.poi.openxml4j.opc.PackageRelationship;
 import org.apache.poi.openxml4j.opc.PackageRelationshipCollection;
@@ -91,7 +92,6 @@ import org.apache.poi.xssf.usermodel.helpers.XSSFRowShifter;
 import org.apache.xmlbeans.XmlCursor;
 import org.apache.xmlbeans.XmlException;
 import org.apache.xmlbeans.XmlObject;
-import org.apache.xmlbeans.XmlOptions;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTAutoFilter;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTBreak;
 import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCalcPr;
@@ -175,6 +175,8 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet  {
     private SortedMap<String,XSSFTable> tables;
     private List<CellRangeAddress> arrayFormulas;
     private XSSFDataValidationHelper dataValidationHelper;
+    // false while the worksheet part of a lazily loaded workbook has not been parsed
+    private boolean loaded = true;
 
     /**
      * Creates new XSSFSheet   - called by XSSFWorkbook to create a sheet from scratch.
@@ -223,13 +225,18 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet  {
     }
 
     protected void read(InputStream is) throws IOException {
+        XSSFSheetDataReader sheetDataReader = null;
         try {
+            if (getWorkbook().isStreamingCells()) {
+                sheetDataReader = new XSSFSheetDataReader(is);
+                is = sheetDataReader.getMetadata();
+            }
             worksheet = WorksheetDocument.Factory.parse(is, DEFAULT_XML_OPTIONS).getWorksheet();
         } catch (XmlException e){
             throw new POIXMLException(e);
         }
 
-        initRows(worksheet);
+        initRows(worksheet, sheetDataReader);
         columnHelper = new ColumnHelper(worksheet);
         // Look for bits we're interested in
         for(RelationPart rp : getRelationParts()){
@@ -241,7 +248,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet  {
                 tables.put( rp.getRelationship().getId(), (XSSFTable)p );
             }
             if(p instanceof XSSFPivotTable) {
-                getWorkbook().getPivotTables().add((XSSFPivotTable) p);
+                getWorkbook().addPivotTable((XSSFPivotTable) p);
             }
         }
 
@@ -249,6 +256,68 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet  {
         initHyperlinks();
     }
 
+    /**
+     * Defer parsing the worksheet part until the sheet is accessed.
+     *
+     * @see XSSFWorkbook#XSSFWorkbook(org.apache.poi.openxml4j.opc.OPCPackage, boolean)
+     */
+    void deferLoading() {
+        loaded = false;
+    }
+
+    /**
+     * @return false if the worksheet part has not been parsed yet
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Parse the worksheet part, if this has been deferred.
+     */
+    void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            // after release() the content is in the part which replaced the original one
+            PackagePart part = getPackagePart();
+            PackagePart current = part.getPackage().getPart(part.getPartName());
+            read((current != null ? current : part).getInputStream());
+        } catch (IOException e) {
+            loaded = false;
+            throw new POIXMLException(e);
+        } catch (RuntimeException e) {
+            loaded = false;
+            throw e;
+        }
+    }
+
+    /**
+     * Write the worksheet back to its part and drop the parsed content, which is
+     * read again on the next access.
+     *
+     * @throws IOException if the sheet cannot be written
+     */
+    void release() throws IOException {
+        if (!loaded) {
+            return;
+        }
+        // a read-only package cannot be saved, so there is nothing to keep
+        if (getPackagePart().getPackage().getPackageAccess() != PackageAccess.READ) {
+            commit();
+        }
+        worksheet = null;
+        _rows.clear();
+        hyperlinks = null;
+        columnHelper = null;
+        sharedFormulas = null;
+        arrayFormulas = null;
+        tables = null;
+        loaded = false;
+    }
+
     /**
      * Initialize worksheet data when creating a new sheet.
      */
@@ -261,12 +330,25 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet  {
     }
 
     private void initRows(CTWorksheet worksheetParam) {
+        initRows(worksheetParam, null);
+    }
+
+    private void initRows(CTWorksheet worksheetParam, XSSFSheetDataReader sheetDataReader) {
         _rows.clear();
         tables = new TreeMap<>();
         sharedFormulas = new HashMap<>();
         arrayFormulas = new ArrayList<>();
-        for (CTRow row : worksheetParam.getSheetData().getRowArray()) {
-            XSSFRow r = new XSSFRow(row, this);
+        CTRow[] ctRows = worksheetParam.getSheetData().getRowArray();
+        boolean readerRows = (sheetDataReader != null && sheetDataReader.getRowCount() > 0);
+        if (readerRows && sheetDataReader.getRowCount() != ctRows.length) {
+            throw new POIXMLException("The sheet data contains " + ctRows.length
+                    + " rows, but " + sheetDataReader.getRowCount() + " rows have been read");
+        }
+        for (int i = 0; i < ctRows.length; i++) {
+            CTRow row = ctRows[i];
+            XSSFRow r = readerRows
+                    ? new XSSFRow(row, this, sheetDataReader.removeRowCells(i))
+                    : new XSSFRow(row, this);
             // Performance optimization: explicit boxing is slightly faster than auto-unboxing, though may use more memory
             final Integer rownumI = Integer.valueOf(r.getRowNum()); // NOSONAR
             _rows.put(rownumI, r);
@@ -337,6 +419,7 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet  {
      */
     @Internal
     public CTWorksheet getCTWorksheet() {
+        ensureLoaded();
         return this.worksheet;
     }
 
@@ -3561,14 +3644,30 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet  {
         }
     }
 
+    @Override
+    protected void prepareForCommit() {
+        // a sheet which has not been parsed keeps the original content of its part
+        if (loaded) {
+            super.prepareForCommit();
+        }
+    }
+
     @Override
     protected void commit() throws IOException {
+        if (!loaded) {
+            return;
+        }
         PackagePart part = getPackagePart();
         OutputStream out = part.getOutputStream();
         write(out);
         out.close();
     }
 
+    @Override
+    protected boolean isCommitIsolated() {
+        return true;
+    }
+
     protected void write(OutputStream out) throws IOException {
         boolean setToNull = false;
         if(worksheet.sizeOfColsArray() == 1) {
@@ -3641,10 +3740,8 @@ public class XSSFSheet extends POIXMLDocumentPart implements Sheet  {
             }
         }
 
-        XmlOptions xmlOptions = new XmlOptions(DEFAULT_XML_OPTIONS);
-        xmlOptions.setSaveSyntheticDocumentElement(new QName(CTWorksheet.type.getName().getNamespaceURI(), "worksheet"));
-
-        worksheet.save(out, xmlOptions);
+        // the rows and cells are written from the row and cell model, the rest of the worksheet by XmlBeans
+        new XSSFSheetDataWriter(out).writeWorksheet(worksheet, _rows.values());
 
         // Bug 52233: Ensure that we have a col-array even if write() removed it
         if(setToNull) {
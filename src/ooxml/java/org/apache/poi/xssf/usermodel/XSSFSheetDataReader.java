@@ -0,0 +1,415 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.usermodel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.poi.ooxml.POIXMLException;
+import org.apache.poi.util.StaxHelper;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+/**
+ * Reads a worksheet part with a StAX parser, so that the bulk of the cells is not
+ * parsed into XmlBeans.
+ * <p>
+ * Everything but the plain cells is copied into a reduced worksheet document, which is
+ * then parsed with XmlBeans as usual: the sheet metadata, the rows with their attributes
+ * and all cells with formulas, inline strings or unknown content. A plain cell has no
+ * other attributes than "r", "s" and "t" and no other child than "v". Its column, type,
+ * style and value are collected into the {@link RowCells} of its row, from which
+ * {@link XSSFRow} creates cells without an xml bean.
+ * </p>
+ */
+final class XSSFSheetDataReader {
+    private static final XMLInputFactory INPUT_FACTORY = StaxHelper.newXMLInputFactory();
+    // the namespace declarations are copied as they are, so the writer must not repair them
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+
+    private final ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+    private final List<RowCells> rows = new ArrayList<>();
+
+    /**
+     * Read the given worksheet part
+     *
+     * @param is the worksheet part
+     * @throws POIXMLException if the XML cannot be parsed
+     */
+    XSSFSheetDataReader(InputStream is) {
+        try {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(is);
+            try {
+                XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(metadata, "UTF-8");
+                writer.writeStartDocument("UTF-8", "1.0");
+                readDocument(reader, writer);
+                writer.writeEndDocument();
+                writer.close();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new POIXMLException(e);
+        }
+    }
+
+    /**
+     * @return the worksheet without its plain cells, to be parsed with XmlBeans
+     */
+    InputStream getMetadata() {
+        return new ByteArrayInputStream(metadata.toByteArray());
+    }
+
+    /**
+     * @return the number of rows read from the sheet data
+     */
+    int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * Return the cells of a row and release them from this reader
+     *
+     * @param index the position of the row in the sheet data
+     * @return the cells of the row
+     */
+    RowCells removeRowCells(int index) {
+        return rows.set(index, null);
+    }
+
+    private void readDocument(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        boolean inSheetData = false;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (inSheetData && isSpreadsheetElement(reader, "row")) {
+                    String rowNum = reader.getAttributeValue(null, "r");
+                    copyEvent(reader, writer);
+                    readRow(reader, writer, isValidRowNumber(rowNum) ? rowNum : null);
+                    continue;
+                }
+                if (isSpreadsheetElement(reader, "sheetData")) {
+                    inSheetData = true;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT && isSpreadsheetElement(reader, "sheetData")) {
+                inSheetData = false;
+            }
+            copyEvent(reader, writer);
+        }
+    }
+
+    /**
+     * @param rowNum the "r" attribute of the row if it is a valid row number, otherwise
+     *  the cells of the row are read with XmlBeans if they have a reference
+     */
+    private void readRow(XMLStreamReader reader, XMLStreamWriter writer, String rowNum) throws XMLStreamException {
+        RowCells cells = new RowCells();
+        rows.add(cells);
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (isSpreadsheetElement(reader, "c")) {
+                    readCell(reader, writer, cells, rowNum);
+                } else {
+                    copyElement(reader, writer);
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                copyEvent(reader, writer);
+                return;
+            } else if (event != XMLStreamConstants.CHARACTERS && event != XMLStreamConstants.SPACE) {
+                // the whitespace between the cells is not needed
+                copyEvent(reader, writer);
+            }
+        }
+    }
+
+    private void readCell(XMLStreamReader reader, XMLStreamWriter writer, RowCells cells, String rowNum)
+            throws XMLStreamException {
+        String ref = null;
+        String styleAttr = null;
+        String typeAttr = null;
+        boolean plain = (reader.getNamespaceCount() == 0);
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            String ns = reader.getAttributeNamespace(i);
+            String name = reader.getAttributeLocalName(i);
+            if (ns != null && !ns.isEmpty()) {
+                plain = false;
+            } else if ("r".equals(name)) {
+                ref = reader.getAttributeValue(i);
+            } else if ("s".equals(name)) {
+                styleAttr = reader.getAttributeValue(i);
+            } else if ("t".equals(name)) {
+                typeAttr = reader.getAttributeValue(i);
+            } else {
+                plain = false;
+            }
+        }
+
+        // the reference of a plain cell is recreated from its position
+        if (ref != null && !isCellReference(ref, rowNum)) {
+            plain = false;
+        }
+        // cells without a reference follow the previous cell
+        int column = (ref != null) ? XSSFRow.getColumnIndex(ref) : cells.getNextColumn();
+        STCellType.Enum type = (typeAttr != null) ? STCellType.Enum.forString(typeAttr) : null;
+        int style = -1;
+        if (plain && styleAttr != null) {
+            try {
+                style = Integer.parseInt(styleAttr);
+                plain = (style >= 0);
+            } catch (NumberFormatException e) {
+                plain = false;
+            }
+        }
+        if (!plain || (typeAttr != null && type == null)) {
+            copyElement(reader, writer);
+            cells.addXmlBeansCell(column);
+            return;
+        }
+
+        String prefix = reader.getPrefix();
+        String value = null;
+        boolean hasValue = false;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (!hasValue && isSpreadsheetElement(reader, "v")) {
+                    value = reader.getElementText();
+                    hasValue = true;
+                    continue;
+                }
+                // e.g. a formula or an inline string, leave the cell to XmlBeans
+                writeStartElement(writer, prefix, "c");
+                if (ref != null) {
+                    writer.writeAttribute("r", ref);
+                }
+                if (styleAttr != null) {
+                    writer.writeAttribute("s", styleAttr);
+                }
+                if (typeAttr != null) {
+                    writer.writeAttribute("t", typeAttr);
+                }
+                if (hasValue) {
+                    writeStartElement(writer, prefix, "v");
+                    writer.writeCharacters(value);
+                    writer.writeEndElement();
+                }
+                copyElement(reader, writer);
+                copyRemainder(reader, writer);
+                cells.addXmlBeansCell(column);
+                return;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                cells.addPlainCell(column, type, style, value);
+                return;
+            }
+        }
+    }
+
+    private static boolean isValidRowNumber(String rowNum) {
+        if (rowNum == null || rowNum.isEmpty() || rowNum.length() > 7 || rowNum.charAt(0) == '0') {
+            return false;
+        }
+        for (int i = 0; i < rowNum.length(); i++) {
+            char ch = rowNum.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the reference consists of a column name in upper case and the given row number
+     */
+    private static boolean isCellReference(String ref, String rowNum) {
+        if (rowNum == null) {
+            return false;
+        }
+        int letters = ref.length() - rowNum.length();
+        if (letters < 1 || letters > 3 || !ref.endsWith(rowNum)) {
+            return false;
+        }
+        for (int i = 0; i < letters; i++) {
+            char ch = ref.charAt(i);
+            if (ch < 'A' || ch > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeStartElement(XMLStreamWriter writer, String prefix, String localName)
+            throws XMLStreamException {
+        writer.writeStartElement(prefix == null ? "" : prefix, localName, XSSFRelation.NS_SPREADSHEETML);
+    }
+
+    private static boolean isSpreadsheetElement(XMLStreamReader reader, String localName) {
+        return localName.equals(reader.getLocalName())
+                && XSSFRelation.NS_SPREADSHEETML.equals(reader.getNamespaceURI());
+    }
+
+    /**
+     * Copy the element at the current start tag, including its content
+     */
+    private static void copyElement(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        copyEvent(reader, writer);
+        copyRemainder(reader, writer);
+    }
+
+    /**
+     * Copy the rest of the current element, including its end tag
+     */
+    private static void copyRemainder(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+            copyEvent(reader, writer);
+        }
+    }
+
+    private static void copyEvent(XMLStreamReader reader, XMLStreamWriter writer) throws XMLStreamException {
+        switch (reader.getEventType()) {
+            case XMLStreamConstants.START_ELEMENT:
+                String prefix = reader.getPrefix();
+                String ns = reader.getNamespaceURI();
+                writer.writeStartElement(prefix == null ? "" : prefix, reader.getLocalName(), ns == null ? "" : ns);
+                for (int i = 0; i < reader.getNamespaceCount(); i++) {
+                    String nsPrefix = reader.getNamespacePrefix(i);
+                    if (nsPrefix == null || nsPrefix.isEmpty()) {
+                        writer.writeDefaultNamespace(reader.getNamespaceURI(i));
+                    } else {
+                        writer.writeNamespace(nsPrefix, reader.getNamespaceURI(i));
+                    }
+                }
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    String attrNs = reader.getAttributeNamespace(i);
+                    if (attrNs == null || attrNs.isEmpty()) {
+                        writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                    } else {
+                        writer.writeAttribute(reader.getAttributePrefix(i), attrNs,
+                                reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+                    }
+                }
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                writer.writeEndElement();
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                break;
+            case XMLStreamConstants.CDATA:
+                writer.writeCData(reader.getText());
+                break;
+            case XMLStreamConstants.COMMENT:
+                writer.writeComment(reader.getText());
+                break;
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                break;
+            default:
+                // the document events are written by the caller, DTDs are not supported
+                break;
+        }
+    }
+
+    /**
+     * The cells of a row in document order. Cells which are left to XmlBeans are
+     * only recorded with their column, their xml beans are the cells of the row bean
+     * in the same order.
+     */
+    static final class RowCells {
+        private int size;
+        private int[] columns = new int[8];
+        private boolean[] xmlBeans = new boolean[8];
+        private STCellType.Enum[] types = new STCellType.Enum[8];
+        private int[] styles = new int[8];
+        private String[] values = new String[8];
+        private int maxColumn = -1;
+
+        private void add(int column) {
+            if (size == columns.length) {
+                int capacity = size + (size >> 1);
+                columns = Arrays.copyOf(columns, capacity);
+                xmlBeans = Arrays.copyOf(xmlBeans, capacity);
+                types = Arrays.copyOf(types, capacity);
+                styles = Arrays.copyOf(styles, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            columns[size] = column;
+            maxColumn = Math.max(maxColumn, column);
+        }
+
+        void addXmlBeansCell(int column) {
+            add(column);
+            xmlBeans[size++] = true;
+        }
+
+        void addPlainCell(int column, STCellType.Enum type, int style, String value) {
+            add(column);
+            types[size] = type;
+            styles[size] = style;
+            values[size++] = value;
+        }
+
+        int getNextColumn() {
+            return maxColumn + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int getColumn(int idx) {
+            return columns[idx];
+        }
+
+        /**
+         * @return true if the cell is one of the cells of the row bean
+         */
+        boolean isXmlBeansCell(int idx) {
+            return xmlBeans[idx];
+        }
+
+        STCellType.Enum getType(int idx) {
+            return types[idx];
+        }
+
+        int getStyle(int idx) {
+            return styles[idx];
+        }
+
+        String getValue(int idx) {
+            return values[idx];
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.usermodel;
+
+import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+import static org.apache.poi.xssf.usermodel.XSSFRelation.NS_SPREADSHEETML;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.apache.poi.xssf.streaming.Utf8XmlWriter;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlCursor.TokenType;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRow;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+/**
+ * Writes a worksheet part, taking the rows and cells of the sheet data directly from
+ * the {@link XSSFRow} and {@link XSSFCell} model instead of saving the complete
+ * {@link CTWorksheet} with XmlBeans.
+ * <p>
+ * The elements before and after the sheet data are still saved by XmlBeans, one at a time,
+ * with the namespaces of the worksheet element declared only once. Cells which have been read
+ * without an xml bean (see {@link XSSFSheetDataReader}) are written from their raw value and
+ * the beans of the rows and of the other cells are serialized by walking them with a cursor,
+ * so the cells are neither copied nor reordered in the xml store.
+ */
+final class XSSFSheetDataWriter {
+    private static final String XML_NS = "http://www.w3.org/XML/1998/namespace";
+    private static final QName WORKSHEET = new QName(NS_SPREADSHEETML, "worksheet");
+    private static final QName SHEET_DATA = new QName(NS_SPREADSHEETML, "sheetData");
+    private static final QName ROW = new QName(NS_SPREADSHEETML, "row");
+    private static final QName EXT_LST = new QName(NS_SPREADSHEETML, "extLst");
+    static final QName CELL = new QName(NS_SPREADSHEETML, "c");
+    @SuppressWarnings("unchecked")
+    private static final Map<String,String> SUGGESTED_PREFIXES =
+            (Map<String,String>)DEFAULT_XML_OPTIONS.get(XmlOptions.SAVE_SUGGESTED_PREFIXES);
+
+    private final Utf8XmlWriter _out;
+
+    /**
+     * The namespace bindings in scope as pairs of prefix and namespace uri, the innermost last
+     */
+    private final List<String> _bindings = new ArrayList<>();
+
+    /**
+     * Names and values of the attributes of the start tag being written
+     */
+    private final List<QName> _attrNames = new ArrayList<>();
+    private final List<String> _attrValues = new ArrayList<>();
+
+    /**
+     * The qualified names of the elements written for cells without an xml bean
+     */
+    private String _cTag;
+    private String _vTag;
+
+    XSSFSheetDataWriter(OutputStream out) {
+        _out = new Utf8XmlWriter(out);
+    }
+
+    /**
+     * Write the worksheet with the given rows as sheet data.
+     * The output stream is flushed, but not closed.
+     *
+     * @param worksheet the worksheet bean, whose sheet data is replaced by the rows
+     * @param rows the rows of the sheet in ascending order
+     */
+    void writeWorksheet(CTWorksheet worksheet, Collection<XSSFRow> rows) throws IOException {
+        _out.writeAscii("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        XmlCursor cur = worksheet.newCursor();
+        try {
+            // the worksheet bean might be the root element of its document or a fragment
+            String tag = writeStartTag(cur, WORKSHEET);
+            TokenType t = cur.currentTokenType();
+            if (t.isEnd() || t.isEnddoc()) {
+                _out.writeAscii("/>");
+            } else {
+                _out.write('>');
+                XmlOptions options = new XmlOptions(DEFAULT_XML_OPTIONS);
+                options.setSaveNoXmlDecl();
+                options.setSaveImplicitNamespaces(getBindings());
+                for (; !t.isEnd() && !t.isEnddoc(); t = cur.toNextToken()) {
+                    if (t.isStart() && SHEET_DATA.equals(cur.getName())) {
+                        writeSheetData(cur, rows);
+                    } else if (t.isStart()) {
+                        XmlObject child = cur.getObject();
+                        child.save(_out, options);
+                        cur.toEndToken();
+                    } else {
+                        writeToken(cur, t);
+                    }
+                }
+                writeEndTag(tag);
+            }
+        } finally {
+            cur.dispose();
+        }
+        _out.flush();
+    }
+
+    private void writeSheetData(XmlCursor cur, Collection<XSSFRow> rows) throws IOException {
+        int bindings = _bindings.size();
+        cur.push();
+        String tag = writeStartTag(cur, SHEET_DATA);
+        if (rows.isEmpty()) {
+            _out.writeAscii("/>");
+        } else {
+            _out.write('>');
+            _cTag = qualify(getPrefix(NS_SPREADSHEETML, null, false), "c");
+            _vTag = qualify(getPrefix(NS_SPREADSHEETML, null, false), "v");
+            for (XSSFRow row : rows) {
+                writeRow(row);
+            }
+            writeEndTag(tag);
+        }
+        // the content of the sheet data in the xml store is skipped
+        cur.pop();
+        cur.toEndToken();
+        popBindings(bindings);
+    }
+
+    private void writeRow(XSSFRow row) throws IOException {
+        CTRow ctRow = row.getCTRow();
+        int bindings = _bindings.size();
+        XmlCursor cur = ctRow.newCursor();
+        try {
+            String tag = writeStartTag(cur, cur.isStart() ? cur.getName() : ROW);
+            boolean extLst = ctRow.isSetExtLst();
+            if (row.getPhysicalNumberOfCells() == 0 && !extLst) {
+                _out.writeAscii("/>");
+            } else {
+                _out.write('>');
+                row.writeCells(this);
+                if (extLst) {
+                    writeElement(ctRow.getExtLst(), EXT_LST);
+                }
+                writeEndTag(tag);
+            }
+        } finally {
+            cur.dispose();
+        }
+        popBindings(bindings);
+    }
+
+    /**
+     * Write a cell, which has been read without an xml bean, from its raw value
+     *
+     * @param rownum the 0-based row index of the cell
+     * @param cell the cell without an xml bean
+     */
+    void writeRawCell(int rownum, XSSFCell cell) throws IOException {
+        _out.write('<');
+        _out.writeAscii(_cTag);
+        _out.writeAscii(" r=\"");
+        _out.writeCellReference(rownum, cell.getColumnIndex());
+        _out.write('"');
+        int style = cell.getRawStyle();
+        if (style >= 0) {
+            _out.writeAscii(" s=\"");
+            _out.writeLong(style);
+            _out.write('"');
+        }
+        STCellType.Enum type = cell.getRawType();
+        if (type != null) {
+            _out.writeAscii(" t=\"");
+            _out.writeAscii(type.toString());
+            _out.write('"');
+        }
+        String value = cell.getRawValue();
+        if (value == null) {
+            _out.writeAscii("/>");
+        } else {
+            _out.write('>');
+            _out.write('<');
+            _out.writeAscii(_vTag);
+            _out.write('>');
+            _out.writeEscaped(value);
+            writeEndTag(_vTag);
+            writeEndTag(_cTag);
+        }
+    }
+
+    /**
+     * Write the xml bean of an element, e.g. of a cell, including its content
+     *
+     * @param element the bean, which might be detached from the xml store
+     * @param name the name of the element, in case the bean is detached
+     */
+    void writeElement(XmlObject element, QName name) throws IOException {
+        XmlCursor cur = element.newCursor();
+        try {
+            writeElement(cur, cur.isStart() ? cur.getName() : name);
+        } finally {
+            cur.dispose();
+        }
+    }
+
+    /**
+     * Write the element at the cursor, which is left at the end token of the element
+     */
+    private void writeElement(XmlCursor cur, QName name) throws IOException {
+        int bindings = _bindings.size();
+        String tag = writeStartTag(cur, name);
+        TokenType t = cur.currentTokenType();
+        if (t.isEnd() || t.isEnddoc()) {
+            _out.writeAscii("/>");
+        } else {
+            _out.write('>');
+            for (; !t.isEnd() && !t.isEnddoc(); t = cur.toNextToken()) {
+                if (t.isStart()) {
+                    writeElement(cur, cur.getName());
+                } else {
+                    writeToken(cur, t);
+                }
+            }
+            writeEndTag(tag);
+        }
+        popBindings(bindings);
+    }
+
+    private void writeToken(XmlCursor cur, TokenType t) throws IOException {
+        if (t.isText()) {
+            _out.writeEscaped(cur.getChars());
+        } else if (t.isComment()) {
+            _out.writeAscii("<!--");
+            _out.write(cur.getTextValue());
+            _out.writeAscii("-->");
+        } else if (t.isProcinst()) {
+            _out.writeAscii("<?");
+            _out.write(cur.getName().getLocalPart());
+            _out.write(' ');
+            _out.write(cur.getTextValue());
+            _out.writeAscii("?>");
+        }
+    }
+
+    /**
+     * Write the start tag of the element at the cursor with its namespace declarations and
+     * attributes, but without the closing bracket. The cursor is moved to the first token after
+     * the attributes and the namespaces declared for the element are added to the bindings.
+     *
+     * @return the qualified name of the element for the end tag
+     */
+    private String writeStartTag(XmlCursor cur, QName name) throws IOException {
+        int bindings = _bindings.size();
+        _attrNames.clear();
+        _attrValues.clear();
+        TokenType t = cur.toNextToken();
+        for (; t.isAttr() || t.isNamespace(); t = cur.toNextToken()) {
+            if (t.isNamespace()) {
+                _bindings.add(cur.getName().getLocalPart());
+                _bindings.add(cur.getTextValue());
+            } else {
+                _attrNames.add(cur.getName());
+                _attrValues.add(cur.getTextValue());
+            }
+        }
+
+        String tag = qualify(getPrefix(name.getNamespaceURI(), name.getPrefix(), false), name.getLocalPart());
+        _out.write('<');
+        _out.write(tag);
+        for (int i = 0; i < _attrNames.size(); i++) {
+            QName attrName = _attrNames.get(i);
+            _out.write(' ');
+            _out.write(qualify(getPrefix(attrName.getNamespaceURI(), attrName.getPrefix(), true), attrName.getLocalPart()));
+            _out.writeAscii("=\"");
+            _out.writeEscaped(_attrValues.get(i));
+            _out.write('"');
+        }
+        // the declarations of the element itself and the ones added for its name and attributes
+        for (int i = bindings; i < _bindings.size(); i += 2) {
+            String prefix = _bindings.get(i);
+            _out.writeAscii(prefix.isEmpty() ? " xmlns" : " xmlns:");
+            _out.write(prefix);
+            _out.writeAscii("=\"");
+            _out.writeEscaped(_bindings.get(i+1));
+            _out.write('"');
+        }
+        return tag;
+    }
+
+    private void writeEndTag(String tag) throws IOException {
+        _out.writeAscii("</");
+        _out.write(tag);
+        _out.write('>');
+    }
+
+    private static String qualify(String prefix, String localPart) {
+        return prefix.isEmpty() ? localPart : prefix + ":" + localPart;
+    }
+
+    /**
+     * Find the prefix bound to the namespace, and declare one if there is none in scope
+     *
+     * @param uri the namespace uri of an element or attribute
+     * @param suggested the prefix of the name in the xml store, may be null or empty
+     * @param attribute true for the name of an attribute, which can't use the default namespace
+     */
+    private String getPrefix(String uri, String suggested, boolean attribute) {
+        if (uri.isEmpty()) {
+            String defaultUri = getNamespace("");
+            if (!attribute && defaultUri != null && !defaultUri.isEmpty()) {
+                // undeclare the default namespace
+                _bindings.add("");
+                _bindings.add("");
+            }
+            return "";
+        }
+        if (XML_NS.equals(uri)) {
+            return "xml";
+        }
+        for (int i = _bindings.size() - 2; i >= 0; i -= 2) {
+            String prefix = _bindings.get(i);
+            if (uri.equals(_bindings.get(i+1)) && !(attribute && prefix.isEmpty()) && uri.equals(getNamespace(prefix))) {
+                return prefix;
+            }
+        }
+
+        if (suggested == null || suggested.isEmpty()) {
+            suggested = SUGGESTED_PREFIXES.get(uri);
+        }
+        String prefix;
+        if (suggested != null && !suggested.isEmpty() && getNamespace(suggested) == null) {
+            prefix = suggested;
+        } else if (!attribute && NS_SPREADSHEETML.equals(uri) && getNamespace("") == null) {
+            prefix = "";
+        } else {
+            int i = 0;
+            do {
+                prefix = "ns" + (++i);
+            } while (getNamespace(prefix) != null);
+        }
+        _bindings.add(prefix);
+        _bindings.add(uri);
+        return prefix;
+    }
+
+    /**
+     * @return the namespace uri bound to the prefix, or null if the prefix is not bound
+     */
+    private String getNamespace(String prefix) {
+        for (int i = _bindings.size() - 2; i >= 0; i -= 2) {
+            if (prefix.equals(_bindings.get(i))) {
+                return _bindings.get(i+1);
+            }
+        }
+        return null;
+    }
+
+    private Map<String,String> getBindings() {
+        Map<String,String> map = new HashMap<>();
+        for (int i = 0; i < _bindings.size(); i += 2) {
+            map.put(_bindings.get(i), _bindings.get(i+1));
+        }
+        return map;
+    }
+
+    private void popBindings(int size) {
+        while (_bindings.size() > size) {
+            _bindings.remove(_bindings.size() - 1);
+        }
+    }
+}
@@ -105,10 +105,12 @@ public class XSSFTable extends POIXMLDocumentPart implements Table {
     }
     
     /**
-     * @return owning sheet
+     * @return owning sheet, which is parsed now if its loading has been deferred
      */
     public XSSFSheet getXSSFSheet(){
-        return (XSSFSheet) getParent();
+        XSSFSheet sheet = (XSSFSheet) getParent();
+        sheet.ensureLoaded();
+        return sheet;
     }
 
     /**
@@ -809,7 +811,7 @@ public class XSSFTable extends POIXMLDocumentPart implements Table {
      *  manually add cells with values of "Column1", "Column2" etc first. 
      */
     public void updateHeaders() {
-        XSSFSheet sheet = (XSSFSheet)getParent();
+        XSSFSheet sheet = getXSSFSheet();
         CellReference ref = getStartCellReference();
         if (ref == null) return;
 
@@ -877,7 +879,8 @@ public class XSSFTable extends POIXMLDocumentPart implements Table {
      * @since 3.15 beta 2
      */
     public String getSheetName() {
-        return getXSSFSheet().getSheetName();
+        // the sheet name is known without parsing a deferred sheet
+        return ((XSSFSheet) getParent()).getSheetName();
     }
 
     /**
@@ -206,6 +206,11 @@ public final class XSSFVMLDrawing extends POIXMLDocumentPart {
         out.close();
     }
 
+    @Override
+    protected boolean isCommitIsolated() {
+        return true;
+    }
+
     /**
      * Initialize a new Speadsheet VML drawing
      */
@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
 import java.util.regex.Pattern;
 
 import javax.xml.namespace.QName;
@@ -155,6 +156,16 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
      */
     private List<XSSFSheet> sheets;
 
+    /**
+     * whether the worksheets are parsed on first access
+     */
+    private boolean lazySheetLoading;
+
+    /**
+     * whether the plain cells of the worksheets are read with StAX instead of XmlBeans
+     */
+    private boolean streamingCells;
+
     /**
      * this holds the XSSFName objects attached to this workbook, keyed by lower-case name
      */
@@ -165,6 +176,11 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
      */
     private List<XSSFName> namedRanges;
 
+    /**
+     * counts the changes of the sheets and names, which invalidate the tokens of parsed formulas
+     */
+    private int structureVersion;
+
     /**
      * shared string table - a cache of strings in this workbook
      */
@@ -217,6 +233,11 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
      */
     private boolean cellFormulaValidation = true;
 
+    /**
+     * The executor on which the sheets, styles, shared strings, drawings and comments are committed
+     */
+    private Executor writeExecutor;
+
     /**
      * array of pictures for this workbook
      */
@@ -277,8 +298,52 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
      * @param pkg the OpenXML4J <code>OPC Package</code> object.
      */
     public XSSFWorkbook(OPCPackage pkg) throws IOException {
+        this(pkg, false);
+    }
+
+    /**
+     * Constructs a XSSFWorkbook object given a OpenXML4J <code>Package</code> object,
+     *  optionally deferring the parsing of the worksheets.
+     *
+     * <p>With lazy sheet loading, opening the workbook only reads the workbook part,
+     *  the styles, the shared strings and the other parts the sheets refer to. The
+     *  XML of a worksheet is parsed the first time the sheet is returned from the
+     *  workbook, e.g. by {@link #getSheetAt(int)}, {@link #getSheet(String)} or
+     *  the sheet iterator. Sheets which are never accessed are written back unchanged,
+     *  and {@link #releaseSheet(int)} frees the memory of a sheet which is no longer
+     *  needed. This reduces the time and heap for reading a few sheets of a large
+     *  workbook. Chart sheets and dialog sheets are always loaded.
+     *
+     * @param pkg the OpenXML4J <code>OPC Package</code> object.
+     * @param lazySheetLoading whether to parse the worksheets on first access
+     * @since 4.0.0
+     */
+    public XSSFWorkbook(OPCPackage pkg, boolean lazySheetLoading) throws IOException {
+        this(pkg, lazySheetLoading, false);
+    }
+
+    /**
+     * Constructs a XSSFWorkbook object given a OpenXML4J <code>Package</code> object,
+     *  optionally deferring the parsing of the worksheets and reading the cells without XmlBeans.
+     *
+     * <p>With streaming cells, the worksheets are read with a StAX parser. Only the sheet
+     *  metadata (e.g. merged regions, conditional formatting, drawings), the row attributes
+     *  and the cells with formulas or inline strings are parsed into XmlBeans. All other
+     *  cells only keep their value, type and style until they are modified or their
+     *  {@link XSSFCell#getCTCell() xml bean} is requested. This reduces the time and
+     *  heap for reading large worksheets.
+     *
+     * @param pkg the OpenXML4J <code>OPC Package</code> object.
+     * @param lazySheetLoading whether to parse the worksheets on first access
+     * @param streamingCells whether to read the plain cells of the worksheets without XmlBeans
+     * @see #XSSFWorkbook(OPCPackage, boolean)
+     * @since 4.0.0
+     */
+    public XSSFWorkbook(OPCPackage pkg, boolean lazySheetLoading, boolean streamingCells) throws IOException {
         super(pkg);
         this.xssfFactory = XSSFFactory.getInstance();
+        this.lazySheetLoading = lazySheetLoading;
+        this.streamingCells = streamingCells;
 
         beforeDocumentRead();
 
@@ -449,10 +514,22 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
             return;
         }
         sh.sheet = ctSheet;
-        sh.onDocumentRead();
+        if (lazySheetLoading && sh.getClass() == XSSFSheet.class) {
+            sh.deferLoading();
+        } else {
+            sh.onDocumentRead();
+        }
         sheets.add(sh);
     }
 
+    /**
+     * @return true if the plain cells of the worksheets are read without XmlBeans
+     * @see #XSSFWorkbook(OPCPackage, boolean, boolean)
+     */
+    boolean isStreamingCells() {
+        return streamingCells;
+    }
+
     /**
      * Create a new CTWorkbook with all values set to default
      */
@@ -605,7 +682,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
      */
     public XSSFSheet cloneSheet(int sheetNum, String newName) {
         validateSheetIndex(sheetNum);
-        XSSFSheet srcSheet = sheets.get(sheetNum);
+        XSSFSheet srcSheet = getSheetAt(sheetNum);
 
         if (newName == null) {
             String srcName = srcSheet.getSheetName();
@@ -787,9 +864,26 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
         XSSFName name = new XSSFName(ctName, this);
         namedRanges.add(name);
         namedRangesByName.put(ctName.getName().toLowerCase(Locale.ENGLISH), name);
+        onStructureChange();
         return name;
     }
 
+    /**
+     * Called when sheets or names are added, removed, renamed or reordered,
+     * which changes the sheet and name indexes of parsed formulas
+     */
+    void onStructureChange() {
+        structureVersion++;
+    }
+
+    /**
+     * @return a number which changes whenever sheets or names are added, removed, renamed
+     * or reordered
+     */
+    int getStructureVersion() {
+        return structureVersion;
+    }
+
     /**
      * Create an XSSFSheet for this workbook, adds it to the sheets and returns
      * the high level representation.  Use this to create new sheets.
@@ -902,6 +996,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
             wrapper.setSelected(true);
         }
         sheets.add(wrapper);
+        onStructureChange();
         return wrapper;
     }
 
@@ -1131,6 +1226,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     public XSSFSheet getSheet(String name) {
         for (XSSFSheet sheet : sheets) {
             if (name.equalsIgnoreCase(sheet.getSheetName())) {
+                sheet.ensureLoaded();
                 return sheet;
             }
         }
@@ -1148,7 +1244,46 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     @Override
     public XSSFSheet getSheetAt(int index) {
         validateSheetIndex(index);
-        return sheets.get(index);
+        XSSFSheet sheet = sheets.get(index);
+        sheet.ensureLoaded();
+        return sheet;
+    }
+
+    /**
+     * Returns whether the XML of a sheet has been parsed, which is only deferred for
+     * workbooks opened with lazy sheet loading.
+     *
+     * @param index of the sheet (0 based)
+     * @return false if the sheet has not been accessed yet or has been released
+     * @see #XSSFWorkbook(OPCPackage, boolean)
+     * @since 4.0.0
+     */
+    public boolean isSheetLoaded(int index) {
+        validateSheetIndex(index);
+        return sheets.get(index).isLoaded();
+    }
+
+    /**
+     * Writes the sheet back to the package and frees the memory of its rows and cells.
+     * The sheet is parsed again the next time it is returned from this workbook, so
+     * references to the sheet, its rows or cells which have been obtained before must
+     * not be used anymore.
+     *
+     * @param index of the sheet (0 based)
+     * @throws IOException if the sheet cannot be written to the package
+     * @throws IllegalStateException if the workbook was not opened with lazy sheet loading
+     * @see #XSSFWorkbook(OPCPackage, boolean)
+     * @since 4.0.0
+     */
+    public void releaseSheet(int index) throws IOException {
+        validateSheetIndex(index);
+        if (!lazySheetLoading) {
+            throw new IllegalStateException("Sheets can only be released when the workbook is opened with lazy sheet loading");
+        }
+        XSSFSheet sheet = sheets.get(index);
+        if (sheet.getClass() == XSSFSheet.class) {
+            sheet.release();
+        }
     }
 
     /**
@@ -1239,7 +1374,9 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
         }
         @Override
         public T next() throws NoSuchElementException {
-            return it.next();
+            T sheet = it.next();
+            ((XSSFSheet)sheet).ensureLoaded();
+            return sheet;
         }
         /**
          * Unexpected behavior may occur if sheets are reordered after iterator
@@ -1312,6 +1449,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
                 || !namedRanges.remove(name)) {
             throw new IllegalArgumentException("Name was not found: " + name);
         }
+        onStructureChange();
     }
 
     void updateName(XSSFName name, String oldName) {
@@ -1319,6 +1457,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
             throw new IllegalArgumentException("Name was not found: " + name);
         }
         namedRangesByName.put(name.getNameName().toLowerCase(Locale.ENGLISH), name);
+        onStructureChange();
     }
 
 
@@ -1358,6 +1497,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
         XSSFSheet sheet = getSheetAt(index);
         removeRelation(sheet);
         sheets.remove(index);
+        onStructureChange();
 
         // only set new sheet if there are still some left
         if(sheets.size() == 0) {
@@ -1590,6 +1730,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     public void setSelectedTab(int index) {
         int idx = 0;
         for (XSSFSheet sh : sheets) {
+            sh.ensureLoaded();
             sh.setSelected(idx == index);
             idx++;
         }
@@ -1635,6 +1776,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
         utils.updateSheetName(sheetIndex, oldSheetName, sheetname);
 
         workbook.getSheets().getSheetArray(sheetIndex).setName(sheetname);
+        onStructureChange();
     }
 
     /**
@@ -1664,6 +1806,7 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
 
         updateNamedRangesAfterSheetReorder(idx, pos);
         updateActiveSheetAfterSheetReorder(idx, pos);
+        onStructureChange();
     }
 
     /**
@@ -2273,9 +2416,29 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
 
     @Beta
     public List<XSSFPivotTable> getPivotTables() {
+        // the pivot tables are registered when their sheet is parsed, the ones of
+        // deferred sheets are taken from the relations without parsing the sheet
+        if (sheets != null) {
+            for (XSSFSheet sheet : sheets) {
+                if (!sheet.isLoaded()) {
+                    for (RelationPart rp : sheet.getRelationParts()) {
+                        if (rp.getDocumentPart() instanceof XSSFPivotTable) {
+                            addPivotTable(rp.<XSSFPivotTable>getDocumentPart());
+                        }
+                    }
+                }
+            }
+        }
         return pivotTables;
     }
 
+    void addPivotTable(XSSFPivotTable pivotTable) {
+        // a released sheet registers its pivot tables again when it is reloaded
+        if (!pivotTables.contains(pivotTable)) {
+            pivotTables.add(pivotTable);
+        }
+    }
+
     @Beta
     protected void setPivotTables(List<XSSFPivotTable> pivotTables) {
         this.pivotTables = pivotTables;
@@ -2365,9 +2528,21 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     public XSSFTable getTable(String name) {
         if (name != null && sheets != null) {
             for (XSSFSheet sheet : sheets) {
-                for (XSSFTable tbl : sheet.getTables()) {
-                    if (name.equalsIgnoreCase(tbl.getName())) {
-                        return tbl;
+                if (sheet.isLoaded()) {
+                    for (XSSFTable tbl : sheet.getTables()) {
+                        if (name.equalsIgnoreCase(tbl.getName())) {
+                            return tbl;
+                        }
+                    }
+                } else {
+                    // the tables are parsed with the workbook, only the deferred sheet isn't
+                    for (RelationPart rp : sheet.getRelationParts()) {
+                        if (rp.getDocumentPart() instanceof XSSFTable) {
+                            XSSFTable tbl = rp.getDocumentPart();
+                            if (name.equalsIgnoreCase(tbl.getName())) {
+                                return tbl;
+                            }
+                        }
                     }
                 }
             }
@@ -2431,4 +2606,35 @@ public class XSSFWorkbook extends POIXMLDocument implements Workbook {
     public boolean getCellFormulaValidation() {
         return this.cellFormulaValidation;
     }
+
+    /**
+     * Commit the worksheets, the shared strings and styles tables, the drawings and the comments
+     * concurrently on the given executor when the workbook is written. The parts are serialized into
+     * memory buffers and then written into the zip file in the usual order, so the output is the same
+     * as without an executor.
+     * <p>
+     * The workbook must not be modified while it is written.
+     * </p>
+     *
+     * @param executor the executor to commit the parts, e.g. a fixed thread pool,
+     *                 or {@code null} to commit them in the calling thread (default)
+     * @since 4.0.0
+     */
+    public void setWriteExecutor(Executor executor) {
+        this.writeExecutor = executor;
+    }
+
+    /**
+     * @return the executor on which the parts are committed when writing, or {@code null}
+     * @see #setWriteExecutor(Executor)
+     * @since 4.0.0
+     */
+    public Executor getWriteExecutor() {
+        return writeExecutor;
+    }
+
+    @Override
+    protected Executor getCommitExecutor() {
+        return writeExecutor;
+    }
 }
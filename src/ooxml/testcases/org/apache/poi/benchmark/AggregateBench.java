@@ -0,0 +1,90 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures recalculating SUM, AVERAGE, COUNT, MIN and MAX over long columns of plain values,
+ * which are read in bulk from the cached snapshots of the columns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class AggregateBench {
+    private static final String[] FUNCTIONS = { "SUM", "AVERAGE", "COUNT", "MIN", "MAX" };
+
+    @Param({"10000", "200000"})
+    public int columnRows;
+
+    private XSSFWorkbook workbook;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workbook = new XSSFWorkbook();
+        XSSFSheet data = workbook.createSheet("Data");
+        for (int r = 0; r < columnRows; r++) {
+            XSSFRow row = data.createRow(r);
+            row.createCell(0).setCellValue(r % 1000);
+            if (r % 3 != 0) {
+                row.createCell(1).setCellValue(r * 0.25);
+            }
+        }
+        XSSFSheet report = workbook.createSheet("Report");
+        String n = Integer.toString(columnRows);
+        for (int r = 0; r < 20; r++) {
+            XSSFRow row = report.createRow(r);
+            for (int f = 0; f < FUNCTIONS.length; f++) {
+                row.createCell(2 * f).setCellFormula(FUNCTIONS[f] + "(Data!$A$1:$A$" + n + ")+" + r);
+                row.createCell(2 * f + 1).setCellFormula(FUNCTIONS[f] + "(Data!B:B)+" + r);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public XSSFWorkbook evaluateAll() {
+        XSSFFormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        evaluator.evaluateAll();
+        return workbook;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(".*" + AggregateBench.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,91 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures recalculating array formulas whose operators and matrix functions produce arrays
+ * of numbers, which are passed on to SUMPRODUCT, SUM and MMULT without a NumberEval per cell.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ArrayFormulaBench {
+    @Param({"1000", "20000"})
+    public int columnRows;
+
+    private XSSFWorkbook workbook;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workbook = new XSSFWorkbook();
+        XSSFSheet data = workbook.createSheet("Data");
+        for (int r = 0; r < columnRows; r++) {
+            XSSFRow row = data.createRow(r);
+            row.createCell(0).setCellValue(r % 1000);
+            row.createCell(1).setCellValue(r * 0.25);
+        }
+        XSSFSheet report = workbook.createSheet("Report");
+        String a = "Data!$A$1:$A$" + columnRows;
+        String b = "Data!$B$1:$B$" + columnRows;
+        for (int r = 0; r < 20; r++) {
+            String[] formulas = {
+                "SUMPRODUCT((" + a + ">" + (r * 40) + ")*" + b + ")",
+                "SUM(" + a + "*" + b + ")+" + r,
+                "SUM(MMULT(TRANSPOSE(" + a + ")," + b + "))+" + r,
+            };
+            for (int c = 0; c < formulas.length; c++) {
+                report.setArrayFormula(formulas[c], new CellRangeAddress(r, r, c, c));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public XSSFWorkbook evaluateAll() {
+        XSSFFormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        evaluator.evaluateAll();
+        return workbook;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(".*" + ArrayFormulaBench.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,96 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares recalculating 4 sheets of mostly independent formulas in the calling thread
+ * and on a fork/join pool, see {@link XSSFFormulaEvaluator#evaluateAll(ForkJoinPool)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FormulaEvaluateAllBench {
+    @Param({"0", "4"})
+    public int threads;
+
+    private XSSFWorkbook workbook;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workbook = new XSSFWorkbook();
+        for (int s = 0; s < 4; s++) {
+            XSSFSheet sheet = workbook.createSheet();
+            for (int r = 0; r < 5000; r++) {
+                XSSFRow row = sheet.createRow(r);
+                String n = Integer.toString(r + 1);
+                row.createCell(0).setCellValue(r * 0.5 + s);
+                row.createCell(1).setCellFormula("A" + n + "*2+1");
+                row.createCell(2).setCellFormula("SQRT(B" + n + ")+MOD(A" + n + ",7)");
+                row.createCell(3).setCellFormula("IF(C" + n + ">10,ROUND(C" + n + ",2),\"small\")");
+                row.createCell(4).setCellFormula("SUM(A" + n + ":C" + n + ")");
+            }
+        }
+        if (threads > 0) {
+            pool = new ForkJoinPool(threads);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public XSSFWorkbook evaluateAll() {
+        XSSFFormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        if (pool == null) {
+            evaluator.evaluateAll();
+        } else {
+            evaluator.evaluateAll(pool);
+        }
+        return workbook;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(".*" + FormulaEvaluateAllBench.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
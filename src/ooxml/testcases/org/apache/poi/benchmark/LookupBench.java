@@ -0,0 +1,87 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures recalculating exact-match VLOOKUPs and MATCHes against a table of plain values,
+ * whose key column is indexed by the evaluator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LookupBench {
+    @Param({"1000", "20000"})
+    public int tableRows;
+
+    private XSSFWorkbook workbook;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workbook = new XSSFWorkbook();
+        XSSFSheet table = workbook.createSheet("Table");
+        for (int r = 0; r < tableRows; r++) {
+            XSSFRow row = table.createRow(r);
+            row.createCell(0).setCellValue("Key" + r);
+            row.createCell(1).setCellValue(r * 0.5);
+        }
+        XSSFSheet lookups = workbook.createSheet("Lookups");
+        String area = "Table!$A$1:$B$" + tableRows;
+        String column = "Table!$A$1:$A$" + tableRows;
+        for (int r = 0; r < 2000; r++) {
+            XSSFRow row = lookups.createRow(r);
+            row.createCell(0).setCellValue("key" + (r * 7919L % tableRows));
+            String n = Integer.toString(r + 1);
+            row.createCell(1).setCellFormula("VLOOKUP(A" + n + "," + area + ",2,FALSE)");
+            row.createCell(2).setCellFormula("MATCH(A" + n + "," + column + ",0)");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public XSSFWorkbook evaluateAll() {
+        XSSFFormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        evaluator.evaluateAll();
+        return workbook;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(".*" + LookupBench.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,122 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+import org.apache.poi.xssf.streaming.StreamingSheetWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the rows per second of the SXSSF sheet data writer for a row of
+ * 50 cells. The byte level UTF-8 writer is compared with the character
+ * writer which is still used for custom writers.
+ * The GC profiler reports the bytes allocated per row
+ * (<code>gc.alloc.rate.norm</code>), divide by {@link #COLUMNS} to get
+ * the allocation per cell.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class SheetDataWriterBench {
+    public static final int COLUMNS = 50;
+
+    private static final OutputStream NULL_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+    };
+
+    private SXSSFWorkbook wb;
+    private SXSSFRow row;
+    private SheetDataWriter byteWriter;
+    private SheetDataWriter charWriter;
+    private int rownum;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        wb = new SXSSFWorkbook();
+        row = wb.createSheet().createRow(0);
+        for (int i = 0; i < COLUMNS; i++) {
+            switch (i % 5) {
+                case 0:
+                    row.createCell(i).setCellValue("text " + i + " & <more>");
+                    break;
+                case 1:
+                    row.createCell(i).setCellValue(i * 1000);
+                    break;
+                case 2:
+                    row.createCell(i).setCellValue(i + 0.25);
+                    break;
+                case 3:
+                    row.createCell(i).setCellValue(i % 2 == 0);
+                    break;
+                default:
+                    row.createCell(i).setCellValue("Stra\u00dfe " + i);
+                    break;
+            }
+        }
+        byteWriter = new StreamingSheetWriter(NULL_STREAM);
+        charWriter = new SheetDataWriter(new BufferedWriter(new OutputStreamWriter(NULL_STREAM, StandardCharsets.UTF_8)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        byteWriter.close();
+        charWriter.close();
+        wb.dispose();
+        wb.close();
+    }
+
+    @Benchmark
+    public void byteWriter() throws IOException {
+        byteWriter.writeRow(rownum++ & 0xFFFFF, row);
+    }
+
+    @Benchmark
+    public void charWriter() throws IOException {
+        charWriter.writeRow(rownum++ & 0xFFFFF, row);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + SheetDataWriterBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,89 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.xssf.usermodel.XSSFFormulaEvaluator;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures recalculating a grid of SUMIFS and COUNTIFS over the same ranges of plain values,
+ * whose criteria matches are cached by the evaluator.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SumifsBench {
+    @Param({"1000", "20000"})
+    public int tableRows;
+
+    private XSSFWorkbook workbook;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        workbook = new XSSFWorkbook();
+        XSSFSheet table = workbook.createSheet("Table");
+        for (int r = 0; r < tableRows; r++) {
+            XSSFRow row = table.createRow(r);
+            row.createCell(0).setCellValue("Region" + (r % 20));
+            row.createCell(1).setCellValue(r % 12 + 1);
+            row.createCell(2).setCellValue(r * 0.5);
+        }
+        XSSFSheet report = workbook.createSheet("Report");
+        String n = Integer.toString(tableRows);
+        for (int r = 0; r < 20; r++) {
+            XSSFRow row = report.createRow(r);
+            row.createCell(0).setCellValue("Region" + r);
+            for (int month = 1; month <= 12; month++) {
+                String criteria = "Table!$A$1:$A$" + n + ",$A" + (r + 1) + ",Table!$B$1:$B$" + n + "," + month;
+                row.createCell(month).setCellFormula("SUMIFS(Table!$C$1:$C$" + n + "," + criteria + ")");
+                row.createCell(month + 12).setCellFormula("COUNTIFS(" + criteria + ")");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        workbook.close();
+    }
+
+    @Benchmark
+    public XSSFWorkbook evaluateAll() {
+        XSSFFormulaEvaluator evaluator = workbook.getCreationHelper().createFormulaEvaluator();
+        evaluator.evaluateAll();
+        return workbook;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(".*" + SumifsBench.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,101 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.DeflateTempFileCodec;
+import org.apache.poi.xssf.streaming.LZTempFileCodec;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the SXSSF temp file codecs on a large sheet - each operation writes
+ * {@link #ROWS} rows into the temp file and then writes the workbook, which
+ * reads the temp file back.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class TempFileCodecBench {
+    public static final int ROWS = 200_000;
+    public static final int COLUMNS = 10;
+
+    private static final OutputStream NULL_STREAM = new OutputStream() {
+        @Override
+        public void write(int b) {}
+
+        @Override
+        public void write(byte[] b, int off, int len) {}
+    };
+
+    @Param({"none", "gzip", "deflate1", "lz"})
+    public String codec;
+
+    @Benchmark
+    public void writeSheet() throws IOException {
+        SXSSFWorkbook wb = new SXSSFWorkbook();
+        switch (codec) {
+            case "gzip":
+                wb.setCompressTempFiles(true);
+                break;
+            case "deflate1":
+                wb.setTempFileCodec(new DeflateTempFileCodec(Deflater.BEST_SPEED));
+                break;
+            case "lz":
+                wb.setTempFileCodec(new LZTempFileCodec());
+                break;
+            default:
+                break;
+        }
+        SXSSFSheet sheet = wb.createSheet();
+        for (int r = 0; r < ROWS; r++) {
+            Row row = sheet.createRow(r);
+            for (int c = 0; c < COLUMNS; c++) {
+                if (c % 2 == 0) {
+                    row.createCell(c).setCellValue("item " + (r % 1000) + "/" + c);
+                } else {
+                    row.createCell(c).setCellValue(r * 0.5 + c);
+                }
+            }
+        }
+        wb.write(NULL_STREAM);
+        wb.dispose();
+        wb.close();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(".*" + TempFileCodecBench.class.getSimpleName() + ".*")
+                .forks(1)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
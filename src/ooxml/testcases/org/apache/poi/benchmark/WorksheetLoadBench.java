@@ -0,0 +1,160 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares opening a workbook and reading all cells when the worksheets are parsed
+ * with XmlBeans and when the plain cells are read with StAX,
+ * see {@link XSSFWorkbook#XSSFWorkbook(OPCPackage, boolean, boolean)}.
+ * The files are taken from the test-data spreadsheets, "generated" is a sheet with
+ * 200,000 numeric and string cells. Run the main method with the argument
+ * <code>heap</code> to print the retained heap of the loaded workbooks instead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class WorksheetLoadBench {
+    @Param({"generated", "SampleSS.xlsx", "57893-many-merges.xlsx", "shared_formulas.xlsx", "poc-shared-strings.xlsx"})
+    public String file;
+
+    private byte[] data;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        data = readFile(file);
+    }
+
+    @Benchmark
+    public double xmlBeans() throws IOException, InvalidFormatException {
+        return readAllCells(load(data, false));
+    }
+
+    @Benchmark
+    public double stax() throws IOException, InvalidFormatException {
+        return readAllCells(load(data, true));
+    }
+
+    private static byte[] readFile(String file) throws IOException {
+        if (!"generated".equals(file)) {
+            try (InputStream is = POIDataSamples.getSpreadSheetInstance().openResourceAsStream(file)) {
+                return IOUtils.toByteArray(is);
+            }
+        }
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 10000; r++) {
+                XSSFRow row = sheet.createRow(r);
+                for (int c = 0; c < 20; c++) {
+                    if (c % 4 == 0) {
+                        row.createCell(c).setCellValue("text " + (r % 500));
+                    } else {
+                        row.createCell(c).setCellValue(r * 0.5 + c);
+                    }
+                }
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            wb.write(bos);
+            return bos.toByteArray();
+        }
+    }
+
+    private static XSSFWorkbook load(byte[] data, boolean streamingCells) throws IOException, InvalidFormatException {
+        return new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(data)), false, streamingCells);
+    }
+
+    private static double readAllCells(XSSFWorkbook wb) throws IOException {
+        double sum = 0;
+        for (Sheet sheet : wb) {
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    switch (cell.getCellType()) {
+                        case NUMERIC:
+                            sum += cell.getNumericCellValue();
+                            break;
+                        case STRING:
+                            sum += cell.getStringCellValue().length();
+                            break;
+                        default:
+                            sum++;
+                            break;
+                    }
+                }
+            }
+        }
+        wb.close();
+        return sum;
+    }
+
+    private static long retainedHeap(String file, boolean streamingCells) throws IOException, InvalidFormatException {
+        byte[] data = readFile(file);
+        Runtime rt = Runtime.getRuntime();
+        System.gc();
+        long before = rt.totalMemory() - rt.freeMemory();
+        XSSFWorkbook wb = load(data, streamingCells);
+        System.gc();
+        long after = rt.totalMemory() - rt.freeMemory();
+        wb.close();
+        return after - before;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "heap".equals(args[0])) {
+            for (String file : WorksheetLoadBench.class.getField("file").getAnnotation(Param.class).value()) {
+                // warm up, then measure
+                retainedHeap(file, false);
+                retainedHeap(file, true);
+                System.out.println(String.format(Locale.ROOT, "%-28s xmlBeans %8d KB   stax %8d KB", file,
+                        retainedHeap(file, false) / 1024, retainedHeap(file, true) / 1024));
+            }
+            return;
+        }
+
+        Options opt = new OptionsBuilder()
+                .include(".*" + WorksheetLoadBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,103 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures writing a workbook with 200,000 numeric and string cells, whose sheet data is
+ * streamed from the row and cell model. The workbook is written after being loaded with
+ * XmlBeans and with the plain cells read by StAX, see
+ * {@link XSSFWorkbook#XSSFWorkbook(OPCPackage, boolean, boolean)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class WorksheetWriteBench {
+    private XSSFWorkbook xmlBeansWorkbook;
+    private XSSFWorkbook streamedWorkbook;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InvalidFormatException {
+        byte[] data;
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            for (int r = 0; r < 10000; r++) {
+                XSSFRow row = sheet.createRow(r);
+                for (int c = 0; c < 20; c++) {
+                    if (c % 4 == 0) {
+                        row.createCell(c).setCellValue("text " + (r % 500));
+                    } else {
+                        row.createCell(c).setCellValue(r * 0.5 + c);
+                    }
+                }
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            wb.write(bos);
+            data = bos.toByteArray();
+        }
+        xmlBeansWorkbook = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(data)));
+        streamedWorkbook = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(data)), false, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        xmlBeansWorkbook.close();
+        streamedWorkbook.close();
+    }
+
+    @Benchmark
+    public int writeXmlBeansWorkbook() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        xmlBeansWorkbook.write(bos);
+        return bos.size();
+    }
+
+    @Benchmark
+    public int writeStreamedWorkbook() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        streamedWorkbook.write(bos);
+        return bos.size();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options opt = new OptionsBuilder()
+                .include(".*" + WorksheetWriteBench.class.getSimpleName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(opt).run();
+    }
+}
@@ -0,0 +1,85 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+public final class TestTempFileReadOnlySharedStringsTable {
+    private static POIDataSamples _ssTests = POIDataSamples.getSpreadSheetInstance();
+
+    @Test
+    public void sameEntriesAsInMemoryTable() throws Exception {
+        for (String file : new String[]{ "SampleSS.xlsx", "51519.xlsx" }) {
+            for (boolean phonetic : new boolean[]{ true, false }) {
+                try (OPCPackage pkg = OPCPackage.open(_ssTests.openResourceAsStream(file))) {
+                    List<PackagePart> parts = pkg.getPartsByName(Pattern.compile("/xl/sharedStrings.xml"));
+                    ReadOnlySharedStringsTable expected = new ReadOnlySharedStringsTable(parts.get(0), phonetic);
+                    try (TempFileReadOnlySharedStringsTable actual =
+                                 new TempFileReadOnlySharedStringsTable(parts.get(0), phonetic, 2)) {
+                        assertEquals(expected.getCount(), actual.getCount());
+                        assertEquals(expected.getUniqueCount(), actual.getUniqueCount());
+                        assertEquals(expected.getItems(), actual.getItems());
+                        // backwards, so that the small cache is of no help
+                        for (int i = expected.getItems().size() - 1; i >= 0; i--) {
+                            assertEquals(expected.getEntryAt(i), actual.getEntryAt(i));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void manyStrings() throws Exception {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        XSSFSheet sheet = wb.createSheet();
+        for (int i = 0; i < 5000; i++) {
+            sheet.createRow(i).createCell(0).setCellValue("\u00e9l\u00e9ment " + i);
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        wb.write(bos);
+        wb.close();
+
+        try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(bos.toByteArray()));
+             TempFileReadOnlySharedStringsTable sst = new TempFileReadOnlySharedStringsTable(pkg)) {
+            assertEquals(5000, sst.getItems().size());
+            assertEquals("\u00e9l\u00e9ment 4999", sst.getEntryAt(4999));
+            assertEquals("\u00e9l\u00e9ment 0", sst.getEntryAt(0));
+            assertEquals("\u00e9l\u00e9ment 1234", sst.getItems().get(1234));
+        }
+    }
+
+    @Test
+    public void noSharedStrings() throws Exception {
+        TempFileReadOnlySharedStringsTable sst = new TempFileReadOnlySharedStringsTable(
+                (PackagePart)null, true, TempFileReadOnlySharedStringsTable.DEFAULT_CACHE_SIZE);
+        assertEquals(0, sst.getItems().size());
+        sst.close();
+    }
+}
@@ -0,0 +1,184 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.eventusermodel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetRowIterator.CellDataType;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetRowIterator.CellView;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetRowIterator.RowView;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+public final class TestXSSFSheetRowIterator {
+
+    @Test
+    public void readCellTypes() throws Exception {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet();
+        Row row = sheet.createRow(2);
+        row.createCell(0).setCellValue(1.5);
+        row.createCell(1).setCellValue("text");
+        row.createCell(3).setCellValue(true);
+        row.createCell(4).setCellFormula("A3*2");
+        row.createCell(5).setCellFormula("\"a\"&\"b\"");
+        wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+        sheet.createRow(5).createCell(27).setCellStyle(wb.createCellStyle());
+
+        try (OPCPackage pkg = writeOut(wb)) {
+            ReadOnlySharedStringsTable sst = new ReadOnlySharedStringsTable(pkg);
+            try (XSSFSheetRowIterator rows = new XSSFSheetRowIterator(new XSSFReader(pkg).getSheetsData().next())) {
+                assertTrue(rows.hasNext());
+                RowView r = rows.next();
+                assertEquals(2, r.getRowNum());
+                assertEquals(5, r.getCellCount());
+
+                CellView c = r.getCell(0);
+                assertEquals(0, c.getColumn());
+                assertEquals(CellDataType.NUMBER, c.getDataType());
+                assertEquals(1.5, c.getNumericValue(), 0);
+
+                c = r.getCell(1);
+                assertEquals(1, c.getColumn());
+                assertEquals(CellDataType.SST_STRING, c.getDataType());
+                assertEquals("text", sst.getEntryAt(c.getSharedStringIndex()));
+
+                c = r.getCell(2);
+                assertEquals(3, c.getColumn());
+                assertEquals(CellDataType.BOOLEAN, c.getDataType());
+                assertTrue(c.getBooleanValue());
+
+                c = r.getCell(3);
+                assertTrue(c.hasFormula());
+                assertEquals("A3*2", c.getFormula().toString());
+                assertEquals(3.0, c.getNumericValue(), 0);
+
+                c = r.getCell(4);
+                assertEquals(CellDataType.FORMULA_STRING, c.getDataType());
+                assertEquals("ab", c.getRawValue().toString());
+
+                r = rows.next();
+                assertEquals(5, r.getRowNum());
+                assertEquals(1, r.getCellCount());
+                c = r.getCell(0);
+                assertEquals(27, c.getColumn());
+                assertEquals(1, c.getStyleIndex());
+                assertFalse(c.hasValue());
+
+                assertFalse(rows.hasNext());
+            }
+        }
+    }
+
+    @Test
+    public void inlineStringsAndReusedViews() throws Exception {
+        SXSSFWorkbook wb = new SXSSFWorkbook(10);
+        Sheet sheet = wb.createSheet();
+        for (int i = 0; i < 1000; i++) {
+            Row row = sheet.createRow(i);
+            for (int j = 0; j <= i % 20; j++) {
+                row.createCell(j).setCellValue("r" + i + "c" + j);
+            }
+        }
+        try (OPCPackage pkg = writeOut(wb)) {
+            wb.dispose();
+            InputStream data = new XSSFReader(pkg).getSheetsData().next();
+            try (XSSFSheetRowIterator rows = new XSSFSheetRowIterator(data)) {
+                int expected = 0;
+                RowView previous = null;
+                while (rows.hasNext()) {
+                    RowView r = rows.next();
+                    if (previous != null) {
+                        assertTrue(previous == r);
+                    }
+                    previous = r;
+                    assertEquals(expected, r.getRowNum());
+                    assertEquals(expected % 20 + 1, r.getCellCount());
+                    for (int j = 0; j < r.getCellCount(); j++) {
+                        CellView c = r.getCell(j);
+                        assertEquals(CellDataType.INLINE_STRING, c.getDataType());
+                        assertEquals(j, c.getColumn());
+                        assertEquals("r" + expected + "c" + j, c.getRawValue().toString());
+                    }
+                    expected++;
+                }
+                assertEquals(1000, expected);
+            }
+        }
+    }
+
+    @Test
+    public void missingReferencesAndRichInlineStrings() throws Exception {
+        String xml = "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>"
+                + "<row><c t=\"inlineStr\"><is><r><t>a</t></r><r><t xml:space=\"preserve\"> b</t></r>"
+                + "<rPh><t>x</t></rPh></is></c><c><v>2</v></c></row>"
+                + "<row><c r=\"C2\"><v>3</v></c><c t=\"e\"><v>#DIV/0!</v></c></row>"
+                + "</sheetData></worksheet>";
+        try (XSSFSheetRowIterator rows = new XSSFSheetRowIterator(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)))) {
+            RowView r = rows.next();
+            assertEquals(0, r.getRowNum());
+            assertEquals("a b", r.getCell(0).getRawValue().toString());
+            assertEquals(1, r.getCell(1).getColumn());
+
+            r = rows.next();
+            assertEquals(1, r.getRowNum());
+            assertEquals(2, r.getCell(0).getColumn());
+            assertEquals(3, r.getCell(1).getColumn());
+            assertEquals(CellDataType.ERROR, r.getCell(1).getDataType());
+            assertEquals("#DIV/0!", r.getCell(1).getRawValue().toString());
+            assertFalse(rows.hasNext());
+        }
+    }
+
+    @Test
+    public void stopEarly() throws Exception {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        Sheet sheet = wb.createSheet();
+        for (int i = 0; i < 100; i++) {
+            sheet.createRow(i).createCell(0).setCellValue(i);
+        }
+        try (OPCPackage pkg = writeOut(wb)) {
+            Iterator<InputStream> sheets = new XSSFReader(pkg).getSheetsData();
+            XSSFSheetRowIterator rows = new XSSFSheetRowIterator(sheets.next());
+            assertEquals(0, rows.next().getRowNum());
+            assertEquals(1, rows.next().getRowNum());
+            rows.close();
+            assertFalse(rows.hasNext());
+        }
+    }
+
+    private static OPCPackage writeOut(Workbook wb) throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        wb.write(bos);
+        wb.close();
+        return OPCPackage.open(new ByteArrayInputStream(bos.toByteArray()));
+    }
+}
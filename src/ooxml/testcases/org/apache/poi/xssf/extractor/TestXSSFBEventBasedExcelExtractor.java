@@ -23,6 +23,9 @@ import static org.apache.poi.POITestCase.assertEndsWith;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.junit.Test;
 
@@ -110,4 +113,23 @@ public class TestXSSFBEventBasedExcelExtractor {
                 "This is an example spreadsheet created with Microsoft Excel 2007 Beta 2.");
     }
 
+    @Test
+    public void testParallelSheetsMatchSequential() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (String sample : new String[]{"sample.xlsb", "WithTextBox.xlsb", "Simple.xlsb"}) {
+                XSSFEventBasedExcelExtractor sequential = getExtractor(sample);
+                XSSFEventBasedExcelExtractor parallel = getExtractor(sample);
+                try {
+                    parallel.setExecutor(executor);
+                    assertEquals(sample, sequential.getText(), parallel.getText());
+                } finally {
+                    sequential.close();
+                    parallel.close();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
@@ -25,6 +25,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -383,4 +385,26 @@ public class TestXSSFEventBasedExcelExtractor {
 		ex.close();
 
 	}
+
+	@Test
+	public void testParallelSheetsMatchSequential() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			for (String sample : new String[]{"SampleSS.xlsx", "headerFooterTest.xlsx", "commentTest.xlsx", "WithTextBox.xlsx", "AverageTaxRates.xlsx"}) {
+				XSSFEventBasedExcelExtractor sequential = getExtractor(sample);
+				XSSFEventBasedExcelExtractor parallel = getExtractor(sample);
+				try {
+					sequential.setIncludeCellComments(true);
+					parallel.setIncludeCellComments(true);
+					parallel.setExecutor(executor);
+					assertEquals(sample, sequential.getText(), parallel.getText());
+				} finally {
+					sequential.close();
+					parallel.close();
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
 }
@@ -0,0 +1,179 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+public final class TestEmittingSXSSFWorkbook {
+
+    @Test
+    public void writeGeneratedRows() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (EmittingSXSSFWorkbook wb = new EmittingSXSSFWorkbook(10)) {
+            CellStyle percent = wb.createCellStyle();
+            percent.setDataFormat(wb.createDataFormat().getFormat("0.00%"));
+
+            EmittingSXSSFSheet data = wb.createSheet("Data");
+            data.setRowGenerator(sheet -> {
+                for (int i = 0; i < 1000; i++) {
+                    Row row = sheet.createRow(i);
+                    row.createCell(0).setCellValue("row " + i);
+                    row.createCell(1).setCellValue(i / 1000d);
+                    row.getCell(1).setCellStyle(percent);
+                }
+            });
+            wb.createSheet("Empty");
+            wb.write(bos);
+            assertTrue(wb.dispose());
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+            assertEquals(2, wb.getNumberOfSheets());
+            XSSFSheet data = wb.getSheet("Data");
+            assertEquals(999, data.getLastRowNum());
+            assertEquals("row 999", data.getRow(999).getCell(0).getStringCellValue());
+            assertEquals(0.5, data.getRow(500).getCell(1).getNumericCellValue(), 0);
+            assertEquals("0.00%", data.getRow(500).getCell(1).getCellStyle().getDataFormatString());
+            assertEquals(0, wb.getSheet("Empty").getPhysicalNumberOfRows());
+        }
+    }
+
+    @Test
+    public void rowsOnlyInsideGenerator() throws IOException {
+        try (EmittingSXSSFWorkbook wb = new EmittingSXSSFWorkbook()) {
+            EmittingSXSSFSheet sheet = wb.createSheet();
+            try {
+                sheet.createRow(0);
+                fail("rows can only be created while writing");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            assertTrue(wb.dispose());
+        }
+    }
+
+    @Test
+    public void noStylesInsideGenerator() throws IOException {
+        try (EmittingSXSSFWorkbook wb = new EmittingSXSSFWorkbook()) {
+            wb.createSheet().setRowGenerator(sheet -> wb.createCellStyle());
+            try {
+                wb.write(new ByteArrayOutputStream());
+                fail("styles are already written when the rows are generated");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            assertTrue(wb.dispose());
+        }
+    }
+
+    @Test
+    public void noSheetSettingsInsideGenerator() throws IOException {
+        try (EmittingSXSSFWorkbook wb = new EmittingSXSSFWorkbook()) {
+            EmittingSXSSFSheet sheet = wb.createSheet();
+            // allowed before writing
+            sheet.addMergedRegion(new CellRangeAddress(0, 0, 0, 1));
+            sheet.setColumnWidth(0, 5000);
+            wb.createName().setNameName("before");
+
+            sheet.setRowGenerator(sh -> sh.addMergedRegion(new CellRangeAddress(1, 1, 0, 1)));
+            try {
+                wb.write(new ByteArrayOutputStream());
+                fail("the worksheet is already written when the rows are generated");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+
+            sheet.setRowGenerator(sh -> sh.setColumnWidth(1, 5000));
+            try {
+                wb.write(new ByteArrayOutputStream());
+                fail("the worksheet is already written when the rows are generated");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+
+            sheet.setRowGenerator(sh -> wb.createName());
+            try {
+                wb.write(new ByteArrayOutputStream());
+                fail("the names are already written when the rows are generated");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+            assertTrue(wb.dispose());
+        }
+    }
+
+    @Test
+    public void rowsOfFailedGeneratorAreDiscarded() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (EmittingSXSSFWorkbook wb = new EmittingSXSSFWorkbook(100)) {
+            int[] runs = { 0 };
+            wb.createSheet("Data").setRowGenerator(sheet -> {
+                boolean fail = runs[0]++ == 0;
+                for (int i = 0; i < (fail ? 10 : 5); i++) {
+                    sheet.createRow(i).createCell(0).setCellValue(fail ? "failed" : "row " + i);
+                }
+                if (fail) {
+                    throw new IOException("no more data");
+                }
+            });
+            try {
+                wb.write(new ByteArrayOutputStream());
+                fail("generator exception should be propagated");
+            } catch (IOException e) {
+                assertEquals("no more data", e.getMessage());
+            }
+            wb.write(bos);
+            assertTrue(wb.dispose());
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(new ByteArrayInputStream(bos.toByteArray()))) {
+            XSSFSheet data = wb.getSheet("Data");
+            assertEquals(5, data.getPhysicalNumberOfRows());
+            assertEquals("row 0", data.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("row 4", data.getRow(4).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    public void generatorExceptionIsWrapped() throws IOException {
+        try (EmittingSXSSFWorkbook wb = new EmittingSXSSFWorkbook()) {
+            wb.createSheet("Failing").setRowGenerator(sheet -> {
+                throw new Exception("no data");
+            });
+            try {
+                wb.write(new ByteArrayOutputStream());
+                fail("generator exception should be propagated");
+            } catch (IOException e) {
+                assertEquals("no data", e.getCause().getMessage());
+            }
+            assertTrue(wb.dispose());
+        }
+    }
+}
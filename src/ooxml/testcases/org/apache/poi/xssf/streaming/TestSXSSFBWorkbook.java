@@ -0,0 +1,127 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.eventusermodel.XSSFBReader;
+import org.apache.poi.xssf.extractor.XSSFBEventBasedExcelExtractor;
+import org.junit.Test;
+
+public final class TestSXSSFBWorkbook {
+
+    @Test
+    public void writeAndExtract() throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (SXSSFBWorkbook wb = new SXSSFBWorkbook(10)) {
+            CellStyle percent = wb.createCellStyle();
+            percent.setDataFormat(wb.createDataFormat().getFormat("0.00%"));
+
+            Sheet sheet = wb.createSheet("Data");
+            sheet.setColumnWidth(0, 20*256);
+            for (int i = 0; i < 1000; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("row " + i);
+                row.createCell(1).setCellValue(i);
+                row.createCell(3).setCellValue(i + 0.1);
+            }
+            Row row = sheet.createRow(1000);
+            row.createCell(0).setCellValue(true);
+            row.createCell(1).setCellValue(0.125);
+            row.getCell(1).setCellStyle(percent);
+
+            wb.createSheet("Empty");
+            wb.write(bos);
+            assertTrue(wb.dispose());
+        }
+
+        try (OPCPackage pkg = OPCPackage.open(new ByteArrayInputStream(bos.toByteArray()))) {
+            XSSFBReader reader = new XSSFBReader(pkg);
+            XSSFBReader.SheetIterator it = (XSSFBReader.SheetIterator) reader.getSheetsData();
+            assertTrue(it.hasNext());
+            it.next().close();
+            assertEquals("Data", it.getSheetName());
+            assertTrue(it.hasNext());
+            it.next().close();
+            assertEquals("Empty", it.getSheetName());
+            assertFalse(it.hasNext());
+
+            XSSFBEventBasedExcelExtractor ex = new XSSFBEventBasedExcelExtractor(pkg);
+            String text = ex.getText();
+            assertTrue(text, text.startsWith("Data\nrow 0\t0\t0.1\nrow 1\t1\t1.1\n"));
+            assertTrue(text, text.contains("\nrow 999\t999\t999.1\n"));
+            assertTrue(text, text.contains("\nTRUE\t12.50%\n"));
+            assertTrue(text, text.endsWith("Empty\n"));
+        }
+    }
+
+    @Test
+    public void rowsAreWrittenAsRecords() throws IOException {
+        try (SXSSFBWorkbook wb = new SXSSFBWorkbook()) {
+            SXSSFSheet sheet = wb.createSheet();
+            Row row = sheet.createRow(2);
+            row.createCell(5).setCellValue("x");
+            sheet.flushRows();
+
+            XSSFBSheetDataWriter writer = (XSSFBSheetDataWriter) sheet.getSheetDataWriter();
+            assertEquals(5, writer.getFirstColumn());
+            assertEquals(5, writer.getLastColumn());
+            try (InputStream is = sheet.getWorksheetXMLInputStream()) {
+                // BrtRowHdr: 1 byte id, 1 byte length, 25 bytes incl. one column span
+                assertEquals(0, is.read());
+                assertEquals(25, is.read());
+                assertEquals(25, is.skip(25));
+                // BrtCellSt: id 6, cell header + 4 bytes length + 1 UTF-16 char
+                assertEquals(6, is.read());
+                assertEquals(14, is.read());
+                assertEquals(14, is.skip(14));
+                assertEquals(-1, is.read());
+            }
+            assertTrue(wb.dispose());
+        }
+    }
+
+    @Test
+    public void formulasAreRejected() throws IOException {
+        try (SXSSFBWorkbook wb = new SXSSFBWorkbook()) {
+            SXSSFSheet sheet = wb.createSheet();
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellFormula("1+1");
+            try {
+                sheet.flushRows();
+                fail("formulas can't be written in the binary format");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("A1"));
+            }
+            sheet.removeRow(row);
+            assertTrue(wb.dispose());
+        }
+    }
+}
@@ -191,4 +191,11 @@ public final class TestSXSSFFormulaEvaluation  extends BaseTestFormulaEvaluator
                         "but this proved to be non-trivial to solve...",
                 false);
     }
+
+    @Test
+    public void recalculateDependents() throws IOException {
+        Assume.assumeTrue("This test is disabled because SXSSF replaces formulas with a " +
+                        "string result by their value when they are evaluated",
+                false);
+    }
 }
@@ -19,7 +19,19 @@
 
 package org.apache.poi.xssf.streaming;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
 import org.apache.poi.ss.usermodel.BaseTestXRow;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.xssf.SXSSFITestDataProvider;
 import org.junit.After;
 import org.junit.Ignore;
@@ -51,5 +63,66 @@ public final class TestSXSSFRow extends BaseTestXRow {
         // Remove when SXSSFRow.shiftCellsLeft() is implemented. 
     }
 
-    
+    @Test
+    public void cellsAndRowsOutOfOrder() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(100)) {
+            SXSSFSheet sheet = wb.createSheet();
+            for (int r : new int[]{ 10, 2, 30, 20, 0 }) {
+                SXSSFRow row = sheet.createRow(r);
+                for (int c : new int[]{ 5, 1, 9, 3 }) {
+                    row.createCell(c).setCellValue(r * 100 + c);
+                }
+            }
+            assertEquals(0, sheet.getFirstRowNum());
+            assertEquals(30, sheet.getLastRowNum());
+            assertEquals(20, sheet.getRow(20).getRowNum());
+            assertNull(sheet.getRow(21));
+
+            SXSSFRow row = sheet.getRow(10);
+            assertEquals(1, row.getFirstCellNum());
+            assertEquals(10, row.getLastCellNum());
+            assertEquals(1003, row.getCell(3).getNumericCellValue(), 0);
+            assertEquals(9, row.getCell(9).getColumnIndex());
+            assertNull(row.getCell(4));
+
+            // replace and remove cells
+            SXSSFCell old = row.getCell(5);
+            row.createCell(5).setCellValue("new");
+            assertEquals(-1, old.getColumnIndex());
+            row.removeCell(row.getCell(1));
+            assertEquals(3, row.getFirstCellNum());
+            assertEquals(3, row.getPhysicalNumberOfCells());
+
+            List<Integer> cols = new ArrayList<>();
+            Iterator<Cell> it = row.allCellsIterator();
+            while (it.hasNext()) {
+                Cell cell = it.next();
+                if (cell != null) {
+                    cols.add(cell.getColumnIndex());
+                }
+            }
+            assertEquals(Arrays.asList(3, 5, 9), cols);
+
+            // rows are iterated in order and can be removed by the iterator
+            List<Integer> rows = new ArrayList<>();
+            for (Iterator<Row> rit = sheet.rowIterator(); rit.hasNext(); ) {
+                Row r = rit.next();
+                rows.add(r.getRowNum());
+                if (r.getRowNum() == 2 || r.getRowNum() == 20) {
+                    rit.remove();
+                }
+            }
+            assertEquals(Arrays.asList(0, 2, 10, 20, 30), rows);
+            assertEquals(3, sheet.getPhysicalNumberOfRows());
+
+            sheet.getRow(30).setRowNum(1);
+            assertEquals(10, sheet.getLastRowNum());
+            assertEquals(1, sheet.getRow(1).getRowNum());
+
+            sheet.flushRows(1);
+            assertNull(sheet.getRow(0));
+            assertEquals(10, sheet.getRow(10).getRowNum());
+            assertTrue(wb.dispose());
+        }
+    }
 }
@@ -35,6 +35,10 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.POITestCase;
@@ -43,6 +47,7 @@ import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.BaseTestXWorkbook;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
@@ -541,4 +546,71 @@ public final class TestSXSSFWorkbook extends BaseTestXWorkbook {
 
         wb.close();
     }
+
+    @Test
+    public void generateSheetsConcurrently() throws IOException {
+        final int numSheets = 8;
+        final int numRows = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (SXSSFWorkbook wb = new SXSSFWorkbook(null, 10, false, true)) {
+            Map<SXSSFSheet, RowGeneratorFunction> generators = new LinkedHashMap<>();
+            for (int i = 0; i < numSheets; i++) {
+                final String fmt = "0." + new String(new char[i+1]).replace('\0', '0');
+                generators.put(wb.createSheet("Sheet" + i), sheet -> {
+                    CellStyle style = wb.createCellStyle();
+                    style.setDataFormat(wb.createDataFormat().getFormat(fmt));
+                    for (int r = 0; r < numRows; r++) {
+                        Row row = sheet.createRow(r);
+                        row.createCell(0).setCellValue("shared " + (r % 100));
+                        row.createCell(1).setCellValue(sheet.getSheetName() + " " + r);
+                        Cell cell = row.createCell(2);
+                        cell.setCellValue(r);
+                        cell.setCellStyle(style);
+                    }
+                });
+            }
+            wb.generateSheets(generators, executor);
+
+            XSSFWorkbook wbBack = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb);
+            for (int i = 0; i < numSheets; i++) {
+                Sheet sheet = wbBack.getSheetAt(i);
+                assertEquals(numRows - 1, sheet.getLastRowNum());
+                for (int r = 0; r < numRows; r += 111) {
+                    Row row = sheet.getRow(r);
+                    assertEquals("shared " + (r % 100), row.getCell(0).getStringCellValue());
+                    assertEquals("Sheet" + i + " " + r, row.getCell(1).getStringCellValue());
+                    assertEquals(r, row.getCell(2).getNumericCellValue(), 0);
+                    assertEquals(i + 3, row.getCell(2).getCellStyle().getDataFormatString().length());
+                }
+            }
+            assertEquals(100 + numSheets * numRows, wbBack.getSharedStringSource().getUniqueCount());
+            wbBack.close();
+            assertTrue(wb.dispose());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void generateSheetsFailure() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            Map<SXSSFSheet, RowGeneratorFunction> generators = new LinkedHashMap<>();
+            generators.put(wb.createSheet("ok"), sheet -> sheet.createRow(0).createCell(0).setCellValue(1));
+            generators.put(wb.createSheet("failing"), sheet -> {
+                throw new IllegalStateException("no data");
+            });
+            try {
+                wb.generateSheets(generators, executor);
+                fail("the failing generator should be reported");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("failing"));
+                assertEquals("no data", e.getCause().getMessage());
+            }
+            assertEquals(1, wb.getSheet("ok").getPhysicalNumberOfRows());
+            assertTrue(wb.dispose());
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
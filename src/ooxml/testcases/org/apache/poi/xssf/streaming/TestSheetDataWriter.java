@@ -23,10 +23,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.util.IOUtils;
 import org.junit.Test;
 
@@ -91,4 +96,37 @@ public final class TestSheetDataWriter {
             IOUtils.closeQuietly(writer);
         }
     }
+
+    @Test
+    public void testByteWriterMatchesCharacterWriter() throws IOException {
+        try (SXSSFWorkbook wb = new SXSSFWorkbook()) {
+            CellStyle style = wb.createCellStyle();
+            SXSSFRow row = wb.createSheet().createRow(0);
+            double[] numbers = { 0, -0d, 1, -42, 9999999, 1e7, 0.1, 1.5e-5, Double.MAX_VALUE, -123456.789 };
+            int col = 0;
+            for (double d : numbers) {
+                row.createCell(col++).setCellValue(d);
+            }
+            row.createCell(col++).setCellValue(" <a&b> \"q\"\r\n\t\u00A0\u0001\uFFFE \u00e4\u20ac" + unicodeSurrogates + "\uD835 ");
+            row.createCell(col++).setCellValue(true);
+            row.createCell(col++, CellType.BLANK).setCellStyle(style);
+            row.createCell(16383).setCellFormula("SUM(A1:B1)");
+            row.setHeight((short)300);
+
+            StringWriter sw = new StringWriter();
+            SheetDataWriter charWriter = new SheetDataWriter(sw);
+            charWriter.writeRow(12345, row);
+            charWriter.close();
+
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            SheetDataWriter byteWriter = new StreamingSheetWriter(bos);
+            byteWriter.writeRow(12345, row);
+            byteWriter.close();
+
+            // the character writer keeps the lone surrogate, which isn't encodable in UTF-8
+            String expected = sw.toString().replace("\uD835 ", "? ");
+            assertEquals(expected, new String(bos.toByteArray(), StandardCharsets.UTF_8));
+            assertTrue(expected.contains("<c r=\"XFD12346\""));
+        }
+    }
 }
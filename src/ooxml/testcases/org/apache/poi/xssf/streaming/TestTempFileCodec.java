@@ -0,0 +1,118 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.util.IOUtils;
+import org.apache.poi.xssf.SXSSFITestDataProvider;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+public final class TestTempFileCodec {
+
+    @Test
+    public void lzRoundTrip() throws IOException {
+        TempFileCodec codec = new LZTempFileCodec();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append("<row r=\"").append(i).append("\"><c r=\"A").append(i).append("\" t=\"n\"><v>")
+              .append(i * 3.5).append("</v></c></row>\n");
+        }
+        byte[] xml = sb.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = compress(codec, xml);
+        assertTrue("ratio: " + compressed.length + "/" + xml.length, compressed.length < xml.length / 3);
+        assertArrayEquals(xml, decompress(codec, compressed));
+
+        // incompressible data is stored
+        byte[] random = new byte[LZTempFileCodec.BLOCK_SIZE * 2 + 17];
+        new Random(42).nextBytes(random);
+        assertArrayEquals(random, decompress(codec, compress(codec, random)));
+
+        // long runs with overlapping matches
+        byte[] zeros = new byte[LZTempFileCodec.BLOCK_SIZE + 5];
+        assertArrayEquals(zeros, decompress(codec, compress(codec, zeros)));
+
+        assertEquals(0, decompress(codec, compress(codec, new byte[0])).length);
+    }
+
+    @Test
+    public void deflateRoundTrip() throws IOException {
+        byte[] data = "Some text, some text, some more text".getBytes(StandardCharsets.UTF_8);
+        for (int level : new int[]{ Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION, Deflater.BEST_SPEED }) {
+            TempFileCodec codec = new DeflateTempFileCodec(level);
+            assertArrayEquals(data, decompress(codec, compress(codec, data)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void deflateInvalidLevel() {
+        new DeflateTempFileCodec(10);
+    }
+
+    @Test
+    public void workbookWithCodec() throws IOException {
+        for (TempFileCodec codec : new TempFileCodec[]{ new LZTempFileCodec(), new DeflateTempFileCodec(Deflater.BEST_SPEED) }) {
+            SXSSFWorkbook wb = new SXSSFWorkbook(10);
+            wb.setTempFileCodec(codec);
+            Sheet sheet = wb.createSheet();
+            for (int i = 0; i < 1000; i++) {
+                Row row = sheet.createRow(i);
+                row.createCell(0).setCellValue("value " + i);
+                row.createCell(1).setCellValue(i);
+            }
+            assertTrue(((SXSSFSheet)sheet).getSheetDataWriter().getTempFile().getName().endsWith(codec.getFileSuffix()));
+
+            XSSFWorkbook xwb = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb);
+            assertEquals("value 999", xwb.getSheetAt(0).getRow(999).getCell(0).getStringCellValue());
+            assertEquals(999, xwb.getSheetAt(0).getRow(999).getCell(1).getNumericCellValue(), 0);
+            xwb.close();
+            assertTrue(wb.dispose());
+            wb.close();
+        }
+    }
+
+    private static byte[] compress(TempFileCodec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (OutputStream os = codec.compress(bos)) {
+            // write in odd chunks to cross the block boundaries
+            for (int off = 0; off < data.length; off += 1000) {
+                os.write(data, off, Math.min(1000, data.length - off));
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] decompress(TempFileCodec codec, byte[] data) throws IOException {
+        try (InputStream is = codec.decompress(new ByteArrayInputStream(data))) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+}
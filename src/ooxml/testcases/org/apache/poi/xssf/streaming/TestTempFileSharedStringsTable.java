@@ -0,0 +1,128 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.streaming;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.SXSSFITestDataProvider;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+public final class TestTempFileSharedStringsTable {
+
+    @Test
+    public void writeManyStringsWithSmallCache() throws IOException {
+        TempFileSharedStringsTable sst = new TempFileSharedStringsTable(10);
+        SXSSFWorkbook wb = new SXSSFWorkbook(null, 100, false, sst);
+        Sheet sheet = wb.createSheet("strings");
+        for (int i = 0; i < 1000; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue("value " + i);
+            // repeated within the cache window
+            row.createCell(1).setCellValue("group " + (i / 4));
+            // needs escaping and whitespace preservation
+            row.createCell(2).setCellValue(" <&> " + (i % 3) + "\u00df ");
+        }
+
+        XSSFWorkbook xwb = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb);
+        assertEquals(3000, sst.getCount());
+        // the groups and the escaped strings are repeated within the cache window
+        assertTrue(sst.getUniqueCount() < 2000);
+        XSSFSheet xSheet = xwb.getSheetAt(0);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("value " + i, xSheet.getRow(i).getCell(0).getStringCellValue());
+            assertEquals("group " + (i / 4), xSheet.getRow(i).getCell(1).getStringCellValue());
+            assertEquals(" <&> " + (i % 3) + "\u00df ", xSheet.getRow(i).getCell(2).getStringCellValue());
+        }
+        SharedStringsTable readBack = xwb.getSharedStringSource();
+        assertEquals(3000, readBack.getCount());
+        assertEquals(sst.getUniqueCount(), readBack.getUniqueCount());
+        xwb.close();
+
+        File tmp = sst.getTempFile();
+        assertTrue(tmp.exists());
+        assertTrue(wb.dispose());
+        assertFalse(tmp.exists());
+        wb.close();
+    }
+
+    @Test
+    public void keepsTemplateStrings() throws IOException {
+        XSSFWorkbook template = new XSSFWorkbook();
+        XSSFSheet templateSheet = template.createSheet("template");
+        templateSheet.createRow(0).createCell(0).setCellValue("header");
+        XSSFRichTextString rich = new XSSFRichTextString("bold");
+        rich.applyFont(template.createFont());
+        templateSheet.createRow(1).createCell(0).setCellValue(rich);
+
+        TempFileSharedStringsTable sst = new TempFileSharedStringsTable();
+        SXSSFWorkbook wb = new SXSSFWorkbook(template, 10, false, sst);
+        Sheet sheet = wb.createSheet("data");
+        sheet.createRow(0).createCell(0).setCellValue("header");
+        sheet.createRow(1).createCell(0).setCellValue("data");
+
+        XSSFWorkbook xwb = SXSSFITestDataProvider.instance.writeOutAndReadBack(wb);
+        assertEquals("header", xwb.getSheet("template").getRow(0).getCell(0).getStringCellValue());
+        assertEquals("bold", xwb.getSheet("template").getRow(1).getCell(0).getStringCellValue());
+        assertEquals("header", xwb.getSheet("data").getRow(0).getCell(0).getStringCellValue());
+        assertEquals("data", xwb.getSheet("data").getRow(1).getCell(0).getStringCellValue());
+        assertEquals(4, xwb.getSharedStringSource().getUniqueCount());
+        xwb.close();
+        assertTrue(wb.dispose());
+        wb.close();
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void entriesCannotBeRead() throws IOException {
+        TempFileSharedStringsTable sst = new TempFileSharedStringsTable();
+        try {
+            sst.addSharedStringItem(new XSSFRichTextString("text"));
+            sst.getItemAt(0);
+        } finally {
+            sst.dispose();
+        }
+    }
+
+    @Test
+    public void writeToWithoutWorkbook() throws IOException {
+        TempFileSharedStringsTable sst = new TempFileSharedStringsTable(0);
+        assertEquals(0, sst.addSharedString("a"));
+        assertEquals(1, sst.addSharedString("a"));
+        assertEquals(2, sst.addSharedStringItem(new XSSFRichTextString("b")));
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sst.writeTo(bos);
+        SharedStringsTable readBack = new SharedStringsTable();
+        readBack.readFrom(new ByteArrayInputStream(bos.toByteArray()));
+        assertEquals(3, readBack.getUniqueCount());
+        assertEquals("a", readBack.getItemAt(1).getString());
+        assertEquals("b", readBack.getItemAt(2).getString());
+        assertTrue(sst.dispose());
+    }
+}
@@ -22,8 +22,11 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.ss.formula.EvaluationSheet;
+import org.apache.poi.ss.formula.ptg.Ptg;
 import org.apache.poi.ss.usermodel.BaseTestFormulaEvaluator;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellValue;
@@ -43,6 +46,12 @@ public final class TestXSSFFormulaEvaluation extends BaseTestFormulaEvaluator {
         super(XSSFITestDataProvider.instance);
     }
 
+    @Override
+    protected boolean evaluateAll(FormulaEvaluator evaluator, ForkJoinPool pool) {
+        ((XSSFFormulaEvaluator)evaluator).evaluateAll(pool);
+        return true;
+    }
+
     @Test
     public void testSharedFormulas() throws IOException {
         baseTestSharedFormulas("shared_formulas.xlsx");
@@ -391,6 +400,54 @@ public final class TestXSSFFormulaEvaluation extends BaseTestFormulaEvaluator {
         wb.close();
     }
 
+    @Test
+    public void formulaTokensAreReused() throws IOException {
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("StructuredReferences.xlsx")) {
+            XSSFSheet sheet = wb.getSheet("Table");
+            for (int r = 2; r <= 3; r++) {
+                sheet.getRow(r).createCell(4).setCellFormula("SUM(Table!A2:A7)");
+                sheet.getRow(r).createCell(5).setCellFormula("COUNTA(\\_Prime.1[#This Row])");
+            }
+            XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create(wb);
+            EvaluationSheet evalSheet = fpb.getSheet(wb.getSheetIndex(sheet));
+
+            Ptg[] sum = fpb.getFormulaTokens(evalSheet.getCell(2, 4));
+            assertSame(sum, fpb.getFormulaTokens(evalSheet.getCell(3, 4)));
+
+            // structured references to the row of the formula are parsed for each row
+            assertEquals("Table!A3:C3", fpb.getFormulaTokens(evalSheet.getCell(2, 5))[0].toFormulaString());
+            assertEquals("Table!A4:C4", fpb.getFormulaTokens(evalSheet.getCell(3, 5))[0].toFormulaString());
+
+            fpb.clearAllCachedResultValues();
+            assertNotSame(sum, fpb.getFormulaTokens(evalSheet.getCell(2, 4)));
+        }
+    }
+
+    @Test
+    public void formulaTokensAreDiscardedAfterStructuralChanges() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet first = wb.createSheet("First");
+            wb.createSheet("Second");
+            first.createRow(0).createCell(0).setCellFormula("Second!A1*3");
+            XSSFEvaluationWorkbook fpb = XSSFEvaluationWorkbook.create(wb);
+            EvaluationSheet evalSheet = fpb.getSheet(0);
+
+            Ptg[] tokens = fpb.getFormulaTokens(evalSheet.getCell(0, 0));
+            assertSame(tokens, fpb.getFormulaTokens(evalSheet.getCell(0, 0)));
+
+            // the cached tokens were parsed for the former index of the sheet
+            wb.setSheetOrder("Second", 0);
+            Ptg[] reordered = fpb.getFormulaTokens(evalSheet.getCell(0, 0));
+            assertNotSame(tokens, reordered);
+            assertSame(reordered, fpb.getFormulaTokens(evalSheet.getCell(0, 0)));
+
+            XSSFName name = wb.createName();
+            name.setNameName("Factor");
+            name.setRefersToFormula("3");
+            assertNotSame(reordered, fpb.getFormulaTokens(evalSheet.getCell(0, 0)));
+        }
+    }
+
     @Test
     public void test59736() {
         Workbook wb = XSSFTestDataSamples.openSampleWorkbook("59736.xlsx");
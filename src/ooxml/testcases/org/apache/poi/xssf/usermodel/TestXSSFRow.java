@@ -21,8 +21,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 
 import org.apache.poi.ss.usermodel.BaseTestXRow;
 import org.apache.poi.ss.usermodel.Cell;
@@ -34,6 +37,8 @@ import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.xssf.XSSFITestDataProvider;
 import org.apache.poi.xssf.XSSFTestDataSamples;
 import org.junit.Test;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRow;
 
 /**
  * Tests for XSSFRow
@@ -216,4 +221,69 @@ public final class TestXSSFRow extends BaseTestXRow {
         XSSFWorkbook wb3 = XSSFTestDataSamples.writeOutAndReadBack(wb1);
         assertEquals("Cell not blank", CellType.BLANK, wb3.getSheet("Sheet1").getRow(0).getCell(1).getCellType());
     }
+
+    @Test
+    public void testCellsOutOfOrder() throws IOException {
+        final XSSFWorkbook wb1 = new XSSFWorkbook();
+        final XSSFRow row = wb1.createSheet("Sheet1").createRow(0);
+        for (int col : new int[]{ 5, 1, 300, 0, 2, 1 }) {
+            row.createCell(col).setCellValue(col);
+        }
+        assertEquals(5, row.getPhysicalNumberOfCells());
+        assertEquals(0, row.getFirstCellNum());
+        assertEquals(301, row.getLastCellNum());
+
+        int[] expected = { 0, 1, 2, 5, 300 };
+        int i = 0;
+        for (Cell cell : row) {
+            assertEquals(expected[i++], cell.getColumnIndex());
+        }
+
+        row.removeCell(row.getCell(2));
+        Iterator<Cell> it = row.cellIterator();
+        assertEquals(0, it.next().getColumnIndex());
+        it.remove();
+        assertEquals(1, it.next().getColumnIndex());
+        assertEquals(3, row.getPhysicalNumberOfCells());
+
+        row.createCell(4);
+        try {
+            it.next();
+            fail("expected ConcurrentModificationException");
+        } catch (ConcurrentModificationException e) {
+            // expected
+        }
+
+        XSSFWorkbook wb2 = XSSFTestDataSamples.writeOutAndReadBack(wb1);
+        wb1.close();
+        XSSFRow readBack = wb2.getSheetAt(0).getRow(0);
+        assertEquals(4, readBack.getPhysicalNumberOfCells());
+        assertEquals(1, readBack.getFirstCellNum());
+        assertEquals(301, readBack.getLastCellNum());
+        assertEquals(300, readBack.getCell(300).getNumericCellValue(), 0);
+        // the cell views are created once and then reused
+        assertSame(readBack.getCell(5), readBack.getCell(5));
+        assertEquals(CellType.BLANK, readBack.getCell(4).getCellType());
+        wb2.close();
+    }
+
+    @Test
+    public void testCellsWithoutReferences() throws IOException {
+        final XSSFWorkbook wb = new XSSFWorkbook();
+        final XSSFSheet sheet = wb.createSheet("Sheet1");
+        CTRow ctRow = sheet.getCTWorksheet().getSheetData().addNewRow();
+        ctRow.setR(1);
+        ctRow.addNewC().setV("1");
+        CTCell c = ctRow.addNewC();
+        c.setR("D1");
+        c.setV("4");
+        ctRow.addNewC().setV("5");
+
+        XSSFRow row = new XSSFRow(ctRow, sheet);
+        assertEquals(3, row.getPhysicalNumberOfCells());
+        assertEquals(1, row.getCell(0).getNumericCellValue(), 0);
+        assertEquals(4, row.getCell(3).getNumericCellValue(), 0);
+        assertEquals(5, row.getCell(4).getNumericCellValue(), 0);
+        wb.close();
+    }
 }
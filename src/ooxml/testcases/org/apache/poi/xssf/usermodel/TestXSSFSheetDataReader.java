@@ -0,0 +1,190 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.usermodel;
+
+import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.apache.poi.POIDataSamples;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.apache.poi.xssf.usermodel.XSSFSheetDataReader.RowCells;
+import org.junit.Test;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRow;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorksheetDocument;
+
+public final class TestXSSFSheetDataReader {
+
+    @Test
+    public void plainCellsAreNotCopied() throws Exception {
+        String xml = "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+                + " xmlns:x14ac=\"http://schemas.microsoft.com/office/spreadsheetml/2009/9/ac\">"
+                + "<dimension ref=\"A1:E2\"/><sheetData>"
+                + "<row r=\"1\" ht=\"20\" customHeight=\"1\" x14ac:dyDescent=\"0.25\">"
+                + "<c r=\"A1\" s=\"2\" t=\"s\"><v>0</v></c>"
+                + "<c r=\"B1\"><f>A1*2</f><v>4</v></c>"
+                + "<c><v>1.5</v></c>"
+                + "<c r=\"D1\" t=\"inlineStr\"><is><t>inline</t></is></c>"
+                + "<c r=\"E1\" s=\"1\"/>"
+                + "</row>"
+                + "<row r=\"2\"><c r=\"A2\" cm=\"1\"><v>7</v></c><c r=\"B2\" t=\"b\"><v>1</v><extLst/></c></row>"
+                + "</sheetData><mergeCells count=\"1\"><mergeCell ref=\"A1:B1\"/></mergeCells></worksheet>";
+        XSSFSheetDataReader reader = new XSSFSheetDataReader(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2, reader.getRowCount());
+
+        CTWorksheet worksheet = WorksheetDocument.Factory.parse(reader.getMetadata(), DEFAULT_XML_OPTIONS).getWorksheet();
+        assertEquals("A1:B1", worksheet.getMergeCells().getMergeCellArray(0).getRef());
+        CTRow[] rows = worksheet.getSheetData().getRowArray();
+        assertEquals(2, rows.length);
+        assertEquals(20, rows[0].getHt(), 0);
+        assertTrue(rows[0].toString().contains("dyDescent"));
+
+        // the formula and the inline string are left to XmlBeans
+        assertEquals(2, rows[0].sizeOfCArray());
+        assertEquals("A1*2", rows[0].getCArray(0).getF().getStringValue());
+        assertEquals("inline", rows[0].getCArray(1).getIs().getT());
+
+        RowCells cells = reader.removeRowCells(0);
+        assertEquals(5, cells.size());
+        assertFalse(cells.isXmlBeansCell(0));
+        assertEquals(0, cells.getColumn(0));
+        assertEquals(STCellType.S, cells.getType(0));
+        assertEquals(2, cells.getStyle(0));
+        assertEquals("0", cells.getValue(0));
+        assertTrue(cells.isXmlBeansCell(1));
+        assertEquals(1, cells.getColumn(1));
+        // cells without a reference follow the previous cell
+        assertEquals(2, cells.getColumn(2));
+        assertNull(cells.getType(2));
+        assertEquals(-1, cells.getStyle(2));
+        assertEquals("1.5", cells.getValue(2));
+        assertTrue(cells.isXmlBeansCell(3));
+        assertEquals(4, cells.getColumn(4));
+        assertNull(cells.getValue(4));
+
+        // unknown attributes and children are kept, including the value which was read first
+        assertEquals(2, rows[1].sizeOfCArray());
+        assertEquals("7", rows[1].getCArray(0).getV());
+        assertEquals("1", rows[1].getCArray(1).getV());
+        assertTrue(rows[1].getCArray(1).isSetExtLst());
+        cells = reader.removeRowCells(1);
+        assertTrue(cells.isXmlBeansCell(0));
+        assertTrue(cells.isXmlBeansCell(1));
+    }
+
+    @Test
+    public void sameCellsAsXmlBeans() throws Exception {
+        for (String file : new String[]{ "SampleSS.xlsx", "shared_formulas.xlsx", "48495.xlsx", "WithVariousData.xlsx" }) {
+            byte[] data = POIDataSamples.getSpreadSheetInstance().readFile(file);
+            XSSFWorkbook expected = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(data)));
+            XSSFWorkbook actual = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(data)), false, true);
+            assertSameCells(file, expected, actual);
+
+            XSSFWorkbook expectedBack = XSSFTestDataSamples.writeOutAndReadBack(expected);
+            XSSFWorkbook actualBack = XSSFTestDataSamples.writeOutAndReadBack(actual);
+            assertSameCells(file, expectedBack, actualBack);
+            expected.close();
+            actual.close();
+            expectedBack.close();
+            actualBack.close();
+        }
+    }
+
+    @Test
+    public void modifyStreamedCells() throws Exception {
+        XSSFWorkbook wb = new XSSFWorkbook();
+        XSSFSheet sheet = wb.createSheet();
+        XSSFCellStyle style = wb.createCellStyle();
+        for (int r = 0; r < 10; r++) {
+            XSSFRow row = sheet.createRow(r);
+            row.createCell(0).setCellValue(r);
+            row.createCell(1).setCellValue("text " + r);
+            row.createCell(3).setCellStyle(style);
+        }
+        byte[] data = XSSFTestDataSamples.writeOut(wb).toByteArray();
+        wb.close();
+
+        wb = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(data)), false, true);
+        sheet = wb.getSheetAt(0);
+        XSSFCell cell = sheet.getRow(2).getCell(0);
+        assertFalse(cell.hasCTCell());
+        assertEquals(2, cell.getNumericCellValue(), 0);
+        assertEquals("A3", cell.getReference());
+        assertEquals("text 2", sheet.getRow(2).getCell(1).getStringCellValue());
+        assertEquals(CellType.BLANK, sheet.getRow(2).getCell(3).getCellType());
+        assertEquals(style.getIndex(), sheet.getRow(2).getCell(3).getCellStyle().getIndex());
+
+        cell.setCellValue("changed");
+        assertTrue(cell.hasCTCell());
+        sheet.getRow(3).getCell(1).setCellFormula("A4+1");
+        sheet.getRow(4).removeCell(sheet.getRow(4).getCell(1));
+        sheet.shiftRows(5, 9, 1);
+        assertEquals("A7", sheet.getRow(6).getCell(0).getReference());
+
+        XSSFWorkbook back = XSSFTestDataSamples.writeOutAndReadBack(wb);
+        wb.close();
+        sheet = back.getSheetAt(0);
+        assertEquals("changed", sheet.getRow(2).getCell(0).getStringCellValue());
+        assertEquals("A4+1", sheet.getRow(3).getCell(1).getCellFormula());
+        assertNull(sheet.getRow(4).getCell(1));
+        assertEquals(5, sheet.getRow(6).getCell(0).getNumericCellValue(), 0);
+        assertEquals("text 9", sheet.getRow(10).getCell(1).getStringCellValue());
+        assertEquals(style.getIndex(), sheet.getRow(10).getCell(3).getCellStyle().getIndex());
+        back.close();
+    }
+
+    private static void assertSameCells(String file, XSSFWorkbook expected, XSSFWorkbook actual) {
+        assertEquals(file, expected.getNumberOfSheets(), actual.getNumberOfSheets());
+        for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+            XSSFSheet expectedSheet = expected.getSheetAt(s);
+            XSSFSheet actualSheet = actual.getSheetAt(s);
+            assertEquals(file, expectedSheet.getPhysicalNumberOfRows(), actualSheet.getPhysicalNumberOfRows());
+            assertEquals(file, expectedSheet.getNumMergedRegions(), actualSheet.getNumMergedRegions());
+            Iterator<Row> actualRows = actualSheet.rowIterator();
+            for (Row expectedRow : expectedSheet) {
+                Row actualRow = actualRows.next();
+                assertEquals(file, expectedRow.getRowNum(), actualRow.getRowNum());
+                assertEquals(file, expectedRow.getHeight(), actualRow.getHeight());
+                assertEquals(file, expectedRow.getPhysicalNumberOfCells(), actualRow.getPhysicalNumberOfCells());
+                Iterator<Cell> actualCells = actualRow.cellIterator();
+                for (Cell expectedCell : expectedRow) {
+                    XSSFCell e = (XSSFCell)expectedCell;
+                    XSSFCell a = (XSSFCell)actualCells.next();
+                    String ref = file + " " + e.getReference();
+                    assertEquals(ref, e.getReference(), a.getReference());
+                    assertEquals(ref, e.getCellType(), a.getCellType());
+                    assertEquals(ref, e.getRawValue(), a.getRawValue());
+                    assertEquals(ref, e.getCellStyle().getIndex(), a.getCellStyle().getIndex());
+                    assertEquals(ref, e.toString(), a.toString());
+                }
+            }
+        }
+    }
+}
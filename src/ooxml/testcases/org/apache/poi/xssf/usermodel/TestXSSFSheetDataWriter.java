@@ -0,0 +1,146 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+package org.apache.poi.xssf.usermodel;
+
+import static org.apache.poi.ooxml.POIXMLTypeLoader.DEFAULT_XML_OPTIONS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.xssf.XSSFTestDataSamples;
+import org.junit.Test;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRow;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorksheet;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorksheetDocument;
+
+public final class TestXSSFSheetDataWriter {
+
+    @Test
+    public void namespacesArePreserved() throws Exception {
+        try (XSSFWorkbook wb = XSSFTestDataSamples.openSampleWorkbook("52716.xlsx")) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            String xml = write(sheet);
+            assertTrue(xml, xml.contains("mc:Ignorable=\"x14ac\""));
+            assertTrue(xml, xml.contains(" x14ac:dyDescent=\""));
+
+            CTWorksheet worksheet = parse(xml);
+            assertEquals(sheet.getPhysicalNumberOfRows(), worksheet.getSheetData().sizeOfRowArray());
+            assertEquals(sheet.getCTWorksheet().getSheetViews().toString(), worksheet.getSheetViews().toString());
+        }
+    }
+
+    @Test
+    public void cellsAreWrittenInColumnOrder() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            XSSFRow row = sheet.createRow(0);
+            row.createCell(3).setCellValue(3);
+            row.createCell(0).setCellValue("a < b & c");
+            XSSFCell inline = row.createCell(2);
+            inline.getCTCell().setT(STCellType.INLINE_STR);
+            inline.getCTCell().addNewIs().setT(" padded ");
+            sheet.createRow(2);
+
+            CTRow[] rows = parse(write(sheet)).getSheetData().getRowArray();
+            assertEquals(2, rows.length);
+            CTCell[] cells = rows[0].getCArray();
+            assertEquals("A1", cells[0].getR());
+            assertEquals("C1", cells[1].getR());
+            assertEquals(" padded ", cells[1].getIs().getT());
+            assertEquals("D1", cells[2].getR());
+            assertEquals(0, rows[1].sizeOfCArray());
+            assertEquals(3, rows[1].getR());
+
+            // the cells are still attached to the beans of the sheet after the beans have been sorted
+            row.getCell(3).setCellValue(4);
+            XSSFWorkbook back = XSSFTestDataSamples.writeOutAndReadBack(wb);
+            assertEquals(4, back.getSheetAt(0).getRow(0).getCell(3).getNumericCellValue(), 0);
+            assertEquals("a < b & c", back.getSheetAt(0).getRow(0).getCell(0).getStringCellValue());
+            back.close();
+        }
+    }
+
+    @Test
+    public void detachedCellBean() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            XSSFCell cell = sheet.createRow(0).createCell(1);
+            CTCell detached = CTCell.Factory.newInstance();
+            detached.setR("B1");
+            detached.setV("42");
+            cell.setCTCell(detached);
+
+            CTCell[] cells = parse(write(sheet)).getSheetData().getRowArray(0).getCArray();
+            assertEquals(1, cells.length);
+            assertEquals("B1", cells[0].getR());
+            assertEquals("42", cells[0].getV());
+        }
+    }
+
+    @Test
+    public void streamedCellsStayWithoutBeans() throws Exception {
+        byte[] data;
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFSheet sheet = wb.createSheet();
+            XSSFCellStyle style = wb.createCellStyle();
+            for (int r = 0; r < 5; r++) {
+                XSSFRow row = sheet.createRow(r);
+                row.createCell(0).setCellValue(r + 0.5);
+                row.createCell(1).setCellValue("text " + r);
+                row.createCell(2).setCellStyle(style);
+            }
+            data = XSSFTestDataSamples.writeOut(wb).toByteArray();
+        }
+
+        try (XSSFWorkbook wb = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(data)), false, true)) {
+            XSSFSheet sheet = wb.getSheetAt(0);
+            sheet.getRow(1).getCell(1).setCellValue(true);
+            CTRow[] rows = parse(write(sheet)).getSheetData().getRowArray();
+            assertEquals(5, rows.length);
+            CTCell[] cells = rows[3].getCArray();
+            assertEquals("A4", cells[0].getR());
+            assertEquals("3.5", cells[0].getV());
+            assertEquals(STCellType.S, cells[1].getT());
+            assertEquals("C4", cells[2].getR());
+            assertFalse(cells[2].isSetV());
+            assertEquals(STCellType.B, rows[1].getCArray(1).getT());
+
+            // only the modified cell has an xml bean
+            assertFalse(sheet.getRow(3).getCell(0).hasCTCell());
+            assertEquals(0, sheet.getRow(3).getCTRow().sizeOfCArray());
+            assertEquals(1, sheet.getRow(1).getCTRow().sizeOfCArray());
+        }
+    }
+
+    private static String write(XSSFSheet sheet) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        sheet.write(bos);
+        return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static CTWorksheet parse(String xml) throws Exception {
+        return WorksheetDocument.Factory.parse(xml, DEFAULT_XML_OPTIONS).getWorksheet();
+    }
+}
@@ -35,8 +35,14 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.apache.poi.POIDataSamples;
 import org.apache.poi.ooxml.POIXMLProperties;
@@ -1119,4 +1125,141 @@ public final class TestXSSFWorkbook extends BaseTestXWorkbook {
 
         wb.close();
     }
+
+    @Test
+    public void lazySheetLoading() throws IOException, InvalidFormatException {
+        XSSFWorkbook source = new XSSFWorkbook();
+        for (int i = 0; i < 3; i++) {
+            XSSFSheet sheet = source.createSheet("Sheet" + i);
+            for (int r = 0; r < 10; r++) {
+                sheet.createRow(r).createCell(0).setCellValue(i * 100 + r);
+            }
+        }
+        source.getSheetAt(2).getRow(0).createCell(1).setCellFormula("Sheet1!A1*2");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        source.write(bos);
+        source.close();
+
+        XSSFWorkbook wb = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(bos.toByteArray())), true);
+        assertEquals(3, wb.getNumberOfSheets());
+        assertEquals("Sheet1", wb.getSheetName(1));
+        assertFalse(wb.isSheetLoaded(0));
+        assertFalse(wb.isSheetLoaded(1));
+        assertFalse(wb.isSheetLoaded(2));
+
+        XSSFSheet sheet0 = wb.getSheetAt(0);
+        assertTrue(wb.isSheetLoaded(0));
+        assertFalse(wb.isSheetLoaded(1));
+        assertEquals(5.0, sheet0.getRow(5).getCell(0).getNumericCellValue(), 0);
+        sheet0.getRow(5).getCell(0).setCellValue("changed");
+
+        // evaluating a formula loads the sheets it refers to
+        XSSFCell formula = wb.getSheet("Sheet2").getRow(0).getCell(1);
+        assertEquals(200.0, wb.getCreationHelper().createFormulaEvaluator().evaluate(formula).getNumberValue(), 0);
+        assertTrue(wb.isSheetLoaded(1));
+
+        // a released sheet keeps its changes and is loaded again on access
+        wb.releaseSheet(0);
+        assertFalse(wb.isSheetLoaded(0));
+        assertEquals("changed", wb.getSheetAt(0).getRow(5).getCell(0).getStringCellValue());
+        wb.releaseSheet(1);
+
+        XSSFWorkbook wb2 = XSSFTestDataSamples.writeOutAndReadBack(wb);
+        wb.close();
+        assertEquals("changed", wb2.getSheetAt(0).getRow(5).getCell(0).getStringCellValue());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(10, wb2.getSheetAt(i).getPhysicalNumberOfRows());
+            assertEquals(i * 100 + 9, wb2.getSheetAt(i).getRow(9).getCell(0).getNumericCellValue(), 0);
+        }
+        assertEquals("Sheet1!A1*2", wb2.getSheetAt(2).getRow(0).getCell(1).getCellFormula());
+        wb2.close();
+    }
+
+    @Test
+    public void lazySheetLoadingTables() throws IOException {
+        XSSFWorkbook wb = new XSSFWorkbook(XSSFTestDataSamples.openSamplePackage("WithTable.xlsx"), true);
+        XSSFTable table = wb.getTable("Tabella1");
+        assertNotNull(table);
+        assertEquals("Foglio1", table.getSheetName());
+        for (int i = 0; i < wb.getNumberOfSheets(); i++) {
+            assertFalse(wb.isSheetLoaded(i));
+        }
+
+        // the table is the same, when the sheet is loaded later on
+        XSSFSheet sheet = table.getXSSFSheet();
+        assertTrue(wb.isSheetLoaded(wb.getSheetIndex(sheet)));
+        assertSame(table, wb.getTable("Tabella1"));
+        assertTrue(sheet.getTables().contains(table));
+        wb.close();
+    }
+
+    @Test
+    public void lazySheetLoadingPivotTables() throws IOException, InvalidFormatException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (XSSFWorkbook source = new XSSFWorkbook()) {
+            setPivotData(source);
+            source.write(bos);
+        }
+
+        XSSFWorkbook wb = new XSSFWorkbook(OPCPackage.open(new ByteArrayInputStream(bos.toByteArray())), true);
+        assertEquals(1, wb.getPivotTables().size());
+        assertFalse(wb.isSheetLoaded(0));
+
+        // loading the sheet doesn't register its pivot table again
+        assertEquals(1, wb.getSheetAt(0).getPivotTables().size());
+        assertEquals(1, wb.getPivotTables().size());
+        wb.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseSheetRequiresLazyLoading() throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            wb.createSheet();
+            wb.releaseSheet(0);
+        }
+    }
+
+    @Test
+    public void writeWithExecutor() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (String file : new String[]{ "SampleSS.xlsx", "WithDrawing.xlsx", "comments.xlsx", "45544.xlsx" }) {
+                XSSFWorkbook expected = XSSFTestDataSamples.openSampleWorkbook(file);
+                XSSFWorkbook actual = XSSFTestDataSamples.openSampleWorkbook(file);
+                actual.setWriteExecutor(executor);
+                assertSame(executor, actual.getWriteExecutor());
+                for (XSSFWorkbook wb : new XSSFWorkbook[]{ expected, actual }) {
+                    wb.createSheet("added").createRow(1).createCell(2).setCellValue("added");
+                    wb.getSheetAt(0).createDrawingPatriarch();
+                }
+
+                Map<String, byte[]> expectedEntries = readZipEntries(XSSFTestDataSamples.writeOut(expected).toByteArray());
+                Map<String, byte[]> actualEntries = readZipEntries(XSSFTestDataSamples.writeOut(actual).toByteArray());
+                assertEquals(file, expectedEntries.keySet(), actualEntries.keySet());
+                for (Map.Entry<String, byte[]> me : expectedEntries.entrySet()) {
+                    assertArrayEquals(file + " " + me.getKey(), me.getValue(), actualEntries.get(me.getKey()));
+                }
+
+                // the parts can be committed again
+                XSSFWorkbook back = XSSFTestDataSamples.writeOutAndReadBack(actual);
+                assertEquals("added", back.getSheet("added").getRow(1).getCell(2).getStringCellValue());
+                back.close();
+                expected.close();
+                actual.close();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<String, byte[]> readZipEntries(byte[] data) throws IOException {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(data))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                entries.put(entry.getName(), IOUtils.toByteArray(zis));
+            }
+        }
+        return entries;
+    }
 }
@@ -21,6 +21,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.poi.hssf.HSSFITestDataProvider;
 import org.apache.poi.hssf.HSSFTestDataSamples;
@@ -35,6 +37,7 @@ import org.apache.poi.ss.usermodel.BaseTestFormulaEvaluator;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaEvaluator;
 import org.junit.Test;
 
 public final class TestHSSFFormulaEvaluator extends BaseTestFormulaEvaluator {
@@ -43,6 +46,12 @@ public final class TestHSSFFormulaEvaluator extends BaseTestFormulaEvaluator {
         super(HSSFITestDataProvider.instance);
     }
 
+    @Override
+    protected boolean evaluateAll(FormulaEvaluator evaluator, ForkJoinPool pool) {
+        ((HSSFFormulaEvaluator)evaluator).evaluateAll(pool);
+        return true;
+    }
+
 	/**
 	 * Test that the HSSFFormulaEvaluator can evaluate simple named ranges
 	 *  (single cells and rectangular areas)
@@ -298,4 +307,32 @@ public final class TestHSSFFormulaEvaluator extends BaseTestFormulaEvaluator {
     public void testSharedFormulas() throws IOException {
         baseTestSharedFormulas("shared_formulas.xls");
     }
+
+    /**
+     * Evaluators which don't map the cached cells back to their cells recalculate all formulas
+     */
+    @Test
+    public void recalculateWithoutToCell() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFRow row = wb.createSheet().createRow(0);
+            HSSFCell a1 = row.createCell(0);
+            a1.setCellValue(1);
+            HSSFCell b1 = row.createCell(1);
+            b1.setCellFormula("A1*2");
+            HSSFCell c1 = row.createCell(2);
+            c1.setCellFormula("1+1");
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb) {
+                @Override
+                protected Cell toCell(EvaluationCell cell) {
+                    return null;
+                }
+            };
+            fe.evaluateAll();
+
+            a1.setCellValue(3);
+            assertEquals(Collections.singleton(b1), fe.recalculate(Collections.singleton(a1)));
+            assertEquals(6.0, b1.getNumericCellValue(), 0);
+            assertEquals(2.0, c1.getNumericCellValue(), 0);
+        }
+    }
 }
@@ -0,0 +1,244 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.junit.Test;
+
+/**
+ * Tests that the functions scanning {@link AreaSnapshot}s get the same results as when they
+ * read the areas cell by cell
+ */
+public final class TestAreaSnapshot {
+
+    private static final int ROWS = 300;
+
+    private static final String[] CRITERIA = {
+        "3", "\"3\"", "\">3\"", "\"<=2\"", "\"<>3\"", "\"a1\"", "\"A*\"", "\"<>a1\"", "\"\"", "\"=\"",
+        "\"<>\"", "TRUE", "\"FALSE\"", "\"<>TRUE\"", "\"#N/A\"", "\"<>x\"", "\"x?\"", "\"*\"", "Data!E1",
+    };
+
+    private static HSSFSheet createData(HSSFWorkbook wb) {
+        HSSFSheet sheet = wb.createSheet("Data");
+        for (int i = 0; i < ROWS; i++) {
+            HSSFRow row = sheet.createRow(i);
+            switch (i % 9) {
+                case 0: break;
+                case 1: row.createCell(0).setCellValue("a" + (i % 5)); break;
+                case 2: row.createCell(0).setCellValue("A" + (i % 3)); break;
+                case 3: row.createCell(0).setCellValue(i % 2 == 0); break;
+                case 4: row.createCell(0).setCellErrorValue(FormulaError.NA.getCode()); break;
+                case 5: row.createCell(0).setCellValue("3"); break;
+                case 6: row.createCell(0).setCellValue(""); break;
+                default: row.createCell(0).setCellValue(i % 7);
+            }
+            if (i % 11 == 0) {
+                row.createCell(1).setCellValue("text");
+            } else if (i % 13 != 0) {
+                row.createCell(1).setCellValue(i * 1.5);
+            }
+            row.createCell(2).setCellValue(i % 3 == 0 ? "x" : i % 3 == 1 ? "Y" : "xz");
+        }
+        return sheet;
+    }
+
+    private static List<Cell> createFormulas(HSSFWorkbook wb) {
+        HSSFSheet sheet = wb.createSheet("Calc");
+        String a = "Data!A1:A" + ROWS;
+        String b = "Data!B1:B" + ROWS;
+        String c = "Data!C1:C" + ROWS;
+        List<Cell> cells = new ArrayList<>();
+        int r = 0;
+        for (String criteria : CRITERIA) {
+            String[] formulas = {
+                "COUNTIF(" + a + "," + criteria + ")",
+                "COUNTIF(Data!A:A," + criteria + ")",
+                "COUNTIF(Data!A1:C" + ROWS + "," + criteria + ")",
+                "SUMIF(" + a + "," + criteria + "," + b + ")",
+                "SUMIF(Data!A:A," + criteria + ",Data!B:B)",
+                "SUMIF(Data!A1:B" + ROWS + "," + criteria + ")",
+                "COUNTIFS(" + a + "," + criteria + "," + c + ",\"x\")",
+                "COUNTIFS(Data!A:A," + criteria + ")",
+                "SUMIFS(" + b + "," + a + "," + criteria + "," + c + ",\"<>y\")",
+                "SUMIFS(Data!B:B,Data!A:A," + criteria + ")",
+                "SUMIFS(" + b + "," + c + ",\"x*\"," + a + "," + criteria + ")",
+            };
+            HSSFRow row = sheet.createRow(r++);
+            for (int i = 0; i < formulas.length; i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellFormula(formulas[i]);
+                cells.add(cell);
+            }
+        }
+        return cells;
+    }
+
+    private static List<Cell> createAggregates(HSSFWorkbook wb) {
+        HSSFSheet sheet = wb.createSheet("Aggregates");
+        String[] ranges = {
+            "Data!B1:B" + ROWS, "Data!B:B", "Data!A1:C" + ROWS, "Data!B2:C" + (ROWS + 50), "Data!B7:B" + ROWS,
+        };
+        String[] functions = {
+            "SUM", "AVERAGE", "COUNT", "COUNTA", "COUNTBLANK", "MIN", "MAX", "MINA", "MAXA",
+            "MEDIAN", "STDEV", "SUBTOTAL(9,", "SUBTOTAL(2,",
+        };
+        List<Cell> cells = new ArrayList<>();
+        int r = 0;
+        for (String range : ranges) {
+            HSSFRow row = sheet.createRow(r++);
+            int c = 0;
+            for (String function : functions) {
+                Cell cell = row.createCell(c++);
+                String args = function.endsWith(",") ? range + ")" : "(" + range + ")";
+                cell.setCellFormula(function + args);
+                cells.add(cell);
+            }
+            // several operands, a literal number and a boolean literal
+            Cell cell = row.createCell(c);
+            cell.setCellFormula("SUM(" + range + ",1,TRUE," + ranges[0] + ")");
+            cells.add(cell);
+        }
+        return cells;
+    }
+
+    private static List<Cell> createArrayFormulas(HSSFWorkbook wb) {
+        HSSFSheet sheet = wb.createSheet("Arrays");
+        String a = "Data!A1:A" + ROWS;
+        String b = "Data!B1:B" + ROWS;
+        String c = "Data!C1:C" + ROWS;
+        String[] formulas = {
+            "SUMPRODUCT(" + b + "," + b + ")",
+            "SUMPRODUCT(Data!A1:B" + ROWS + ",Data!B1:C" + ROWS + ")",
+            "SUMPRODUCT((" + a + "=3)*" + b + ")",
+            "SUMPRODUCT((" + c + "=\"x\")*(" + b + ">100))",
+            "SUMPRODUCT((" + c + "<>\"x\")*(" + b + "<200)*" + b + ")",
+            "SUM((" + b + ">100)*" + b + ")",
+            "SUM(" + b + "/(" + a + "+1))",
+            "MAX(" + b + "-Data!B2:B" + (ROWS + 1) + ")",
+        };
+        List<Cell> cells = new ArrayList<>();
+        for (int i = 0; i < formulas.length; i++) {
+            sheet.setArrayFormula(formulas[i], new CellRangeAddress(i, i, 0, 0));
+            cells.add(sheet.getRow(i).getCell(0));
+        }
+        return cells;
+    }
+
+    private static void assertSameResults(HSSFWorkbook wb, List<Cell> cells) {
+        HSSFFormulaEvaluator snapshots = new HSSFFormulaEvaluator(wb);
+        HSSFFormulaEvaluator cellByCell = new HSSFFormulaEvaluator(wb);
+        cellByCell._getWorkbookEvaluator().setUseAreaSnapshots(false);
+        for (Cell cell : cells) {
+            assertEquals(cell.getCellFormula(), cellByCell.evaluate(cell).formatAsString(),
+                    snapshots.evaluate(cell).formatAsString());
+        }
+    }
+
+    @Test
+    public void sameResultsAsCellByCell() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            createData(wb);
+            assertSameResults(wb, createFormulas(wb));
+        }
+    }
+
+    @Test
+    public void aggregatesSameResultsAsCellByCell() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet data = createData(wb);
+            List<Cell> cells = createAggregates(wb);
+            assertSameResults(wb, cells);
+
+            // booleans of referenced cells are counted by MINA and MAXA only
+            for (int i = 1; i < ROWS; i += 17) {
+                data.getRow(i).createCell(1).setCellValue(i % 2 == 0);
+            }
+            assertSameResults(wb, cells);
+            // errors are reported in the order of the cells
+            data.getRow(100).createCell(1).setCellErrorValue(FormulaError.DIV0.getCode());
+            data.getRow(200).createCell(2).setCellErrorValue(FormulaError.NUM.getCode());
+            assertSameResults(wb, cells);
+        }
+    }
+
+    @Test
+    public void arraysSameResultsAsCellByCell() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet data = createData(wb);
+            List<Cell> cells = createArrayFormulas(wb);
+            assertSameResults(wb, cells);
+
+            data.getRow(150).createCell(1).setCellErrorValue(FormulaError.DIV0.getCode());
+            assertSameResults(wb, cells);
+        }
+    }
+
+    @Test
+    public void formulaCellsInArea() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet data = createData(wb);
+            data.getRow(10).getCell(0).setCellFormula("1+2");
+            data.getRow(20).getCell(1).setCellFormula("\"a\"&\"1\"");
+            assertSameResults(wb, createFormulas(wb));
+        }
+    }
+
+    @Test
+    public void changedCells() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet data = createData(wb);
+            List<Cell> cells = createFormulas(wb);
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            Cell sumifs = wb.getSheet("Calc").getRow(0).getCell(8);
+            Cell countif = wb.getSheet("Calc").getRow(0).getCell(1);
+            String sum = fe.evaluate(sumifs).formatAsString();
+            String count = fe.evaluate(countif).formatAsString();
+
+            // a cell below the last row of the sheet
+            Cell added = data.createRow(ROWS + 10).createCell(0);
+            added.setCellValue(3);
+            fe.notifyUpdateCell(added);
+            assertEquals(sum, fe.evaluate(sumifs).formatAsString());
+            assertEquals(Double.toString(Double.parseDouble(count) + 1), fe.evaluate(countif).formatAsString());
+
+            Cell changed = data.getRow(8).getCell(0);
+            assertEquals(1, changed.getNumericCellValue(), 0);
+            changed.setCellValue(3);
+            fe.notifyUpdateCell(changed);
+            Cell sumCell = data.getRow(8).getCell(1);
+            sumCell.setCellValue(1000);
+            fe.notifyUpdateCell(sumCell);
+            String newSum = fe.evaluate(sumifs).formatAsString();
+            assertTrue(newSum, Double.parseDouble(newSum) > Double.parseDouble(sum) + 999);
+            assertSameResults(wb, cells);
+        }
+    }
+}
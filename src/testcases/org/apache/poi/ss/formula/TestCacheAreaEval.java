@@ -0,0 +1,130 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.eval.AreaEval;
+import org.apache.poi.ss.formula.eval.BlankEval;
+import org.apache.poi.ss.formula.eval.BoolEval;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.StringEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.junit.Test;
+
+/**
+ * Tests {@link CacheAreaEval}s holding their numbers as <code>double[]</code>
+ */
+public final class TestCacheAreaEval {
+
+    @Test
+    public void numbersAndOtherValues() {
+        StringEval text = new StringEval("x");
+        ValueEval[] values = new ValueEval[6];
+        values[4] = text;
+        values[5] = BoolEval.TRUE;
+        // rows 2 to 3, columns 3 to 5
+        CacheAreaEval area = new CacheAreaEval(2, 3, 3, 5, new double[] { 1, 2, 3, 4, 0, 0 }, values);
+
+        assertTrue(area.isNumber(1, 0));
+        assertEquals(4.0, area.getNumberValue(1, 0), 0.0);
+        assertEquals(4.0, ((NumberEval) area.getValue(1, 0)).getNumberValue(), 0.0);
+        assertFalse(area.isNumber(1, 1));
+        assertEquals(0.0, area.getNumberValue(1, 1), 0.0);
+        assertSame(text, area.getValue(1, 1));
+        assertSame(BoolEval.TRUE, area.getAbsoluteValue(3, 5));
+
+        CacheAreaEval row = (CacheAreaEval) area.getRow(1);
+        assertEquals(3, row.getFirstRow());
+        assertEquals(3, row.getWidth());
+        assertTrue(row.isNumber(0, 0));
+        assertEquals(4.0, row.getNumberValue(0, 0), 0.0);
+        assertSame(text, row.getValue(0, 1));
+
+        CacheAreaEval column = (CacheAreaEval) area.getColumn(2);
+        assertEquals(5, column.getFirstColumn());
+        assertEquals(3.0, column.getNumberValue(0, 0), 0.0);
+        assertSame(BoolEval.TRUE, column.getValue(1, 0));
+
+        // the cells beyond the array are blank
+        AreaEval offset = area.offset(1, 2, 1, 2);
+        assertEquals(2, offset.getHeight());
+        assertSame(text, offset.getRelativeValue(0, 0));
+        assertSame(BoolEval.TRUE, offset.getRelativeValue(0, 1));
+        assertSame(BlankEval.instance, offset.getRelativeValue(1, 0));
+    }
+
+    @Test
+    public void onlyNumbers() {
+        CacheAreaEval area = new CacheAreaEval(0, 0, 2, 0, new double[] { 1.5, 2.5, 3.5 });
+        assertTrue(area.isNumber(2, 0));
+        assertEquals(3.5, ((NumberEval) area.getValue(2, 0)).getNumberValue(), 0.0);
+        CacheAreaEval offset = (CacheAreaEval) area.offset(1, 1, 0, 0);
+        assertEquals(2.5, offset.getNumberValue(0, 0), 0.0);
+    }
+
+    @Test
+    public void evaluateArrays() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet("Sheet1");
+            for (int i = 0; i < 5; i++) {
+                HSSFRow row = sheet.createRow(i);
+                row.createCell(0).setCellValue(i + 1);
+                row.createCell(1).setCellValue((i + 1) * 10);
+            }
+            HSSFRow row = sheet.createRow(10);
+            String[] arrayFormulas = {
+                "SUMPRODUCT(A1:A5*B1:B5)", "SUMPRODUCT((A1:A5>2)*B1:B5)", "SUM(A1:A5*B1:B5)", "MAX(A1:A5*B1:B5)",
+                "SUM(A1:A5*B1:B3)", "SUMPRODUCT(B1:B5/(A1:A5-A1:A5))",
+            };
+            String[] formulas = {
+                "SUMPRODUCT({1,2,3},{4,5,6})", "SUM({1,2,\"x\",TRUE})", "SUM({1,#N/A})", "SUM(MMULT(A1:B2,{1;2}))",
+                "SUM(TRANSPOSE(A1:B5))", "INDEX(TRANSPOSE(A1:B5),2,3)", "MDETERM(MMULT(A1:B2,{1,0;0,1}))",
+            };
+            String[] expected = {
+                "550.0", "120.0", "550.0", "250.0", "140.0", "#DIV/0!",
+                "32.0", "3.0", "#N/A", "63.0", "165.0", "30.0", "0.0",
+            };
+            int c = 0;
+            for (String formula : arrayFormulas) {
+                sheet.setArrayFormula(formula, new CellRangeAddress(10, 10, c, c));
+                c++;
+            }
+            for (String formula : formulas) {
+                row.createCell(c++).setCellFormula(formula);
+            }
+
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            for (int i = 0; i < expected.length; i++) {
+                Cell cell = row.getCell(i);
+                assertEquals(cell.getCellFormula(), expected[i], fe.evaluate(cell).formatAsString());
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.EvaluationProfiler.CellStats;
+import org.apache.poi.ss.formula.EvaluationProfiler.FunctionStats;
+import org.junit.Test;
+
+/**
+ * Tests {@link EvaluationProfiler}
+ */
+public final class TestEvaluationProfiler {
+
+    /**
+     * Creates the chain A1 &lt;- A2 &lt;- ... &lt;- A5, which is summed up by B1.
+     * A1 refers to the plain value C1.
+     */
+    private static HSSFWorkbook createChain() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        HSSFSheet sheet = wb.createSheet("Sheet1");
+        HSSFRow row = sheet.createRow(0);
+        row.createCell(0).setCellFormula("C1+1");
+        row.createCell(1).setCellFormula("SUM(A1:A5)");
+        row.createCell(2).setCellValue(5);
+        for (int i = 1; i < 5; i++) {
+            sheet.createRow(i).createCell(0).setCellFormula("A" + i + "+1");
+        }
+        return wb;
+    }
+
+    @Test
+    public void statistics() throws IOException {
+        try (HSSFWorkbook wb = createChain()) {
+            HSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            EvaluationProfiler profiler = new EvaluationProfiler();
+            evaluator.setProfiler(profiler);
+            evaluator.evaluateAll();
+            assertEquals(40.0, wb.getSheet("Sheet1").getRow(0).getCell(1).getNumericCellValue(), 0.0);
+
+            // every formula cell is evaluated once, later references get the cached results
+            assertEquals(6, profiler.getFormulaCacheMisses());
+            assertTrue(profiler.getFormulaCacheHits() > 0);
+            assertEquals(1, profiler.getPlainValueCacheMisses());
+            assertEquals(0, profiler.getPlainValueCacheHits());
+
+            List<FunctionStats> functions = profiler.getFunctionStats();
+            assertEquals(2, functions.size());
+            for (FunctionStats f : functions) {
+                if ("SUM".equals(f.getName())) {
+                    assertEquals(1, f.getCalls());
+                } else {
+                    assertEquals("Add", f.getName());
+                    assertEquals(5, f.getCalls());
+                }
+                assertTrue(f.getSelfNanos() <= f.getTotalNanos());
+            }
+
+            List<CellStats> cells = profiler.getSlowestCells(10);
+            assertEquals(6, cells.size());
+            for (CellStats c : cells) {
+                assertEquals(1, c.getEvaluations());
+                assertTrue(c.getSelfNanos() <= c.getTotalNanos());
+                assertNotNull(c.getFormula());
+            }
+            assertEquals(3, profiler.getSlowestCells(3).size());
+        }
+    }
+
+    @Test
+    public void deepestChain() throws IOException {
+        try (HSSFWorkbook wb = createChain()) {
+            HSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            EvaluationProfiler profiler = new EvaluationProfiler();
+            evaluator.setProfiler(profiler);
+            evaluator.evaluateAll();
+
+            // the cells of the chain of B1 don't start chains of their own
+            List<List<CellStats>> chains = profiler.getDeepestChains(10);
+            assertEquals(1, chains.size());
+            List<CellStats> chain = chains.get(0);
+            assertEquals(6, chain.size());
+            assertEquals("Sheet1!B1", chain.get(0).getReference());
+            assertEquals("SUM(A1:A5)", chain.get(0).getFormula());
+            assertEquals(6, chain.get(0).getChainDepth());
+            assertEquals("Sheet1!A5", chain.get(1).getReference());
+            assertEquals("Sheet1!A1", chain.get(5).getReference());
+            assertEquals(1, chain.get(5).getChainDepth());
+        }
+    }
+
+    @Test
+    public void report() throws IOException {
+        try (HSSFWorkbook wb = createChain()) {
+            HSSFFormulaEvaluator evaluator = wb.getCreationHelper().createFormulaEvaluator();
+            EvaluationProfiler profiler = new EvaluationProfiler();
+            evaluator.setProfiler(profiler);
+            evaluator.evaluateAll();
+
+            StringBuilder report = new StringBuilder();
+            profiler.writeReport(report);
+            String text = report.toString();
+            assertTrue(text, text.contains("6 evaluations"));
+            assertTrue(text, text.contains("SUM"));
+            assertTrue(text, text.contains("SUM(A1:A5)"));
+            assertTrue(text, text.contains("Sheet1!B1 <- Sheet1!A5 <- Sheet1!A4"));
+
+            profiler.reset();
+            assertEquals(0, profiler.getFormulaCacheMisses());
+            assertEquals(0, profiler.getFunctionStats().size());
+            assertEquals(0, profiler.getSlowestCells(10).size());
+
+            // nothing is recorded after the profiler has been detached
+            evaluator.setProfiler(null);
+            evaluator.clearAllCachedResultValues();
+            evaluator.evaluateAll();
+            assertEquals(0, profiler.getFormulaCacheMisses());
+        }
+    }
+}
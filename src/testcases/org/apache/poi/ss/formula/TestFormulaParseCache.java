@@ -0,0 +1,118 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFEvaluationWorkbook;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.junit.Test;
+
+/**
+ * Tests {@link FormulaParseCache}
+ */
+public final class TestFormulaParseCache {
+
+    @Test
+    public void sameTokensInSameContext() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            wb.createSheet("Sheet1");
+            wb.createSheet("Sheet2");
+            FormulaParsingWorkbook fpb = HSSFEvaluationWorkbook.create(wb);
+            FormulaParseCache cache = new FormulaParseCache();
+
+            Ptg[] ptgs = cache.parse("SUM(A1:B2)", fpb, FormulaType.CELL, 0, 5);
+            assertSame(ptgs, cache.parse("SUM(A1:B2)", fpb, FormulaType.CELL, 0, 5));
+            // the row only matters for structured references
+            assertSame(ptgs, cache.parse("SUM(A1:B2)", fpb, FormulaType.CELL, 0, 6));
+            assertNotSame(ptgs, cache.parse("SUM(A1:B2)", fpb, FormulaType.CELL, 1, 5));
+            assertNotSame(ptgs, cache.parse("SUM(A1:B2)", fpb, FormulaType.NAMEDRANGE, 0, 5));
+            assertNotSame(ptgs, cache.parse("SUM(A1:B3)", fpb, FormulaType.CELL, 0, 5));
+            assertEquals(4, cache.size());
+
+            cache.clear();
+            assertEquals(0, cache.size());
+            assertNotSame(ptgs, cache.parse("SUM(A1:B2)", fpb, FormulaType.CELL, 0, 5));
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedAreDropped() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            wb.createSheet("Sheet1");
+            FormulaParsingWorkbook fpb = HSSFEvaluationWorkbook.create(wb);
+            FormulaParseCache cache = new FormulaParseCache(2);
+
+            Ptg[] a = cache.parse("A1", fpb, FormulaType.CELL, 0, 0);
+            Ptg[] b = cache.parse("B1", fpb, FormulaType.CELL, 0, 0);
+            assertSame(a, cache.parse("A1", fpb, FormulaType.CELL, 0, 0));
+            cache.parse("C1", fpb, FormulaType.CELL, 0, 0);
+            assertEquals(2, cache.size());
+            assertSame(a, cache.parse("A1", fpb, FormulaType.CELL, 0, 0));
+            assertNotSame(b, cache.parse("B1", fpb, FormulaType.CELL, 0, 0));
+        }
+    }
+
+    @Test
+    public void invalidFormulasAreNotCached() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            wb.createSheet("Sheet1");
+            FormulaParsingWorkbook fpb = HSSFEvaluationWorkbook.create(wb);
+            FormulaParseCache cache = new FormulaParseCache();
+            for (int i = 0; i < 2; i++) {
+                try {
+                    cache.parse("SUM(A1", fpb, FormulaType.CELL, 0, 0);
+                    fail("expected FormulaParseException");
+                } catch (FormulaParseException e) {
+                    // expected
+                }
+            }
+            assertEquals(0, cache.size());
+        }
+    }
+
+    @Test
+    public void regionRelativeFormulas() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet("Sheet1");
+            for (int r = 0; r < 3; r++) {
+                sheet.createRow(r).createCell(0).setCellValue(r + 1);
+            }
+            WorkbookEvaluator evaluator = new HSSFFormulaEvaluator(wb)._getWorkbookEvaluator();
+            CellRangeAddress region = CellRangeAddress.valueOf("B1:B3");
+
+            // the cached tokens aren't shifted by the evaluation for the previous cell
+            for (int r : new int[] { 1, 2, 0, 1 }) {
+                CellReference target = new CellReference("Sheet1", r, 1, false, false);
+                NumberEval result = (NumberEval) evaluator.evaluate("$A1*2", target, region);
+                assertEquals(2.0 * (r + 1), result.getNumberValue(), 0.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.HSSFTestDataSamples;
+import org.apache.poi.hssf.model.HSSFFormulaParser;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.ptg.AttrPtg;
+import org.apache.poi.ss.formula.ptg.IntPtg;
+import org.apache.poi.ss.formula.ptg.Ptg;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.junit.Test;
+
+/**
+ * Tests {@link FormulaPlan} against the token interpreter of {@link WorkbookEvaluator}
+ */
+public final class TestFormulaPlan {
+
+    @Test
+    public void sameResultsAsInterpreter() throws IOException {
+        for (String sample : new String[] { "FormulaEvalTestData.xls", "IndirectFunctionTestCaseData.xls",
+                "MatrixFormulaEvalTestData.xls", "testNames.xls" }) {
+            try (HSSFWorkbook wb = HSSFTestDataSamples.openSampleWorkbook(sample)) {
+                assertTrue(sample, compareAllFormulaCells(wb) > 0);
+            }
+        }
+    }
+
+    @Test
+    public void optimizedAttributes() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = wb.createSheet();
+            Row row = sheet.createRow(0);
+            row.createCell(0).setCellValue(2);
+            row.createCell(1).setCellValue("text");
+            row.createCell(2).setCellErrorValue(FormulaError.DIV0.getCode());
+            String[] formulas = {
+                "IF(A1>1,\"yes\",\"no\")", "IF(A1>5,\"yes\",\"no\")", "IF(A1>5,\"yes\")", "IF(C1,1,2)",
+                "IF(A1>5,,3)", "IF(A1>1,)", "IF(A1>5,1,IF(A1>1,2,3))", "IF(B1,1,2)",
+                "CHOOSE(A1,\"a\",\"b\",\"c\")", "CHOOSE(A1+5,\"a\",\"b\")", "CHOOSE(C1,1,2)", "CHOOSE(A1,1,)",
+                "SUM(A1)", "SUM(A1,A1)+ROW()", "INDEX((A1,A1:B1),1,1,2)", "INDIRECT(\"A\"&A1-1)*2",
+            };
+            Row formulaRow = sheet.createRow(1);
+            for (int i = 0; i < formulas.length; i++) {
+                formulaRow.createCell(i).setCellFormula(formulas[i]);
+            }
+            assertEquals(formulas.length, compareAllFormulaCells(wb));
+        }
+    }
+
+    @Test
+    public void shapes() {
+        HSSFWorkbook wb = new HSSFWorkbook();
+        wb.createSheet();
+        assertEquals(shape(wb, "A1*2+SUM(B1:C1)"), shape(wb, "A7*2+SUM(B7:C7)"));
+        assertEquals(shape(wb, "IF(A1>0,\"ab\",B1)"), shape(wb, "IF(A9>5,\"xy\",B9)"));
+        assertNotEquals(shape(wb, "A1*2+SUM(B1:C1)"), shape(wb, "A1*2+MAX(B1:C1)"));
+        assertNotEquals(shape(wb, "SUM(A1,B1)"), shape(wb, "SUM(A1,B1,C1)"));
+        assertNotEquals(shape(wb, "A1*2"), shape(wb, "Sheet0!A1*2"));
+        // the jump distances of IF depend on the length of the string
+        assertNotEquals(shape(wb, "IF(A1>0,\"ab\",B1)"), shape(wb, "IF(A1>0,\"abc\",B1)"));
+
+        assertEquals(new FormulaPlan.Shape(new Ptg[] { new IntPtg(1), AttrPtg.SUM }),
+                new FormulaPlan.Shape(new Ptg[] { new IntPtg(2), AttrPtg.SUM }));
+        assertNotEquals(new FormulaPlan.Shape(new Ptg[] { new IntPtg(1), AttrPtg.SUM }),
+                new FormulaPlan.Shape(new Ptg[] { new IntPtg(1), AttrPtg.createSkip(0) }));
+    }
+
+    private static FormulaPlan.Shape shape(HSSFWorkbook wb, String formula) {
+        return new FormulaPlan.Shape(HSSFFormulaParser.parse(formula, wb));
+    }
+
+    /**
+     * Evaluates all formula cells with and without formula plans and compares the results
+     *
+     * @return the number of formula cells
+     */
+    private static int compareAllFormulaCells(HSSFWorkbook wb) {
+        HSSFFormulaEvaluator planned = new HSSFFormulaEvaluator(wb);
+        HSSFFormulaEvaluator interpreted = new HSSFFormulaEvaluator(wb);
+        interpreted._getWorkbookEvaluator().setUseFormulaPlans(false);
+        int count = 0;
+        for (Sheet sheet : wb) {
+            for (Row row : sheet) {
+                for (Cell cell : row) {
+                    if (cell.getCellType() != CellType.FORMULA) {
+                        continue;
+                    }
+                    String expected = evaluate(interpreted, cell);
+                    String actual = evaluate(planned, cell);
+                    assertEquals(sheet.getSheetName() + "!" + cell.getAddress() + " " + cell.getCellFormula(),
+                            expected, actual);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static String evaluate(HSSFFormulaEvaluator evaluator, Cell cell) {
+        try {
+            CellValue cv = evaluator.evaluate(cell);
+            return cv == null ? "null" : cv.formatAsString();
+        } catch (RuntimeException e) {
+            return e.getClass().getName();
+        }
+    }
+}
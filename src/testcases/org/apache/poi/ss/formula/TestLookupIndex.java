@@ -0,0 +1,188 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.poi.hssf.usermodel.HSSFCell;
+import org.apache.poi.hssf.usermodel.HSSFEvaluationTestHelper;
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.formula.IEvaluationListener.ICacheEntry;
+import org.apache.poi.ss.formula.eval.NumberEval;
+import org.apache.poi.ss.formula.eval.ValueEval;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.apache.poi.ss.usermodel.Row;
+import org.junit.Test;
+
+/**
+ * Tests the exact-match lookups of VLOOKUP, HLOOKUP and MATCH with {@link LookupIndex}es
+ */
+public final class TestLookupIndex {
+
+    private static final int SIZE = 100;
+
+    /**
+     * Column A holds the lookup values and column B their row numbers, rows 1 and 2 hold the
+     * same values from column D on
+     */
+    private static HSSFSheet createLookupSheet(HSSFWorkbook wb) {
+        HSSFSheet sheet = wb.createSheet("Data");
+        for (int i = 0; i < SIZE; i++) {
+            Row row = sheet.createRow(i);
+            Cell key = row.createCell(0);
+            switch (i % 4) {
+                case 0: key.setCellValue(i); break;
+                case 1: key.setCellValue("Key" + i); break;
+                case 2: key.setCellValue(i % 8 == 2); break;
+                default: // blank
+            }
+            row.createCell(1).setCellValue(i + 1);
+        }
+        // duplicates in a different case, the first match wins
+        sheet.getRow(50).getCell(0).setCellValue("KEY1");
+        sheet.getRow(60).getCell(0).setCellValue(4);
+        Row first = sheet.getRow(0);
+        for (int i = 0; i < SIZE; i++) {
+            sheet.getRow(1).createCell(3 + i).setCellValue(i + 1);
+            Cell key = first.createCell(3 + i);
+            Cell source = sheet.getRow(i).getCell(0);
+            switch (source.getCellType()) {
+                case NUMERIC: key.setCellValue(source.getNumericCellValue()); break;
+                case STRING: key.setCellValue(source.getStringCellValue()); break;
+                case BOOLEAN: key.setCellValue(source.getBooleanCellValue()); break;
+                default: // blank
+            }
+        }
+        return sheet;
+    }
+
+    private static String evaluate(HSSFFormulaEvaluator fe, Cell cell, String formula) {
+        cell.setCellFormula(formula);
+        fe.notifySetFormula(cell);
+        CellValue cv = fe.evaluate(cell);
+        return cv.formatAsString();
+    }
+
+    @Test
+    public void exactMatches() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = createLookupSheet(wb);
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            Cell cell = sheet.getRow(1).createCell(2);
+
+            String[][] lookups = {
+                { "4", "5.0" },
+                { "\"key1\"", "2.0" },
+                { "\"KEY97\"", "98.0" },
+                { "TRUE", "3.0" },
+                { "FALSE", "7.0" },
+                { "96", "97.0" },
+                { "3", "#N/A" },
+                { "\"Key\"", "#N/A" },
+                { "\"4\"", "#N/A" },
+                // wildcards are matched value by value
+                { "\"key9?\"", "94.0" },
+                // blank matches zero
+                { "Data!A4", "1.0" },
+            };
+            for (String[] lookup : lookups) {
+                String vlookup = "VLOOKUP(" + lookup[0] + ",Data!A1:B" + SIZE + ",2,FALSE)";
+                assertEquals(vlookup, lookup[1], evaluate(fe, cell, vlookup));
+                String hlookup = "HLOOKUP(" + lookup[0] + ",Data!D1:CY2,2,FALSE)";
+                assertEquals(hlookup, lookup[1], evaluate(fe, cell, hlookup));
+                String match = "MATCH(" + lookup[0] + ",Data!A1:A" + SIZE + ",0)";
+                assertEquals(match, lookup[1], evaluate(fe, cell, match));
+            }
+        }
+    }
+
+    @Test
+    public void changedLookupValues() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = createLookupSheet(wb);
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            Cell vlookup = sheet.getRow(1).createCell(2);
+            vlookup.setCellFormula("VLOOKUP(\"new\",A1:B" + SIZE + ",2,FALSE)");
+            Cell match = sheet.getRow(2).createCell(2);
+            match.setCellFormula("MATCH(8,A1:A" + SIZE + ",0)");
+            assertEquals("#N/A", fe.evaluate(vlookup).formatAsString());
+            assertEquals("9.0", fe.evaluate(match).formatAsString());
+
+            // a blank cell of the area gets a value
+            Cell blank = sheet.getRow(79).createCell(0);
+            blank.setCellValue("New");
+            fe.notifyUpdateCell(blank);
+            assertEquals("80.0", fe.evaluate(vlookup).formatAsString());
+            assertEquals("9.0", fe.evaluate(match).formatAsString());
+
+            // the matched cell is removed
+            Cell matched = sheet.getRow(8).getCell(0);
+            fe.notifyDeleteCell(matched);
+            sheet.getRow(8).removeCell(matched);
+            assertEquals("#N/A", fe.evaluate(match).formatAsString());
+
+            // a formula cell in the area is searched value by value
+            sheet.getRow(9).getCell(0).setCellFormula("B1*8");
+            fe.notifySetFormula(sheet.getRow(9).getCell(0));
+            assertEquals("10.0", fe.evaluate(match).formatAsString());
+            sheet.getRow(0).getCell(1).setCellValue(2);
+            fe.notifyUpdateCell(sheet.getRow(0).getCell(1));
+            assertEquals("#N/A", fe.evaluate(match).formatAsString());
+        }
+    }
+
+    @Test
+    public void dependenciesOnIndex() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            HSSFSheet sheet = createLookupSheet(wb);
+            final boolean[] cleared = { false };
+            WorkbookEvaluator evaluator = WorkbookEvaluatorTestHelper.createEvaluator(wb, new EvaluationListener() {
+                @Override
+                public void onClearCachedValue(ICacheEntry entry) {
+                    if (entry instanceof AreaSnapshotCache.Entry && ((AreaSnapshotCache.Entry) entry).getSnapshot() != null) {
+                        cleared[0] = true;
+                    }
+                }
+            });
+            HSSFCell cell = sheet.getRow(1).createCell(2);
+            cell.setCellFormula("MATCH(\"key5\",A1:A" + SIZE + ",0)");
+            ValueEval result = evaluator.evaluate(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertEquals(6, ((NumberEval) result).getNumberValue(), 0);
+
+            // a cell outside the area keeps the index
+            HSSFCell outside = sheet.getRow(5).getCell(1);
+            outside.setCellValue("key5");
+            evaluator.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(outside));
+            assertFalse(cleared[0]);
+
+            HSSFCell inside = sheet.getRow(3).createCell(0);
+            inside.setCellValue("KEY5");
+            evaluator.notifyUpdateCell(HSSFEvaluationTestHelper.wrapCell(inside));
+            assertTrue(cleared[0]);
+            result = evaluator.evaluate(HSSFEvaluationTestHelper.wrapCell(cell));
+            assertEquals(4, ((NumberEval) result).getNumberValue(), 0);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/* ====================================================================
+   Licensed to the Apache Software Foundation (ASF) under one or more
+   contributor license agreements.  See the NOTICE file distributed with
+   this work for additional information regarding copyright ownership.
+   The ASF licenses this file to You under the Apache License, Version 2.0
+   (the "License"); you may not use this file except in compliance with
+   the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+   Unless required by applicable law or agreed to in writing, software
+   distributed under the License is distributed on an "AS IS" BASIS,
+   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+   See the License for the specific language governing permissions and
+   limitations under the License.
+==================================================================== */
+
+package org.apache.poi.ss.formula;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.poi.hssf.usermodel.HSSFFormulaEvaluator;
+import org.apache.poi.hssf.usermodel.HSSFRow;
+import org.apache.poi.hssf.usermodel.HSSFSheet;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellValue;
+import org.junit.Test;
+
+/**
+ * Tests evaluating the cells of a workbook from several threads with a {@link SharedWorkbookEvaluator}
+ */
+public final class TestSharedWorkbookEvaluator {
+
+    private static final int ROWS = 500;
+    private static final int THREADS = 8;
+    private static final int BLOCK_ROWS = 50;
+
+    /**
+     * Each row of the Calc sheet refers to the Data sheet and to the previous row of its block,
+     * the columns E and F of the first block refer to each other in a loop
+     */
+    private static List<Cell> createWorkbook(HSSFWorkbook wb) {
+        HSSFSheet data = wb.createSheet("Data");
+        for (int i = 0; i < ROWS; i++) {
+            HSSFRow row = data.createRow(i);
+            row.createCell(0).setCellValue(i);
+            row.createCell(1).setCellValue(i % 7 == 0 ? "seven" : "other");
+        }
+        HSSFSheet calc = wb.createSheet("Calc");
+        List<Cell> cells = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            HSSFRow row = calc.createRow(i);
+            String previous = i % BLOCK_ROWS == 0 ? "0" : "A" + i;
+            String[] formulas = {
+                previous + "+Data!A" + (i + 1),
+                "SUMIF(Data!B1:B" + ROWS + ",\"seven\",Data!A1:A" + ROWS + ")-" + previous,
+                "IF(Data!B" + (i + 1) + "=\"seven\",MATCH(" + i + ",Data!A1:A" + ROWS + ",0),B" + (i + 1) + ")",
+                "INDIRECT(\"Data!A\"&" + (i + 1) + ")*2",
+                "F" + (i + 1) + "+1",
+                i < BLOCK_ROWS - 1 ? "E" + (i + 2) : i == BLOCK_ROWS - 1 ? "E1" : "D" + (i + 1),
+            };
+            for (int j = 0; j < formulas.length; j++) {
+                Cell cell = row.createCell(j);
+                cell.setCellFormula(formulas[j]);
+                cells.add(cell);
+            }
+        }
+        return cells;
+    }
+
+    private static void assertSameResults(HSSFWorkbook wb, final List<Cell> cells) throws Exception {
+        HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+        final SharedWorkbookEvaluator shared = fe.createSharedEvaluator();
+        assertSameResults(fe, shared, cells);
+    }
+
+    private static void assertSameResults(HSSFFormulaEvaluator fe, final SharedWorkbookEvaluator shared,
+            final List<Cell> cells) throws Exception {
+        List<String> expected = new ArrayList<>();
+        HSSFFormulaEvaluator single = new HSSFFormulaEvaluator((HSSFWorkbook) cells.get(0).getSheet().getWorkbook());
+        for (Cell cell : cells) {
+            expected.add(single.evaluate(cell).formatAsString());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final List<Cell> order = new ArrayList<>(cells);
+                if (t % 2 == 0) {
+                    Collections.reverse(order);
+                }
+                Collections.shuffle(order.subList(0, order.size() / 2), new Random(t));
+                futures.add(executor.submit(() -> {
+                    List<String> results = new ArrayList<>(Collections.nCopies(cells.size(), (String) null));
+                    for (Cell cell : order) {
+                        CellValue cv = shared.evaluate(cell);
+                        results.set(cells.indexOf(cell), cv.formatAsString());
+                    }
+                    return results;
+                }));
+            }
+            for (Future<List<String>> future : futures) {
+                List<String> results = future.get();
+                for (int i = 0; i < cells.size(); i++) {
+                    Cell cell = cells.get(i);
+                    String formula = cell.getSheet().getSheetName() + "!" + cell.getAddress() + " " + cell.getCellFormula();
+                    assertEquals(formula, expected.get(i), results.get(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void sameResultsAsSingleThread() throws Exception {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            List<Cell> cells = createWorkbook(wb);
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            SharedWorkbookEvaluator shared = fe.createSharedEvaluator();
+            HSSFRow row = wb.getSheet("Calc").getRow(BLOCK_ROWS / 2);
+            assertEquals("~CIRCULAR~REF~", shared.evaluate(row.getCell(4)).formatAsString());
+            assertSameResults(fe, shared, cells);
+        }
+    }
+
+    @Test
+    public void plainValues() throws IOException {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            createWorkbook(wb);
+            SharedWorkbookEvaluator shared = new HSSFFormulaEvaluator(wb).createSharedEvaluator();
+            assertEquals("3.0", shared.evaluate(wb.getSheet("Data").getRow(3).getCell(0)).formatAsString());
+            assertNull(shared.evaluate(wb.getSheet("Data").getRow(3).createCell(5)));
+            assertNull(shared.evaluate(null));
+        }
+    }
+
+    @Test
+    public void clearAfterChanges() throws Exception {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            List<Cell> cells = createWorkbook(wb);
+            HSSFFormulaEvaluator fe = new HSSFFormulaEvaluator(wb);
+            SharedWorkbookEvaluator shared = fe.createSharedEvaluator();
+            Cell last = wb.getSheet("Calc").getRow(ROWS - 1).getCell(0);
+            String sum = shared.evaluate(last).formatAsString();
+
+            wb.getSheet("Data").getRow(ROWS - 40).getCell(0).setCellValue(1000);
+            wb.getSheet("Data").getRow(20).getCell(1).setCellValue("seven");
+            assertEquals(sum, shared.evaluate(last).formatAsString());
+            shared.clearAllCachedResultValues();
+            assertEquals(Double.toString(Double.parseDouble(sum) + 1000 - (ROWS - 40)), shared.evaluate(last).formatAsString());
+            assertSameResults(fe, shared, cells);
+        }
+    }
+
+    @Test
+    public void newEvaluator() throws Exception {
+        try (HSSFWorkbook wb = new HSSFWorkbook()) {
+            assertSameResults(wb, createWorkbook(wb));
+        }
+    }
+}
@@ -18,11 +18,18 @@
 package org.apache.poi.ss.usermodel;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.poi.ss.ITestDataProvider;
+import org.apache.poi.ss.formula.BaseFormulaEvaluator;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 /**
  * Common superclass for testing implementation of {@link FormulaEvaluator}
@@ -624,4 +631,140 @@ public abstract class BaseTestFormulaEvaluator {
             assertEquals(3.0, cell.getNumericCellValue(), 0.01);
         }
     }
+
+    /**
+     * Recalculate all formula cells concurrently, if the evaluator supports it
+     *
+     * @return false if the evaluator doesn't support it
+     */
+    protected boolean evaluateAll(FormulaEvaluator evaluator, ForkJoinPool pool) {
+        return false;
+    }
+
+    @Test
+    public void evaluateAllConcurrently() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try (Workbook expected = createDependentFormulas(); Workbook actual = createDependentFormulas()) {
+            assumeTrue(evaluateAll(actual.getCreationHelper().createFormulaEvaluator(), pool));
+            expected.getCreationHelper().createFormulaEvaluator().evaluateAll();
+
+            for (int s = 0; s < expected.getNumberOfSheets(); s++) {
+                for (Row row : expected.getSheetAt(s)) {
+                    for (Cell cell : row) {
+                        if (cell.getCellType() == CellType.FORMULA) {
+                            Cell other = actual.getSheetAt(s).getRow(cell.getRowIndex()).getCell(cell.getColumnIndex());
+                            String ref = cell.getSheet().getSheetName() + "!" + cell.getAddress();
+                            assertEquals(ref, cachedResult(cell), cachedResult(other));
+                        }
+                    }
+                }
+            }
+
+            Sheet calc = actual.getSheet("Calc");
+            assertEquals(20100.0 * 3 / 2, calc.getRow(1).getCell(0).getNumericCellValue(), 0);
+            assertEquals(FormulaError.CIRCULAR_REF.getCode(), calc.getRow(3).getCell(0).getErrorCellValue());
+            assertEquals(18.0, actual.getSheet("Data").getRow(1).getCell(6).getNumericCellValue(), 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Workbook createDependentFormulas() {
+        Workbook wb = _testDataProvider.createWorkbook();
+        Sheet data = wb.createSheet("Data");
+        Sheet calc = wb.createSheet("Calc");
+        Name total = wb.createName();
+        total.setNameName("Total");
+        total.setRefersToFormula("Data!$B$1:$B$10");
+        for (int r = 0; r < 200; r++) {
+            String n = Integer.toString(r + 1);
+            Row row = data.createRow(r);
+            row.createCell(0).setCellValue(r + 1);
+            // independent cells, a chain, overlapping areas, strings and booleans, errors, dynamic references
+            row.createCell(1).setCellFormula("A" + n + "*3");
+            row.createCell(2).setCellFormula(r == 0 ? "B1" : "C" + r + "+B" + n);
+            row.createCell(3).setCellFormula("SUM($B$1:B" + n + ")");
+            row.createCell(4).setCellFormula("IF(MOD(A" + n + ",2)=0,\"even\",A" + n + ">100)");
+            row.createCell(5).setCellFormula("1/(A" + n + "-100)");
+            row.createCell(6).setCellFormula("INDIRECT(\"C\"&ROW())*2");
+            row.createCell(7).setCellFormula("SUM(Total)+Calc!A2+Calc!A1");
+        }
+
+        calc.createRow(0).createCell(0).setCellFormula("COUNTIF(Data!E1:E200,\"even\")");
+        calc.createRow(1).createCell(0).setCellFormula("SUM(Data!B:B)/2");
+        // a reference cycle and a cell depending on it
+        calc.createRow(2).createCell(0).setCellFormula("A4+1");
+        calc.createRow(3).createCell(0).setCellFormula("A3+1");
+        calc.createRow(4).createCell(0).setCellFormula("A4*2+A1");
+        return wb;
+    }
+
+    @Test
+    public void recalculateDependents() throws IOException {
+        try (Workbook wb = _testDataProvider.createWorkbook()) {
+            Sheet sheet = wb.createSheet();
+            Row row1 = sheet.createRow(0);
+            Row row2 = sheet.createRow(1);
+            Cell a1 = row1.createCell(0);
+            a1.setCellValue(1);
+            Cell a2 = row2.createCell(0);
+            a2.setCellValue(2);
+            Cell b1 = row1.createCell(1);
+            b1.setCellFormula("A1*2");
+            Cell c1 = row1.createCell(2);
+            c1.setCellFormula("B1+1");
+            Cell d1 = row1.createCell(3);
+            d1.setCellFormula("SUM(A1:A2)");
+            Cell e1 = row1.createCell(4);
+            e1.setCellFormula("A2*3");
+            Cell f1 = row1.createCell(5);
+            f1.setCellFormula("IF(C1>10,\"big\",\"small\")");
+
+            FormulaEvaluator fe = wb.getCreationHelper().createFormulaEvaluator();
+            fe.evaluateAll();
+            assertEquals(6.0, e1.getNumericCellValue(), 0);
+            // a cell which doesn't depend on A1 must not be evaluated again
+            e1.setCellValue(-1);
+
+            a1.setCellValue(3);
+            Set<Cell> changed = ((BaseFormulaEvaluator) fe).recalculate(Collections.singleton(a1));
+            assertEquals(new HashSet<>(Arrays.asList(b1, c1, d1)), changed);
+            assertEquals(6.0, b1.getNumericCellValue(), 0);
+            assertEquals(7.0, c1.getNumericCellValue(), 0);
+            assertEquals(5.0, d1.getNumericCellValue(), 0);
+            assertEquals(-1.0, e1.getNumericCellValue(), 0);
+            assertEquals("small", f1.getStringCellValue());
+
+            a1.setCellValue(10);
+            fe.notifyUpdateCell(a1);
+            a2.setCellValue(0);
+            changed = ((BaseFormulaEvaluator) fe).recalculate(Collections.singleton(a2));
+            assertEquals(new HashSet<>(Arrays.asList(b1, c1, d1, e1, f1)), changed);
+            assertEquals("big", f1.getStringCellValue());
+            assertEquals(0.0, e1.getNumericCellValue(), 0);
+
+            // changed formulas are recalculated together with their dependents
+            b1.setCellFormula("A1*3");
+            changed = ((BaseFormulaEvaluator) fe).recalculate(Collections.singleton(b1));
+            assertEquals(new HashSet<>(Arrays.asList(b1, c1)), changed);
+            assertEquals(31.0, c1.getNumericCellValue(), 0);
+
+            assertEquals(0, ((BaseFormulaEvaluator) fe).recalculate(Collections.<Cell>emptySet()).size());
+        }
+    }
+
+    private static String cachedResult(Cell cell) {
+        switch (cell.getCachedFormulaResultType()) {
+            case NUMERIC:
+                return "N" + cell.getNumericCellValue();
+            case STRING:
+                return "S" + cell.getStringCellValue();
+            case BOOLEAN:
+                return "B" + cell.getBooleanCellValue();
+            case ERROR:
+                return "E" + cell.getErrorCellValue();
+            default:
+                return cell.getCachedFormulaResultType().toString();
+        }
+    }
 }